@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.camp.brooklyn.catalog;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.api.typereg.ManagedBundle;
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.camp.brooklyn.AbstractYamlRebindTest;
+import org.apache.brooklyn.camp.brooklyn.AbstractYamlTest;
+import org.apache.brooklyn.core.catalog.internal.BasicBrooklynCatalog;
+import org.apache.brooklyn.core.catalog.internal.CatalogIndex;
+import org.apache.brooklyn.core.mgmt.ha.OsgiManager;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
+import org.apache.brooklyn.core.mgmt.rebind.RebindTestUtils;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.core.typereg.BasicManagedBundle;
+import org.apache.brooklyn.core.typereg.RegisteredTypePredicates;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.osgi.BundleMaker;
+import org.apache.brooklyn.util.osgi.VersionedName;
+import org.osgi.framework.Constants;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.io.Files;
+
+/** Tests that the {@link CatalogIndex} is used on rebind, and that bundles are parsed when it cannot be used. */
+public class CatalogIndexRebindTest extends AbstractYamlRebindTest {
+
+    private static final VersionedName BUNDLE = new VersionedName("org.apache.brooklyn.test.catalogindex", "1.0.0");
+    private static final VersionedName SNAPSHOT_BUNDLE = new VersionedName("org.apache.brooklyn.test.catalogindex", "1.0.0.SNAPSHOT");
+    private static final VersionedName LIBRARY = new VersionedName("org.apache.brooklyn.test.catalogindex.library", "1.0.0");
+
+    @Override
+    protected boolean useOsgi() {
+        return true;
+    }
+
+    private static String bom(String version, List<String> libraries, String... ids) {
+        StringBuilder result = new StringBuilder()
+            .append("brooklyn.catalog:\n")
+            .append("  version: \"").append(version).append("\"\n")
+            .append("  itemType: entity\n");
+        if (!libraries.isEmpty()) {
+            result.append("  brooklyn.libraries:\n");
+            for (String library: libraries) {
+                result.append("  - ").append(library).append("\n");
+            }
+        }
+        result.append("  items:\n");
+        for (String id: ids) {
+            result.append("  - id: ").append(id).append("\n")
+                .append("    item:\n")
+                .append("      type: ").append(TestEntity.class.getName()).append("\n");
+        }
+        return result.toString();
+    }
+
+    private CatalogIndex catalogIndex() {
+        return ((BasicBrooklynCatalog)mgmt().getCatalog()).getCatalogIndex();
+    }
+
+    private OsgiManager osgiManager() {
+        return ((ManagementContextInternal)mgmt()).getOsgiManager().get();
+    }
+
+    private Set<String> typesInBundle(VersionedName bundle) {
+        Set<String> result = MutableSet.of();
+        for (RegisteredType type: mgmt().getTypeRegistry().getMatching(RegisteredTypePredicates.containingBundle(bundle))) {
+            result.add(type.getId());
+        }
+        return result;
+    }
+
+    private File catalogIndexFile() {
+        return new File(mementoDir, BrooklynMementoPersisterToObjectStore.CATALOG_INDEX_FILE_NAME);
+    }
+
+    @Test
+    public void testRebindUsesIndexedTypes() throws Exception {
+        AbstractYamlTest.addCatalogItemsAsOsgiInUsualWay(mgmt(), bom("1.0.0", ImmutableList.<String>of(), "catalog-index-one", "catalog-index-two"), BUNDLE, false);
+        Set<String> types = typesInBundle(BUNDLE);
+        assertEquals(types, ImmutableSet.of("catalog-index-one:1.0.0", "catalog-index-two:1.0.0"));
+        assertEquals(catalogIndex().size(), 1);
+        assertEquals(catalogIndex().getHitCount(), 0);
+
+        rebind();
+
+        assertEquals(catalogIndex().getHitCount(), 1, "stats="+catalogIndex().getStats());
+        assertEquals(catalogIndex().getMissCount(), 0, "stats="+catalogIndex().getStats());
+        assertEquals(typesInBundle(BUNDLE), types);
+        RegisteredType type = mgmt().getTypeRegistry().get("catalog-index-one", "1.0.0");
+        assertEquals(type.getContainingBundle(), BUNDLE.toString());
+
+        // the indexed types are usable as normal
+        Entity app = createAndStartApplication("services: [ { type: 'catalog-index-one:1.0.0' } ]");
+        Entity entity = Iterables.getOnlyElement(app.getChildren());
+        assertTrue(entity instanceof TestEntity, "entity="+entity);
+    }
+
+    @Test
+    public void testIndexedTypesNotUsedIfLibraryMissing() throws Exception {
+        BundleMaker bundleMaker = new BundleMaker(mgmt());
+        File library = bundleMaker.createTempBundle("catalog-index-library",
+            MutableMap.of(
+                "Manifest-Version", "2.0",
+                Constants.BUNDLE_SYMBOLICNAME, LIBRARY.getSymbolicName(),
+                Constants.BUNDLE_VERSION, LIBRARY.getOsgiVersion().toString()),
+            MutableMap.<ZipEntry, InputStream>of(new ZipEntry("catalog-index-library.txt"), new ByteArrayInputStream("library".getBytes())));
+        AbstractYamlTest.addCatalogItemsAsOsgiInUsualWay(mgmt(),
+            bom("1.0.0", ImmutableList.of(library.toURI().toString()), "catalog-index-with-library"), BUNDLE, false);
+        ManagedBundle libraryBundle = osgiManager().getManagedBundle(LIBRARY);
+        assertNotNull(libraryBundle);
+        assertEquals(catalogIndex().size(), 1);
+
+        // simulate the library having been removed from the persisted state
+        RebindTestUtils.stopPersistence(mgmt());
+        File libraryMemento = new File(new File(mementoDir, BrooklynObjectType.MANAGED_BUNDLE.getSubPathName()), libraryBundle.getId());
+        assertTrue(libraryMemento.exists(), "no memento at "+libraryMemento);
+        assertTrue(libraryMemento.delete());
+        assertTrue(new File(libraryMemento.getPath()+".jar").delete());
+
+        rebind();
+
+        // the BOM is parsed, which installs the library again
+        assertEquals(catalogIndex().getHitCount(), 0, "stats="+catalogIndex().getStats());
+        assertEquals(catalogIndex().getMissCount(), 1, "stats="+catalogIndex().getStats());
+        assertNotNull(osgiManager().getManagedBundle(LIBRARY));
+        assertEquals(typesInBundle(BUNDLE), ImmutableSet.of("catalog-index-with-library:1.0.0"));
+        createAndStartApplication("services: [ { type: 'catalog-index-with-library:1.0.0' } ]");
+    }
+
+    @Test
+    public void testChangedBundleIsParsedOnRebind() throws Exception {
+        AbstractYamlTest.addCatalogItemsAsOsgiInUsualWay(mgmt(), bom("1.0.0-SNAPSHOT", ImmutableList.<String>of(), "catalog-index-old"), SNAPSHOT_BUNDLE, false);
+        String oldChecksum = osgiManager().getManagedBundle(SNAPSHOT_BUNDLE).getChecksum();
+        RebindTestUtils.waitForPersisted(mgmt());
+        String indexForOldBundle = Files.toString(catalogIndexFile(), Charsets.UTF_8);
+
+        // change the bundle, but have the persisted index still refer to the old one,
+        // as if the index could not be written after the bundle was changed
+        AbstractYamlTest.addCatalogItemsAsOsgiInUsualWay(mgmt(), bom("1.0.0-SNAPSHOT", ImmutableList.<String>of(), "catalog-index-new"), SNAPSHOT_BUNDLE, false);
+        ManagedBundle changedBundle = osgiManager().getManagedBundle(SNAPSHOT_BUNDLE);
+        assertNotEquals(changedBundle.getChecksum(), oldChecksum);
+        RebindTestUtils.stopPersistence(mgmt());
+        Files.write(indexForOldBundle, catalogIndexFile(), Charsets.UTF_8);
+
+        rebind();
+
+        assertEquals(catalogIndex().getHitCount(), 0, "stats="+catalogIndex().getStats());
+        assertEquals(catalogIndex().getMissCount(), 1, "stats="+catalogIndex().getStats());
+        assertEquals(typesInBundle(SNAPSHOT_BUNDLE), ImmutableSet.of("catalog-index-new:1.0.0-SNAPSHOT"));
+        assertNull(mgmt().getTypeRegistry().get("catalog-index-old", "1.0.0-SNAPSHOT"));
+
+        // and the types parsed are now indexed against the changed bundle
+        assertFalse(catalogIndex().lookup(new BasicManagedBundle(
+            SNAPSHOT_BUNDLE.getSymbolicName(), SNAPSHOT_BUNDLE.getVersionString(), null, oldChecksum)).isPresent());
+        assertTrue(catalogIndex().lookup(osgiManager().getManagedBundle(SNAPSHOT_BUNDLE)).isPresent());
+    }
+}
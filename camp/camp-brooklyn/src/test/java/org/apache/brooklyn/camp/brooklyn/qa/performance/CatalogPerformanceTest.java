@@ -24,12 +24,16 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.brooklyn.api.catalog.CatalogItem;
 import org.apache.brooklyn.camp.brooklyn.AbstractYamlTest;
+import org.apache.brooklyn.core.catalog.internal.BasicBrooklynCatalog;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.server.BrooklynServerConfig;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.core.test.policy.TestPolicy;
 import org.apache.brooklyn.core.test.qa.performance.AbstractPerformanceTest;
 import org.apache.brooklyn.test.performance.PerformanceMeasurer;
 import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
 import org.apache.brooklyn.test.performance.PerformanceTestResult;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.Test;
@@ -88,6 +92,68 @@ public class CatalogPerformanceTest extends AbstractYamlTest {
         return ImmutableList.copyOf(mgmt().getCatalog().addItems(yaml));
     }
     
+    /** adds items in chains, each referring to the one before, so they are validated in several waves */
+    private List<CatalogItem<?, ?>> addInterdependentItems(int idSuffix, int numChains) {
+        List<String> lines = MutableList.of(
+                "brooklyn.catalog:",
+                "  version: " + TEST_VERSION,
+                "  items:");
+        for (int j = 0; j < numChains; j++) {
+            String prefix = "chain-" + idSuffix + "-" + j;
+            lines.addAll(ImmutableList.of(
+                "  - id: " + prefix + "-base",
+                "    itemType: entity",
+                "    item:",
+                "      type: " + TestEntity.class.getName(),
+                "  - id: " + prefix + "-mid",
+                "    itemType: entity",
+                "    item:",
+                "      type: " + prefix + "-base",
+                "  - id: " + prefix + "-app",
+                "    itemType: template",
+                "    item:",
+                "      services:",
+                "      - type: " + prefix + "-mid"));
+        }
+        return ImmutableList.copyOf(mgmt().getCatalog().addItems(Joiner.on("\n").join(lines)));
+    }
+    
+    @Test(groups={"Integration"})
+    public void testAddInterdependentItems() {
+        runAddInterdependentItems("testAddInterdependentItems", 1);
+    }
+    
+    @Test(groups={"Integration"})
+    public void testAddInterdependentItemsInParallel() {
+        runAddInterdependentItems("testAddInterdependentItemsInParallel", 4);
+    }
+    
+    protected void runAddInterdependentItems(String methodName, int parallelism) {
+        ((ManagementContextInternal)mgmt()).getBrooklynProperties().put(BrooklynServerConfig.CATALOG_VALIDATION_PARALLELISM, parallelism);
+        final AtomicInteger counter = new AtomicInteger();
+        final AtomicReference<List<CatalogItem<?,?>>> items = new AtomicReference<>();
+        
+        Runnable job = new Runnable() {
+            @Override
+            public void run() {
+                int i = counter.getAndIncrement();
+                items.set(addInterdependentItems(i, 10));
+            }
+        };
+        Runnable postJob = new Runnable() {
+            @Override
+            public void run() {
+                if (items.get() != null) {
+                    for (CatalogItem<?, ?> item : items.get()) {
+                        mgmt().getCatalog().deleteCatalogItem(item.getSymbolicName(),  item.getVersion());
+                    }
+                }
+            }
+        };
+        runPerformanceTest(methodName, null, job, postJob);
+        LOG.info(methodName+": validation time by bundle of last iteration: "+((BasicBrooklynCatalog)mgmt().getCatalog()).getValidationTimesByBundle());
+    }
+    
     @Test(groups={"Integration"})
     public void testAddItems() {
         final AtomicInteger counter = new AtomicInteger();
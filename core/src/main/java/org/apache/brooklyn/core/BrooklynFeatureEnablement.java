@@ -132,6 +132,15 @@ public class BrooklynFeatureEnablement {
 
     public static final String FEATURE_VALIDATE_LOCATION_SSH_KEYS = "brooklyn.validate.locationSshKeys";
 
+    /**
+     * Whether entities and adjuncts cache the values resolved when config is retrieved, 
+     * until config is changed on them or their ancestors; values which are resolved on each retrieval
+     * (such as tasks and deferred suppliers) are never cached.
+     * <p>
+     * This is read once, when the config map classes are loaded.
+     */
+    public static final String FEATURE_CONFIG_RESOLUTION_CACHE = FEATURE_PROPERTY_PREFIX+".configResolutionCache";
+
     /**
      * Values explicitly set by Java calls.
      */
@@ -170,6 +179,7 @@ public class BrooklynFeatureEnablement {
         setDefault(FEATURE_AUTO_FIX_CATALOG_REF_ON_REBIND, false);
         setDefault(FEATURE_SSH_ASYNC_EXEC, false);
         setDefault(FEATURE_VALIDATE_LOCATION_SSH_KEYS, true);
+        setDefault(FEATURE_CONFIG_RESOLUTION_CACHE, true);
     }
     
     static {
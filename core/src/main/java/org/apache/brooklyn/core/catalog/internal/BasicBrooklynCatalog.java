@@ -30,12 +30,17 @@ import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
@@ -50,8 +55,10 @@ import org.apache.brooklyn.api.entity.Application;
 import org.apache.brooklyn.api.internal.AbstractBrooklynObjectSpec;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.classloading.BrooklynClassLoadingContext;
+import org.apache.brooklyn.api.mgmt.entitlement.EntitlementContext;
 import org.apache.brooklyn.api.objs.BrooklynObject;
 import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry;
 import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
 import org.apache.brooklyn.api.typereg.ManagedBundle;
 import org.apache.brooklyn.api.typereg.OsgiBundleWithUrl;
@@ -60,10 +67,12 @@ import org.apache.brooklyn.api.typereg.RegisteredTypeLoadingContext;
 import org.apache.brooklyn.core.catalog.CatalogPredicates;
 import org.apache.brooklyn.core.catalog.internal.CatalogClasspathDo.CatalogScanningModes;
 import org.apache.brooklyn.core.mgmt.BrooklynTags;
+import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
 import org.apache.brooklyn.core.mgmt.ha.OsgiBundleInstallationResult;
 import org.apache.brooklyn.core.mgmt.ha.OsgiManager;
 import org.apache.brooklyn.core.mgmt.internal.CampYamlParser;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.server.BrooklynServerConfig;
 import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
 import org.apache.brooklyn.core.typereg.BasicManagedBundle;
 import org.apache.brooklyn.core.typereg.BasicRegisteredType;
@@ -108,6 +117,7 @@ import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -131,6 +141,11 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
 
     /** Header on bundle indicating it is a wrapped BOM with no other resources */
     public static final String BROOKLYN_WRAPPED_BOM_BUNDLE = "Brooklyn-Wrapped-BOM";
+
+    /** key in {@link #getValidationTimesByBundle()} for types which are not in a bundle */
+    @Beta
+    public static final String NO_BUNDLE = "<no bundle>";
+
     @VisibleForTesting
     public static final boolean AUTO_WRAP_CATALOG_YAML_AS_BUNDLE = true;
     
@@ -173,6 +188,12 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
      */
     private final SpecCache specCache;
 
+    /** see {@link #getValidationTimesByBundle()} */
+    private final Map<String,Duration> validationTimesByBundle = new ConcurrentHashMap<String,Duration>();
+
+    /** see {@link #getCatalogIndex()} */
+    private final CatalogIndex catalogIndex = new CatalogIndex();
+
     public BasicBrooklynCatalog(ManagementContext mgmt) {
         this(mgmt, CatalogDto.newNamedInstance("empty catalog", "empty catalog", "empty catalog, expected to be reset later"));
     }
@@ -196,7 +217,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
     }
 
     public void reset(CatalogDto dto, boolean failOnLoadError) {
-        specCache.invalidate();
+        invalidateSpecCaches();
         // Unregister all existing persisted items.
         for (CatalogItem<?, ?> toRemove : getCatalogItemsLegacy()) {
             if (log.isTraceEnabled()) {
@@ -346,7 +367,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         manualAdditionsCatalog.deleteEntry(itemDto);
         
         // Ensure the caches are de-populated
-        specCache.invalidate();
+        invalidateSpecCaches();
         getCatalog().deleteEntry(itemDto);
 
         // And indicate to the management context that it should be removed.
@@ -401,7 +422,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
     }
 
     private void resetRootClassLoader() {
-        specCache.invalidate();
+        invalidateSpecCaches();
         rootClassLoader.reset(ImmutableList.of(catalog.getRootClassLoader()));
     }
 
@@ -1598,12 +1619,13 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         }
         // do type validation so supertypes are populated and errors are at least logged in legacy mode (only time this is used)
         // (validation normally done by osgi load routines)
-        Map<String,Collection<Throwable>> errors = MutableMap.of();
+        List<RegisteredType> typesToValidate = MutableList.of();
         for (CatalogItemDtoAbstract<?, ?> item: result) {
-            Collection<Throwable> errorsInItem = validateType(RegisteredTypes.of(item), null);
-            if (!errorsInItem.isEmpty()) {
-                errors.put(item.getCatalogItemId(), errorsInItem);
-            }
+            typesToValidate.add(RegisteredTypes.of(item));
+        }
+        Map<String,Collection<Throwable>> errors = MutableMap.of();
+        for (Map.Entry<RegisteredType,Collection<Throwable>> errorsInItem: validateTypes(typesToValidate).entrySet()) {
+            errors.put(errorsInItem.getKey().getId(), errorsInItem.getValue());
         }
         if (!errors.isEmpty()) {
             log.warn("Error adding YAML"+(bundle!=null ? " for bundle "+bundle : "")+" (ignoring, but types will not be usable): "+errors);
@@ -1619,28 +1641,132 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         collectCatalogItemsFromCatalogBomRoot("bundle BOM in "+bundle, yaml, bundle, null, result, false, MutableMap.of(), 0, forceUpdate);
     }
     
+    /**
+     * Validates the given types, in waves such that types are validated after the types they refer to
+     * (see {@link TypeValidationWaves}), with the types in each wave validated concurrently
+     * if {@link BrooklynServerConfig#CATALOG_VALIDATION_PARALLELISM} is greater than 1.
+     * Types which fail are retried so long as fewer fail each time.
+     * The time taken for the types in each bundle is available afterwards from {@link #getValidationTimesByBundle()}.
+     */
     @Override @Beta
     public Map<RegisteredType,Collection<Throwable>> validateTypes(Iterable<RegisteredType> typesToValidate) {
-        List<RegisteredType> typesRemainingToValidate = MutableList.copyOf(typesToValidate);
-        while (true) {
-            log.debug("Catalog load, starting validation cycle, "+typesRemainingToValidate.size()+" to validate");
-            Map<RegisteredType,Collection<Throwable>> result = MutableMap.of();
-            for (RegisteredType t: typesRemainingToValidate) {
-                Collection<Throwable> tr = validateType(t, null);
-                if (!tr.isEmpty()) {
-                    result.put(t, tr);
+        int parallelism = Math.max(1, mgmt.getConfig().getConfig(BrooklynServerConfig.CATALOG_VALIDATION_PARALLELISM));
+        Map<String,Long> nanosByBundle = new ConcurrentHashMap<String,Long>();
+        Stopwatch timer = Stopwatch.createStarted();
+        int typeCount = 0;
+        ForkJoinPool pool = null;
+        try {
+            List<RegisteredType> typesRemainingToValidate = MutableList.copyOf(typesToValidate);
+            typeCount = typesRemainingToValidate.size();
+            while (true) {
+                List<List<RegisteredType>> waves = TypeValidationWaves.of(typesRemainingToValidate);
+                log.debug("Catalog load, starting validation cycle, "+typesRemainingToValidate.size()+" to validate in "+waves.size()+" wave(s)");
+                // types can be changed by validation, so errors are recorded by identity rather than as map keys
+                Map<RegisteredType,Collection<Throwable>> errors = Collections.synchronizedMap(new IdentityHashMap<RegisteredType,Collection<Throwable>>());
+                for (List<RegisteredType> wave: waves) {
+                    if (parallelism > 1 && wave.size() > 1) {
+                        if (pool==null) pool = newValidationPool(parallelism);
+                        validateTypesConcurrently(pool, wave, errors, nanosByBundle);
+                    } else {
+                        for (RegisteredType t: wave) {
+                            validateTypeTimed(t, errors, nanosByBundle);
+                        }
+                    }
+                }
+                Map<RegisteredType,Collection<Throwable>> result = MutableMap.of();
+                for (RegisteredType t: typesRemainingToValidate) {
+                    Collection<Throwable> tr = errors.get(t);
+                    if (tr!=null) {
+                        result.put(t, tr);
+                    }
+                }
+                log.debug("Catalog load, finished validation cycle, "+result.size()+" unvalidated");
+                if (result.isEmpty() || result.size()==typesRemainingToValidate.size()) {
+                    return result;
                 }
+                // recurse wherever there were problems so long as we are reducing the number of problem types
+                // (the waves mean this is rarely needed, but it lets us solve reference problems the waves don't detect,
+                // in max O(N^2) time)
+                typesRemainingToValidate = MutableList.copyOf(result.keySet());
             }
-            log.debug("Catalog load, finished validation cycle, "+typesRemainingToValidate.size()+" unvalidated");
-            if (result.isEmpty() || result.size()==typesRemainingToValidate.size()) {
-                return result;
+        } finally {
+            if (pool!=null) pool.shutdownNow();
+            Map<String,Duration> timesByBundle = MutableMap.of();
+            for (Map.Entry<String,Long> entry: nanosByBundle.entrySet()) {
+                timesByBundle.put(entry.getKey(), Duration.nanos(entry.getValue()));
+            }
+            validationTimesByBundle.putAll(timesByBundle);
+            if (log.isDebugEnabled()) {
+                log.debug("Catalog load, validated "+typeCount+" type(s) in "+Duration.of(timer)+
+                    (parallelism > 1 ? " (parallelism "+parallelism+")" : "")+"; time by bundle: "+timesByBundle);
             }
-            // recurse wherever there were problems so long as we are reducing the number of problem types
-            // (this lets us solve complex reference problems without needing a complex dependency tree,
-            // in max O(N^2) time)
-            typesRemainingToValidate = MutableList.copyOf(result.keySet());
         }
     }
+
+    /** time spent most recently validating the types in each bundle, keyed by bundle name and version,
+     * with {@link #NO_BUNDLE} for types not in a bundle */
+    @Beta
+    public Map<String,Duration> getValidationTimesByBundle() {
+        return ImmutableMap.copyOf(validationTimesByBundle);
+    }
+
+    /** the types parsed from the BOMs of bundles, used by {@link CatalogBundleLoader} to avoid re-parsing unchanged bundles
+     * and written to the persistence store */
+    @Beta
+    public CatalogIndex getCatalogIndex() {
+        return catalogIndex;
+    }
+
+    private void validateTypeTimed(RegisteredType t, Map<RegisteredType,Collection<Throwable>> errors, Map<String,Long> nanosByBundle) {
+        String bundle = t.getContainingBundle()!=null ? t.getContainingBundle() : NO_BUNDLE;
+        long start = System.nanoTime();
+        try {
+            Collection<Throwable> tr = validateType(t, null);
+            if (!tr.isEmpty()) {
+                errors.put(t, tr);
+            }
+        } finally {
+            nanosByBundle.merge(bundle, System.nanoTime()-start, Long::sum);
+        }
+    }
+
+    private void validateTypesConcurrently(ForkJoinPool pool, List<RegisteredType> types, 
+            Map<RegisteredType,Collection<Throwable>> errors, Map<String,Long> nanosByBundle) {
+        final ClassLoader callerContextClassLoader = Thread.currentThread().getContextClassLoader();
+        final EntitlementContext callerEntitlementContext = Entitlements.getEntitlementContext();
+        List<ForkJoinTask<?>> tasks = MutableList.of();
+        for (RegisteredType t: types) {
+            tasks.add(pool.submit(() -> {
+                Thread thread = Thread.currentThread();
+                ClassLoader oldContextClassLoader = thread.getContextClassLoader();
+                thread.setContextClassLoader(callerContextClassLoader);
+                Entitlements.setEntitlementContext(callerEntitlementContext);
+                try {
+                    validateTypeTimed(t, errors, nanosByBundle);
+                } finally {
+                    Entitlements.clearEntitlementContext();
+                    thread.setContextClassLoader(oldContextClassLoader);
+                }
+            }));
+        }
+        RuntimeException failure = null;
+        for (ForkJoinTask<?> task: tasks) {
+            try {
+                task.join();
+            } catch (RuntimeException e) {
+                if (failure==null) failure = e;
+            }
+        }
+        if (failure!=null) throw failure;
+    }
+
+    private static ForkJoinPool newValidationPool(int parallelism) {
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("brooklyn-catalog-validation-"+thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
     
     @Override @Beta
     public Collection<Throwable> validateType(RegisteredType typeToValidate, RegisteredTypeLoadingContext constraint) {
@@ -1851,7 +1977,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         }
 
         // Clear spec cache (in-case overwriting existing)
-        specCache.invalidate();
+        invalidateSpecCaches();
         
         if (manualAdditionsCatalog==null) loadManualAdditionsCatalog();
         manualAdditionsCatalog.addEntry(itemDto);
@@ -1896,7 +2022,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
     @Override @Deprecated /** @deprecated see super */
     public void addItem(CatalogItem<?,?> item) {
         // Clear spec-cache (in-case overwriting)
-        specCache.invalidate();
+        invalidateSpecCaches();
         
         //assume forceUpdate for backwards compatibility
         log.debug("Adding manual catalog item to "+mgmt+": "+item);
@@ -1913,7 +2039,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
     }
     
     private void addCatalogLegacyItemsOnRebind(Iterable<? extends CatalogItem<?,?>> items, boolean failOnLoadError) {
-        specCache.invalidate();
+        invalidateSpecCaches();
         
         log.debug("Adding manual catalog items to "+mgmt+": "+items);
         checkNotNull(items, "item");
@@ -1953,7 +2079,7 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         CatalogItem<?, ?> result = manualAdditionsCatalog.classpath.addCatalogEntry(type);
         
         // Clear spec-cache (in-case overwriting)
-        specCache.invalidate();
+        invalidateSpecCaches();
         
         return result;
     }
@@ -2103,6 +2229,15 @@ public class BasicBrooklynCatalog implements BrooklynCatalog {
         };
     }
 
+    /** as the legacy catalog changes, specs created from types (which may refer to legacy items) are discarded too */
+    private void invalidateSpecCaches() {
+        specCache.invalidate();
+        BrooklynTypeRegistry typeRegistry = mgmt.getTypeRegistry();
+        if (typeRegistry instanceof BasicBrooklynTypeRegistry) {
+            ((BasicBrooklynTypeRegistry)typeRegistry).getSpecCache().invalidateAll();
+        }
+    }
+
     private static class SpecCache {
         private final Map<String, AbstractBrooklynObjectSpec<?,?>> cache = Collections.synchronizedMap(
                 Maps.<String, AbstractBrooklynObjectSpec<?,?>>newLinkedHashMap());
@@ -23,19 +23,30 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.catalog.BrooklynCatalog;
 import org.apache.brooklyn.api.catalog.CatalogItem;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
 import org.apache.brooklyn.api.typereg.ManagedBundle;
+import org.apache.brooklyn.api.typereg.OsgiBundleWithUrl;
 import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.core.mgmt.ha.OsgiManager;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.server.BrooklynServerConfig;
+import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
 import org.apache.brooklyn.core.typereg.RegisteredTypePredicates;
 import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.osgi.VersionedName;
 import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.text.Strings;
@@ -44,6 +55,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
+import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 
 @Beta
@@ -101,7 +113,8 @@ public class CatalogBundleLoader {
                     LOG.debug("Added to catalog: {}, {}", item.getSymbolicName(), item.getVersion());
                 }
             } else {
-                this.managementContext.getCatalog().addTypesFromBundleBom(bomText, mb, force, result.mapOfNewToReplaced);
+                if (result.mapOfNewToReplaced==null) result.mapOfNewToReplaced = MutableMap.of();
+                addTypesFromBundleBom(bomText, mb, force, result.mapOfNewToReplaced);
                 if (validate) {
                     Set<RegisteredType> matches = MutableSet.copyOf(this.managementContext.getTypeRegistry().getMatching(RegisteredTypePredicates.containingBundle(mb.getVersionedName())));
                     Set<String> resultNames = result.mapOfNewToReplaced.keySet().stream().map((type) -> type.getId()).collect(Collectors.toSet());
@@ -130,6 +143,65 @@ public class CatalogBundleLoader {
         return result;
     }
 
+    /**
+     * Adds the types from the BOM to the type registry, as {@link BrooklynCatalog#addTypesFromBundleBom(String, ManagedBundle, boolean, Map)},
+     * but taking them from the {@link CatalogIndex} if they were previously parsed from a bundle with the same checksum
+     * (and any libraries they declare are installed), and otherwise recording them there after parsing.
+     */
+    private void addTypesFromBundleBom(String bomText, ManagedBundle mb, boolean force, Map<RegisteredType, RegisteredType> result) {
+        CatalogIndex index = getCatalogIndex();
+        if (index!=null) {
+            Maybe<List<RegisteredType>> indexedTypes = index.lookup(mb, new Predicate<RegisteredType>() {
+                @Override
+                public boolean apply(RegisteredType type) {
+                    return areLibrariesInstalled(type);
+                }
+            });
+            if (indexedTypes.isPresent()) {
+                LOG.debug("Catalog load, using {} indexed types for {} rather than parsing BOM", indexedTypes.get().size(), mb.getVersionedName());
+                BasicBrooklynTypeRegistry registry = (BasicBrooklynTypeRegistry) managementContext.getTypeRegistry();
+                for (RegisteredType type: indexedTypes.get()) {
+                    RegisteredType replacedInstance = registry.get(type.getSymbolicName(), type.getVersion());
+                    registry.addToLocalUnpersistedTypeRegistry(type, force);
+                    result.put(type, replacedInstance);
+                }
+                return;
+            }
+        }
+
+        Map<RegisteredType, RegisteredType> added = MutableMap.of();
+        this.managementContext.getCatalog().addTypesFromBundleBom(bomText, mb, force, added);
+        result.putAll(added);
+
+        if (index!=null && !added.isEmpty()) {
+            for (RegisteredType type: added.keySet()) {
+                // types scanned from java annotations are added differently, so always parse those bundles
+                if (type.getKind()!=RegisteredTypeKind.UNRESOLVED || !mb.getVersionedName().toString().equals(type.getContainingBundle())) return;
+            }
+            try {
+                index.record(mb, added.keySet());
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                LOG.debug("Unable to index types from "+mb.getVersionedName()+"; its BOM will be parsed when next installed: "+e);
+            }
+        }
+    }
+
+    @Nullable
+    private CatalogIndex getCatalogIndex() {
+        if (!(managementContext.getCatalog() instanceof BasicBrooklynCatalog)) return null;
+        if (!managementContext.getConfig().getConfig(BrooklynServerConfig.CATALOG_INDEX_ENABLED)) return null;
+        return ((BasicBrooklynCatalog)managementContext.getCatalog()).getCatalogIndex();
+    }
+
+    private boolean areLibrariesInstalled(RegisteredType type) {
+        OsgiManager osgiManager = ((ManagementContextInternal)managementContext).getOsgiManager().get();
+        for (OsgiBundleWithUrl library: type.getLibraries()) {
+            if (osgiManager.findBundle(library).isAbsent()) return false;
+        }
+        return true;
+    }
+
     /**
      * Remove the given items from the catalog.
      *
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.catalog.internal;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.typereg.ManagedBundle;
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.core.BrooklynVersion;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.xstream.XmlSerializer;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.osgi.VersionedName;
+import org.apache.brooklyn.util.stream.Streams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+
+/**
+ * Index of the {@link RegisteredType}s parsed from the BOM of each bundle, keyed by the bundle
+ * and its checksum, so that when a bundle is installed again with the same checksum
+ * (most commonly on rebind) the types can be taken from here rather than by re-parsing the BOM.
+ * The types are recorded as they are immediately after parsing, before validation,
+ * so they still go through the usual validation when they are reused.
+ * <p>
+ * The index is written to the persistence store (see {@link #toPersistedString()}) with a header
+ * giving the format version, the Brooklyn version and a checksum of the contents, and it is
+ * ignored when loaded by a different version or if the contents are corrupt.
+ * Entries are replaced when a bundle is installed with a different checksum and removed when
+ * a bundle is uninstalled, but stale entries are harmless as they are never used.
+ */
+@Beta
+public class CatalogIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogIndex.class);
+
+    public static final String FORMAT_NAME = "brooklyn-catalog-index";
+    public static final int FORMAT_VERSION = 1;
+
+    private final XmlSerializer<Object> serializer;
+
+    /** keyed by bundle versioned name; guarded by synchronizing on this */
+    private final Map<String, Entry> entries = MutableMap.of();
+    /** whether there are changes not yet returned by {@link #toPersistedString()}; guarded by synchronizing on this */
+    private boolean dirty = false;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CatalogIndex() {
+        this(null);
+    }
+
+    public CatalogIndex(@Nullable ClassLoader loader) {
+        this.serializer = new XmlSerializer<Object>(loader, ImmutableMap.<String, String>of());
+    }
+
+    /** records the types parsed from the BOM of the given bundle, replacing anything previously recorded for it;
+     * does nothing if the bundle has no checksum */
+    public void record(ManagedBundle bundle, Collection<RegisteredType> types) {
+        if (bundle.getChecksum()==null) return;
+        // serialize now, as the types may be changed when they are validated
+        Entry entry = new Entry(bundle.getVersionedName().toString(), bundle.getChecksum(), serializer.toString(MutableList.copyOf(types)));
+        synchronized (this) {
+            Entry old = entries.put(entry.bundle, entry);
+            if (!entry.equals(old)) dirty = true;
+        }
+    }
+
+    /** returns new instances of the types recorded for the given bundle,
+     * if they were recorded for a bundle with the same checksum */
+    public Maybe<List<RegisteredType>> lookup(ManagedBundle bundle) {
+        return lookup(bundle, Predicates.alwaysTrue());
+    }
+
+    /** as {@link #lookup(ManagedBundle)}, but counting it as a miss and returning absent
+     * if any of the recorded types cannot be used, e.g. because a library they declare is not installed */
+    @SuppressWarnings("unchecked")
+    public Maybe<List<RegisteredType>> lookup(ManagedBundle bundle, Predicate<? super RegisteredType> usable) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(bundle.getVersionedName().toString());
+        }
+        if (entry==null || bundle.getChecksum()==null || !bundle.getChecksum().equals(entry.checksum)) {
+            misses.incrementAndGet();
+            return Maybe.absent("No types indexed for "+bundle+" with checksum "+bundle.getChecksum());
+        }
+        try {
+            List<RegisteredType> result = (List<RegisteredType>) serializer.fromString(entry.types);
+            if (!Iterables.all(result, usable)) {
+                misses.incrementAndGet();
+                return Maybe.absent("Types indexed for "+bundle+" cannot be used");
+            }
+            hits.incrementAndGet();
+            return Maybe.of(result);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            log.debug("Unable to read types indexed for "+bundle+"; discarding ("+e+")");
+            remove(bundle.getVersionedName());
+            misses.incrementAndGet();
+            return Maybe.absent(e);
+        }
+    }
+
+    public synchronized void remove(VersionedName bundle) {
+        if (entries.remove(bundle.toString())!=null) dirty = true;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** whether there are changes which have not been returned by {@link #toPersistedString()} */
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /** to be called if the contents from {@link #toPersistedString()} could not be written */
+    public synchronized void markDirty() {
+        dirty = true;
+    }
+
+    /** returns the contents to write to the persistence store, and marks this as no longer dirty */
+    public synchronized String toPersistedString() {
+        String body = serializer.toString(MutableList.copyOf(entries.values()));
+        dirty = false;
+        return FORMAT_NAME+"/"+FORMAT_VERSION+" "+BrooklynVersion.get()+" "+checksum(body)+"\n"+body;
+    }
+
+    /** adds the entries from contents previously returned by {@link #toPersistedString()},
+     * keeping any entries already known here for the same bundles;
+     * returns false and adds nothing if the contents are from a different version or are corrupt */
+    @SuppressWarnings("unchecked")
+    public boolean load(@Nullable String contents) {
+        if (contents==null) return false;
+        int headerEnd = contents.indexOf('\n');
+        String[] header = (headerEnd<0 ? contents : contents.substring(0, headerEnd)).trim().split(" ");
+        if (header.length!=3 || !header[0].equals(FORMAT_NAME+"/"+FORMAT_VERSION) || !header[1].equals(BrooklynVersion.get())) {
+            log.debug("Ignoring persisted catalog index with different format or version: "+header[0]+(header.length>1 ? " "+header[1] : ""));
+            return false;
+        }
+        String body = contents.substring(headerEnd+1);
+        if (!header[2].equals(checksum(body))) {
+            log.warn("Ignoring persisted catalog index whose contents do not match its checksum");
+            return false;
+        }
+        List<Entry> loaded;
+        try {
+            loaded = (List<Entry>) serializer.fromString(body);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            log.warn("Ignoring persisted catalog index which could not be read: "+e);
+            return false;
+        }
+        synchronized (this) {
+            for (Entry entry: loaded) {
+                if (!entries.containsKey(entry.bundle)) entries.put(entry.bundle, entry);
+            }
+        }
+        log.debug("Loaded persisted catalog index with "+loaded.size()+" bundles");
+        return true;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public Map<String, Object> getStats() {
+        return MutableMap.<String, Object>of(
+            "size", size(),
+            "hits", getHitCount(),
+            "misses", getMissCount());
+    }
+
+    private static String checksum(String body) {
+        return Streams.getMd5Checksum(Streams.newInputStreamWithContents(body));
+    }
+
+    private static class Entry {
+        final String bundle;
+        final String checksum;
+        /** serialized list of types */
+        final String types;
+
+        Entry(String bundle, String checksum, String types) {
+            this.bundle = bundle;
+            this.checksum = checksum;
+            this.types = types;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bundle, checksum, types);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) return false;
+            Entry other = (Entry) obj;
+            return Objects.equals(bundle, other.bundle) && Objects.equals(checksum, other.checksum) && Objects.equals(types, other.types);
+        }
+    }
+}
@@ -30,6 +30,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import org.apache.brooklyn.api.catalog.BrooklynCatalog;
 import org.apache.brooklyn.api.catalog.CatalogItem;
 import org.apache.brooklyn.api.catalog.CatalogItem.CatalogItemType;
@@ -412,6 +414,11 @@ public class CatalogInitialization implements ManagementContextInjectable {
         assert Thread.holdsLock(populatingCatalogMutex);
 
         try {
+            if (persistedState.getCatalogIndex()!=null && managementContext.getCatalog() instanceof BasicBrooklynCatalog
+                    && managementContext.getConfig().getConfig(BrooklynServerConfig.CATALOG_INDEX_ENABLED)) {
+                ((BasicBrooklynCatalog)managementContext.getCatalog()).getCatalogIndex().load(persistedState.getCatalogIndex());
+            }
+            
             // Always installing the bundles from persisted state
             installPersistedBundles(persistedState.getBundles(), exceptionHandler, rebindLogger);
             
@@ -501,22 +508,28 @@ public class CatalogInitialization implements ManagementContextInjectable {
 
     private void installPersistedBundles(Map<VersionedName, InstallableManagedBundle> bundles, RebindExceptionHandler exceptionHandler, RebindLogger rebindLogger) {
         Map<InstallableManagedBundle, OsgiBundleInstallationResult> installs = MutableMap.of();
+        // time taken to install, and to start, each bundle; reported along with the time to validate its types
+        Map<String, Duration> installTimes = MutableMap.of();
+        Map<String, Duration> startTimes = MutableMap.of();
 
         // Install the bundles
         for (Map.Entry<VersionedName, InstallableManagedBundle> entry : bundles.entrySet()) {
             VersionedName bundleId = entry.getKey();
             InstallableManagedBundle installableBundle = entry.getValue();
             rebindLogger.debug("RebindManager installing bundle {}", bundleId);
+            Stopwatch sw = Stopwatch.createStarted();
             try (InputStream in = installableBundle.getInputStream()) {
                 installs.put(installableBundle, installBundle(installableBundle.getManagedBundle(), in));
             } catch (Exception e) {
                 exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE, bundleId.toString(), installableBundle.getManagedBundle().getSymbolicName(), e);
             }
+            installTimes.put(bundleId.toString(), Duration.of(sw));
         }
         
         // Start the bundles (now that we've installed them all)
         Set<RegisteredType> installedTypes = MutableSet.of();
         for (OsgiBundleInstallationResult br : installs.values()) {
+            Stopwatch sw = Stopwatch.createStarted();
             try {
                 startBundle(br);
                 Iterables.addAll(installedTypes, managementContext.getTypeRegistry().getMatching(
@@ -524,12 +537,14 @@ public class CatalogInitialization implements ManagementContextInjectable {
             } catch (Exception e) {
                 exceptionHandler.onCreateFailed(BrooklynObjectType.MANAGED_BUNDLE, br.getMetadata().getId(), br.getMetadata().getSymbolicName(), e);
             }
+            if (br.getVersionedName()!=null) startTimes.put(br.getVersionedName().toString(), Duration.of(sw));
         }
         
         // Validate that they all started successfully
         if (!installedTypes.isEmpty()) {
             validateAllTypes(installedTypes, exceptionHandler);
         }
+        logBundleTimes(installTimes, startTimes, rebindLogger);
         
         for (Map.Entry<InstallableManagedBundle, OsgiBundleInstallationResult> entry : installs.entrySet()) {
             ManagedBundle bundle = entry.getKey().getManagedBundle();
@@ -545,6 +560,22 @@ public class CatalogInitialization implements ManagementContextInjectable {
         }
     }
     
+    private void logBundleTimes(Map<String, Duration> installTimes, Map<String, Duration> startTimes, RebindLogger rebindLogger) {
+        if (installTimes.isEmpty()) return;
+        BrooklynCatalog catalog = managementContext.getCatalog();
+        Map<String, Duration> validationTimes = catalog instanceof BasicBrooklynCatalog 
+            ? ((BasicBrooklynCatalog)catalog).getValidationTimesByBundle() : MutableMap.<String, Duration>of();
+        StringBuilder times = new StringBuilder();
+        for (String bundle : installTimes.keySet()) {
+            times.append("\n  ").append(bundle).append(": install ").append(installTimes.get(bundle))
+                .append(", start ").append(startTimes.containsKey(bundle) ? startTimes.get(bundle) : "-")
+                .append(", validate ").append(validationTimes.containsKey(bundle) ? validationTimes.get(bundle) : "-");
+        }
+        String index = catalog instanceof BasicBrooklynCatalog
+            ? "; catalog index "+((BasicBrooklynCatalog)catalog).getCatalogIndex().getStats() : "";
+        rebindLogger.debug("RebindManager installed {} bundle(s){}:{}", installTimes.size(), index, times);
+    }
+
     private void validateAllTypes(Set<RegisteredType> installedTypes, RebindExceptionHandler exceptionHandler) {
         Stopwatch sw = Stopwatch.createStarted();
         log.debug("Getting catalog to validate all types");
@@ -617,7 +648,7 @@ public class CatalogInitialization implements ManagementContextInjectable {
             }
         }
         
-        return new PersistedCatalogState(bundles, legacyCatalogItems);
+        return new PersistedCatalogState(bundles, legacyCatalogItems, persistedState.getCatalogIndex());
     }
 
     public interface RebindLogger {
@@ -634,10 +665,17 @@ public class CatalogInitialization implements ManagementContextInjectable {
     public static class PersistedCatalogState {
         private final Map<VersionedName, InstallableManagedBundle> bundles;
         private final Collection<CatalogItem<?, ?>> legacyCatalogItems;
+        private final String catalogIndex;
         
         public PersistedCatalogState(Map<VersionedName, InstallableManagedBundle> bundles, Collection<CatalogItem<?, ?>> legacyCatalogItems) {
+            this(bundles, legacyCatalogItems, null);
+        }
+        
+        @Beta
+        public PersistedCatalogState(Map<VersionedName, InstallableManagedBundle> bundles, Collection<CatalogItem<?, ?>> legacyCatalogItems, @Nullable String catalogIndex) {
             this.bundles = checkNotNull(bundles, "bundles");
             this.legacyCatalogItems = checkNotNull(legacyCatalogItems, "legacyCatalogItems");
+            this.catalogIndex = catalogIndex;
         }
 
         /**
@@ -653,5 +691,13 @@ public class CatalogInitialization implements ManagementContextInjectable {
         public Collection<CatalogItem<?,?>> getLegacyCatalogItems() {
             return legacyCatalogItems;
         }
+
+        /**
+         * The persisted {@link CatalogIndex} contents, if any, to avoid parsing the BOMs of the bundles.
+         */
+        @Beta @Nullable
+        public String getCatalogIndex() {
+            return catalogIndex;
+        }
     }
 }
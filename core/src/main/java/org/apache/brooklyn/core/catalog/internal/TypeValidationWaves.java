@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.catalog.internal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Orders types to be validated into waves, such that the types a type refers to
+ * are validated in an earlier wave than it, and the types in each wave can be validated concurrently.
+ * <p>
+ * References are found by looking for the symbolic names, aliases and ids of the other types
+ * as words in the plan, so this may find references which are not there (which just
+ * delays validation of the type to a later wave) but should not miss any in normal YAML plans.
+ * Types which refer to each other in a cycle are put together in the last wave; validation is
+ * retried for types which fail, so that these and any missed references are still resolved.
+ */
+@Beta
+public class TypeValidationWaves {
+
+    private TypeValidationWaves() {}
+
+    public static List<List<RegisteredType>> of(Iterable<RegisteredType> types) {
+        List<RegisteredType> typesList = MutableList.copyOf(types);
+        int n = typesList.size();
+
+        Map<String, Set<Integer>> indicesByName = MutableMap.of();
+        for (int i=0; i<n; i++) {
+            RegisteredType t = typesList.get(i);
+            addName(indicesByName, t.getSymbolicName(), i);
+            addName(indicesByName, t.getId(), i);
+            for (String alias: t.getAliases()) {
+                addName(indicesByName, alias, i);
+            }
+        }
+
+        // dependents.get(i) are the types which refer to type i
+        List<Set<Integer>> dependents = MutableList.of();
+        int[] unvalidatedDependencyCount = new int[n];
+        for (int i=0; i<n; i++) {
+            dependents.add(MutableSet.<Integer>of());
+        }
+        for (int i=0; i<n; i++) {
+            Set<Integer> dependencies = MutableSet.of();
+            for (String word: words(typesList.get(i))) {
+                Set<Integer> referenced = indicesByName.get(word);
+                if (referenced!=null) dependencies.addAll(referenced);
+            }
+            dependencies.remove(i);
+            for (Integer d: dependencies) {
+                dependents.get(d).add(i);
+            }
+            unvalidatedDependencyCount[i] = dependencies.size();
+        }
+
+        List<List<RegisteredType>> result = MutableList.of();
+        boolean[] done = new boolean[n];
+        List<Integer> wave = MutableList.of();
+        for (int i=0; i<n; i++) {
+            if (unvalidatedDependencyCount[i]==0) wave.add(i);
+        }
+        int doneCount = 0;
+        while (!wave.isEmpty()) {
+            List<RegisteredType> waveTypes = MutableList.of();
+            List<Integer> nextWave = MutableList.of();
+            for (Integer i: wave) {
+                waveTypes.add(typesList.get(i));
+                done[i] = true;
+                doneCount++;
+            }
+            for (Integer i: wave) {
+                for (Integer dependent: dependents.get(i)) {
+                    if (--unvalidatedDependencyCount[dependent]==0) nextWave.add(dependent);
+                }
+            }
+            result.add(waveTypes);
+            wave = nextWave;
+        }
+        if (doneCount < n) {
+            // cycles, and anything depending on them
+            List<RegisteredType> remaining = MutableList.of();
+            for (int i=0; i<n; i++) {
+                if (!done[i]) remaining.add(typesList.get(i));
+            }
+            result.add(remaining);
+        }
+        return result;
+    }
+
+    private static void addName(Map<String, Set<Integer>> indicesByName, String name, int index) {
+        if (name==null) return;
+        Set<Integer> indices = indicesByName.get(name);
+        if (indices==null) {
+            indices = MutableSet.of();
+            indicesByName.put(name, indices);
+        }
+        indices.add(index);
+    }
+
+    /** the words in the plan which could be type names, with and without any version suffix */
+    private static Set<String> words(RegisteredType type) {
+        Set<String> result = MutableSet.of();
+        Object plan = type.getPlan()==null ? null : type.getPlan().getPlanData();
+        if (!(plan instanceof String)) return result;
+        for (String word: ((String)plan).split("[^A-Za-z0-9_.:\\-]+")) {
+            if (word.isEmpty()) continue;
+            result.add(word);
+            int colon = word.indexOf(':');
+            if (colon>0) result.add(word.substring(0, colon));
+        }
+        return result;
+    }
+}
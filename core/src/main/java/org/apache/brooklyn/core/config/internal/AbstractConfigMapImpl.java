@@ -24,12 +24,15 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.apache.brooklyn.api.mgmt.ExecutionContext;
+import org.apache.brooklyn.api.mgmt.TaskAdaptable;
 import org.apache.brooklyn.api.mgmt.TaskFactory;
 import org.apache.brooklyn.api.objs.BrooklynObject;
 import org.apache.brooklyn.config.ConfigInheritance;
@@ -39,6 +42,7 @@ import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.config.ConfigKey.HasConfigKey;
 import org.apache.brooklyn.config.ConfigMap.ConfigMapWithInheritance;
 import org.apache.brooklyn.config.ConfigValueAtContainer;
+import org.apache.brooklyn.core.BrooklynFeatureEnablement;
 import org.apache.brooklyn.core.config.BasicConfigInheritance;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.config.ConfigKeys.InheritanceContext;
@@ -52,6 +56,7 @@ import org.apache.brooklyn.util.core.config.ConfigBag;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
 import org.apache.brooklyn.util.core.internal.ConfigKeySelfExtracting;
 import org.apache.brooklyn.util.core.task.DeferredSupplier;
+import org.apache.brooklyn.util.core.task.ImmediateSupplier;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.core.task.ValueResolver;
 import org.apache.brooklyn.util.exceptions.Exceptions;
@@ -61,8 +66,11 @@ import org.apache.brooklyn.util.guava.Maybe.MaybeSupplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.reflect.TypeToken;
 
@@ -75,6 +83,10 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
 
     private static final Logger LOG = LoggerFactory.getLogger(AbstractConfigMapImpl.class);
 
+    private static final boolean RESOLVED_CONFIG_CACHE_ENABLED = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_CONFIG_RESOLUTION_CACHE);
+    /** max number of keys whose resolved values are cached in each config map */
+    private static final int RESOLVED_CONFIG_CACHE_MAX_SIZE = 1000;
+
     @Deprecated /** @deprecated since 0.10.0 - see method which uses it */
     protected final transient org.apache.brooklyn.core.entity.internal.ConfigMapViewWithStringKeys mapViewWithStringKeys = new org.apache.brooklyn.core.entity.internal.ConfigMapViewWithStringKeys(this);
 
@@ -91,6 +103,9 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
      */
     protected final Map<ConfigKey<?>,Object> ownConfig;
 
+    /** created on first use, as it is not set in previously serialized instances */
+    private transient volatile ResolvedConfigCache resolvedConfigCache;
+
     protected AbstractConfigMapImpl(TContainer bo) {
         // Not using ConcurrentMap, because want to (continue to) allow null values.
         // Could use ConcurrentMapAcceptingNullVals (with the associated performance hit on entrySet() etc).
@@ -111,12 +126,131 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
 
     @Override
     public <T> T getConfig(ConfigKey<T> key) {
+        if (key!=null && RESOLVED_CONFIG_CACHE_ENABLED && isResolvedConfigCacheable()) {
+            return getConfigCaching(key);
+        }
         return getConfigImpl(key, false).getWithoutError().get();
     }
     
     @Override
     public <T> T getConfig(HasConfigKey<T> key) {
-        return getConfigImpl(key.getConfigKey(), false).getWithoutError().get();
+        return getConfig(key.getConfigKey());
+    }
+
+    /**
+     * Whether values resolved by {@link #getConfig(ConfigKey)} can be cached here.
+     * Subclasses should only return true if {@link #invalidateResolvedConfig()} is called
+     * whenever the config of an ancestor changes, or the ancestors themselves change
+     * (changes to the config here invalidate the cache automatically).
+     */
+    protected boolean isResolvedConfigCacheable() {
+        return false;
+    }
+
+    /**
+     * Discards any values cached by {@link #getConfig(ConfigKey)}, e.g. because the config of an ancestor has changed.
+     */
+    @Beta
+    public void invalidateResolvedConfig() {
+        ResolvedConfigCache cache = resolvedConfigCache;
+        if (cache!=null) cache.invalidate();
+    }
+
+    private ResolvedConfigCache getResolvedConfigCache() {
+        ResolvedConfigCache result = resolvedConfigCache;
+        if (result==null) {
+            synchronized (ownConfig) {
+                result = resolvedConfigCache;
+                if (result==null) {
+                    result = new ResolvedConfigCache();
+                    resolvedConfigCache = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** 
+     * Returns the value as {@link #getConfigImpl(ConfigKey, boolean)} does, but remembering it for subsequent calls
+     * until the cache is invalidated, unless the value here or at any ancestor is (or contains) something which is
+     * resolved on each call, such as a {@link DeferredSupplier} or {@link TaskAdaptable},
+     * or the result is a mutable collection which the caller might change.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T getConfigCaching(ConfigKey<T> key) {
+        ResolvedConfigCache cache = getResolvedConfigCache();
+        // read the generation before resolving, so that the result is discarded if config changes while resolving
+        long generation = cache.generation.get();
+        ResolvedConfigValue cached = cache.values.get(key.getName());
+        // keys are equal if their names are, but different keys with the same name can resolve differently
+        if (cached!=null && cached.generation==generation && cached.key==key) {
+            if (cached.cacheable) return (T) cached.value;
+            return getConfigImpl(key, false).getWithoutError().get();
+        }
+
+        T result = getConfigImpl(key, false).getWithoutError().get();
+        boolean cacheable = isShareable(result) && !isDeferredInAncestors(key);
+        if (cached!=null || cache.values.size() < RESOLVED_CONFIG_CACHE_MAX_SIZE) {
+            cache.values.put(key.getName(), new ResolvedConfigValue(key, generation, cacheable, cacheable ? result : null));
+        }
+        return result;
+    }
+
+    private boolean isDeferredInAncestors(ConfigKey<?> queryKey) {
+        ConfigKey<?> ownKey = getKeyAtContainer(getContainer(), queryKey);
+        if (ownKey==null) ownKey = queryKey;
+        if (isDeferred(ownKey.getDefaultValue()) || isDeferred(queryKey.getDefaultValue())) return true;
+
+        Set<String> names = MutableSet.of(ownKey.getName()).putAll(ownKey.getDeprecatedNames()).putAll(queryKey.getDeprecatedNames());
+        for (TContainer c = getContainer(); c!=null; c = getParentOfContainer(c)) {
+            Map<ConfigKey<?>, Object> oc = ((AbstractConfigMapImpl<?>) ((BrooklynObjectInternal)c).config().getInternalConfigMap()).ownConfig;
+            synchronized (oc) {
+                for (Map.Entry<ConfigKey<?>, Object> entry: oc.entrySet()) {
+                    if (isNameOrSubkeyName(entry.getKey().getName(), names) && isDeferred(entry.getValue())) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** true if the name is one of the given names or could be a subkey of them (e.g. for a {@link StructuredConfigKey}) */
+    private static boolean isNameOrSubkeyName(String name, Set<String> names) {
+        for (String n: names) {
+            if (name.equals(n) || name.startsWith(n+".")) return true;
+        }
+        return false;
+    }
+
+    /** true if the value is, or contains, something which is resolved each time config is retrieved */
+    private static boolean isDeferred(Object v) {
+        if (v instanceof DeferredSupplier || v instanceof ImmediateSupplier || v instanceof TaskAdaptable 
+                || v instanceof TaskFactory || v instanceof Future) {
+            return true;
+        }
+        if (v instanceof Map) {
+            for (Map.Entry<?, ?> entry: MutableMap.copyOf((Map<?, ?>)v).entrySet()) {
+                if (isDeferred(entry.getKey()) || isDeferred(entry.getValue())) return true;
+            }
+        } else if (v instanceof Collection) {
+            for (Object vi: MutableList.copyOf((Collection<?>)v)) {
+                if (isDeferred(vi)) return true;
+            }
+        } else if (v instanceof Iterable) {
+            // might be lazy, don't try to look inside
+            return true;
+        }
+        return false;
+    }
+
+    /** true unless the value is a mutable collection or array, which would not be safe to return to more than one caller */
+    private static boolean isShareable(Object v) {
+        if (v instanceof Map) {
+            return v instanceof ImmutableMap || v.getClass().getName().startsWith("java.util.Collections$Unmodifiable");
+        }
+        if (v instanceof Iterable) {
+            return v instanceof ImmutableCollection || v.getClass().getName().startsWith("java.util.Collections$Unmodifiable");
+        }
+        return v==null || !v.getClass().isArray();
     }
 
     @Override
@@ -184,6 +318,7 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
         } else {
             oldVal = ownConfig.put(ownKey, val);
         }
+        invalidateResolvedConfig();
         postSetConfig();
         return oldVal;
     }
@@ -195,6 +330,8 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
             ownConfig.clear();
             ownConfig.putAll(vals);
         }
+        invalidateResolvedConfig();
+        postSetConfig();
     }
 
     @SuppressWarnings("unchecked")
@@ -214,10 +351,14 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
 
     public void removeKey(String key) {
         ownConfig.remove(ConfigKeys.newConfigKey(Object.class, key));
+        invalidateResolvedConfig();
+        postSetConfig();
     }
 
     public void removeKey(ConfigKey<?> key) {
         ownConfig.remove(key);
+        invalidateResolvedConfig();
+        postSetConfig();
     }
 
     protected final TContainer getParent() {
@@ -663,6 +804,33 @@ public abstract class AbstractConfigMapImpl<TContainer extends BrooklynObject> i
         return result;
     }
 
+    private static class ResolvedConfigCache {
+        /** incremented whenever cached values might no longer be valid; values cached at earlier generations are ignored */
+        final AtomicLong generation = new AtomicLong();
+        /** keyed by key name */
+        final Map<String, ResolvedConfigValue> values = new ConcurrentHashMap<String, ResolvedConfigValue>();
+
+        void invalidate() {
+            generation.incrementAndGet();
+            values.clear();
+        }
+    }
+
+    private static class ResolvedConfigValue {
+        final ConfigKey<?> key;
+        final long generation;
+        /** false if the value must be resolved on each call */
+        final boolean cacheable;
+        final Object value;
+
+        ResolvedConfigValue(ConfigKey<?> key, long generation, boolean cacheable, Object value) {
+            this.key = key;
+            this.generation = generation;
+            this.cacheable = cacheable;
+            this.value = value;
+        }
+    }
+
     @Override
     public String toString() {
         Map<ConfigKey<?>, Object> sanitizeConfig;
@@ -90,6 +90,7 @@ import org.apache.brooklyn.core.objs.AbstractEntityAdjunct.AdjunctTagSupport;
 import org.apache.brooklyn.core.policy.AbstractPolicy;
 import org.apache.brooklyn.core.sensor.AttributeMap;
 import org.apache.brooklyn.core.sensor.BasicNotificationSensor;
+import org.apache.brooklyn.core.sensor.NumericSensorEvent;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.typereg.RegisteredTypes;
 import org.apache.brooklyn.util.collections.MutableList;
@@ -588,6 +589,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
         if (parent.isNull()) return;
         Entity oldParent = parent.get();
         parent.clear();
+        config().refreshInheritedConfig();
         if (oldParent != null) {
             if (!Entities.isNoLongerManaged(oldParent)) 
                 oldParent.removeChild(getProxyIfAvailable());
@@ -981,6 +983,45 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
             return result;
         }
 
+        @Override
+        public void setLong(AttributeSensor<? extends Number> attribute, long val) {
+            if (Boolean.TRUE.equals(getManagementSupport().isReadOnlyRaw())) {
+                // unusual; use the normal path for its warnings
+                setBoxed(attribute, NumericSensorEvent.boxLong(attribute.getType(), val));
+                return;
+            }
+            if (attributesInternal.updateLong(attribute, val)) {
+                // the attribute map adds the sensor to the type when it is first set
+                getManagementSupport().getEntityChangeListener().onAttributeChanged(attribute);
+            }
+        }
+
+        @Override
+        public void setDouble(AttributeSensor<? extends Number> attribute, double val) {
+            if (Boolean.TRUE.equals(getManagementSupport().isReadOnlyRaw())) {
+                setBoxed(attribute, NumericSensorEvent.boxDouble(attribute.getType(), val));
+                return;
+            }
+            if (attributesInternal.updateDouble(attribute, val)) {
+                getManagementSupport().getEntityChangeListener().onAttributeChanged(attribute);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> void setBoxed(AttributeSensor<T> attribute, Object val) {
+            set(attribute, (T) val);
+        }
+
+        @Override
+        public long getLong(AttributeSensor<? extends Number> attribute, long defaultValue) {
+            return attributesInternal.getLong(attribute, defaultValue);
+        }
+
+        @Override
+        public double getDouble(AttributeSensor<? extends Number> attribute, double defaultValue) {
+            return attributesInternal.getDouble(attribute, defaultValue);
+        }
+
         @Override
         public <T> T setWithoutPublishing(AttributeSensor<T> attribute, T val) {
             if (LOG.isTraceEnabled())
@@ -1046,7 +1087,7 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
         @Override
         public Map<AttributeSensor<?>, Object> getAll() {
             Map<AttributeSensor<?>, Object> result = Maps.newLinkedHashMap();
-            Map<String, Object> attribs = attributesInternal.asMap();
+            Map<String, Object> attribs = attributesInternal.asSnapshot();
             for (Map.Entry<String,Object> entry : attribs.entrySet()) {
                 AttributeSensor<?> attribKey = (AttributeSensor<?>) entityType.getSensor(entry.getKey());
                 if (attribKey == null) {
@@ -1084,6 +1125,24 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
             SubscriptionContext subsContext = subscriptions().getSubscriptionContext();
             if (subsContext != null) subsContext.publish(sensor.newEvent(getProxyIfAvailable(), val));
         }
+
+        @Beta
+        public <T extends Number> void emitInternalLong(Sensor<T> sensor, long val) {
+            if (getManagementSupport().isNoLongerManaged())
+                throw new IllegalStateException("Entity "+AbstractEntity.this+" is no longer managed, when trying to publish "+sensor+" "+val);
+
+            SubscriptionContext subsContext = subscriptions().getSubscriptionContext();
+            if (subsContext != null) subsContext.publish(NumericSensorEvent.ofLong(sensor, getProxyIfAvailable(), val));
+        }
+
+        @Beta
+        public <T extends Number> void emitInternalDouble(Sensor<T> sensor, double val) {
+            if (getManagementSupport().isNoLongerManaged())
+                throw new IllegalStateException("Entity "+AbstractEntity.this+" is no longer managed, when trying to publish "+sensor+" "+val);
+
+            SubscriptionContext subsContext = subscriptions().getSubscriptionContext();
+            if (subsContext != null) subsContext.publish(NumericSensorEvent.ofDouble(sensor, getProxyIfAvailable(), val));
+        }
     }
     
     /**
@@ -1107,8 +1166,8 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
 
         @Override
         public void refreshInheritedConfig() {
-            // no-op, for now, because the impl always looks at ancestors
-            // but in a distributed impl it will need to clear any local cache
+            // the impl always looks at ancestors, but caches the values it resolves
+            configsInternal.invalidateResolvedConfig();
             refreshInheritedConfigOfChildren();
         }
         
@@ -1796,10 +1855,15 @@ public abstract class AbstractEntity extends AbstractBrooklynObject implements E
 
     @Override
     protected void onTagsChanged() {
-        super.onTagsChanged();
+        // not super, which requests persistence as for any change
         getManagementSupport().getEntityChangeListener().onTagsChanged();
     }
 
+    @Override
+    protected void onRelationsChanged() {
+        getManagementSupport().getEntityChangeListener().onRelationsChanged();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public RelationSupportInternal<Entity> relations() {
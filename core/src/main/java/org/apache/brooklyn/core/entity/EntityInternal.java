@@ -158,6 +158,25 @@ public interface EntityInternal extends BrooklynObjectInternal, EntityLocal, Reb
 
         @Beta
         void remove(AttributeSensor<?> attribute);
+
+        /**
+         * Like {@link #set(AttributeSensor, Object)}, for a numeric sensor, but the value is stored and 
+         * published (as a {@link org.apache.brooklyn.core.sensor.NumericSensorEvent}) without boxing.
+         */
+        @Beta
+        void setLong(AttributeSensor<? extends Number> sensor, long val);
+
+        /** @see #setLong(AttributeSensor, long) */
+        @Beta
+        void setDouble(AttributeSensor<? extends Number> sensor, double val);
+
+        /** Like {@link #get(AttributeSensor)}, returning a primitive, or the given default if not set. */
+        @Beta
+        long getLong(AttributeSensor<? extends Number> sensor, long defaultValue);
+
+        /** @see #getLong(AttributeSensor, long) */
+        @Beta
+        double getDouble(AttributeSensor<? extends Number> sensor, double defaultValue);
     }
 
     // TODO extend AdjunctSupport<Feed>, after 1.0.0
@@ -30,6 +30,7 @@ import org.apache.brooklyn.api.objs.BrooklynObject;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.internal.AbstractConfigMapImpl;
 import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.mgmt.rebind.dto.EntityMementoSections;
 import org.apache.brooklyn.core.objs.BrooklynObjectInternal.ConfigurationSupportInternal;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.slf4j.Logger;
@@ -79,9 +80,17 @@ public class EntityConfigMap extends AbstractConfigMapImpl<Entity> {
     
     @Override
     protected void postSetConfig() {
+        // not all changes to local config are notified to the change listener, e.g. removing a key
+        getEntity().getManagementSupport().getMementoSections().markChanged(EntityMementoSections.Section.CONFIG);
         getEntity().config().refreshInheritedConfigOfChildren();
     }
 
+    @Override
+    protected boolean isResolvedConfigCacheable() {
+        // ancestors notify via refreshInheritedConfig when their config changes
+        return true;
+    }
+
     @Override
     protected void postLocalEvaluate(ConfigKey<?> key, BrooklynObject bo, Maybe<?> rawValue, Maybe<?> resolvedValue) {
         // TEMPORARY CODE
@@ -159,6 +159,7 @@ public class Poller<V> {
                                     return null; 
                                 } } );
                             BrooklynTaskTags.setTransient(task);
+                            BrooklynTaskTags.setLightweight(task);
                             return task;
                         })
                         .displayName("scheduled:" + scheduleName)
@@ -21,6 +21,8 @@ package org.apache.brooklyn.core.mgmt;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -45,7 +47,9 @@ import org.apache.brooklyn.util.core.task.DynamicTasks;
 import org.apache.brooklyn.util.core.task.TaskTags;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.guava.Maybe;
+import org.apache.brooklyn.util.internal.BrooklynSystemProperties;
 import org.apache.brooklyn.util.javalang.MemoryUsageTracker;
+import org.apache.brooklyn.util.stream.SpillingByteArrayOutputStream;
 import org.apache.brooklyn.util.stream.Streams;
 import org.apache.brooklyn.util.text.StringEscapes.BashStringEscapes;
 import org.apache.brooklyn.util.text.Strings;
@@ -86,6 +90,12 @@ public class BrooklynTaskTags extends TaskTags {
      * and that it need not appear in some task lists;
      * often used for framework lifecycle events and sensor polling */
     public static final String TRANSIENT_TASK_TAG = "TRANSIENT";
+    /** indicates a task is lightweight: a small job done for the framework's own bookkeeping, such as a sensor delivery,
+     * which the execution manager counts but does not index by id or tag, so it is never listed or retained once done;
+     * unlike {@link #TRANSIENT_TASK_TAG} this is not inherited by tasks it submits,
+     * and those record the nearest registered task which submitted it as their submitter
+     * @see org.apache.brooklyn.util.core.task.LightweightTask */
+    public static final String LIGHTWEIGHT_TASK_TAG = "LIGHTWEIGHT";
     /** marks that a task is meant to return immediately, without blocking (or if absolutely necessary blocking for a short while) */
     public static final String IMMEDIATE_TASK_TAG = "IMMEDIATE";
 
@@ -270,12 +280,14 @@ public class BrooklynTaskTags extends TaskTags {
         public final String streamType;
         public final Supplier<String> streamContents;
         public final Supplier<Integer> streamSize;
+        private final transient SpillingByteArrayOutputStream spillingStream;
         protected WrappedStream(String streamType, Supplier<String> streamContents, Supplier<Integer> streamSize) {
             Preconditions.checkNotNull(streamType);
             Preconditions.checkNotNull(streamContents);
             this.streamType = streamType;
             this.streamContents = streamContents;
             this.streamSize = streamSize != null ? streamSize : Suppliers.<Integer>ofInstance(streamContents.get().length());
+            this.spillingStream = null;
         }
         protected WrappedStream(String streamType, ByteArrayOutputStream stream) {
             Preconditions.checkNotNull(streamType);
@@ -283,6 +295,28 @@ public class BrooklynTaskTags extends TaskTags {
             this.streamType = streamType;
             this.streamContents = Strings.toStringSupplier(stream);
             this.streamSize = Streams.sizeSupplier(stream);
+            this.spillingStream = (stream instanceof SpillingByteArrayOutputStream) ? (SpillingByteArrayOutputStream) stream : null;
+        }
+        /** returns up to <code>length</code> bytes of the stream starting at <code>offset</code>, as a string;
+         * where the stream has spilled to disk only the requested range is read */
+        @Beta
+        public String getStreamContents(long offset, int length) {
+            byte[] bytes;
+            if (spillingStream!=null) {
+                bytes = spillingStream.read(offset, length);
+            } else {
+                byte[] all = streamContents.get().getBytes(Charset.defaultCharset());
+                int start = (int) Math.min(offset, all.length);
+                bytes = Arrays.copyOfRange(all, start, (int) Math.min(all.length, start + (long) length));
+            }
+            return new String(bytes, Charset.defaultCharset());
+        }
+        /** discards any content held on disk for this stream; called by the GC when it expires a retained task,
+         * but not when a task is deleted as soon as it completes, as whoever ran it may still read its output
+         * (the content is then discarded once the stream is no longer reachable) */
+        @Beta
+        public void release() {
+            if (spillingStream!=null) spillingStream.release();
         }
         // fix for https://github.com/FasterXML/jackson-databind/issues/543 (which also applies to codehaus jackson)
         @JsonProperty
@@ -330,9 +364,24 @@ public class BrooklynTaskTags extends TaskTags {
     public static WrappedStream tagForStream(String streamType, ByteArrayOutputStream stream) {
         return new WrappedStream(streamType, stream);
     }
-    /** creates a tag suitable for marking a stream available on a task, but which might be GC'd */
+    /** creates a buffer for capturing a task stream such as stdout or stderr; if
+     * {@link BrooklynSystemProperties#TASK_STREAM_MAX_IN_MEMORY_BYTES} is set, the buffer keeps only
+     * that much in memory and spills the rest to disk, until the task expires or the stream is no longer reachable */
+    @Beta
+    public static ByteArrayOutputStream newStreamBuffer() {
+        if (BrooklynSystemProperties.TASK_STREAM_MAX_IN_MEMORY_BYTES.isAvailable()) {
+            return new SpillingByteArrayOutputStream(BrooklynSystemProperties.TASK_STREAM_MAX_IN_MEMORY_BYTES.getValue());
+        }
+        return new ByteArrayOutputStream();
+    }
+
+    /** creates a tag suitable for marking a stream available on a task, but which might be GC'd;
+     * streams from {@link #newStreamBuffer()} which spill to disk are bounded in memory so are held strongly */
     // TODO only make it soft if/when stream exceeds a given size eg 1kb ?
     public static WrappedStream tagForStreamSoft(String streamType, ByteArrayOutputStream stream) {
+        if (stream instanceof SpillingByteArrayOutputStream) {
+            return new WrappedStream(streamType, stream);
+        }
         MemoryUsageTracker.SOFT_REFERENCES.track(stream, stream.size());
         Maybe<ByteArrayOutputStream> softStream = Maybe.softThen(stream, STREAM_GARBAGE_COLLECTED_MAYBE);
         return new WrappedStream(streamType,
@@ -388,6 +437,9 @@ public class BrooklynTaskTags extends TaskTags {
         if (task.getSubmittedByTask()!=null) return isTransient(task.getSubmittedByTask());
         return false;
     }
+    /** marks the task as lightweight; only effective if done before the task is submitted */
+    public static void setLightweight(Task<?> task) { addTagDynamically(task, LIGHTWEIGHT_TASK_TAG); }
+    public static boolean isLightweight(Task<?> task) { return hasTag(task, LIGHTWEIGHT_TASK_TAG); }
     public static boolean isSubTask(Task<?> task) { return hasTag(task, SUB_TASK_TAG); }
     public static boolean isEffectorTask(Task<?> task) { return hasTag(task, EFFECTOR_TAG); }
     
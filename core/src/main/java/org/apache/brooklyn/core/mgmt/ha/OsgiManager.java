@@ -44,6 +44,7 @@ import org.apache.brooklyn.api.typereg.OsgiBundleWithUrl;
 import org.apache.brooklyn.api.typereg.RegisteredType;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.BrooklynVersion;
+import org.apache.brooklyn.core.catalog.internal.BasicBrooklynCatalog;
 import org.apache.brooklyn.core.catalog.internal.CatalogBundleLoader;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.mgmt.ha.OsgiBundleInstallationResult.ResultCode;
@@ -457,6 +458,9 @@ public class OsgiManager {
                 errors.add(e);
             }
             CatalogUpgrades.clearBundleInStoredUpgrades(mgmt, bundleMetadata.getVersionedName());
+            if (mgmt.getCatalog() instanceof BasicBrooklynCatalog) {
+                ((BasicBrooklynCatalog)mgmt.getCatalog()).getCatalogIndex().remove(bundleMetadata.getVersionedName());
+            }
             
             if (!managedBundlesRecord.remove(bundleMetadata)) {
                 Exception e = new IllegalStateException("No such bundle registered with Brooklyn when uninstalling: "+bundleMetadata);
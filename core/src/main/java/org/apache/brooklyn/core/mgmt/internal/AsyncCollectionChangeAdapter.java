@@ -23,7 +23,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import org.apache.brooklyn.api.mgmt.ExecutionManager;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
-import org.apache.brooklyn.util.core.task.SingleThreadedScheduler;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +37,7 @@ public class AsyncCollectionChangeAdapter<Item> implements CollectionChangeListe
     public AsyncCollectionChangeAdapter(ExecutionManager executor, CollectionChangeListener<Item> delegate) {
         this.executor = checkNotNull(executor, "executor");
         this.delegate = checkNotNull(delegate, "delegate");
-        ((BasicExecutionManager) executor).setTaskSchedulerForTag(delegate, SingleThreadedScheduler.class);
+        ((BasicExecutionManager) executor).setTaskSchedulerForTag(delegate, ((BasicExecutionManager) executor).getOrderedTaskSchedulerType());
     }
 
     @Override
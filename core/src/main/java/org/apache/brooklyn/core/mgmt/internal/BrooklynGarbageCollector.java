@@ -57,12 +57,14 @@ import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe.SoftlyPresent;
 import org.apache.brooklyn.util.javalang.MemoryUsageTracker;
+import org.apache.brooklyn.util.stream.SpillingByteArrayOutputStream;
 import org.apache.brooklyn.util.text.Strings;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.collect.Iterables;
 
@@ -82,6 +84,9 @@ import com.google.common.collect.Iterables;
  * and keeping at most 100000 tasks in the system,
  * max 1000 tasks per entity, 50 per effector within that entity, and 50 per other non-effector tag
  * within that entity (or global if not attached to an entity).
+ * <p>
+ * If {@link #INCREMENTAL} is set, the limits are instead applied as each task completes,
+ * and the periodic check only expires tasks past the max age (see {@link TaskRetentionIndex}).
  * 
  * @author aled
  */
@@ -147,6 +152,13 @@ public class BrooklynGarbageCollector {
             "the duration after which a completed task will be automatically deleted", 
             Duration.days(30));
     
+    @Beta
+    public static final ConfigKey<Boolean> INCREMENTAL = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.gc.incremental",
+        "whether to apply the task limits and max age incrementally, as tasks complete, "
+        + "rather than by periodically inspecting all tasks; read at startup",
+        false);
+
     protected final static Comparator<Task<?>> TASKS_OLDEST_FIRST_COMPARATOR = new Comparator<Task<?>>() {
         @Override public int compare(Task<?> t1, Task<?> t2) {
             long end1 = t1.getEndTimeUtc();
@@ -162,6 +174,8 @@ public class BrooklynGarbageCollector {
     private final ScheduledExecutorService executor;
     private ScheduledFuture<?> activeCollector;
     private Map<Entity,Task<?>> unmanagedEntitiesNeedingGc = new LinkedHashMap<Entity, Task<?>>();
+    /** if {@link #INCREMENTAL}, tracks completed tasks against the limits; otherwise null; guarded by itself */
+    private final TaskRetentionIndex retention;
     
     private Duration gcPeriod;
     private volatile boolean running = true;
@@ -171,6 +185,13 @@ public class BrooklynGarbageCollector {
         this.storage = storage;
         this.brooklynProperties = brooklynProperties;
 
+        if (Boolean.TRUE.equals(brooklynProperties.getConfig(INCREMENTAL))) {
+            retention = new TaskRetentionIndex(executionManager);
+            updateRetentionLimits();
+        } else {
+            retention = null;
+        }
+
         if (brooklynProperties.getConfig(TRACK_SOFT_MAYBE_USAGE))
             SoftlyPresent.getUsageTracker().enable();
         
@@ -209,6 +230,8 @@ public class BrooklynGarbageCollector {
         try {
             logUsage("brooklyn gc (before)");
             gcTasks();
+            // streams of tasks deleted as soon as they completed are released once whoever ran them is done with them
+            SpillingByteArrayOutputStream.deleteUnreachableSpillFiles();
             logUsage("brooklyn gc (after)");
             
             double memUsage = 1.0 - 1.0*Runtime.getRuntime().freeMemory() / Runtime.getRuntime().maxMemory();
@@ -257,7 +280,8 @@ public class BrooklynGarbageCollector {
             executionManager.getNumActiveTasks()+" active, "+
             executionManager.getNumIncompleteTasks()+" unfinished; "+
             executionManager.getNumInMemoryTasks()+" remembered, "+
-            executionManager.getTotalTasksSubmitted()+" total submitted)";
+            executionManager.getTotalTasksSubmitted()+" total submitted, of which "+
+            executionManager.getTotalLightweightTasksSubmitted()+" lightweight)";
     }
     
     public void shutdownNow() {
@@ -275,11 +299,27 @@ public class BrooklynGarbageCollector {
     }
     
     public void deleteTasksForEntity(Entity entity) {
+        List<Object> tags = MutableList.<Object>of(entity, BrooklynTaskTags.tagForContextEntity(entity),
+            BrooklynTaskTags.tagForCallerEntity(entity), BrooklynTaskTags.tagForTargetEntity(entity));
+        if (retention!=null) {
+            synchronized (retention) {
+                retention.removeTags(tags);
+            }
+        }
         // remove all references to this entity from tasks
-        executionManager.deleteTag(entity);
-        executionManager.deleteTag(BrooklynTaskTags.tagForContextEntity(entity));
-        executionManager.deleteTag(BrooklynTaskTags.tagForCallerEntity(entity));
-        executionManager.deleteTag(BrooklynTaskTags.tagForTargetEntity(entity));
+        Set<Task<?>> tasks = MutableSet.of();
+        for (Object tag: tags) {
+            tasks.addAll(executionManager.getTasksWithTag(tag));
+            executionManager.deleteTag(tag);
+        }
+        // nothing else reads the output of the entity's completed tasks;
+        // any still running are released when unreachable
+        for (Task<?> task: tasks) {
+            if (task.isDone(true)) releaseStreams(task);
+        }
+        if (executionManager.getTaskArchive()!=null) {
+            executionManager.getTaskArchive().removeEntity(entity.getId());
+        }
     }
     
     public void onUnmanaged(Location loc) {
@@ -288,10 +328,81 @@ public class BrooklynGarbageCollector {
     
     public void onTaskDone(Task<?> task) {
         if (shouldDeleteTaskImmediately(task)) {
-            executionManager.deleteTask(task);
+            deleteTask(task);
+        } else if (retention!=null && executionManager.getTask(task.getId())!=null) {
+            // not lightweight or already deleted
+            List<Task<?>> tasksToDelete;
+            synchronized (retention) {
+                tasksToDelete = retention.add(task);
+            }
+            for (Task<?> t: tasksToDelete) {
+                deleteExpiredTask(t);
+            }
+        }
+    }
+    
+    /** number of tasks counted against the limits if {@link #INCREMENTAL}, otherwise -1 */
+    @VisibleForTesting
+    int getIncrementallyTrackedTaskCount() {
+        if (retention==null) return -1;
+        synchronized (retention) {
+            return retention.getTrackedCount();
+        }
+    }
+    
+    /** deletes the task (and its children), and stops counting them if retained incrementally;
+     * any of their stream content spilled to disk is freed once the streams are no longer reachable,
+     * as whoever ran the task may still read its output */
+    protected void deleteTask(Task<?> task) {
+        executionManager.deleteTask(task);
+        if (retention!=null) {
+            synchronized (retention) {
+                retention.remove(task);
+            }
+        }
+    }
+    
+    /** deletes a task which was retained but is now over a limit or too old, along with its children,
+     * and frees any of their stream content spilled to disk immediately;
+     * not used for tasks deleted as soon as they complete, as their output may still be read by whoever ran them */
+    protected void deleteExpiredTask(Task<?> task) {
+        deleteTask(task);
+        releaseStreams(task);
+    }
+    
+    private static void releaseStreams(Task<?> task) {
+        for (BrooklynTaskTags.WrappedStream stream : BrooklynTaskTags.streams(task)) {
+            stream.release();
+        }
+        if (task instanceof HasTaskChildren) {
+            for (Task<?> child: ((HasTaskChildren)task).getChildren()) {
+                releaseStreams(child);
+            }
         }
     }
     
+    private void updateRetentionLimits() {
+        synchronized (retention) {
+            retention.setLimits(brooklynProperties.getConfig(MAX_TASKS_PER_TAG), brooklynProperties.getConfig(MAX_TASKS_PER_ENTITY),
+                brooklynProperties.getConfig(MAX_TASKS_GLOBAL), brooklynProperties.getConfig(MAX_TASK_AGE));
+        }
+    }
+    
+    /** applies the limits and max age to tasks recorded incrementally, returning the number deleted */
+    protected int expireRetainedTasks() {
+        updateRetentionLimits();
+        List<Task<?>> tasksToDelete;
+        synchronized (retention) {
+            tasksToDelete = retention.expire(System.currentTimeMillis());
+        }
+        for (Task<?> task: tasksToDelete) {
+            deleteExpiredTask(task);
+        }
+        if (LOG.isDebugEnabled() && !tasksToDelete.isEmpty())
+            LOG.debug("brooklyn-gc deleted "+tasksToDelete.size()+" tasks over limits or max age (incremental)");
+        return tasksToDelete.size();
+    }
+    
     /** whether this task should be deleted on completion,
      * because it is transient, or because it is submitted background without much context information */
     protected boolean shouldDeleteTaskImmediately(Task<?> task) {
@@ -348,6 +459,18 @@ public class BrooklynGarbageCollector {
         }
     
         expireUnmanagedEntityTasks();
+        
+        if (retention!=null) {
+            // limits are applied as tasks complete; just catch up on age and any changed limits
+            expireTransientTasks();
+            int deletedCount = expireRetainedTasks();
+            int deletedHere;
+            while ((deletedHere = expireHistoricTasksNowReadyForImmediateDeletion()) > 0) {
+                deletedCount += deletedHere; 
+            }
+            return deletedCount;
+        }
+        
         expireAgedTasks();
         expireTransientTasks();
         
@@ -462,7 +585,7 @@ public class BrooklynGarbageCollector {
         }
         
         for (Task<?> task: tasksToDelete) {
-            executionManager.deleteTask(task);
+            deleteExpiredTask(task);
         }
     }
     
@@ -470,7 +593,7 @@ public class BrooklynGarbageCollector {
         Set<Task<?>> transientTasks = executionManager.getTasksWithTag(BrooklynTaskTags.TRANSIENT_TASK_TAG);
         for (Task<?> t: transientTasks) {
             if (!t.isDone(true)) continue;
-            executionManager.deleteTask(t);
+            deleteTask(t);
         }
     }
     
@@ -502,7 +625,7 @@ public class BrooklynGarbageCollector {
         }
         
         for (Task<?> task: tasksToDelete) {
-            executionManager.deleteTask(task);
+            deleteTask(task);
         }
         return tasksToDelete.size();
     }
@@ -629,7 +752,7 @@ public class BrooklynGarbageCollector {
             if (delete) {
                 // delete this and update overcapacity info
                 deleted++;
-                executionManager.deleteTask(task);
+                deleteExpiredTask(task);
                 for (Object tag: task.getTags()) {
                     AtomicInteger counter = taskAllTagsOverCapacity.get(tag);
                     if (counter!=null && counter.decrementAndGet()<=0)
@@ -677,7 +800,7 @@ public class BrooklynGarbageCollector {
         
         int numDeleted = 0;
         while (numDeleted < numToDelete && tasks.size()>numDeleted) {
-            executionManager.deleteTask( tasks.get(numDeleted++) );
+            deleteExpiredTask( tasks.get(numDeleted++) );
         }
         if (LOG.isDebugEnabled())
             LOG.debug("brooklyn-gc deleted "+numDeleted+" tasks as was over global limit, now have "+executionManager.allTasksLive().size());
@@ -36,6 +36,7 @@ public interface EntityChangeListener {
         @Override public void onLocationsChanged() {}
         @Override public void onMembersChanged() {}
         @Override public void onTagsChanged() {}
+        @Override public void onRelationsChanged() {}
         @Override public void onChildrenChanged() {}
         @Override public void onPolicyAdded(Policy policy) {}
         @Override public void onPolicyRemoved(Policy policy) {}
@@ -57,6 +58,8 @@ public interface EntityChangeListener {
     
     void onTagsChanged();
 
+    void onRelationsChanged();
+
     void onMembersChanged();
 
     void onChildrenChanged();
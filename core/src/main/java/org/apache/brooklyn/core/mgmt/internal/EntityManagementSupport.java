@@ -44,6 +44,8 @@ import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
 import org.apache.brooklyn.core.mgmt.entitlement.Entitlements.EntityAndItem;
 import org.apache.brooklyn.core.mgmt.entitlement.Entitlements.StringAndArgument;
 import org.apache.brooklyn.core.mgmt.internal.NonDeploymentManagementContext.NonDeploymentManagementContextMode;
+import org.apache.brooklyn.core.mgmt.rebind.dto.EntityMementoSections;
+import org.apache.brooklyn.core.mgmt.rebind.dto.EntityMementoSections.Section;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.slf4j.Logger;
@@ -95,6 +97,7 @@ public class EntityManagementSupport {
     protected final AtomicBoolean managementFailed = new AtomicBoolean(false);
     
     private volatile EntityChangeListener entityChangeListener = EntityChangeListener.NOOP;
+    private final EntityMementoSections mementoSections = new EntityMementoSections();
 
     /**
      * Whether this entity is managed (i.e. "onManagementStarting" has been called, so the framework knows about it,
@@ -195,6 +198,8 @@ public class EntityManagementSupport {
                 currentlyDeployed.set(true);
                 everDeployed.set(true);
                 
+                // changes were not tracked before now
+                mementoSections.markAllChanged();
                 entityChangeListener = new EntityChangeListenerImpl();
             }
             
@@ -415,9 +420,17 @@ public class EntityManagementSupport {
         return entityChangeListener;
     }
     
+    /** which sections of the entity's memento have changed since it was last generated */
+    @Beta
+    public EntityMementoSections getMementoSections() {
+        return mementoSections;
+    }
+    
     private class EntityChangeListenerImpl implements EntityChangeListener {
         @Override
         public void onChanged() {
+            // anything may have been changed in place
+            mementoSections.markAllChanged();
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
@@ -430,6 +443,12 @@ public class EntityManagementSupport {
         }
         @Override
         public void onTagsChanged() {
+            mementoSections.markChanged(Section.TAGS);
+            getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
+        }
+        @Override
+        public void onRelationsChanged() {
+            mementoSections.markChanged(Section.RELATIONS);
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
@@ -469,11 +488,13 @@ public class EntityManagementSupport {
         @Override
         public void onAttributeChanged(AttributeSensor<?> attribute) {
             if (attribute.getPersistenceMode() != SensorPersistenceMode.NONE) {
+                mementoSections.markChanged(Section.ATTRIBUTES);
                 getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
             }
         }
         @Override
         public void onConfigChanged(ConfigKey<?> key) {
+            mementoSections.markChanged(Section.CONFIG);
             getManagementContext().getRebindManager().getChangeListener().onChanged(entity);
         }
         @Override
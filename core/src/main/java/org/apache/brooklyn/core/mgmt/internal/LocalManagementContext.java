@@ -304,7 +304,11 @@ public class LocalManagementContext extends AbstractManagementContext {
         if (!isRunning()) throw new IllegalStateException("Management context no longer running");
 
         if (subscriptions == null) {
-            subscriptions = new LocalSubscriptionManager(getExecutionManager());
+            LocalSubscriptionManager lsm = new LocalSubscriptionManager(getExecutionManager(), configMap);
+            if (lsm.getSensorEventMetrics()!=null && Boolean.TRUE.equals(configMap.getConfig(LocalSubscriptionManager.SENSOR_EVENT_METRICS_JMX))) {
+                lsm.getSensorEventMetrics().registerMBean(getManagementNodeId());
+            }
+            subscriptions = lsm;
         }
         return subscriptions;
     }
@@ -314,7 +318,7 @@ public class LocalManagementContext extends AbstractManagementContext {
         if (!isRunning()) throw new IllegalStateException("Management context no longer running");
 
         if (execution == null) {
-            execution = new BasicExecutionManager(getManagementNodeId());
+            execution = new BasicExecutionManager(getManagementNodeId(), configMap);
             gc = new BrooklynGarbageCollector(configMap, execution, getStorage());
         }
         return execution;
@@ -334,6 +338,9 @@ public class LocalManagementContext extends AbstractManagementContext {
         if (usageManager != null) usageManager.terminate();
         if (execution != null) execution.shutdownNow();
         if (gc != null) gc.shutdownNow();
+        if (subscriptions instanceof LocalSubscriptionManager && ((LocalSubscriptionManager)subscriptions).getSensorEventMetrics()!=null) {
+            ((LocalSubscriptionManager)subscriptions).getSensorEventMetrics().unregisterMBean();
+        }
         if (osgiManager!=null) {
             osgiManager.stop();
             osgiManager = null;
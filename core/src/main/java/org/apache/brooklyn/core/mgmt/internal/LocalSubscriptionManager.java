@@ -28,9 +28,12 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -42,6 +45,9 @@ import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.config.StringConfigMap;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
@@ -51,25 +57,29 @@ import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.task.BasicExecutionContext;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
-import org.apache.brooklyn.util.core.task.SingleThreadedScheduler;
+import org.apache.brooklyn.util.core.task.LightweightTask;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.text.Identifiers;
 import org.apache.brooklyn.util.text.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimaps;
 
 /**
  * A {@link SubscriptionManager} that stores subscription details locally.
  * 
- * Synchronization model:  methods in this class synch on this object to ensure
- * subscription order and delivery order on publish.
+ * Synchronization model:  subscribe and unsubscribe synch on this object to ensure
+ * subscription order; publish does not lock, reading immutable dispatch tables which
+ * those methods replace, and submits deliveries in the calling thread to preserve delivery order.
  * <p>
  * Frequently it will be called by a thread holding a lock on a value
  * (eg {@link AttributeMap}, this synchronized methods here should not
@@ -86,6 +96,11 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
 
     private final AtomicLong totalEventsPublishedCount = new AtomicLong();
     private final AtomicLong totalEventsDeliveredCount = new AtomicLong();
+    private final AtomicLong totalEventsCoalescedCount = new AtomicLong();
+    
+    private final boolean batchDelivery;
+    private final SensorEventMetrics sensorEventMetrics;
+    private final ConcurrentMap<Object, BatchedDeliveries> batchedDeliveriesBySubscriberTag = new ConcurrentHashMap<Object, BatchedDeliveries>();
     
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<String, Subscription> allSubscriptions = new ConcurrentHashMap<String, Subscription>();
@@ -94,8 +109,48 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
     @SuppressWarnings("rawtypes")
     protected final ConcurrentMap<Object, Set<Subscription>> subscriptionsByToken = new ConcurrentHashMap<Object, Set<Subscription>>();
     
+    /* 
+     * Copy-on-write dispatch tables, so that publish can find the subscriptions for an event without locking or allocating.
+     * They are derived from subscriptionsByToken, and replaced (never mutated) by subscribe/unsubscribe, holding the lock on this;
+     * the only lazily-filled part is the per-producer cache of merged sets, whose entries record the wildcard-producer set
+     * they were merged with, so are recomputed if that has since been replaced.
+     */
+    /** subscriptions for any producer and any sensor */
+    @SuppressWarnings("rawtypes")
+    private volatile Set<Subscription> anyProducerAnySensorSubscriptions = ImmutableSet.of();
+    /** for sensors with subscriptions for any producer, those subscriptions together with {@link #anyProducerAnySensorSubscriptions} */
+    private final ConcurrentMap<String, AnyProducerSubscriptions> anyProducerSubscriptionsBySensorName = new ConcurrentHashMap<String, AnyProducerSubscriptions>();
+    /** for producers with subscriptions specific to them, those subscriptions */
+    private final ConcurrentMap<String, ProducerSubscriptions> subscriptionsByProducerId = new ConcurrentHashMap<String, ProducerSubscriptions>();
+    
+    @Beta
+    public static final ConfigKey<Boolean> BATCH_DELIVERY = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.subscriptions.batchDelivery", 
+        "whether events published while a subscriber's previous delivery is still pending should be delivered "
+        + "by that same task (in order), rather than each event being delivered by its own task", 
+        false);
+    
+    @Beta
+    public static final ConfigKey<Boolean> SENSOR_EVENT_METRICS = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.subscriptions.metrics", 
+        "whether to count events published and delivered, and time spent delivering them, per entity type and sensor; "
+        + "off by default as it adds a counter lookup to every publish and timing to every delivery", 
+        false);
+    
+    @Beta
+    public static final ConfigKey<Boolean> SENSOR_EVENT_METRICS_JMX = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.subscriptions.metrics.jmx", 
+        "whether to register the per entity type and sensor event metrics as a JMX MBean", 
+        false);
+    
     public LocalSubscriptionManager(ExecutionManager m) {
+        this(m, null);
+    }
+    
+    public LocalSubscriptionManager(ExecutionManager m, StringConfigMap config) {
         this.em = m;
+        this.batchDelivery = config!=null && Boolean.TRUE.equals(config.getConfig(BATCH_DELIVERY));
+        this.sensorEventMetrics = config!=null && Boolean.TRUE.equals(config.getConfig(SENSOR_EVENT_METRICS)) ? new SensorEventMetrics(this) : null;
     }
         
     public long getNumSubscriptions() {
@@ -113,6 +168,18 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         return totalEventsDeliveredCount.get();
     }
     
+    /** The number of events which were not delivered, for subscriptions with the <code>coalesce</code> flag, 
+     * because a later event from the same producer and sensor superseded it before delivery */
+    public long getTotalEventsCoalesced() {
+        return totalEventsCoalescedCount.get();
+    }
+    
+    /** Counters per entity type and sensor, or null unless enabled by {@link #SENSOR_EVENT_METRICS} */
+    @Beta
+    public SensorEventMetrics getSensorEventMetrics() {
+        return sensorEventMetrics;
+    }
+    
     @Override
     @SuppressWarnings("unchecked")
     protected synchronized <T> SubscriptionHandle subscribe(Map<String, Object> flags, final Subscription<T> s) {
@@ -126,8 +193,10 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
             s.subscriberExtraExecTags = (tag == null) ? tags : (tags == null ? ImmutableList.of(tag) : MutableList.builder().addAll(tags).add(tag).build());
         }
 
-        if (flags.containsKey("subscriberExecutionManagerTag")) {
-            s.subscriberExecutionManagerTag = flags.remove("subscriberExecutionManagerTag");
+        // a tag explicitly supplied as null is treated as absent, as the tag is used as a key (e.g. for batching)
+        Object suppliedExecutionManagerTag = flags.remove("subscriberExecutionManagerTag");
+        if (suppliedExecutionManagerTag!=null) {
+            s.subscriberExecutionManagerTag = suppliedExecutionManagerTag;
             s.subscriberExecutionManagerTagSupplied = true;
         } else {
             s.subscriberExecutionManagerTag = 
@@ -137,6 +206,7 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
             s.subscriberExecutionManagerTagSupplied = false;
         }
         s.eventFilter = (Predicate<SensorEvent<T>>) flags.remove("eventFilter");
+        s.coalesce = Boolean.TRUE.equals(flags.remove("coalesce"));
         boolean notifyOfInitialValue = Boolean.TRUE.equals(flags.remove("notifyOfInitialValue"));
         s.flags = flags;
         
@@ -161,11 +231,12 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
             lastVal = null;  // won't be used
         }
         addToMapOfSets(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
+        updateDispatchTables(s.producer, s.sensor);
         if (s.subscriber!=null) {
             addToMapOfSets(subscriptionsBySubscriber, s.subscriber, s);
         }
         if (!s.subscriberExecutionManagerTagSupplied && s.subscriberExecutionManagerTag!=null) {
-            ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SingleThreadedScheduler.class);
+            ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, ((BasicExecutionManager) em).getOrderedTaskSchedulerType());
         }
 
         if (notifyOfInitialValue) {
@@ -201,7 +272,7 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
                     // synchronized (((AbstractEntity)s.producer).getAttributesSynchObjectInternal()) {
                     // but realized a better thing is to have initial delivery _done_, not just submitted, 
                     // by ourselves, as we are already in the right thread now and can prevent interleaving this way
-                    submitPublishEvent(s, new BasicSensorEvent<T>(s.sensor, s.producer, val), true);
+                    submitPublishEvent(s, new BasicSensorEvent<T>(s.sensor, s.producer, val), null, true);
                 });
         }
         
@@ -214,14 +285,124 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         return (Set<SubscriptionHandle>) ((Set<?>) elvis(subscriptionsBySubscriber.get(subscriber), Collections.emptySet()));
     }
 
+    /** 
+     * Returns the subscriptions which should receive an event from the given source and sensor;
+     * this does not lock or (normally) allocate, and the returned set is immutable.
+     */
     @Override
-    public synchronized Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
-        Set<SubscriptionHandle> subscriptions = new LinkedHashSet<SubscriptionHandle>();
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, sensor)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, null)), Collections.emptySet()));
-        subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, null)), Collections.emptySet()));
-        return subscriptions;
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public Set<SubscriptionHandle> getSubscriptionsForEntitySensor(Entity source, Sensor<?> sensor) {
+        if (sensor==null) {
+            synchronized (this) {
+                Set<SubscriptionHandle> subscriptions = new LinkedHashSet<SubscriptionHandle>();
+                subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(source, sensor)), Collections.emptySet()));
+                subscriptions.addAll(elvis(subscriptionsByToken.get(makeEntitySensorToken(null, null)), Collections.emptySet()));
+                return subscriptions;
+            }
+        }
+        String sensorName = sensor.getName();
+        AnyProducerSubscriptions anyProducer = anyProducerSubscriptionsBySensorName.get(sensorName);
+        Set<Subscription> anyProducerSubscriptions = anyProducer!=null ? anyProducer.merged : anyProducerAnySensorSubscriptions;
+        ProducerSubscriptions producer = source==null ? null : subscriptionsByProducerId.get(source.getId());
+        if (producer==null) {
+            return (Set<SubscriptionHandle>) (Set) anyProducerSubscriptions;
+        }
+        return (Set<SubscriptionHandle>) (Set) producer.getMerged(sensorName, anyProducerSubscriptions);
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private static class AnyProducerSubscriptions {
+        final Set<Subscription> forSensor;
+        final Set<Subscription> merged;
+        AnyProducerSubscriptions(Set<Subscription> forSensor, Set<Subscription> anySensor) {
+            this.forSensor = forSensor;
+            this.merged = union(forSensor, anySensor);
+        }
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private static class ProducerSubscriptions {
+        final Map<String, Set<Subscription>> bySensorName;
+        final Set<Subscription> anySensor;
+        final ConcurrentMap<String, MergedSubscriptions> mergedBySensorName = new ConcurrentHashMap<String, MergedSubscriptions>();
+        
+        ProducerSubscriptions(Map<String, Set<Subscription>> bySensorName, Set<Subscription> anySensor) {
+            this.bySensorName = bySensorName;
+            this.anySensor = anySensor;
+        }
+        
+        boolean isEmpty() {
+            return bySensorName.isEmpty() && anySensor.isEmpty();
+        }
+        
+        Set<Subscription> getMerged(String sensorName, Set<Subscription> anyProducer) {
+            MergedSubscriptions result = mergedBySensorName.get(sensorName);
+            if (result==null || result.anyProducer!=anyProducer) {
+                result = new MergedSubscriptions(anyProducer, 
+                    union(elvis(bySensorName.get(sensorName), ImmutableSet.<Subscription>of()), union(anySensor, anyProducer)));
+                mergedBySensorName.put(sensorName, result);
+            }
+            return result.all;
+        }
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private static class MergedSubscriptions {
+        final Set<Subscription> anyProducer;
+        final Set<Subscription> all;
+        MergedSubscriptions(Set<Subscription> anyProducer, Set<Subscription> all) {
+            this.anyProducer = anyProducer;
+            this.all = all;
+        }
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private static Set<Subscription> union(Set<Subscription> s1, Set<Subscription> s2) {
+        if (s1.isEmpty()) return s2;
+        if (s2.isEmpty()) return s1;
+        return ImmutableSet.<Subscription>builder().addAll(s1).addAll(s2).build();
+    }
+    
+    @SuppressWarnings("rawtypes")
+    private Set<Subscription> getSubscriptionsSnapshot(Entity producer, Sensor<?> sensor) {
+        Set<Subscription> subs = subscriptionsByToken.get(makeEntitySensorToken(producer, sensor));
+        if (subs==null) return ImmutableSet.of();
+        synchronized (subs) {
+            return ImmutableSet.copyOf(subs);
+        }
+    }
+    
+    /** rebuilds the parts of the dispatch tables affected by a change to subscriptions on the given producer and sensor;
+     * caller must hold the lock on this */
+    @SuppressWarnings("rawtypes")
+    private void updateDispatchTables(Entity producer, Sensor<?> sensor) {
+        Set<Subscription> subs = getSubscriptionsSnapshot(producer, sensor);
+        if (producer!=null) {
+            ProducerSubscriptions old = subscriptionsByProducerId.get(producer.getId());
+            Map<String, Set<Subscription>> bySensorName = old!=null ? old.bySensorName : ImmutableMap.<String, Set<Subscription>>of();
+            Set<Subscription> anySensor = old!=null ? old.anySensor : ImmutableSet.<Subscription>of();
+            if (sensor!=null) {
+                MutableMap<String, Set<Subscription>> newBySensorName = MutableMap.copyOf(bySensorName);
+                if (subs.isEmpty()) newBySensorName.remove(sensor.getName());
+                else newBySensorName.put(sensor.getName(), subs);
+                bySensorName = ImmutableMap.copyOf(newBySensorName);
+            } else {
+                anySensor = subs;
+            }
+            ProducerSubscriptions replacement = new ProducerSubscriptions(bySensorName, anySensor);
+            if (replacement.isEmpty()) subscriptionsByProducerId.remove(producer.getId());
+            else subscriptionsByProducerId.put(producer.getId(), replacement);
+            
+        } else if (sensor!=null) {
+            if (subs.isEmpty()) anyProducerSubscriptionsBySensorName.remove(sensor.getName());
+            else anyProducerSubscriptionsBySensorName.put(sensor.getName(), new AnyProducerSubscriptions(subs, anyProducerAnySensorSubscriptions));
+            
+        } else {
+            anyProducerAnySensorSubscriptions = subs;
+            for (Map.Entry<String, AnyProducerSubscriptions> entry: anyProducerSubscriptionsBySensorName.entrySet()) {
+                entry.setValue(new AnyProducerSubscriptions(entry.getValue().forSensor, subs));
+            }
+        }
     }
 
     /**
@@ -237,13 +418,18 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         boolean result = allSubscriptions.remove(s.id) != null;
         boolean b2 = removeFromMapOfCollections(subscriptionsByToken, makeEntitySensorToken(s.producer, s.sensor), s);
         assert result==b2;
+        updateDispatchTables(s.producer, s.sensor);
         if (s.subscriber!=null) {
             boolean b3 = removeFromMapOfCollections(subscriptionsBySubscriber, s.subscriber, s);
             assert b3 == b2;
+            if (!subscriptionsBySubscriber.containsKey(s.subscriber)) {
+                // any batch still running keeps its own reference
+                batchedDeliveriesBySubscriberTag.remove(s.subscriberExecutionManagerTag);
+            }
         }
 
         // FIXME ALEX - this seems wrong
-        ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, SingleThreadedScheduler.class);
+        ((BasicExecutionManager) em).setTaskSchedulerForTag(s.subscriberExecutionManagerTag, ((BasicExecutionManager) em).getOrderedTaskSchedulerType());
         return result;
     }
 
@@ -263,12 +449,17 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
         //e.g. emit(A); emit(B); should cause onEvent(A); onEvent(B) in that order
         if (LOG.isTraceEnabled()) LOG.trace("{} got event {}", this, event);
         totalEventsPublishedCount.incrementAndGet();
+        SensorEventMetrics.Counters counters = null;
+        if (sensorEventMetrics!=null) {
+            counters = sensorEventMetrics.getCounters(event.getSource(), event.getSensor());
+            counters.recordPublish();
+        }
         
         Set<Subscription> subs = (Set<Subscription>) ((Set<?>) getSubscriptionsForEntitySensor(event.getSource(), event.getSensor()));
         if (groovyTruth(subs)) {
             if (LOG.isTraceEnabled()) LOG.trace("sending {}, {} to {}", new Object[] {event.getSensor().getName(), event, join(subs, ",")});
             for (Subscription s : subs) {
-                submitPublishEvent(s, event, false);
+                submitPublishEvent(s, event, counters, false);
                 // excludes initial so only do it here
                 totalEventsDeliveredCount.incrementAndGet();
             }
@@ -276,45 +467,23 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
     }
     
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    private void submitPublishEvent(final Subscription s, final SensorEvent<?> event, final boolean isInitialPublicationOfOldValueInCorrectScheduledThread) {
+    private void submitPublishEvent(final Subscription s, final SensorEvent<?> event, final SensorEventMetrics.Counters counters, final boolean isInitialPublicationOfOldValueInCorrectScheduledThread) {
         if (s.eventFilter!=null && !s.eventFilter.apply(event))
             return;
         
-        List<Object> tags = getPublishTags(s, event.getSource()).asUnmodifiable();
-        
-        StringBuilder name = new StringBuilder("sensor ");
-        StringBuilder description = new StringBuilder("Sensor ");
-        String sensorName = s.sensor==null ? "<null-sensor>" : s.sensor.getName();
-        String sourceName = event.getSource()==null ? null : event.getSource().getId();
-        if (Strings.isNonBlank(sourceName)) {
-            name.append(sourceName);
-            name.append(":");
-        }
-        name.append(sensorName);
-        
-        description.append(sensorName);
-        description.append(" on ");
-        description.append(sourceName==null ? "<null-source>" : sourceName);
-        description.append(" publishing to ");
-        description.append(s.subscriber instanceof Entity ? ((Entity)s.subscriber).getId() : s.subscriber);
-        if (Strings.isNonBlank(s.subscriptionDescription)) {
-            description.append(", ");
-            description.append(s.subscriptionDescription);
+        final Object coalesceToken = s.coalesce && !isInitialPublicationOfOldValueInCorrectScheduledThread ? makeEntitySensorToken(event) : null;
+        if (coalesceToken!=null && s.pendingCoalescedEvents.put(coalesceToken, event)!=null) {
+            // delivery already submitted but not yet run; it will deliver this event instead of the one it was submitted with
+            totalEventsCoalescedCount.incrementAndGet();
+            return;
         }
         
-        if (includeDescriptionForSensorTask(event)) {
-            name.append(" ");
-            name.append(event.getValue());
-            description.append(", value: ");
-            description.append(event.getValue());
-        }
-        Map<String, Object> execFlags = MutableMap.of("tags", tags, 
-            "displayName", name.toString(),
-            "description", description.toString());
+        List<Object> tags = getPublishTags(s, event.getSource()).asUnmodifiable();
         
         boolean isEntityStarting = s.subscriber instanceof Entity && isInitialPublicationOfOldValueInCorrectScheduledThread;
         // will have entity (and adjunct) execution context from tags, so can skip getting exec context
         final ExecutionContext ec = BrooklynTaskTags.getExecutionContext(tags);
+        final long submittedNanos = counters!=null ? System.nanoTime() : 0;
         Runnable deliverer = new Runnable() {
             @Override
             public String toString() {
@@ -345,10 +514,24 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
                          */
                         synchronized (((EntityInternal)s.subscriber).getManagementSupport()) {}
                     }
+                    SensorEvent<?> eventToDeliver = event;
+                    if (coalesceToken!=null) {
+                        eventToDeliver = (SensorEvent<?>) s.pendingCoalescedEvents.remove(coalesceToken);
+                        if (eventToDeliver==null) return;
+                    }
                     int count = s.eventCount.incrementAndGet();
                     if (count > 0 && count % 1000 == 0) LOG.debug("{} events for subscriber {}", count, s);
                     
-                    s.listener.onEvent(event);
+                    if (counters!=null) {
+                        long startNanos = System.nanoTime();
+                        try {
+                            s.listener.onEvent(eventToDeliver);
+                        } finally {
+                            counters.recordDelivery(startNanos - submittedNanos, System.nanoTime() - startNanos);
+                        }
+                    } else {
+                        s.listener.onEvent(eventToDeliver);
+                    }
                 } catch (Throwable t) {
                     Exceptions.propagateIfFatal(t);
                     if (event!=null && event.getSource()!=null && Entities.isNoLongerManaged(event.getSource())) {
@@ -360,24 +543,108 @@ public class LocalSubscriptionManager extends AbstractSubscriptionManager {
                     BasicExecutionContext.setPerThreadExecutionContext(oldEC);
                 }
             }};
-        if (!isInitialPublicationOfOldValueInCorrectScheduledThread) {
-            em.submit(execFlags, deliverer);
-        } else {
+        if (isInitialPublicationOfOldValueInCorrectScheduledThread) {
             // for initial, caller guarantees he is running in the right thread/context
             // where the above submission would take place, typically the
             // subscriber single threaded executor with the entity context;
             // this allows caller to do extra assertions and bailout steps at the right time
             deliverer.run();
+            return;
+        }
+        if (batchDelivery) {
+            submitBatchedDelivery(s, deliverer);
+            return;
+        }
+        
+        StringBuilder name = new StringBuilder("sensor ");
+        StringBuilder description = new StringBuilder("Sensor ");
+        String sensorName = s.sensor==null ? "<null-sensor>" : s.sensor.getName();
+        String sourceName = event.getSource()==null ? null : event.getSource().getId();
+        if (Strings.isNonBlank(sourceName)) {
+            name.append(sourceName);
+            name.append(":");
+        }
+        name.append(sensorName);
+        
+        description.append(sensorName);
+        description.append(" on ");
+        description.append(sourceName==null ? "<null-source>" : sourceName);
+        description.append(" publishing to ");
+        description.append(s.subscriber instanceof Entity ? ((Entity)s.subscriber).getId() : s.subscriber);
+        if (Strings.isNonBlank(s.subscriptionDescription)) {
+            description.append(", ");
+            description.append(s.subscriptionDescription);
+        }
+        
+        if (coalesceToken==null && includeDescriptionForSensorTask(event)) {
+            name.append(" ");
+            name.append(event.getValue());
+            description.append(", value: ");
+            description.append(event.getValue());
+        }
+        Map<String, Object> execFlags = MutableMap.of("tags", tags, 
+            "displayName", name.toString(),
+            "description", description.toString());
+        
+        em.submit(execFlags, new LightweightTask<Void>(execFlags, deliverer));
+    }
+
+    /** 
+     * Queues the delivery for the subscriber, submitting a task to run it (and anything queued behind it)
+     * only if there is not already one pending; the task goes to the subscriber's scheduler, 
+     * so it is ordered with respect to other deliveries there.
+     * <p>
+     * The task is tagged only for the subscriber, not the source of the event, as it may deliver
+     * events from other sources; each deliverer identifies its own event.
+     */
+    private void submitBatchedDelivery(Subscription<?> s, Runnable deliverer) {
+        BatchedDeliveries batch = batchedDeliveriesBySubscriberTag.get(s.subscriberExecutionManagerTag);
+        if (batch==null) {
+            batchedDeliveriesBySubscriberTag.putIfAbsent(s.subscriberExecutionManagerTag, new BatchedDeliveries(s.subscriber));
+            batch = batchedDeliveriesBySubscriberTag.get(s.subscriberExecutionManagerTag);
+        }
+        batch.queue.add(deliverer);
+        if (batch.pending.getAndIncrement()==0) {
+            Map<String, Object> execFlags = MutableMap.of("tags", getSubscriberTags(s).asUnmodifiable(), "displayName", "sensor deliveries", "description", batch.description);
+            em.submit(execFlags, new LightweightTask<Void>(execFlags, batch));
+        }
+    }
+    
+    private static class BatchedDeliveries implements Runnable {
+        final Queue<Runnable> queue = new ConcurrentLinkedQueue<Runnable>();
+        /** number of deliveries added to the queue and not yet run; the delivery task is running or submitted iff non-zero */
+        final AtomicInteger pending = new AtomicInteger();
+        final String description;
+        
+        BatchedDeliveries(Object subscriber) {
+            description = "Sensor deliveries to "+(subscriber instanceof Entity ? ((Entity)subscriber).getId() : subscriber);
+        }
+        
+        @Override
+        public void run() {
+            do {
+                // each deliverer handles its own errors
+                queue.poll().run();
+            } while (pending.decrementAndGet() > 0);
+        }
+        
+        @Override
+        public String toString() {
+            return "LSM.publishBatch("+description+")";
         }
     }
 
     private MutableList<Object> getPublishTags(final Subscription<?> s, final Entity source) {
+        return getSubscriberTags(s)
+            // associate the publish event with the publisher (though on init it might be triggered by subscriber)
+            .appendIfNotNull(source!=null ? BrooklynTaskTags.tagForTargetEntity(source) : null);
+    }
+
+    private MutableList<Object> getSubscriberTags(final Subscription<?> s) {
         return MutableList.builder()
             .addAll(s.subscriberExtraExecTags == null ? ImmutableList.of() : s.subscriberExtraExecTags)
             .add(s.subscriberExecutionManagerTag)
             .add(BrooklynTaskTags.SENSOR_TAG)
-            // associate the publish event with the publisher (though on init it might be triggered by subscriber)
-            .addIfNotNull(source!=null ? BrooklynTaskTags.tagForTargetEntity(source) : null)
             .build();
     }
     
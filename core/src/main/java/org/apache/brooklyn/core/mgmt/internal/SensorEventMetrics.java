@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.sensor.Sensor;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Counters of sensor events published and delivered by a {@link LocalSubscriptionManager},
+ * kept per entity type and sensor name, to help find the source of a high event rate.
+ * <p>
+ * Counters are {@link LongAdder}s so updates from many publishing threads do not contend;
+ * reads sum them, so are more expensive and only approximately consistent with each other.
+ */
+@Beta
+public class SensorEventMetrics implements SensorEventMetricsMBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SensorEventMetrics.class);
+
+    public enum SortBy {
+        PUBLISHES, DELIVERIES, QUEUE_WAIT, LISTENER_TIME;
+
+        public static SortBy fromString(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    /** the counters for one entity type and sensor */
+    public static class Counters {
+        private final String entityType;
+        private final String sensorName;
+        private final LongAdder publishes = new LongAdder();
+        private final LongAdder deliveries = new LongAdder();
+        private final LongAdder queueWaitNanos = new LongAdder();
+        private final LongAdder listenerNanos = new LongAdder();
+        private final LongAccumulator maxListenerNanos = new LongAccumulator(Math::max, 0);
+
+        Counters(String entityType, String sensorName) {
+            this.entityType = entityType;
+            this.sensorName = sensorName;
+        }
+
+        public void recordPublish() {
+            publishes.increment();
+        }
+
+        public void recordDelivery(long queueWaitNanos, long listenerNanos) {
+            deliveries.increment();
+            this.queueWaitNanos.add(queueWaitNanos);
+            this.listenerNanos.add(listenerNanos);
+            maxListenerNanos.accumulate(listenerNanos);
+        }
+
+        public Summary getSummary() {
+            return new Summary(entityType, sensorName, publishes.sum(), deliveries.sum(),
+                queueWaitNanos.sum(), listenerNanos.sum(), maxListenerNanos.get());
+        }
+    }
+
+    /** An immutable snapshot of the {@link Counters} for one entity type and sensor. */
+    public static class Summary {
+        private final String entityType;
+        private final String sensorName;
+        private final long publishes;
+        private final long deliveries;
+        private final long queueWaitNanos;
+        private final long listenerNanos;
+        private final long maxListenerNanos;
+
+        protected Summary(String entityType, String sensorName, long publishes, long deliveries,
+                long queueWaitNanos, long listenerNanos, long maxListenerNanos) {
+            this.entityType = entityType;
+            this.sensorName = sensorName;
+            this.publishes = publishes;
+            this.deliveries = deliveries;
+            this.queueWaitNanos = queueWaitNanos;
+            this.listenerNanos = listenerNanos;
+            this.maxListenerNanos = maxListenerNanos;
+        }
+
+        public String getEntityType() { return entityType; }
+        public String getSensorName() { return sensorName; }
+        public long getPublishes() { return publishes; }
+        public long getDeliveries() { return deliveries; }
+        public Duration getTotalQueueWait() { return Duration.nanos(queueWaitNanos); }
+        public Duration getTotalListenerTime() { return Duration.nanos(listenerNanos); }
+        public Duration getMaxListenerTime() { return Duration.nanos(maxListenerNanos); }
+        public Duration getMeanQueueWait() { return Duration.nanos(deliveries == 0 ? 0 : queueWaitNanos / deliveries); }
+        public Duration getMeanListenerTime() { return Duration.nanos(deliveries == 0 ? 0 : listenerNanos / deliveries); }
+
+        long getSortValue(SortBy sortBy) {
+            switch (sortBy) {
+            case PUBLISHES: return publishes;
+            case DELIVERIES: return deliveries;
+            case QUEUE_WAIT: return queueWaitNanos;
+            case LISTENER_TIME: return listenerNanos;
+            default: throw new IllegalStateException("Unsupported sort "+sortBy);
+            }
+        }
+
+        public Map<String, Object> asMap() {
+            return MutableMap.<String, Object>of(
+                "entityType", entityType,
+                "sensor", sensorName,
+                "publishes", publishes,
+                "deliveries", deliveries,
+                "meanQueueWaitMillis", getMeanQueueWait().toMilliseconds(),
+                "totalListenerMillis", getTotalListenerTime().toMilliseconds(),
+                "maxListenerMillis", getMaxListenerTime().toMilliseconds());
+        }
+
+        @Override
+        public String toString() {
+            return entityType+":"+sensorName+asMap();
+        }
+    }
+
+    private final LocalSubscriptionManager manager;
+    private final ConcurrentMap<String, ConcurrentMap<String, Counters>> countersByEntityType = new ConcurrentHashMap<String, ConcurrentMap<String, Counters>>();
+    private final ConcurrentMap<Class<?>, String> entityTypeNamesByClass = new ConcurrentHashMap<Class<?>, String>();
+    private volatile ObjectName registeredName;
+
+    public SensorEventMetrics(LocalSubscriptionManager manager) {
+        this.manager = manager;
+    }
+
+    /** returns the counters for the source and sensor of an event, creating them if needed */
+    public Counters getCounters(Entity source, Sensor<?> sensor) {
+        String entityType = source==null ? "<none>" : getEntityTypeName(source);
+        ConcurrentMap<String, Counters> bySensor = countersByEntityType.get(entityType);
+        if (bySensor==null) {
+            bySensor = countersByEntityType.computeIfAbsent(entityType, k -> new ConcurrentHashMap<String, Counters>());
+        }
+        Counters result = bySensor.get(sensor.getName());
+        if (result==null) {
+            result = bySensor.computeIfAbsent(sensor.getName(), k -> new Counters(entityType, k));
+        }
+        return result;
+    }
+
+    private String getEntityTypeName(Entity source) {
+        Class<?> type = source.getClass();
+        String result = entityTypeNamesByClass.get(type);
+        if (result==null) {
+            result = entityTypeNamesByClass.computeIfAbsent(type, k -> source.getEntityType().getName());
+        }
+        return result;
+    }
+
+    /** returns the summaries with the highest value for the given metric, highest first */
+    public List<Summary> getTop(int limit, final SortBy sortBy) {
+        List<Summary> result = MutableList.of();
+        for (ConcurrentMap<String, Counters> bySensor : countersByEntityType.values()) {
+            for (Counters counters : bySensor.values()) {
+                result.add(counters.getSummary());
+            }
+        }
+        Collections.sort(result, new Comparator<Summary>() {
+            @Override
+            public int compare(Summary o1, Summary o2) {
+                return Long.compare(o2.getSortValue(sortBy), o1.getSortValue(sortBy));
+            }
+        });
+        return limit >= 0 && result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    @Override
+    public long getTotalEventsPublished() {
+        return manager.getTotalEventsPublished();
+    }
+
+    @Override
+    public long getTotalEventsDelivered() {
+        return manager.getTotalEventsDelivered();
+    }
+
+    @Override
+    public long getTotalEventsCoalesced() {
+        return manager.getTotalEventsCoalesced();
+    }
+
+    @Override
+    public int getNumSensorsTracked() {
+        int result = 0;
+        for (ConcurrentMap<String, Counters> bySensor : countersByEntityType.values()) {
+            result += bySensor.size();
+        }
+        return result;
+    }
+
+    @Override
+    public String[] topByPublishes(int limit) {
+        return toStrings(getTop(limit, SortBy.PUBLISHES));
+    }
+
+    @Override
+    public String[] topByDeliveries(int limit) {
+        return toStrings(getTop(limit, SortBy.DELIVERIES));
+    }
+
+    @Override
+    public String[] topByQueueWait(int limit) {
+        return toStrings(getTop(limit, SortBy.QUEUE_WAIT));
+    }
+
+    @Override
+    public String[] topByListenerTime(int limit) {
+        return toStrings(getTop(limit, SortBy.LISTENER_TIME));
+    }
+
+    private static String[] toStrings(List<Summary> summaries) {
+        String[] result = new String[summaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = summaries.get(i).toString();
+        }
+        return result;
+    }
+
+    /** registers this with the platform MBean server, named for the given management context id */
+    public synchronized void registerMBean(String managementContextId) {
+        if (registeredName!=null) return;
+        try {
+            ObjectName name = new ObjectName("org.apache.brooklyn:type=SensorEventMetrics,context="+ObjectName.quote(managementContextId));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            registeredName = name;
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Unable to register sensor event metrics MBean for "+managementContextId+" (continuing): "+e);
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (registeredName==null) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(registeredName)) server.unregisterMBean(registeredName);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.debug("Unable to unregister sensor event metrics MBean "+registeredName+" (continuing): "+e);
+        }
+        registeredName = null;
+    }
+}
@@ -19,6 +19,8 @@
 package org.apache.brooklyn.core.mgmt.internal;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.api.entity.Entity;
@@ -45,6 +47,10 @@ class Subscription<T> implements SubscriptionHandle {
     public final AtomicInteger eventCount = new AtomicInteger();
     public Map<String,Object> flags;
     public Predicate<SensorEvent<T>> eventFilter;
+    /** whether only the most recent undelivered event from each producer-sensor pair should be delivered */
+    public boolean coalesce;
+    /** if {@link #coalesce}, the latest event for each producer-sensor token whose delivery has been submitted but not yet run */
+    public final ConcurrentMap<Object, SensorEvent<?>> pendingCoalescedEvents = new ConcurrentHashMap<Object, SensorEvent<?>>();
 
     public Subscription(Entity producer, Sensor<T> sensor, SensorEventListener<? super T> listener) {
         this.producer = producer;
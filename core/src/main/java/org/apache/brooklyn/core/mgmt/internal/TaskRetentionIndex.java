@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.brooklyn.api.mgmt.HasTaskChildren;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags.WrappedEntity;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.brooklyn.util.core.task.TaskTags;
+import org.apache.brooklyn.util.time.Duration;
+
+/**
+ * Incremental bookkeeping for {@link BrooklynGarbageCollector}, used if {@link BrooklynGarbageCollector#INCREMENTAL} is set.
+ * <p>
+ * Tasks are recorded as they complete, in a queue for each tag which the GC limits (for
+ * {@link BrooklynGarbageCollector#MAX_TASKS_PER_TAG} and {@link BrooklynGarbageCollector#MAX_TASKS_PER_ENTITY}),
+ * and, unless they are sub-tasks, in a global queue (for {@link BrooklynGarbageCollector#MAX_TASKS_GLOBAL} 
+ * and {@link BrooklynGarbageCollector#MAX_TASK_AGE}). As tasks are recorded in the order they complete,
+ * every queue is oldest-first, so limits are applied by evicting from the head of a queue when a task is added,
+ * and age by expiring from the head of the global queue, rather than by walking and sorting all tasks.
+ * <p>
+ * Sub-tasks are not in the global queue, as (like the full sweep) they are deleted along with their parent
+ * rather than aged out or counted separately; they are in the tag queues, so a busy tag can still evict them.
+ * <p>
+ * As with the full sweep, a task is only evicted from a full tag if all its other limited tags of the same kind
+ * (entity or non-entity) are also over their limit; otherwise it is kept, and no longer counted against that tag.
+ * The GC reports tasks it deletes by other means with {@link #remove(Task)}, which stops them (and their children)
+ * being counted; tasks deleted without the GC knowing are noticed, and dropped, when they reach the head of a queue.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+class TaskRetentionIndex {
+
+    private static class Entry {
+        final String id;
+        final WeakReference<Task<?>> task;
+        /** limited tags this entry is counted against; set to null where no longer counted */
+        final Object[] tags;
+        final boolean inGlobalQueue;
+        final long endTimeUtc;
+        boolean forgotten = false;
+        
+        Entry(Task<?> task, Object[] tags, boolean inGlobalQueue) {
+            this.id = task.getId();
+            this.task = new WeakReference<Task<?>>(task);
+            this.tags = tags;
+            this.inGlobalQueue = inGlobalQueue;
+            this.endTimeUtc = task.getEndTimeUtc();
+        }
+    }
+    
+    private static class TagQueue {
+        final ArrayDeque<Entry> entries = new ArrayDeque<Entry>();
+        /** number of entries not forgotten and still counted against this tag */
+        int count = 0;
+    }
+    
+    private final BasicExecutionManager executionManager;
+    private final ArrayDeque<Entry> globalQueue = new ArrayDeque<Entry>();
+    private int globalCount = 0;
+    private final Map<Object, TagQueue> queuesByTag = new HashMap<Object, TagQueue>();
+    /** entries which are still counted somewhere, so that a task deleted by the GC can stop being counted */
+    private final Map<String, Entry> entriesById = new HashMap<String, Entry>();
+    
+    private int maxTasksPerTag;
+    private int maxTasksPerEntity;
+    private int maxTasksGlobal;
+    private Duration maxTaskAge;
+    
+    TaskRetentionIndex(BasicExecutionManager executionManager) {
+        this.executionManager = executionManager;
+    }
+    
+    void setLimits(int maxTasksPerTag, int maxTasksPerEntity, int maxTasksGlobal, Duration maxTaskAge) {
+        this.maxTasksPerTag = maxTasksPerTag;
+        this.maxTasksPerEntity = maxTasksPerEntity;
+        this.maxTasksGlobal = maxTasksGlobal;
+        this.maxTaskAge = maxTaskAge;
+    }
+    
+    /** number of tasks in the global queue, i.e. completed non-sub-tasks, possibly including some recently deleted */
+    int getGlobalCount() {
+        return globalCount;
+    }
+    
+    /** number of tasks being tracked, i.e. counted against a limit */
+    int getTrackedCount() {
+        return entriesById.size();
+    }
+    
+    /** records a completed task, returning those which should now be deleted to keep within the limits */
+    List<Task<?>> add(Task<?> task) {
+        Set<Object> taskTags = TaskTags.getTagsFast(task);
+        List<Object> limitedTags = MutableList.of();
+        for (Object tag: taskTags) {
+            if (!BrooklynGarbageCollector.isTagIgnoredForGc(tag)) limitedTags.add(tag);
+        }
+        Entry entry = new Entry(task, limitedTags.toArray(), !BrooklynTaskTags.isSubTask(task));
+        
+        List<Task<?>> result = MutableList.of();
+        // a sub-task with no limited tags is only deleted with its parent, so there is nothing to track
+        if (!entry.inGlobalQueue && entry.tags.length==0) return result;
+        if (entriesById.containsKey(entry.id)) return result;
+        entriesById.put(entry.id, entry);
+        if (entry.inGlobalQueue) {
+            globalQueue.add(entry);
+            globalCount++;
+        }
+        for (Object tag: entry.tags) {
+            TagQueue queue = queuesByTag.get(tag);
+            if (queue==null) {
+                queue = new TagQueue();
+                queuesByTag.put(tag, queue);
+            }
+            queue.entries.add(entry);
+            queue.count++;
+        }
+        for (Object tag: entry.tags) {
+            if (tag!=null) trimTag(tag, result);
+        }
+        trimGlobal(result);
+        return result;
+    }
+    
+    /** applies all limits, including age, returning tasks which should now be deleted; 
+     * needed after limits are reduced, and periodically for age */
+    List<Task<?>> expire(long nowUtc) {
+        List<Task<?>> result = MutableList.of();
+        for (Object tag: MutableList.copyOf(queuesByTag.keySet())) {
+            trimTag(tag, result);
+        }
+        trimGlobal(result);
+        long cutoff = nowUtc - maxTaskAge.toMilliseconds();
+        while (!globalQueue.isEmpty()) {
+            Entry oldest = globalQueue.peek();
+            Task<?> task = liveTask(oldest);
+            if (task!=null && oldest.endTimeUtc >= cutoff) break;
+            globalQueue.poll();
+            if (task!=null) result.add(task);
+            forget(oldest);
+        }
+        return result;
+    }
+    
+    /** stops counting a task which has been deleted, and its children, which are deleted with it */
+    void remove(Task<?> task) {
+        Entry entry = entriesById.get(task.getId());
+        if (entry!=null) forget(entry);
+        if (task instanceof HasTaskChildren) {
+            for (Task<?> child: ((HasTaskChildren)task).getChildren()) {
+                remove(child);
+            }
+        }
+    }
+    
+    /** forgets the given tags, and all tasks counted against them, e.g. when an entity's tasks are deleted */
+    void removeTags(Collection<?> tags) {
+        for (Object tag: tags) {
+            TagQueue queue = queuesByTag.get(tag);
+            if (queue==null) continue;
+            for (Entry entry: queue.entries) {
+                forget(entry);
+            }
+            queuesByTag.remove(tag);
+        }
+    }
+    
+    private int limitFor(Object tag) {
+        return (tag instanceof WrappedEntity) ? maxTasksPerEntity : maxTasksPerTag;
+    }
+    
+    private boolean isOverLimit(Object tag) {
+        TagQueue queue = queuesByTag.get(tag);
+        return queue!=null && queue.count > limitFor(tag);
+    }
+    
+    private void trimTag(Object tag, List<Task<?>> result) {
+        TagQueue queue = queuesByTag.get(tag);
+        if (queue==null) return;
+        compactIfSparse(tag, queue);
+        int limit = limitFor(tag);
+        while (queue.count > limit) {
+            Entry oldest = queue.entries.poll();
+            if (oldest.forgotten || !isCounted(oldest, tag)) continue;
+            Task<?> task = liveTask(oldest);
+            if (task==null) {
+                forget(oldest);
+            } else if (allOtherTagsOfSameKindOverLimit(oldest, tag)) {
+                result.add(task);
+                forget(oldest);
+            } else {
+                // keep it for the other tags, but it no longer counts against this one
+                uncount(oldest, tag);
+            }
+        }
+        if (queue.count==0) queuesByTag.remove(tag);
+    }
+    
+    private void trimGlobal(List<Task<?>> result) {
+        if (globalQueue.size() > 2*globalCount + 16) {
+            // mostly entries forgotten out of order; drop them rather than waiting for them to reach the head
+            globalQueue.removeIf(e -> e.forgotten);
+        }
+        while (globalCount > maxTasksGlobal) {
+            Entry oldest = globalQueue.poll();
+            if (oldest.forgotten) continue;
+            Task<?> task = liveTask(oldest);
+            if (task!=null) result.add(task);
+            forget(oldest);
+        }
+    }
+    
+    private void compactIfSparse(Object tag, TagQueue queue) {
+        if (queue.entries.size() > 2*queue.count + 16) {
+            queue.entries.removeIf(e -> e.forgotten || !isCounted(e, tag));
+        }
+    }
+    
+    private boolean allOtherTagsOfSameKindOverLimit(Entry entry, Object tag) {
+        boolean isEntity = tag instanceof WrappedEntity;
+        for (Object other: entry.tags) {
+            if (other==null || other.equals(tag)) continue;
+            if ((other instanceof WrappedEntity) != isEntity) continue;
+            if (!isOverLimit(other)) return false;
+        }
+        return true;
+    }
+    
+    /** the task if it is still known to the execution manager, otherwise null */
+    private Task<?> liveTask(Entry entry) {
+        if (entry.forgotten) return null;
+        Task<?> task = entry.task.get();
+        if (task==null || executionManager.getTask(entry.id)==null) return null;
+        return task;
+    }
+    
+    private boolean isCounted(Entry entry, Object tag) {
+        for (Object t: entry.tags) {
+            if (tag.equals(t)) return true;
+        }
+        return false;
+    }
+    
+    private boolean isCountedAnywhere(Entry entry) {
+        for (Object t: entry.tags) {
+            if (t!=null) return true;
+        }
+        return false;
+    }
+    
+    private void uncount(Entry entry, Object tag) {
+        for (int i=0; i<entry.tags.length; i++) {
+            if (tag.equals(entry.tags[i])) {
+                entry.tags[i] = null;
+                TagQueue queue = queuesByTag.get(tag);
+                if (queue!=null) queue.count--;
+                if (!entry.inGlobalQueue && !isCountedAnywhere(entry)) {
+                    // nothing will look at it again
+                    forget(entry);
+                }
+                return;
+            }
+        }
+    }
+    
+    /** stops counting the entry anywhere; entries stay in the queues until they reach the head */
+    private void forget(Entry entry) {
+        if (entry.forgotten) return;
+        entry.forgotten = true;
+        entriesById.remove(entry.id);
+        if (entry.inGlobalQueue) globalCount--;
+        for (int i=0; i<entry.tags.length; i++) {
+            Object tag = entry.tags[i];
+            if (tag==null) continue;
+            entry.tags[i] = null;
+            TagQueue queue = queuesByTag.get(tag);
+            if (queue!=null && --queue.count==0) {
+                // anything left in the queue is forgotten or no longer counted
+                queuesByTag.remove(tag);
+            }
+        }
+    }
+}
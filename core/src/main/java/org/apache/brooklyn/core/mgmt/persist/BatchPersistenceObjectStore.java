@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A {@link PersistenceObjectStore} which can read and write many items in one call,
+ * more quickly than by using an accessor for each in turn, e.g. by making requests concurrently
+ * and retrying those which fail. This is used when reading all state on rebind and
+ * when writing all state in a checkpoint.
+ * <p>
+ * Accessors must still be used where callers require locking or ordering of writes to an item.
+ */
+@Beta
+public interface BatchPersistenceObjectStore extends PersistenceObjectStore {
+
+    /**
+     * Reads the items at the given paths, as per {@link StoreObjectAccessor#get()}.
+     * The result has an entry for every path, with a null value if not found.
+     * 
+     * @throws RuntimeException if any item cannot be read, after retries as supported by the store
+     */
+    Map<String, String> getMany(Collection<String> paths);
+
+    /**
+     * Writes the given contents, keyed by path, as per {@link StoreObjectAccessor#put(String)}.
+     * All are attempted even if some fail.
+     * 
+     * @throws RuntimeException if any item cannot be written, after retries as supported by the store
+     */
+    void putMany(Map<String, String> contentsByPath);
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Strings;
+import com.thoughtworks.xstream.io.HierarchicalStreamDriver;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.binary.BinaryStreamReader;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
+import com.thoughtworks.xstream.io.copy.HierarchicalStreamCopier;
+import com.thoughtworks.xstream.io.xml.XppDriver;
+
+/**
+ * The compact binary format written by {@link BinaryMementoSerializer}.
+ * <p>
+ * The content is the same tree of nodes as the XML written by {@link XmlMementoSerializer},
+ * in XStream's tokenised binary form (so node names are written once per file), base64-encoded
+ * so that it can be kept in any {@link PersistenceObjectStore}. It is preceded by a header line
+ * giving the format version, by which it is distinguished from XML.
+ * <p>
+ * Conversion to and from XML is lossless: {@link #toXml(String)} of {@link #toBinary(String)}
+ * gives back the XML as written by {@link XmlMementoSerializer}.
+ */
+@Beta
+public class BinaryMementoFormat {
+
+    public static final String HEADER_PREFIX = "#brooklyn-memento-binary/";
+    public static final int VERSION = 1;
+
+    private static final String HEADER = HEADER_PREFIX + VERSION + "\n";
+    private static final HierarchicalStreamDriver XML_DRIVER = new XppDriver();
+
+    private BinaryMementoFormat() {}
+
+    public static boolean isBinary(String contents) {
+        return contents != null && contents.startsWith(HEADER_PREFIX);
+    }
+
+    static String encode(byte[] bytes) {
+        return HEADER + Base64.getEncoder().encodeToString(bytes) + "\n";
+    }
+
+    static byte[] decode(String contents) {
+        int eol = contents.indexOf('\n');
+        if (!isBinary(contents) || eol < 0) {
+            throw new IllegalArgumentException("Not a binary memento");
+        }
+        String version = contents.substring(HEADER_PREFIX.length(), eol).trim();
+        if (!version.equals(String.valueOf(VERSION))) {
+            throw new IllegalStateException("Unsupported binary memento version '"+version+"'; this version of Brooklyn reads version "+VERSION);
+        }
+        // MIME decoder tolerates line breaks, e.g. if the file has been edited
+        return Base64.getMimeDecoder().decode(contents.substring(eol+1));
+    }
+
+    /** returns a reader positioned at the root node of a binary memento */
+    public static HierarchicalStreamReader newReader(String contents) {
+        return new BinaryStreamReader(new ByteArrayInputStream(decode(contents)));
+    }
+
+    /** converts XML as written by {@link XmlMementoSerializer} to the binary format; binary content is returned unchanged */
+    public static String toBinary(String contents) {
+        if (isBinary(contents)) return contents;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HierarchicalStreamReader reader = XML_DRIVER.createReader(new StringReader(contents));
+        HierarchicalStreamWriter writer = new BinaryStreamWriter(out);
+        try {
+            new HierarchicalStreamCopier().copy(reader, writer);
+        } finally {
+            reader.close();
+            writer.close();
+        }
+        return encode(out.toByteArray());
+    }
+
+    /** converts the binary format to XML, as {@link XmlMementoSerializer} would have written it; XML content is returned unchanged */
+    public static String toXml(String contents) {
+        if (!isBinary(contents)) return contents;
+        StringWriter out = new StringWriter();
+        HierarchicalStreamReader reader = newReader(contents);
+        HierarchicalStreamWriter writer = XML_DRIVER.createWriter(out);
+        try {
+            new HierarchicalStreamCopier().copy(reader, writer);
+        } finally {
+            reader.close();
+            writer.close();
+        }
+        // as per XmlMementoSerializer.serialize
+        out.append("\n");
+        return out.toString();
+    }
+
+    /** converts every item to XML, for use with tools which work on the XML, such as transformers */
+    public static BrooklynMementoRawData toXml(BrooklynMementoRawData rawData) {
+        BrooklynMementoRawData.Builder result = BrooklynMementoRawData.builder()
+                .planeId(rawData.getPlaneId())
+                .bundleJars(rawData.getBundleJars());
+        for (BrooklynObjectType type : BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            Map<String, String> items = MutableMap.of();
+            for (Map.Entry<String, String> entry : rawData.getObjectsOfType(type).entrySet()) {
+                items.put(entry.getKey(), toXml(entry.getValue()));
+            }
+            result.putAll(type, items);
+        }
+        return result.build();
+    }
+
+    /** returns the value of the first top-level node with the given name (e.g. <code>id</code>),
+     * or the empty string if there is none, as would the XPath <code>/type/name</code> */
+    public static String readTopLevelValue(String contents, String name) {
+        HierarchicalStreamReader reader = newReader(contents);
+        try {
+            while (reader.hasMoreChildren()) {
+                reader.moveDown();
+                if (name.equals(reader.getNodeName())) {
+                    return Strings.nullToEmpty(reader.getValue());
+                }
+                reader.moveUp();
+            }
+            return "";
+        } finally {
+            reader.close();
+        }
+    }
+
+    /** returns the values of all nodes with the given name under the given top-level node,
+     * as would the XPath <code>/type/topLevelName//nodeName</code> */
+    public static List<String> readNestedValues(String contents, String topLevelName, String nodeName) {
+        List<String> result = MutableList.of();
+        HierarchicalStreamReader reader = newReader(contents);
+        try {
+            while (reader.hasMoreChildren()) {
+                reader.moveDown();
+                if (topLevelName.equals(reader.getNodeName())) {
+                    collectNestedValues(reader, nodeName, result);
+                }
+                reader.moveUp();
+            }
+            return result;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void collectNestedValues(HierarchicalStreamReader reader, String nodeName, List<String> result) {
+        while (reader.hasMoreChildren()) {
+            reader.moveDown();
+            if (nodeName.equals(reader.getNodeName())) {
+                result.add(Strings.nullToEmpty(reader.getValue()));
+            }
+            collectNestedValues(reader, nodeName, result);
+            reader.moveUp();
+        }
+    }
+}
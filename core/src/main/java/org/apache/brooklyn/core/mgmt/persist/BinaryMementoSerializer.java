@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+
+import com.google.common.annotations.Beta;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.binary.BinaryStreamWriter;
+
+/**
+ * As {@link XmlMementoSerializer}, with the same mappings and converters, but writing
+ * the compact {@link BinaryMementoFormat} rather than XML. This avoids the cost of writing
+ * and parsing XML text, and the output is typically smaller.
+ * <p>
+ * Both formats can be read by either serializer, so a persistence store can be switched
+ * between them (see {@link BrooklynMementoPersisterToObjectStore#PERSISTER_FORMAT}),
+ * with items being rewritten in the new format as they change.
+ */
+@Beta
+public class BinaryMementoSerializer<T> extends XmlMementoSerializer<T> {
+
+    public BinaryMementoSerializer(ClassLoader classLoader) {
+        super(classLoader);
+    }
+
+    public BinaryMementoSerializer(ClassLoader classLoader, Map<String, String> deserializingClassRenames) {
+        super(classLoader, deserializingClassRenames);
+    }
+
+    @Override
+    public void serialize(Object object, Writer writer) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HierarchicalStreamWriter binaryWriter = new BinaryStreamWriter(out);
+        try {
+            xstream.marshal(object, binaryWriter);
+        } finally {
+            binaryWriter.close();
+        }
+        try {
+            writer.write(BinaryMementoFormat.encode(out.toByteArray()));
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+}
@@ -25,6 +25,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
@@ -53,6 +54,8 @@ import org.apache.brooklyn.api.typereg.ManagedBundle;
 import org.apache.brooklyn.api.typereg.RegisteredType;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.config.StringConfigMap;
+import org.apache.brooklyn.core.catalog.internal.BasicBrooklynCatalog;
+import org.apache.brooklyn.core.catalog.internal.CatalogIndex;
 import org.apache.brooklyn.core.catalog.internal.CatalogUtils;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.mgmt.classloading.BrooklynClassLoadingContextSequential;
@@ -63,6 +66,7 @@ import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.StoreObjectA
 import org.apache.brooklyn.core.mgmt.rebind.PeriodicDeltaChangeListener;
 import org.apache.brooklyn.core.mgmt.rebind.dto.BrooklynMementoImpl;
 import org.apache.brooklyn.core.mgmt.rebind.dto.BrooklynMementoManifestImpl;
+import org.apache.brooklyn.core.server.BrooklynServerConfig;
 import org.apache.brooklyn.core.typereg.BasicManagedBundle;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
@@ -78,10 +82,12 @@ import org.slf4j.LoggerFactory;
 import org.w3c.dom.NodeList;
 
 import com.google.common.annotations.Beta;
+import com.google.common.base.Charsets;
 import com.google.common.base.Objects;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
 import com.google.common.io.ByteSource;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -99,6 +105,8 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     private static final Logger LOG = LoggerFactory.getLogger(BrooklynMementoPersisterToObjectStore.class);
     public static final String PLANE_ID_FILE_NAME = "planeId";
+    /** see {@link CatalogIndex} */
+    public static final String CATALOG_INDEX_FILE_NAME = "catalogIndex";
 
 
     public static final ConfigKey<Integer> PERSISTER_MAX_THREAD_POOL_SIZE = ConfigKeys.newIntegerConfigKey(
@@ -111,6 +119,19 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             "Maximum number of attempts to serialize a memento (e.g. if first attempts fail because of concurrent modifications of an entity)", 
             5);
 
+    @Beta
+    public static final ConfigKey<String> PERSISTER_FORMAT = ConfigKeys.newStringConfigKey(
+            "persister.format",
+            "Format to write persisted state in: 'xml' (the default), or 'binary' for the more compact and faster "
+            + "but not human-readable BinaryMementoFormat; state in either format can be read whichever is set",
+            "xml");
+
+    @Beta
+    public static final ConfigKey<Boolean> PERSISTER_SKIP_UNCHANGED = ConfigKeys.newBooleanConfigKey(
+            "persister.skipUnchanged",
+            "Whether to skip writing a memento whose serialized form is the same as when it was last written by this node",
+            true);
+
     private final PersistenceObjectStore objectStore;
     private final MementoSerializer<Object> serializerWithStandardClassLoader;
 
@@ -118,6 +139,11 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
 
     private final ListeningExecutorService executor;
 
+    /** hashes of the mementos last written, by path, if {@link #PERSISTER_SKIP_UNCHANGED};
+     * cleared when write access is enabled, as another node may have written since */
+    private final Map<String, Long> lastWrittenHashes;
+    private volatile PersistenceActivityMetrics persistMetrics;
+
     private volatile boolean writesAllowed = false;
     private volatile boolean writesShuttingDown = false;
     private StringConfigMap brooklynProperties;
@@ -147,9 +173,12 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         this.brooklynProperties = brooklynProperties;
         
         int maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
-        MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(classLoader);
+        MementoSerializer<Object> rawSerializer = newRawSerializer(classLoader);
         this.serializerWithStandardClassLoader = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
 
+        this.lastWrittenHashes = Boolean.TRUE.equals(brooklynProperties.getConfig(PERSISTER_SKIP_UNCHANGED))
+                ? new ConcurrentHashMap<String, Long>() : null;
+
         int maxThreadPoolSize = brooklynProperties.getConfig(PERSISTER_MAX_THREAD_POOL_SIZE);
 
         objectStore.createSubPath("entities");
@@ -169,6 +198,17 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             }}));
     }
 
+    protected MementoSerializer<Object> newRawSerializer(ClassLoader classLoader) {
+        String format = brooklynProperties.getConfig(PERSISTER_FORMAT);
+        if ("binary".equalsIgnoreCase(format)) {
+            return new BinaryMementoSerializer<Object>(classLoader);
+        }
+        if (format != null && !"xml".equalsIgnoreCase(format)) {
+            LOG.warn("Unknown "+PERSISTER_FORMAT.getName()+" '"+format+"'; using xml");
+        }
+        return new XmlMementoSerializer<Object>(classLoader);
+    }
+
     public MementoSerializer<Object> getMementoSerializer() {
         return getSerializerWithStandardClassLoader();
     }
@@ -185,7 +225,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     protected MementoSerializer<Object> getSerializerWithCustomClassLoader(LookupContext lookupContext, ClassLoader classLoader) {
         int maxSerializationAttempts = brooklynProperties.getConfig(PERSISTER_MAX_SERIALIZATION_ATTEMPTS);
-        MementoSerializer<Object> rawSerializer = new XmlMementoSerializer<Object>(classLoader);
+        MementoSerializer<Object> rawSerializer = newRawSerializer(classLoader);
         MementoSerializer<Object> result = new RetryingMementoSerializer<Object>(rawSerializer, maxSerializationAttempts);
         result.setLookupContext(lookupContext);
         return result;
@@ -216,7 +256,14 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
     
+    /** metrics to which writes skipped as unchanged (see {@link #PERSISTER_SKIP_UNCHANGED}) are reported */
+    @Beta
+    public void setPersistMetrics(PersistenceActivityMetrics persistMetrics) {
+        this.persistMetrics = persistMetrics;
+    }
+
     @Override public void enableWriteAccess() {
+        if (lastWrittenHashes != null) lastWrittenHashes.clear();
         writesAllowed = true;
     }
     
@@ -312,6 +359,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     @Override
     public BrooklynMementoRawData loadMementoRawData(final RebindExceptionHandler exceptionHandler) {
         BrooklynMementoRawData subPathData = listMementoSubPathsAsData(exceptionHandler);
+        final Map<String, String> prefetched = readManyIfSupported(subPathData);
         
         final BrooklynMementoRawData.Builder builder = BrooklynMementoRawData.builder();
         
@@ -325,13 +373,15 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
                 
                 String contents = null;
                 try {
-                    contents = read(contentsSubpath);
+                    contents = (prefetched != null && prefetched.containsKey(contentsSubpath)) ? prefetched.get(contentsSubpath) : read(contentsSubpath);
                 } catch (Exception e) {
                     Exceptions.propagateIfFatal(e);
                     exceptionHandler.onLoadMementoFailed(type, "memento "+id+" read error", e);
                 }
                 
-                String xmlId = (String) XmlUtil.xpathHandlingIllegalChars(contents, "/"+type.toCamelCase()+"/id");
+                String xmlId = BinaryMementoFormat.isBinary(contents)
+                        ? BinaryMementoFormat.readTopLevelValue(contents, "id")
+                        : (String) XmlUtil.xpathHandlingIllegalChars(contents, "/"+type.toCamelCase()+"/id");
                 String safeXmlId = Strings.makeValidFilename(xmlId);
                 if (!Objects.equal(id, safeXmlId))
                     LOG.warn("ID mismatch on "+type.toCamelCase()+", "+id+" from path, "+safeXmlId+" from xml");
@@ -376,9 +426,15 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
 
         private String get(String innerPath) {
+            if (BinaryMementoFormat.isBinary(contents)) {
+                return BinaryMementoFormat.readTopLevelValue(contents, innerPath);
+            }
             return (String) XmlUtil.xpathHandlingIllegalChars(contents, prefix+innerPath);
         }
         private List<String> getStringList(String innerPath) {
+            if (BinaryMementoFormat.isBinary(contents)) {
+                return BinaryMementoFormat.readNestedValues(contents, innerPath, "string");
+            }
             List<String> result = MutableList.of();
             final NodeList nodeList =
                 (NodeList) XmlUtil.xpathHandlingIllegalChars(contents, prefix + innerPath + "//string", XPathConstants.NODESET);
@@ -516,6 +572,32 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         return result;
     }
     
+    /**
+     * Reads all the items listed, if the store supports reading many at once, returning null otherwise or on failure;
+     * the caller then reads them individually (so that failures are reported against each item).
+     */
+    private Map<String, String> readManyIfSupported(BrooklynMementoRawData subPathData) {
+        if (!(objectStore instanceof BatchPersistenceObjectStore)) return null;
+        
+        Set<String> paths = MutableSet.of();
+        for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            for (Map.Entry<String, String> entry : subPathData.getObjectsOfType(type).entrySet()) {
+                if (type == BrooklynObjectType.MANAGED_BUNDLE && entry.getKey().endsWith(".jar")) continue;
+                paths.add(entry.getValue());
+            }
+        }
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            Map<String, String> result = ((BatchPersistenceObjectStore)objectStore).getMany(paths);
+            if (LOG.isDebugEnabled()) LOG.debug("Read {} items in batch from {} in {}", new Object[] {paths.size(), objectStore.getSummaryName(), Time.makeTimeStringRounded(stopwatch)});
+            return result;
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Problem reading "+paths.size()+" items in batch from "+objectStore.getSummaryName()+"; reading individually: "+e);
+            return null;
+        }
+    }
+
     protected interface Visitor {
         public void visit(BrooklynObjectType type, String id, String contents) throws Exception;
     }
@@ -601,12 +683,29 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             List<ListenableFuture<?>> futures = Lists.newArrayList();
             
             futures.add(asyncUpdatePlaneId(newMemento.getPlaneId(), exceptionHandler));
-            for (BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
-                for (Map.Entry<String, String> entry : newMemento.getObjectsOfType(type).entrySet()) {
+            // where supported, items are written together (the lock excludes concurrent deltas)
+            final Map<String, String> batchContents = (objectStore instanceof BatchPersistenceObjectStore) ? MutableMap.<String, String>of() : null;
+            final List<Runnable> batchFallbacks = MutableList.of();
+            for (final BrooklynObjectType type: BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+                for (final Map.Entry<String, String> entry : newMemento.getObjectsOfType(type).entrySet()) {
                     addPersistContentIfManagedBundle(type, entry.getKey(), futures, exceptionHandler);
-                    futures.add(asyncPersist(type.getSubPathName(), type, entry.getKey(), entry.getValue(), exceptionHandler));
+                    if (batchContents != null && entry.getValue() != null) {
+                        batchContents.put(getPath(type.getSubPathName(), entry.getKey()), entry.getValue());
+                        batchFallbacks.add(new Runnable() {
+                            @Override public void run() {
+                                persist(type.getSubPathName(), type, entry.getKey(), entry.getValue(), exceptionHandler);
+                            }});
+                    } else {
+                        futures.add(asyncPersist(type.getSubPathName(), type, entry.getKey(), entry.getValue(), exceptionHandler));
+                    }
                 }
             }
+            if (batchContents != null && !batchContents.isEmpty()) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override public void run() {
+                        persistMany(batchContents, batchFallbacks);
+                    }}));
+            }
             
             try {
                 // Wait for all the tasks to complete or fail, rather than aborting on the first failure.
@@ -616,6 +715,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             } catch (Exception e) {
                 throw Exceptions.propagate(e);
             }
+            persistCatalogIndex(true);
             if (LOG.isDebugEnabled()) LOG.debug("Checkpointed entire memento in {}", Time.makeTimeStringRounded(stopwatch));
         } finally {
             lock.writeLock().unlock();
@@ -709,6 +809,51 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
 
+    /** returns the contents of the {@link CatalogIndex} in the store, or null if there is none (or it cannot be read) */
+    @Beta
+    public String readCatalogIndex() {
+        try {
+            return read(CATALOG_INDEX_FILE_NAME);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.debug("Unable to read catalog index from "+objectStore.getSummaryName()+"; ignoring: "+e);
+            return null;
+        }
+    }
+
+    /** writes the {@link CatalogIndex} of the catalog to the store, if it has changed since last written here */
+    @Beta
+    public void persistCatalogIndexIfChanged() {
+        if (!writesAllowed) return;
+        try {
+            lock.writeLock().lockInterruptibly();
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        }
+        try {
+            persistCatalogIndex(false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void persistCatalogIndex(boolean evenIfUnchanged) {
+        if (mgmt==null || !(mgmt.getCatalog() instanceof BasicBrooklynCatalog) || !mgmt.getConfig().getConfig(BrooklynServerConfig.CATALOG_INDEX_ENABLED)) {
+            return;
+        }
+        CatalogIndex index = ((BasicBrooklynCatalog)mgmt.getCatalog()).getCatalogIndex();
+        if (!evenIfUnchanged && !index.isDirty()) return;
+        try {
+            objectStore.prepareForMasterUse();
+            getWriter(CATALOG_INDEX_FILE_NAME).put(index.toPersistedString());
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            // not essential, it will be rebuilt by parsing bundles as needed; but try again next time
+            index.markDirty();
+            LOG.warn("Unable to write catalog index to "+objectStore.getSummaryName()+": "+e);
+        }
+    }
+
     private void addPersistContentIfManagedBundle(final BrooklynObjectType type, final String id, List<ListenableFuture<?>> futures, final PersistenceExceptionHandler exceptionHandler) {
         if (type==BrooklynObjectType.MANAGED_BUNDLE) {
             if (mgmt==null) {
@@ -797,7 +942,16 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
 
     private void persist(String subPath, Memento memento, PersistenceExceptionHandler exceptionHandler) {
         try {
-            getWriter(getPath(subPath, memento.getId())).put(getSerializerWithStandardClassLoader().toString(memento));
+            String path = getPath(subPath, memento.getId());
+            String content = getSerializerWithStandardClassLoader().toString(memento);
+            Long hash = hashOf(content);
+            if (hash != null && hash.equals(lastWrittenHashes.get(path))) {
+                // many changes (e.g. effector completion) leave the persisted state as it was
+                if (LOG.isTraceEnabled()) LOG.trace("Skipping write of unchanged {}", path);
+                if (persistMetrics != null) persistMetrics.noteSuppressedWrite();
+                return;
+            }
+            putContent(path, content, hash);
         } catch (Exception e) {
             exceptionHandler.onPersistMementoFailed(memento, e);
         }
@@ -808,14 +962,37 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
             if (content==null) {
                 LOG.warn("Null content for "+type+" "+id);
             }
-            getWriter(getPath(subPath, id)).put(content);
+            // always written, e.g. for a checkpoint, but remembered so later unchanged deltas can be skipped
+            putContent(getPath(subPath, id), content, hashOf(content));
         } catch (Exception e) {
             exceptionHandler.onPersistRawMementoFailed(type, id, e);
         }
     }
     
+    private void persistMany(Map<String, String> contentsByPath, List<Runnable> fallbacks) {
+        for (String path : contentsByPath.keySet()) {
+            forgetWrittenHash(path);
+        }
+        try {
+            ((BatchPersistenceObjectStore)objectStore).putMany(contentsByPath);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            LOG.warn("Problem writing "+contentsByPath.size()+" items in batch to "+objectStore.getSummaryName()+"; writing individually: "+e);
+            for (Runnable fallback : fallbacks) {
+                fallback.run();
+            }
+            return;
+        }
+        if (lastWrittenHashes != null) {
+            for (Map.Entry<String, String> entry : contentsByPath.entrySet()) {
+                lastWrittenHashes.put(entry.getKey(), hashOf(entry.getValue()));
+            }
+        }
+    }
+    
     private void persist(String subPath, BrooklynObjectType type, String id, ByteSource content, PersistenceExceptionHandler exceptionHandler) {
         try {
+            forgetWrittenHash(getPath(subPath, id));
             getWriter(getPath(subPath, id)).put(content);
         } catch (Exception e) {
             exceptionHandler.onPersistRawMementoFailed(type, id, e);
@@ -824,6 +1001,7 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
     
     private void delete(String subPath, String id, PersistenceExceptionHandler exceptionHandler) {
         try {
+            forgetWrittenHash(getPath(subPath, id));
             StoreObjectAccessorWithLock w = getWriter(getPath(subPath, id));
             w.delete();
             synchronized (writers) {
@@ -834,6 +1012,23 @@ public class BrooklynMementoPersisterToObjectStore implements BrooklynMementoPer
         }
     }
 
+    /** a 64-bit digest of the content, or null if not tracking what was written */
+    private Long hashOf(String content) {
+        if (lastWrittenHashes == null || content == null) return null;
+        return Hashing.murmur3_128().hashString(content, Charsets.UTF_8).asLong();
+    }
+
+    private void putContent(String path, String content, Long hash) {
+        // forget any previous hash first, in case the put fails part-way
+        forgetWrittenHash(path);
+        getWriter(path).put(content);
+        if (hash != null) lastWrittenHashes.put(path, hash);
+    }
+
+    private void forgetWrittenHash(String path) {
+        if (lastWrittenHashes != null) lastWrittenHashes.remove(path);
+    }
+
     private void updatePlaneId(String planeId, PersistenceExceptionHandler exceptionHandler) {
         try {
             if (planeId==null) {
@@ -18,6 +18,7 @@
  */
 package org.apache.brooklyn.core.mgmt.persist;
 
+import java.io.File;
 import java.util.List;
 
 import org.apache.brooklyn.api.catalog.CatalogItem;
@@ -84,6 +85,23 @@ public class BrooklynPersistenceUtils {
     /** Creates a {@link PersistenceObjectStore} for use with a specified set of modes. */
     public static PersistenceObjectStore newPersistenceObjectStore(ManagementContext managementContext,
             String locationSpecString, String locationContainer, PersistMode persistMode, HighAvailabilityMode highAvailabilityMode) {
+        return newPersistenceObjectStore(managementContext, locationSpecString, locationContainer, persistMode, highAvailabilityMode, false);
+    }
+    
+    /** Creates the {@link PersistenceObjectStore} for the management context's own persisted state, 
+     * as {@link #newPersistenceObjectStore(ManagementContext, String, String, PersistMode, HighAvailabilityMode)}
+     * except that a {@link LogStructuredObjectStore} is used on the local file system if
+     * {@link BrooklynServerConfig#PERSISTENCE_LOG_ENABLED} is set. Other stores, such as backups and exports,
+     * always have one file per item, so they can be read without this setting and hold no open files. */
+    @Beta
+    public static PersistenceObjectStore newMainPersistenceObjectStore(ManagementContext managementContext,
+            String locationSpecString, String locationContainer, PersistMode persistMode, HighAvailabilityMode highAvailabilityMode) {
+        return newPersistenceObjectStore(managementContext, locationSpecString, locationContainer, persistMode, highAvailabilityMode, true);
+    }
+    
+    private static PersistenceObjectStore newPersistenceObjectStore(ManagementContext managementContext,
+            String locationSpecString, String locationContainer, PersistMode persistMode, HighAvailabilityMode highAvailabilityMode,
+            boolean isMainStore) {
         PersistenceObjectStore destinationObjectStore;
         locationContainer = BrooklynServerPaths.newMainPersistencePathResolver(managementContext).location(locationSpecString).dir(locationContainer).resolve();
 
@@ -96,7 +114,14 @@ public class BrooklynPersistenceUtils {
         if (!(location instanceof LocationWithObjectStore)) {
             throw new IllegalArgumentException("Destination location "+location+" does not offer a persistent store");
         }
-        destinationObjectStore = ((LocationWithObjectStore)location).newPersistenceObjectStore(locationContainer);
+        if (isMainStore && location instanceof LocalhostMachineProvisioningLocation
+                && Boolean.TRUE.equals(managementContext.getConfig().getConfig(BrooklynServerConfig.PERSISTENCE_LOG_ENABLED))) {
+            File basedir = new File(locationContainer);
+            if (basedir.isFile()) throw new IllegalArgumentException("Destination directory must not be a file");
+            destinationObjectStore = new LogStructuredObjectStore(basedir);
+        } else {
+            destinationObjectStore = ((LocationWithObjectStore)location).newPersistenceObjectStore(locationContainer);
+        }
         
         destinationObjectStore.injectManagementContext(managementContext);
         destinationObjectStore.prepareForSharedUse(persistMode, highAvailabilityMode);
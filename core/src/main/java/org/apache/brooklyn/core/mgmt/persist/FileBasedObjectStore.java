@@ -29,8 +29,10 @@ import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
@@ -56,7 +58,7 @@ import org.apache.brooklyn.util.io.FileUtil;
 import org.apache.brooklyn.util.os.Os;
 import org.apache.brooklyn.util.os.Os.DeletionResult;
 
-public class FileBasedObjectStore implements PersistenceObjectStore {
+public class FileBasedObjectStore implements BatchPersistenceObjectStore {
 
     private static final Logger log = LoggerFactory.getLogger(FileBasedObjectStore.class);
 
@@ -161,6 +163,23 @@ public class FileBasedObjectStore implements PersistenceObjectStore {
                 }).toList();
     }
 
+    /** reads the files concurrently; not retried, as failures are not expected to be transient */
+    @Override
+    public Map<String, String> getMany(Collection<String> paths) {
+        if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
+        return PersistenceObjectStoreBatches.getMany(this, paths, executor, getBatchConcurrency(), 1);
+    }
+
+    @Override
+    public void putMany(Map<String, String> contentsByPath) {
+        if (!prepared) throw new IllegalStateException("Not yet prepared: "+this);
+        PersistenceObjectStoreBatches.putMany(this, contentsByPath, executor, getBatchConcurrency(), 1);
+    }
+
+    private int getBatchConcurrency() {
+        return mgmt.getConfig().getConfig(BrooklynServerConfig.PERSISTENCE_BATCH_CONCURRENCY);
+    }
+
     @Override
     public void close() {
         executor.shutdown();
@@ -0,0 +1,901 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.io.FileUtil;
+import org.apache.brooklyn.util.stream.Streams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Charsets;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteSource;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A {@link PersistenceObjectStore} on the local file system which keeps the persisted state
+ * of {@link BrooklynObjectType}s in an append-only log, rather than one file per item as
+ * {@link FileBasedObjectStore} does.
+ * <p>
+ * Changes are appended to the current log segment, with concurrent writes grouped to share
+ * a single sync to disk, so the cost of a checkpoint scales with the bytes changed rather than
+ * the number of items changed. When the log since the last snapshot is larger than the live state,
+ * it is compacted in the background into a new snapshot file and the older files are deleted.
+ * Loading reads the latest snapshot then replays the log segments after it; an incomplete record
+ * at the end of a segment (e.g. after a crash) is ignored.
+ * <p>
+ * Only the memento sub-paths (entities, locations, etc) are kept in the log. Other items,
+ * including the HA records which every node writes, are kept as individual files as by
+ * {@link FileBasedObjectStore}. The log should only be written by one process (the master);
+ * other processes using the same directory follow the log as it is written.
+ * <p>
+ * Items written by {@link FileBasedObjectStore} in the same directory are read when there is no snapshot,
+ * and are deleted once they have been compacted into one. To switch back to the file-based store,
+ * copy the persisted state to a new location with that store.
+ */
+@Beta
+public class LogStructuredObjectStore extends FileBasedObjectStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LogStructuredObjectStore.class);
+
+    public static final ConfigKey<Long> SEGMENT_MAX_BYTES = ConfigKeys.newLongConfigKey(
+            "persister.log.segment.maxBytes",
+            "Size of a log segment after which writes go to a new segment",
+            64L*1024*1024);
+
+    public static final ConfigKey<Long> COMPACTION_MIN_BYTES = ConfigKeys.newLongConfigKey(
+            "persister.log.compaction.minBytes",
+            "Minimum size of the log since the last snapshot before it is compacted into a new snapshot; "
+            + "compaction is only done when the log is also larger than the live state",
+            16L*1024*1024);
+
+    private static final String SEGMENT_PREFIX = "log-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".dat";
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_APPEND = 2;
+    private static final byte OP_DELETE = 3;
+
+    /** a record is: op (byte), timestamp (long), path length (int), path (utf-8), data length (int), data, crc32 of all preceding (int) */
+    private static final int RECORD_OVERHEAD = 1 + 8 + 4 + 4 + 4;
+    private static final int MAX_PATH_BYTES = 64*1024;
+
+    private static final int SHUTDOWN_TIMEOUT_MS = 10*1000;
+
+    private static final Set<String> LOGGED_SUB_PATHS;
+    static {
+        Set<String> subPaths = MutableSet.of();
+        for (BrooklynObjectType type : BrooklynPersistenceUtils.STANDARD_BROOKLYN_OBJECT_TYPE_PERSISTENCE_ORDER) {
+            subPaths.add(type.getSubPathName());
+        }
+        LOGGED_SUB_PATHS = Collections.unmodifiableSet(subPaths);
+    }
+
+    /** a range of bytes in a log segment, snapshot, or file written by {@link FileBasedObjectStore} */
+    private static class Chunk {
+        final File file;
+        final long offset;
+        final int length;
+        Chunk(File file, long offset, int length) {
+            this.file = file;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /** the current contents of an item; immutable */
+    private static class Entry {
+        final List<Chunk> chunks;
+        final long lastModified;
+        final long size;
+        Entry(List<Chunk> chunks, long lastModified) {
+            this.chunks = chunks;
+            this.lastModified = lastModified;
+            long size = 0;
+            for (Chunk chunk : chunks) size += chunk.length;
+            this.size = size;
+        }
+        Entry append(Chunk chunk, long timestamp) {
+            return new Entry(ImmutableList.<Chunk>builder().addAll(chunks).add(chunk).build(), timestamp);
+        }
+        /** whether the first chunks of this are those of the given entry (e.g. it has since been appended to) */
+        boolean startsWith(Entry other) {
+            if (other.chunks.size() > chunks.size()) return false;
+            for (int i=0; i<other.chunks.size(); i++) {
+                if (chunks.get(i) != other.chunks.get(i)) return false;
+            }
+            return true;
+        }
+        /** replaces the first chunks, as per the given entry, with the given chunk */
+        Entry rebase(Entry previous, Chunk replacement) {
+            return new Entry(ImmutableList.<Chunk>builder().add(replacement)
+                    .addAll(chunks.subList(previous.chunks.size(), chunks.size())).build(), lastModified);
+        }
+    }
+
+    private static class Index {
+        final ConcurrentNavigableMap<String, Entry> entries = new ConcurrentSkipListMap<String, Entry>();
+        long liveBytes = 0;
+
+        void apply(byte op, String path, Chunk chunk, long timestamp) {
+            Entry old;
+            switch (op) {
+            case OP_PUT:
+                old = entries.put(path, new Entry(ImmutableList.of(chunk), timestamp));
+                liveBytes += chunk.length - (old==null ? 0 : old.size);
+                break;
+            case OP_APPEND:
+                old = entries.get(path);
+                entries.put(path, old==null ? new Entry(ImmutableList.of(chunk), timestamp) : old.append(chunk, timestamp));
+                liveBytes += chunk.length;
+                break;
+            case OP_DELETE:
+                old = entries.remove(path);
+                liveBytes -= (old==null ? 0 : old.size);
+                break;
+            default:
+                throw new IllegalStateException("Unknown op "+op+" for "+path);
+            }
+        }
+    }
+
+    private static class Record {
+        final byte op;
+        final long timestamp;
+        final String path;
+        final byte[] data;
+        // guarded by commitLock
+        boolean done;
+        IOException failure;
+        Record(byte op, long timestamp, String path, byte[] data) {
+            this.op = op;
+            this.timestamp = timestamp;
+            this.path = path;
+            this.data = data;
+        }
+    }
+
+    private ManagementContext mgmt;
+    private long segmentMaxBytes = SEGMENT_MAX_BYTES.getDefaultValue();
+    private long compactionMinBytes = COMPACTION_MIN_BYTES.getDefaultValue();
+
+    private volatile Index index = new Index();
+    private volatile boolean writing = false;
+
+    /** records waiting to be written, taken in groups by whichever writer next gets the commit lock */
+    private final Object queueLock = new Object();
+    private List<Record> queue = MutableList.of();
+
+    /** guards the index being changed, and all the fields below */
+    private final Object commitLock = new Object();
+    private boolean loaded = false;
+    private long snapshotId = -1;
+    /** where replay should continue from, when following the log written by another process */
+    private long replaySegmentId = -1;
+    private long replayOffset = 0;
+    private long logBytesSinceSnapshot = 0;
+    private File segmentFile;
+    private FileChannel segmentChannel;
+    private long segmentId = -1;
+    private long segmentSize = 0;
+    private boolean compacting = false;
+
+    /** readers take the read lock, and files are only deleted holding the write lock */
+    private final ReadWriteLock filesLock = new ReentrantReadWriteLock();
+    private final Map<File, FileChannel> readChannels = MutableMap.of();
+
+    private final ExecutorService compactor;
+
+    public LogStructuredObjectStore(File basedir) {
+        super(basedir);
+        this.compactor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("brooklyn-persistence-log-compactor-%d").setDaemon(true).build());
+    }
+
+    @Override
+    public void injectManagementContext(ManagementContext mgmt) {
+        super.injectManagementContext(mgmt);
+        this.mgmt = mgmt;
+    }
+
+    @Override
+    public void prepareForSharedUse(@Nullable PersistMode persistMode, HighAvailabilityMode haMode) {
+        super.prepareForSharedUse(persistMode, haMode);
+        segmentMaxBytes = mgmt.getConfig().getConfig(SEGMENT_MAX_BYTES);
+        compactionMinBytes = mgmt.getConfig().getConfig(COMPACTION_MIN_BYTES);
+        synchronized (commitLock) {
+            try {
+                reload();
+            } catch (IOException e) {
+                throw Exceptions.propagateAnnotated("Problem reading log in "+getBaseDir(), e);
+            }
+            loaded = true;
+        }
+    }
+
+    @Override
+    public void createSubPath(String subPath) {
+        if (LOGGED_SUB_PATHS.contains(normalize(subPath))) {
+            checkLoaded();
+            // nothing to create, items are kept in the log
+            return;
+        }
+        super.createSubPath(subPath);
+    }
+
+    @Override
+    public StoreObjectAccessor newAccessor(String path) {
+        String normalized = normalize(path);
+        if (isLogged(normalized)) {
+            checkLoaded();
+            return new LogStoreObjectAccessor(normalized);
+        }
+        return super.newAccessor(path);
+    }
+
+    @Override
+    public List<String> listContentsWithSubPath(String parentSubPath) {
+        String normalized = normalize(parentSubPath);
+        if (!LOGGED_SUB_PATHS.contains(normalized)) {
+            return super.listContentsWithSubPath(parentSubPath);
+        }
+        checkLoaded();
+        refreshIfFollowing();
+        List<String> result = MutableList.of();
+        // '0' is the character after '/'
+        for (String path : index.entries.subMap(normalized+"/", true, normalized+"0", false).keySet()) {
+            result.add(parentSubPath+"/"+path.substring(normalized.length()+1));
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw Exceptions.propagate(e);
+        }
+        synchronized (commitLock) {
+            closeSegment();
+            writing = false;
+        }
+        closeReadChannels();
+        super.close();
+    }
+
+    @Override
+    public void deleteCompletely() {
+        synchronized (commitLock) {
+            closeSegment();
+            closeReadChannels();
+            writing = false;
+            index = new Index();
+            snapshotId = -1;
+            replaySegmentId = -1;
+            replayOffset = 0;
+            logBytesSinceSnapshot = 0;
+            super.deleteCompletely();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("basedir", getBaseDir()).toString();
+    }
+
+    static String normalize(String path) {
+        String result = path.replace('\\', '/');
+        while (result.contains("//")) result = result.replace("//", "/");
+        while (result.startsWith("/")) result = result.substring(1);
+        while (result.endsWith("/")) result = result.substring(0, result.length()-1);
+        return result;
+    }
+
+    static boolean isLogged(String normalizedPath) {
+        int slash = normalizedPath.indexOf('/');
+        return slash > 0 && normalizedPath.indexOf('/', slash+1) < 0
+                && LOGGED_SUB_PATHS.contains(normalizedPath.substring(0, slash));
+    }
+
+    private void checkLoaded() {
+        synchronized (commitLock) {
+            if (!loaded) throw new IllegalStateException("Not yet prepared: "+this);
+        }
+    }
+
+    // ---------------- writing
+
+    /** appends the record to the log, returning once it is synced to disk (possibly along with those of other threads) */
+    private void write(byte op, String path, byte[] data) {
+        Record record = new Record(op, System.currentTimeMillis(), path, data);
+        synchronized (queueLock) {
+            queue.add(record);
+        }
+        synchronized (commitLock) {
+            if (!record.done) {
+                List<Record> batch;
+                synchronized (queueLock) {
+                    batch = queue;
+                    queue = MutableList.of();
+                }
+                IOException failure = null;
+                try {
+                    commit(batch);
+                } catch (IOException e) {
+                    failure = e;
+                }
+                for (Record r : batch) {
+                    r.done = true;
+                    r.failure = failure;
+                }
+            }
+            if (record.failure != null) {
+                throw Exceptions.propagateAnnotated("Problem writing "+path+" to log "+segmentFile+" of "+this, record.failure);
+            }
+        }
+    }
+
+    /** caller must hold the commit lock */
+    private void commit(List<Record> batch) throws IOException {
+        ensureWriting();
+        if (segmentChannel == null || segmentSize >= segmentMaxBytes) rollSegment();
+
+        int size = 0;
+        for (Record record : batch) {
+            size += RECORD_OVERHEAD + record.path.getBytes(Charsets.UTF_8).length + record.data.length;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        long[] dataOffsets = new long[batch.size()];
+        for (int i=0; i<batch.size(); i++) {
+            dataOffsets[i] = segmentSize + encode(buf, batch.get(i));
+        }
+        buf.flip();
+        try {
+            while (buf.hasRemaining()) {
+                segmentChannel.write(buf);
+            }
+            segmentChannel.force(false);
+        } catch (IOException e) {
+            // anything partially written will be skipped on replay, as later writes go to a new segment
+            closeSegment();
+            throw e;
+        }
+        for (int i=0; i<batch.size(); i++) {
+            Record record = batch.get(i);
+            index.apply(record.op, record.path, new Chunk(segmentFile, dataOffsets[i], record.data.length), record.timestamp);
+        }
+        segmentSize += size;
+        logBytesSinceSnapshot += size;
+
+        maybeCompact();
+    }
+
+    /** writes the record to the buffer, returning the offset of its data relative to the start of the record */
+    private static int encode(ByteBuffer buf, Record record) {
+        int start = buf.position();
+        byte[] pathBytes = record.path.getBytes(Charsets.UTF_8);
+        buf.put(record.op);
+        buf.putLong(record.timestamp);
+        buf.putInt(pathBytes.length);
+        buf.put(pathBytes);
+        buf.putInt(record.data.length);
+        int dataOffset = buf.position() - start;
+        buf.put(record.data);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), buf.arrayOffset() + start, buf.position() - start);
+        buf.putInt((int) crc.getValue());
+        return dataOffset;
+    }
+
+    /** on the first write, catches up with anything written by a previous writer and starts a new segment; caller must hold the commit lock */
+    private void ensureWriting() throws IOException {
+        if (writing) return;
+        if (!loaded) throw new IllegalStateException("Not yet prepared: "+this);
+        refresh();
+        writing = true;
+        deleteObsoleteFiles();
+        rollSegment();
+    }
+
+    /** caller must hold the commit lock */
+    private void rollSegment() throws IOException {
+        closeSegment();
+        long id = Math.max(Math.max(lastId(SEGMENT_PREFIX, SEGMENT_SUFFIX), segmentId), snapshotId) + 1;
+        File dir = getBaseDir();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create persistence directory "+dir);
+        }
+        File file = fileFor(SEGMENT_PREFIX, id, SEGMENT_SUFFIX);
+        FileUtil.setFilePermissionsTo600(file);
+        segmentChannel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentFile = file;
+        segmentId = id;
+        segmentSize = 0;
+        replaySegmentId = id;
+        replayOffset = 0;
+    }
+
+    private void closeSegment() {
+        if (segmentChannel != null) {
+            Streams.closeQuietly(segmentChannel);
+            segmentChannel = null;
+        }
+    }
+
+    // ---------------- compaction
+
+    /** if the log is big enough, starts a new segment and compacts everything before it in the background; caller must hold the commit lock */
+    private void maybeCompact() throws IOException {
+        if (compacting || compactor.isShutdown()) return;
+        if (logBytesSinceSnapshot < compactionMinBytes || logBytesSinceSnapshot < index.liveBytes) return;
+
+        rollSegment();
+        final long id = segmentId;
+        final long logBytesCompacted = logBytesSinceSnapshot;
+        final Map<String, Entry> entries = ImmutableMap.copyOf(index.entries);
+        compacting = true;
+        compactor.execute(new Runnable() {
+            @Override
+            public void run() {
+                compact(id, entries, logBytesCompacted);
+            }
+        });
+    }
+
+    private void compact(long id, Map<String, Entry> entries, long logBytesCompacted) {
+        File snapshot = fileFor(SNAPSHOT_PREFIX, id, SNAPSHOT_SUFFIX);
+        File tmp = new File(snapshot.getPath()+".tmp");
+        try {
+            log.debug("Compacting log of {} into {} ({} items)", new Object[] {this, snapshot, entries.size()});
+            Map<String, Chunk> chunks = MutableMap.of();
+            FileUtil.setFilePermissionsTo600(tmp);
+            try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = 0;
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    Record record = new Record(OP_PUT, entry.getValue().lastModified, entry.getKey(), read(entry.getValue()));
+                    ByteBuffer buf = ByteBuffer.allocate(RECORD_OVERHEAD + record.path.getBytes(Charsets.UTF_8).length + record.data.length);
+                    int dataOffset = encode(buf, record);
+                    buf.flip();
+                    while (buf.hasRemaining()) {
+                        out.write(buf);
+                    }
+                    chunks.put(record.path, new Chunk(snapshot, position + dataOffset, record.data.length));
+                    position += buf.limit();
+                }
+                out.force(false);
+            }
+            moveFile(tmp, snapshot);
+
+            synchronized (commitLock) {
+                Index current = index;
+                for (Map.Entry<String, Chunk> chunk : chunks.entrySet()) {
+                    Entry compacted = entries.get(chunk.getKey());
+                    Entry now = current.entries.get(chunk.getKey());
+                    if (now != null && now.startsWith(compacted)) {
+                        current.entries.put(chunk.getKey(), now.rebase(compacted, chunk.getValue()));
+                    }
+                }
+                snapshotId = id;
+                logBytesSinceSnapshot -= logBytesCompacted;
+                deleteObsoleteFiles();
+            }
+            log.debug("Compacted log of {} into {}", this, snapshot);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            log.warn("Problem compacting log of "+this+" (will retry): "+e, e);
+            if (tmp.exists() && !tmp.delete()) {
+                log.debug("Unable to delete "+tmp);
+            }
+        } finally {
+            synchronized (commitLock) {
+                compacting = false;
+            }
+        }
+    }
+
+    /** deletes log segments and snapshots superseded by the current snapshot, and files imported from
+     * {@link FileBasedObjectStore} if there is a snapshot; only done by the writer; caller must hold the commit lock */
+    private void deleteObsoleteFiles() {
+        if (snapshotId < 0) return;
+        filesLock.writeLock().lock();
+        try {
+            for (File file : listLogFiles()) {
+                Long id = idOf(file);
+                if (id != null ? id < snapshotId : file.getName().endsWith(".tmp")) {
+                    deleteFile(file);
+                }
+            }
+            for (String subPath : LOGGED_SUB_PATHS) {
+                File[] legacyFiles = new File(getBaseDir(), subPath).listFiles();
+                if (legacyFiles == null) continue;
+                for (File file : legacyFiles) {
+                    if (file.isFile()) deleteFile(file);
+                }
+            }
+        } finally {
+            filesLock.writeLock().unlock();
+        }
+    }
+
+    private void deleteFile(File file) {
+        FileChannel channel = readChannels.remove(file);
+        if (channel != null) Streams.closeQuietly(channel);
+        if (!file.delete() && file.exists()) {
+            log.warn("Unable to delete "+file+" from "+this+"; will retry");
+        }
+    }
+
+    // ---------------- reading
+
+    /** follows the log written by another process; caller must not hold the commit lock */
+    private void refreshIfFollowing() {
+        if (writing) return;
+        synchronized (commitLock) {
+            try {
+                refresh();
+            } catch (IOException e) {
+                throw Exceptions.propagateAnnotated("Problem reading log in "+getBaseDir(), e);
+            }
+        }
+    }
+
+    /** replays anything new in the log, or reloads everything if there is a new snapshot; caller must hold the commit lock */
+    private void refresh() throws IOException {
+        if (lastId(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) != snapshotId) {
+            reload();
+            return;
+        }
+        try {
+            replaySegments(index);
+        } catch (IOException e) {
+            // eg segment deleted on compaction by the writer
+            log.debug("Reloading log of "+this+" after problem replaying: "+e);
+            reload();
+        }
+    }
+
+    /** loads the latest snapshot (or the files of a {@link FileBasedObjectStore}) and replays the log segments after it; caller must hold the commit lock */
+    private void reload() throws IOException {
+        closeReadChannels();
+        Index result = new Index();
+        long latestSnapshot = lastId(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        if (latestSnapshot >= 0) {
+            File snapshot = fileFor(SNAPSHOT_PREFIX, latestSnapshot, SNAPSHOT_SUFFIX);
+            long end = readRecords(snapshot, 0, result);
+            if (end < snapshot.length()) {
+                log.warn("Ignoring incomplete record at "+end+" in "+snapshot+" of "+this);
+            }
+        } else {
+            importFiles(result);
+        }
+        snapshotId = latestSnapshot;
+        replaySegmentId = latestSnapshot;
+        replayOffset = 0;
+        logBytesSinceSnapshot = 0;
+        replaySegments(result);
+        index = result;
+    }
+
+    /** caller must hold the commit lock */
+    private void replaySegments(Index target) throws IOException {
+        List<Long> ids = listIds(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int i=0; i<ids.size(); i++) {
+            long id = ids.get(i);
+            if (id < replaySegmentId) continue;
+            if (id > replaySegmentId) {
+                replaySegmentId = id;
+                replayOffset = 0;
+            }
+            File segment = fileFor(SEGMENT_PREFIX, id, SEGMENT_SUFFIX);
+            long end = readRecords(segment, replayOffset, target);
+            logBytesSinceSnapshot += end - replayOffset;
+            replayOffset = end;
+            if (i < ids.size()-1 && end < segment.length()) {
+                // if the writer stopped mid-write, it will have continued in a new segment
+                log.warn("Ignoring incomplete record at "+end+" in "+segment+" of "+this);
+            }
+        }
+    }
+
+    /** applies the complete records in the file from the given offset, returning the offset after the last of them */
+    private long readRecords(File file, long from, Index target) throws IOException {
+        long position = from;
+        try (FileInputStream fileIn = new FileInputStream(file)) {
+            long length = fileIn.getChannel().size();
+            fileIn.getChannel().position(from);
+            CRC32 crc = new CRC32();
+            DataInputStream in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(fileIn, 64*1024), crc));
+            byte[] buf = new byte[64*1024];
+            while (position + RECORD_OVERHEAD <= length) {
+                crc.reset();
+                byte op = in.readByte();
+                long timestamp = in.readLong();
+                int pathLength = in.readInt();
+                if (op < OP_PUT || op > OP_DELETE || pathLength < 0 || pathLength > MAX_PATH_BYTES
+                        || position + RECORD_OVERHEAD + pathLength > length) {
+                    break;
+                }
+                byte[] pathBytes = new byte[pathLength];
+                in.readFully(pathBytes);
+                int dataLength = in.readInt();
+                if (dataLength < 0 || position + RECORD_OVERHEAD + pathLength + dataLength > length) {
+                    break;
+                }
+                // data is checked here, and read when needed
+                int remaining = dataLength;
+                while (remaining > 0) {
+                    int n = Math.min(remaining, buf.length);
+                    in.readFully(buf, 0, n);
+                    remaining -= n;
+                }
+                int expected = (int) crc.getValue();
+                if (in.readInt() != expected) {
+                    break;
+                }
+                long dataOffset = position + RECORD_OVERHEAD - 4 + pathLength;
+                target.apply(op, new String(pathBytes, Charsets.UTF_8), new Chunk(file, dataOffset, dataLength), timestamp);
+                position = dataOffset + dataLength + 4;
+            }
+        } catch (EOFException e) {
+            // incomplete record; position is the end of the last complete one
+        }
+        return position;
+    }
+
+    /** reads items written by {@link FileBasedObjectStore} */
+    private void importFiles(Index target) {
+        for (String subPath : LOGGED_SUB_PATHS) {
+            File[] files = new File(getBaseDir(), subPath).listFiles(new FileFilter() {
+                @Override public boolean accept(File file) {
+                    return file.isFile() && !file.getName().endsWith(".tmp") && !file.getName().endsWith(".swp");
+                }
+            });
+            if (files == null) continue;
+            for (File file : files) {
+                if (file.length() > Integer.MAX_VALUE) {
+                    log.warn("Ignoring "+file+" in "+this+"; too large");
+                    continue;
+                }
+                target.apply(OP_PUT, subPath+"/"+file.getName(), new Chunk(file, 0, (int) file.length()), file.lastModified());
+            }
+        }
+    }
+
+    private byte[] read(Entry entry) throws IOException {
+        filesLock.readLock().lock();
+        try {
+            byte[] result = new byte[(int) entry.size];
+            int position = 0;
+            for (Chunk chunk : entry.chunks) {
+                FileChannel channel = readChannel(chunk.file);
+                ByteBuffer buf = ByteBuffer.wrap(result, position, chunk.length);
+                while (buf.hasRemaining()) {
+                    if (channel.read(buf, chunk.offset + buf.position() - position) < 0) {
+                        throw new EOFException("Unexpected end of "+chunk.file);
+                    }
+                }
+                position += chunk.length;
+            }
+            return result;
+        } finally {
+            filesLock.readLock().unlock();
+        }
+    }
+
+    private FileChannel readChannel(File file) throws IOException {
+        synchronized (readChannels) {
+            FileChannel result = readChannels.get(file);
+            if (result == null) {
+                result = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                readChannels.put(file, result);
+            }
+            return result;
+        }
+    }
+
+    private void closeReadChannels() {
+        filesLock.writeLock().lock();
+        try {
+            synchronized (readChannels) {
+                for (FileChannel channel : readChannels.values()) {
+                    Streams.closeQuietly(channel);
+                }
+                readChannels.clear();
+            }
+        } finally {
+            filesLock.writeLock().unlock();
+        }
+    }
+
+    // ---------------- files
+
+    private File fileFor(String prefix, long id, String suffix) {
+        return new File(getBaseDir(), prefix+id+suffix);
+    }
+
+    private List<File> listLogFiles() {
+        File[] files = getBaseDir().listFiles(new FileFilter() {
+            @Override public boolean accept(File file) {
+                String name = file.getName();
+                return file.isFile() && (name.startsWith(SEGMENT_PREFIX) || name.startsWith(SNAPSHOT_PREFIX));
+            }
+        });
+        return files == null ? ImmutableList.<File>of() : ImmutableList.copyOf(files);
+    }
+
+    /** the id of a log segment or snapshot, or null if it is not one (e.g. a temporary file) */
+    @Nullable
+    private static Long idOf(File file) {
+        String name = file.getName();
+        for (String[] affixes : new String[][] { {SEGMENT_PREFIX, SEGMENT_SUFFIX}, {SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX} }) {
+            if (name.startsWith(affixes[0]) && name.endsWith(affixes[1])) {
+                try {
+                    return Long.parseLong(name.substring(affixes[0].length(), name.length()-affixes[1].length()));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private List<Long> listIds(String prefix, String suffix) {
+        List<Long> result = new ArrayList<Long>();
+        for (File file : listLogFiles()) {
+            if (file.getName().startsWith(prefix) && file.getName().endsWith(suffix)) {
+                Long id = idOf(file);
+                if (id != null) result.add(id);
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /** the highest id of the given kind of file, or -1 if there are none */
+    private long lastId(String prefix, String suffix) {
+        List<Long> ids = listIds(prefix, suffix);
+        return ids.isEmpty() ? -1 : ids.get(ids.size()-1);
+    }
+
+    // ---------------- accessor
+
+    private class LogStoreObjectAccessor implements StoreObjectAccessor {
+        private final String path;
+
+        LogStoreObjectAccessor(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public String get() {
+            byte[] bytes = getBytes();
+            return bytes == null ? null : new String(bytes, Charsets.UTF_8);
+        }
+
+        @Override
+        public byte[] getBytes() {
+            Entry entry = index.entries.get(path);
+            if (entry == null) return null;
+            try {
+                return read(entry);
+            } catch (IOException e) {
+                // the file may have been deleted after compaction, by this or another process; try again
+                refreshIfFollowing();
+                Entry latest = index.entries.get(path);
+                if (latest == null) return null;
+                if (latest == entry) throw Exceptions.propagateAnnotated("Problem reading "+path+" from log of "+LogStructuredObjectStore.this, e);
+                try {
+                    return read(latest);
+                } catch (IOException e2) {
+                    throw Exceptions.propagateAnnotated("Problem reading "+path+" from log of "+LogStructuredObjectStore.this, e2);
+                }
+            }
+        }
+
+        @Override
+        public boolean exists() {
+            return index.entries.containsKey(path);
+        }
+
+        @Override
+        public void put(String contentsToReplaceOrCreate) {
+            if (contentsToReplaceOrCreate == null) contentsToReplaceOrCreate = "";
+            write(OP_PUT, path, contentsToReplaceOrCreate.getBytes(Charsets.UTF_8));
+        }
+
+        @Override
+        public void put(ByteSource bytes) {
+            try {
+                write(OP_PUT, path, bytes.read());
+            } catch (IOException e) {
+                throw Exceptions.propagateAnnotated("Problem reading data to write to "+path+" in "+LogStructuredObjectStore.this, e);
+            }
+        }
+
+        @Override
+        public void append(String contentsToAppendOrCreate) {
+            if (contentsToAppendOrCreate == null) contentsToAppendOrCreate = "";
+            write(OP_APPEND, path, contentsToAppendOrCreate.getBytes(Charsets.UTF_8));
+        }
+
+        @Override
+        public void delete() {
+            if (!exists()) {
+                log.debug("Unable to delete "+path+" from "+LogStructuredObjectStore.this+". Probably did not exist.");
+                return;
+            }
+            write(OP_DELETE, path, new byte[0]);
+        }
+
+        @Override
+        public Date getLastModifiedDate() {
+            Entry entry = index.entries.get(path);
+            return entry == null ? null : new Date(entry.lastModified);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this).add("store", LogStructuredObjectStore.this).add("path", path).toString();
+        }
+    }
+}
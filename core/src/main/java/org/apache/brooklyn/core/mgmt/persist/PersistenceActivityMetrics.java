@@ -20,6 +20,7 @@ package org.apache.brooklyn.core.mgmt.persist;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
@@ -30,7 +31,9 @@ public class PersistenceActivityMetrics {
     final static int MAX_ERRORS = 200;
     
     long count=0, failureCount=0;
+    final AtomicLong suppressedWriteCount = new AtomicLong();
     Long lastSuccessTime, lastDuration, lastFailureTime;
+    Long lastCheckpointLag, maxCheckpointLag;
     List<Map<String,Object>> errorMessages = MutableList.of();
 
     public void noteSuccess(Duration duration) {
@@ -46,6 +49,22 @@ public class PersistenceActivityMetrics {
         lastDuration = duration!=null ? duration.toMilliseconds() : -1;
     }
 
+    /** notes that an item was not written because it had not changed since it was last written;
+     * may be called concurrently by the threads doing the writes */
+    public void noteSuppressedWrite() {
+        suppressedWriteCount.incrementAndGet();
+    }
+
+    public long getSuppressedWriteCount() {
+        return suppressedWriteCount.get();
+    }
+
+    /** notes how long the oldest change in a checkpoint waited before it was written */
+    public synchronized void noteCheckpointLag(Duration lag) {
+        lastCheckpointLag = lag.toMilliseconds();
+        if (maxCheckpointLag == null || lastCheckpointLag > maxCheckpointLag) maxCheckpointLag = lastCheckpointLag;
+    }
+
     public void noteError(String error) {
         noteErrorObject(error);
     }
@@ -69,6 +88,9 @@ public class PersistenceActivityMetrics {
         result.put("lastSuccessTimeMillisSince", since(lastSuccessTime));
         result.put("lastDuration", lastDuration);
         result.put("failureCount", failureCount);
+        result.put("suppressedWriteCount", suppressedWriteCount.get());
+        result.put("lastCheckpointLag", lastCheckpointLag);
+        result.put("maxCheckpointLag", maxCheckpointLag);
         result.put("lastFailureTimeUtc", lastFailureTime);
         result.put("lastFailureTimeMillisSince", since(lastFailureTime));
         result.put("errorMessages", MutableList.copyOf(errorMessages));
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.exceptions.CompoundRuntimeException;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.time.Duration;
+import org.apache.brooklyn.util.time.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Implementations of {@link BatchPersistenceObjectStore} operations using the accessors of a store,
+ * with a bounded number of items being read or written concurrently, and retries.
+ */
+@Beta
+public class PersistenceObjectStoreBatches {
+
+    private static final Logger log = LoggerFactory.getLogger(PersistenceObjectStoreBatches.class);
+
+    private static final Duration RETRY_BACKOFF = Duration.millis(100);
+
+    private PersistenceObjectStoreBatches() {}
+
+    private interface ItemOperation {
+        void apply(String path) throws Exception;
+    }
+
+    public static Map<String, String> getMany(final PersistenceObjectStore store, Collection<String> paths,
+            ExecutorService executor, int maxConcurrent, int maxAttempts) {
+        final Map<String, String> result = Collections.synchronizedMap(MutableMap.<String, String>of());
+        runAll(store, "read", paths, executor, maxConcurrent, maxAttempts, new ItemOperation() {
+            @Override public void apply(String path) {
+                result.put(path, store.newAccessor(path).get());
+            }});
+        return MutableMap.copyOf(result);
+    }
+
+    public static void putMany(final PersistenceObjectStore store, final Map<String, String> contentsByPath,
+            ExecutorService executor, int maxConcurrent, int maxAttempts) {
+        runAll(store, "write", contentsByPath.keySet(), executor, maxConcurrent, maxAttempts, new ItemOperation() {
+            @Override public void apply(String path) {
+                store.newAccessor(path).put(contentsByPath.get(path));
+            }});
+    }
+
+    private static void runAll(final PersistenceObjectStore store, final String description, Collection<String> paths,
+            ExecutorService executor, int maxConcurrent, final int maxAttempts, final ItemOperation operation) {
+        if (paths.isEmpty()) return;
+        final Queue<String> queue = new ConcurrentLinkedQueue<String>(paths);
+        final List<Throwable> failures = Collections.synchronizedList(MutableList.<Throwable>of());
+        
+        // each worker takes items from the queue until it is empty, so at most maxConcurrent items are in progress
+        Runnable worker = new Runnable() {
+            @Override public void run() {
+                String path;
+                while ((path = queue.poll()) != null) {
+                    try {
+                        applyWithRetries(store, description, path, maxAttempts, operation);
+                    } catch (Exception e) {
+                        Exceptions.propagateIfFatal(e);
+                        failures.add(e);
+                    }
+                }
+            }
+        };
+        int numWorkers = Math.max(1, Math.min(maxConcurrent, paths.size()));
+        List<Future<?>> futures = MutableList.of();
+        for (int i = 0; i < numWorkers; i++) {
+            futures.add(executor.submit(worker));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (Exception e) {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+            throw Exceptions.propagate(e);
+        }
+        
+        if (!failures.isEmpty()) {
+            throw new CompoundRuntimeException("Failed to "+description+" "+failures.size()+" of "+paths.size()+" items in "+store.getSummaryName(), failures);
+        }
+    }
+
+    private static void applyWithRetries(PersistenceObjectStore store, String description, String path, int maxAttempts, ItemOperation operation) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                operation.apply(path);
+                return;
+            } catch (Exception e) {
+                Exceptions.propagateIfFatal(e);
+                if (attempt >= maxAttempts) {
+                    throw new IllegalStateException("Failed to "+description+" "+path+" in "+store.getSummaryName()+" (attempt "+attempt+")", e);
+                }
+                if (log.isDebugEnabled()) log.debug("Failed to "+description+" "+path+" in "+store.getSummaryName()+" (attempt "+attempt+" of "+maxAttempts+"; retrying): "+e);
+                Time.sleep(RETRY_BACKOFF.multiply(attempt));
+            }
+        }
+    }
+
+}
@@ -163,6 +163,16 @@ public class XmlMementoSerializer<T> extends XmlSerializer<T> implements Memento
         }
     }
 
+    /** reads XML, or the {@link BinaryMementoFormat} as written by {@link BinaryMementoSerializer} */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T fromString(String string) {
+        if (BinaryMementoFormat.isBinary(string)) {
+            return (T) xstream.unmarshal(BinaryMementoFormat.newReader(string));
+        }
+        return super.fromString(string);
+    }
+
     @Override
     public void setLookupContext(LookupContext lookupContext) {
         this.lookupContext = checkNotNull(lookupContext, "lookupContext");
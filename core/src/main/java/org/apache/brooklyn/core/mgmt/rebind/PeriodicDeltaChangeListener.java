@@ -27,6 +27,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.brooklyn.api.catalog.CatalogItem;
 import org.apache.brooklyn.api.entity.Entity;
@@ -44,6 +46,8 @@ import org.apache.brooklyn.api.sensor.Feed;
 import org.apache.brooklyn.api.typereg.ManagedBundle;
 import org.apache.brooklyn.core.BrooklynFeatureEnablement;
 import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
 import org.apache.brooklyn.core.mgmt.persist.BrooklynPersistenceUtils;
 import org.apache.brooklyn.core.mgmt.persist.PersistenceActivityMetrics;
 import org.apache.brooklyn.core.objs.BrooklynObjectInternal;
@@ -86,24 +90,33 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
     private static final int INITIAL_LOG_WRITES = 5;
     private static final Duration PERSIST_PLANE_ID_PERIOD = Duration.ONE_HOUR;
 
+    /**
+     * Collects changes concurrently from any number of threads; these hold the read lock of the
+     * collector lock while adding, so only block while the collector is being swapped for a new one.
+     */
     private static class DeltaCollector {
-        private String planeId;
-
-        private Set<Location> locations = Sets.newLinkedHashSet();
-        private Set<Entity> entities = Sets.newLinkedHashSet();
-        private Set<Policy> policies = Sets.newLinkedHashSet();
-        private Set<Enricher> enrichers = Sets.newLinkedHashSet();
-        private Set<Feed> feeds = Sets.newLinkedHashSet();
-        private Set<CatalogItem<?, ?>> catalogItems = Sets.newLinkedHashSet();
-        private Set<ManagedBundle> bundles = Sets.newLinkedHashSet();
+        private volatile String planeId;
+
+        private Set<Location> locations = Sets.newConcurrentHashSet();
+        private Set<Entity> entities = Sets.newConcurrentHashSet();
+        private Set<Policy> policies = Sets.newConcurrentHashSet();
+        private Set<Enricher> enrichers = Sets.newConcurrentHashSet();
+        private Set<Feed> feeds = Sets.newConcurrentHashSet();
+        private Set<CatalogItem<?, ?>> catalogItems = Sets.newConcurrentHashSet();
+        private Set<ManagedBundle> bundles = Sets.newConcurrentHashSet();
         
-        private Set<String> removedLocationIds = Sets.newLinkedHashSet();
-        private Set<String> removedEntityIds = Sets.newLinkedHashSet();
-        private Set<String> removedPolicyIds = Sets.newLinkedHashSet();
-        private Set<String> removedEnricherIds = Sets.newLinkedHashSet();
-        private Set<String> removedFeedIds = Sets.newLinkedHashSet();
-        private Set<String> removedCatalogItemIds = Sets.newLinkedHashSet();
-        private Set<String> removedBundleIds = Sets.newLinkedHashSet();
+        private Set<String> removedLocationIds = Sets.newConcurrentHashSet();
+        private Set<String> removedEntityIds = Sets.newConcurrentHashSet();
+        private Set<String> removedPolicyIds = Sets.newConcurrentHashSet();
+        private Set<String> removedEnricherIds = Sets.newConcurrentHashSet();
+        private Set<String> removedFeedIds = Sets.newConcurrentHashSet();
+        private Set<String> removedCatalogItemIds = Sets.newConcurrentHashSet();
+        private Set<String> removedBundleIds = Sets.newConcurrentHashSet();
+
+        /** number of changes recorded (not distinct items), as a cheap measure of the backlog */
+        private final AtomicInteger changeCount = new AtomicInteger();
+        /** time of the first change recorded, or 0 if none */
+        private final AtomicLong firstChangeTime = new AtomicLong();
 
         public boolean isEmpty() {
             return planeId == null &&
@@ -119,7 +132,13 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
             this.planeId = planeId;
         }
 
+        private void noteChange() {
+            changeCount.incrementAndGet();
+            firstChangeTime.compareAndSet(0, System.currentTimeMillis());
+        }
+
         public void add(BrooklynObject instance) {
+            noteChange();
             BrooklynObjectType type = BrooklynObjectType.of(instance);
             getUnsafeCollectionOfType(type).add(instance);
             if (type==BrooklynObjectType.CATALOG_ITEM) {
@@ -130,11 +149,13 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
         public void addIfNotRemoved(BrooklynObject instance) {
             BrooklynObjectType type = BrooklynObjectType.of(instance);
             if (!getRemovedIdsOfType(type).contains(instance.getId())) {
+                noteChange();
                 getUnsafeCollectionOfType(type).add(instance);
             }
         }
 
         public void remove(BrooklynObject instance) {
+            noteChange();
             BrooklynObjectType type = BrooklynObjectType.of(instance);
             getUnsafeCollectionOfType(type).remove(instance);
             getRemovedIdsOfType(type).add(instance.getId());
@@ -184,8 +205,17 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
     private final PersistenceExceptionHandler exceptionHandler;
     
     private final Duration period;
+    private final Duration maxStaleness;
+    private final int maxPendingChanges;
         
-    private DeltaCollector deltaCollector = new DeltaCollector();
+    private volatile DeltaCollector deltaCollector = new DeltaCollector();
+    /** read lock held while recording changes, write lock while swapping the {@link #deltaCollector} */
+    private final ReadWriteLock collectorLock = new ReentrantReadWriteLock();
+
+    /** when the last persist started; used by the scheduler to decide whether another is due */
+    private volatile long lastPersistStartTime = System.currentTimeMillis();
+    /** moving average of how long a persist takes, in millis, to start early enough to meet {@link #maxStaleness} */
+    private volatile long persistDurationEstimate = 0;
 
     private enum ListenerState { INIT, RUNNING, STOPPING, STOPPED } 
     private volatile ListenerState state = ListenerState.INIT;
@@ -213,12 +243,30 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
             PersistenceExceptionHandler exceptionHandler,
             PersistenceActivityMetrics metrics,
             Duration period) {
+        this(planeIdSupplier, executionContext, persister, exceptionHandler, metrics, period, null, 0);
+    }
+
+    /**
+     * @param maxStaleness if non-null, changes are persisted sooner than the period when otherwise they would be older than this when written
+     * @param maxPendingChanges if positive, changes are persisted sooner than the period when more than this many are waiting
+     */
+    public PeriodicDeltaChangeListener(
+            Supplier<String> planeIdSupplier,
+            ExecutionContext executionContext,
+            BrooklynMementoPersister persister,
+            PersistenceExceptionHandler exceptionHandler,
+            PersistenceActivityMetrics metrics,
+            Duration period,
+            Duration maxStaleness,
+            int maxPendingChanges) {
         this.planeIdSupplier = planeIdSupplier;
         this.executionContext = executionContext;
         this.persister = persister;
         this.exceptionHandler = exceptionHandler;
         this.metrics = metrics;
         this.period = period;
+        this.maxStaleness = maxStaleness;
+        this.maxPendingChanges = maxPendingChanges;
         
         this.persistPoliciesEnabled = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_POLICY_PERSISTENCE_PROPERTY);
         this.persistEnrichersEnabled = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_ENRICHER_PERSISTENCE_PROPERTY);
@@ -236,17 +284,53 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
 
             Callable<Task<?>> taskFactory = new Callable<Task<?>>() {
                 @Override public Task<Void> call() {
-                    return Tasks.<Void>builder().dynamic(false).displayName("periodic-persister").body(new Callable<Void>() {
+                    return Tasks.<Void>builder().dynamic(false).displayName("periodic-persister").tag(BrooklynTaskTags.LIGHTWEIGHT_TASK_TAG).body(new Callable<Void>() {
                         @Override
                         public Void call() {
-                            persistNowSafely();
+                            if (isPersistDue()) {
+                                persistNowSafely();
+                            }
                             return null;
                         }}).build();
                 }
             };
+            Duration checkPeriod = getCheckPeriod();
             scheduledTask = (ScheduledTask) executionContext.submit(
-                ScheduledTask.builder(taskFactory).displayName("scheduled:[periodic-persister]").tagTransient().period(period).delay(period).build() );
+                ScheduledTask.builder(taskFactory).displayName("scheduled:[periodic-persister]").tagTransient().period(checkPeriod).delay(checkPeriod).build() );
+        }
+    }
+
+    private boolean isPersistingEarly() {
+        return maxStaleness != null || maxPendingChanges > 0;
+    }
+
+    /** how often to check whether a persist is due; simply the period, unless persisting early is configured */
+    private Duration getCheckPeriod() {
+        if (!isPersistingEarly()) return period;
+        Duration result = period.multiply(0.1);
+        if (maxStaleness != null) result = Duration.min(result, maxStaleness.multiply(0.25));
+        return Duration.max(result, Duration.millis(10));
+    }
+
+    /**
+     * Whether the scheduled task should persist now: if the period has elapsed, 
+     * or if persisting early is configured and the backlog or the age of the oldest unwritten
+     * change (allowing for the time a persist typically takes) is too great.
+     */
+    private boolean isPersistDue() {
+        if (!isPersistingEarly()) return true;
+        
+        long now = System.currentTimeMillis();
+        // allow for the check period, so that we are not late to persist as the period elapses
+        if (now - lastPersistStartTime + getCheckPeriod().toMilliseconds()/2 >= period.toMilliseconds()) return true;
+        
+        DeltaCollector current = deltaCollector;
+        if (maxPendingChanges > 0 && current.changeCount.get() >= maxPendingChanges) return true;
+        if (maxStaleness != null) {
+            long firstChange = current.firstChangeTime.get();
+            if (firstChange > 0 && now - firstChange + persistDurationEstimate >= maxStaleness.toMilliseconds()) return true;
         }
+        return false;
     }
 
     /** stops persistence, waiting for it to complete */
@@ -276,9 +360,7 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
                 }
 
                 // Discard all state that was waiting to be persisted
-                synchronized (this) {
-                    deltaCollector = new DeltaCollector();
-                }
+                swapDeltaCollector();
             } finally {
                 state = ListenerState.STOPPED;
             }
@@ -419,7 +501,9 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
         Stopwatch timer = Stopwatch.createStarted();
         try {
             persistNowInternal(alreadyHasMutex);
-            metrics.noteSuccess(Duration.of(timer));
+            Duration duration = Duration.of(timer);
+            metrics.noteSuccess(duration);
+            persistDurationEstimate = (persistDurationEstimate*3 + duration.toMilliseconds()) / 4;
             return true;
         } catch (RuntimeInterruptedException e) {
             LOG.debug("Interrupted persisting change-delta (rethrowing)", e);
@@ -449,6 +533,7 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
         try {
             if (!alreadyHasMutex) persistingMutex.acquire();
             if (!isActive() && state != ListenerState.STOPPING) return;
+            lastPersistStartTime = System.currentTimeMillis();
             
             // Writes to the datastore are lossy. We'll just log failures and move on.
             // (Most) entities will get updated multiple times in their lifecycle
@@ -459,11 +544,7 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
 
             // Atomically switch the delta, so subsequent modifications will be done in the
             // next scheduled persist
-            DeltaCollector prevDeltaCollector;
-            synchronized (this) {
-                prevDeltaCollector = deltaCollector;
-                deltaCollector = new DeltaCollector();
-            }
+            DeltaCollector prevDeltaCollector = swapDeltaCollector();
             
             if (LOG.isDebugEnabled() && shouldLogCheckpoint()) LOG.debug("Checkpointing delta of memento: "
                     + "updating entities={}, locations={}, policies={}, enrichers={}, catalog items={}, bundles={}; "
@@ -516,6 +597,16 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
 
                 // Tell the persister to persist it
                 persister.delta(persisterDelta, exceptionHandler);
+                
+                long firstChangeTime = prevDeltaCollector.firstChangeTime.get();
+                if (firstChangeTime > 0) {
+                    metrics.noteCheckpointLag(Duration.millis(System.currentTimeMillis() - firstChangeTime));
+                }
+            }
+
+            if (persister instanceof BrooklynMementoPersisterToObjectStore) {
+                // written separately, as it can change without any delta, e.g. when bundles are re-parsed on rebind
+                ((BrooklynMementoPersisterToObjectStore)persister).persistCatalogIndexIfChanged();
             }
         } catch (Exception e) {
             if (isActive()) {
@@ -533,6 +624,17 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
         }
     }
     
+    private DeltaCollector swapDeltaCollector() {
+        collectorLock.writeLock().lock();
+        try {
+            DeltaCollector result = deltaCollector;
+            deltaCollector = new DeltaCollector();
+            return result;
+        } finally {
+            collectorLock.writeLock().unlock();
+        }
+    }
+
     private void updatePlaneIdIfTimedOut() {
         if (planeIdPersistTimer.isExpired()) {
             deltaCollector.setPlaneId(planeIdSupplier.get());
@@ -555,10 +657,17 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
     }
 
     @Override
-    public synchronized void onManaged(BrooklynObject instance) {
+    public void onManaged(BrooklynObject instance) {
         if (LOG.isTraceEnabled()) LOG.trace("onManaged: {}", instance);
-        onChanged(instance);
-        addReferencedObjectsForInitialPersist(instance);
+        collectorLock.readLock().lock();
+        try {
+            if (!isStopped()) {
+                deltaCollector.add(instance);
+            }
+            addReferencedObjectsForInitialPersist(instance);
+        } finally {
+            collectorLock.readLock().unlock();
+        }
     }
 
     private void addReferencedObjectsForInitialPersist(BrooklynObject instance) {
@@ -589,28 +698,35 @@ public class PeriodicDeltaChangeListener implements ChangeListener {
     
 
     @Override
-    public synchronized void onUnmanaged(BrooklynObject instance) {
+    public void onUnmanaged(BrooklynObject instance) {
         if (LOG.isTraceEnabled()) LOG.trace("onUnmanaged: {}", instance);
         if (!isStopped()) {
-            removeFromCollector(instance);
-            if (instance instanceof Entity) {
-                Entity entity = (Entity) instance;
-                for (BrooklynObject adjunct : entity.policies()) removeFromCollector(adjunct);
-                for (BrooklynObject adjunct : entity.enrichers()) removeFromCollector(adjunct);
-                for (BrooklynObject adjunct : ((EntityInternal)entity).feeds().getFeeds()) removeFromCollector(adjunct);
+            collectorLock.readLock().lock();
+            try {
+                DeltaCollector collector = deltaCollector;
+                collector.remove(instance);
+                if (instance instanceof Entity) {
+                    Entity entity = (Entity) instance;
+                    for (BrooklynObject adjunct : entity.policies()) collector.remove(adjunct);
+                    for (BrooklynObject adjunct : entity.enrichers()) collector.remove(adjunct);
+                    for (BrooklynObject adjunct : ((EntityInternal)entity).feeds().getFeeds()) collector.remove(adjunct);
+                }
+            } finally {
+                collectorLock.readLock().unlock();
             }
         }
     }
-    
-    private void removeFromCollector(BrooklynObject instance) {
-        deltaCollector.remove(instance);
-    }
 
     @Override
-    public synchronized void onChanged(BrooklynObject instance) {
+    public void onChanged(BrooklynObject instance) {
         if (LOG.isTraceEnabled()) LOG.trace("onChanged: {}", instance);
         if (!isStopped()) {
-            deltaCollector.add(instance);
+            collectorLock.readLock().lock();
+            try {
+                deltaCollector.add(instance);
+            } finally {
+                collectorLock.readLock().unlock();
+            }
         }
     }
     
@@ -32,9 +32,14 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.apache.brooklyn.api.catalog.BrooklynCatalog;
 import org.apache.brooklyn.api.catalog.CatalogItem;
@@ -91,6 +96,7 @@ import org.apache.brooklyn.core.mgmt.internal.LocalManagementContext;
 import org.apache.brooklyn.core.mgmt.internal.LocationManagerInternal;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.mgmt.internal.ManagementTransitionMode;
+import org.apache.brooklyn.core.mgmt.persist.BrooklynMementoPersisterToObjectStore;
 import org.apache.brooklyn.core.mgmt.persist.DeserializingClassRenamesProvider;
 import org.apache.brooklyn.core.mgmt.persist.PersistenceActivityMetrics;
 import org.apache.brooklyn.core.mgmt.rebind.RebindManagerImpl.RebindTracker;
@@ -145,6 +151,11 @@ Multi-phase deserialization:
 <li> 8. manage the entities
 </ul>
 
+ Where {@link RebindManagerImpl#REBIND_PARALLELISM} is greater than 1, phases 3 and 6 run across a pool of threads:
+ items are instantiated independently, and are reconstructed in groups which cannot affect each other
+ (all the entities of an application, parent first, or all locations under a top-level location).
+ Phase 4 is parallelised by the persister.
+
  If underlying data-store is changed between first and second manifest read (e.g. to add an
  entity), then second phase might try to reconstitute an entity that has not been put in
  the rebindContext. This should not affect normal production usage, because rebind is run
@@ -194,6 +205,8 @@ public abstract class RebindIteration {
     // set on run start
     
     protected Stopwatch timer;
+    /** created on demand, if rebinding with {@link RebindManagerImpl#REBIND_PARALLELISM} greater than 1 */
+    private ForkJoinPool rebindPool;
     /** phase is used to ensure our steps are run as we've expected, and documented (in javadoc at top).
      * it's worth the extra effort due to the complication and the subtleties. */
     protected int phase = 0;
@@ -299,6 +312,10 @@ public abstract class RebindIteration {
             throw exceptionHandler.onFailed(e);
             
         } finally {
+            if (rebindPool != null) {
+                rebindPool.shutdownNow();
+                rebindPool = null;
+            }
             rebindActive.release();
             RebindTracker.reset();
         }
@@ -416,7 +433,9 @@ public abstract class RebindIteration {
 
 
         // Delegates to CatalogInitialization; see notes there.
-        CatalogInitialization.PersistedCatalogState persistedCatalogState = new CatalogInitialization.PersistedCatalogState(bundles, legacyCatalogItems);
+        String catalogIndex = (persistenceStoreAccess instanceof BrooklynMementoPersisterToObjectStore)
+            ? ((BrooklynMementoPersisterToObjectStore)persistenceStoreAccess).readCatalogIndex() : null;
+        CatalogInitialization.PersistedCatalogState persistedCatalogState = new CatalogInitialization.PersistedCatalogState(bundles, legacyCatalogItems, catalogIndex);
         
         CatalogInitialization catInit = managementContext.getCatalogInitialization();
         catInit.populateInitialAndPersistedCatalog(mode, persistedCatalogState, exceptionHandler, rebindLogger);
@@ -428,22 +447,28 @@ public abstract class RebindIteration {
         
         // Instantiate locations
         logRebindingDebug("RebindManager instantiating locations: {}", mementoManifest.getLocationIdToType().keySet());
-        for (Map.Entry<String, String> entry : mementoManifest.getLocationIdToType().entrySet()) {
+        final Map<String, Location> locations = new ConcurrentHashMap<String, Location>();
+        forEachInParallel(mementoManifest.getLocationIdToType().entrySet(), entry -> {
             String locId = entry.getKey();
             String locType = entry.getValue();
             if (LOG.isTraceEnabled()) LOG.trace("RebindManager instantiating location {}", locId);
             
             try {
-                Location location = instantiator.newLocation(locId, locType);
-                rebindContext.registerLocation(locId, location);
+                locations.put(locId, instantiator.newLocation(locId, locType));
             } catch (Exception e) {
                 exceptionHandler.onCreateFailed(BrooklynObjectType.LOCATION, locId, locType, e);
             }
+        });
+        // registered afterwards so that the order is the same as when instantiating sequentially
+        for (String locId : mementoManifest.getLocationIdToType().keySet()) {
+            Location location = locations.get(locId);
+            if (location != null) rebindContext.registerLocation(locId, location);
         }
         
         // Instantiate entities
         logRebindingDebug("RebindManager instantiating entities: {}", mementoManifest.getEntityIdToManifest().keySet());
-        for (Map.Entry<String, EntityMementoManifest> entry : mementoManifest.getEntityIdToManifest().entrySet()) {
+        final Map<String, Entity> entities = new ConcurrentHashMap<String, Entity>();
+        forEachInParallel(mementoManifest.getEntityIdToManifest().entrySet(), entry -> {
             String entityId = entry.getKey();
             EntityMementoManifest entityManifest = entry.getValue();
             
@@ -452,11 +477,15 @@ public abstract class RebindIteration {
             try {
                 Entity entity = instantiator.newEntity(entityManifest);
                 ((EntityInternal)entity).getManagementSupport().setReadOnly( rebindContext.isReadOnly(entity) );
-                rebindContext.registerEntity(entityId, entity);
+                entities.put(entityId, entity);
 
             } catch (Exception e) {
                 exceptionHandler.onCreateFailed(BrooklynObjectType.ENTITY, entityId, entityManifest.getType(), e);
             }
+        });
+        for (String entityId : mementoManifest.getEntityIdToManifest().keySet()) {
+            Entity entity = entities.get(entityId);
+            if (entity != null) rebindContext.registerEntity(entityId, entity);
         }
     }
 
@@ -544,7 +573,7 @@ public abstract class RebindIteration {
         
         // Reconstruct locations
         logRebindingDebug("RebindManager reconstructing locations");
-        for (LocationMemento locMemento : sortParentFirst(memento.getLocationMementos()).values()) {
+        forEachInGroups(groupByRoot(memento.getLocationMementos()), locMemento -> {
             Location location = rebindContext.getLocation(locMemento.getId());
             logRebindingDebug("RebindManager reconstructing location {}", locMemento);
             if (location == null) {
@@ -557,12 +586,12 @@ public abstract class RebindIteration {
                     exceptionHandler.onRebindFailed(BrooklynObjectType.LOCATION, location, e);
                 }
             }
-        }
+        });
 
         // Reconstruct policies
         if (rebindManager.persistPoliciesEnabled) {
             logRebindingDebug("RebindManager reconstructing policies");
-            for (PolicyMemento policyMemento : memento.getPolicyMementos().values()) {
+            forEachInParallel(memento.getPolicyMementos().values(), policyMemento -> {
                 Policy policy = rebindContext.getPolicy(policyMemento.getId());
                 logRebindingDebug("RebindManager reconstructing policy {}", policyMemento);
    
@@ -577,13 +606,13 @@ public abstract class RebindIteration {
                         rebindContext.unregisterPolicy(policy);
                     }
                 }
-            }
+            });
         }
 
         // Reconstruct enrichers
         if (rebindManager.persistEnrichersEnabled) {
             logRebindingDebug("RebindManager reconstructing enrichers");
-            for (EnricherMemento enricherMemento : memento.getEnricherMementos().values()) {
+            forEachInParallel(memento.getEnricherMementos().values(), enricherMemento -> {
                 Enricher enricher = rebindContext.getEnricher(enricherMemento.getId());
                 logRebindingDebug("RebindManager reconstructing enricher {}", enricherMemento);
       
@@ -598,13 +627,13 @@ public abstract class RebindIteration {
                         rebindContext.unregisterEnricher(enricher);
                     }
                 }
-            }
+            });
         }
    
         // Reconstruct feeds
         if (rebindManager.persistFeedsEnabled) {
             logRebindingDebug("RebindManager reconstructing feeds");
-            for (FeedMemento feedMemento : memento.getFeedMementos().values()) {
+            forEachInParallel(memento.getFeedMementos().values(), feedMemento -> {
                 Feed feed = rebindContext.getFeed(feedMemento.getId());
                 logRebindingDebug("RebindManager reconstructing feed {}", feedMemento);
       
@@ -619,13 +648,12 @@ public abstract class RebindIteration {
                         rebindContext.unregisterFeed(feed);
                     }
                 }
-
-            }
+            });
         }
    
         // Reconstruct entities
         logRebindingDebug("RebindManager reconstructing entities");
-        for (EntityMemento entityMemento : sortParentFirst(memento.getEntityMementos()).values()) {
+        forEachInGroups(groupByRoot(memento.getEntityMementos()), entityMemento -> {
             Entity entity = rebindContext.lookup().lookupEntity(entityMemento.getId());
             logRebindingDebug("RebindManager reconstructing entity {}", entityMemento);
    
@@ -640,7 +668,7 @@ public abstract class RebindIteration {
                     exceptionHandler.onRebindFailed(BrooklynObjectType.ENTITY, entity, e);
                 }
             }
-        }
+        });
     }
 
     protected void associateAdjunctsWithEntities() {
@@ -1339,6 +1367,96 @@ public abstract class RebindIteration {
         return RebindManagerImpl.sortParentFirst(nodes);
     }
 
+    /** splits the nodes into one group per root (e.g. per application), each sorted parent first */
+    protected <T extends TreeNode> Collection<List<T>> groupByRoot(Map<String, T> nodes) {
+        Map<String, String> rootIds = Maps.newHashMap();
+        Map<String, List<T>> result = Maps.newLinkedHashMap();
+        for (T node : sortParentFirst(nodes).values()) {
+            // parents come first, so will already have been assigned a root if present
+            String rootId = node.getParent() != null ? rootIds.get(node.getParent()) : null;
+            if (rootId == null) rootId = node.getId();
+            rootIds.put(node.getId(), rootId);
+            List<T> group = result.get(rootId);
+            if (group == null) {
+                group = Lists.newArrayList();
+                result.put(rootId, group);
+            }
+            group.add(node);
+        }
+        return result.values();
+    }
+
+    /** as {@link #forEachInGroups(Collection, Consumer)}, where each item is independent of the others */
+    protected <T> void forEachInParallel(Collection<T> items, Consumer<? super T> action) {
+        int parallelism = rebindManager.rebindParallelism;
+        if (parallelism <= 1 || items.size() <= 1) {
+            forEachInGroups(ImmutableList.of(items), action);
+        } else {
+            // a few batches per thread, so that uneven batches still keep all threads busy
+            int batchSize = Math.max(1, items.size() / (parallelism * 4));
+            forEachInGroups(Lists.partition(ImmutableList.copyOf(items), batchSize), action);
+        }
+    }
+
+    /**
+     * Applies the action to every item, handling items in a group in order on one thread.
+     * Different groups are handled concurrently if {@link RebindManagerImpl#REBIND_PARALLELISM} is greater than 1,
+     * returning when all are done, and rethrowing the first failure (e.g. from a fail-fast exception handler).
+     */
+    protected <T> void forEachInGroups(Collection<? extends Iterable<? extends T>> groups, final Consumer<? super T> action) {
+        if (rebindManager.rebindParallelism <= 1 || groups.size() <= 1) {
+            for (Iterable<? extends T> group : groups) {
+                for (T item : group) {
+                    action.accept(item);
+                }
+            }
+            return;
+        }
+        
+        final ClassLoader callerContextClassLoader = Thread.currentThread().getContextClassLoader();
+        List<ForkJoinTask<?>> tasks = Lists.newArrayList();
+        for (final Iterable<? extends T> group : groups) {
+            tasks.add(getRebindPool().submit(() -> {
+                Thread thread = Thread.currentThread();
+                ClassLoader oldContextClassLoader = thread.getContextClassLoader();
+                thread.setContextClassLoader(callerContextClassLoader);
+                RebindTracker.setRebinding();
+                try {
+                    for (T item : group) {
+                        action.accept(item);
+                    }
+                } finally {
+                    RebindTracker.reset();
+                    thread.setContextClassLoader(oldContextClassLoader);
+                }
+            }));
+        }
+        
+        RuntimeException failure = null;
+        for (ForkJoinTask<?> task : tasks) {
+            if (failure != null) {
+                task.cancel(false);
+            }
+            try {
+                task.join();
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    private synchronized ForkJoinPool getRebindPool() {
+        if (rebindPool == null) {
+            rebindPool = new ForkJoinPool(rebindManager.rebindParallelism, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("brooklyn-rebind-"+thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+        return rebindPool;
+    }
+
     /** logs at debug, except during subsequent read-only rebinds, in which it logs trace */
     protected void logRebindingDebug(String message, Object... args) {
         if (shouldLogRebinding()) {
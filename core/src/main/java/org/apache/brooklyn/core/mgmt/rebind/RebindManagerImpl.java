@@ -110,6 +110,28 @@ public class RebindManagerImpl implements RebindManager {
                 + "then linear regression to allow max 5% at 100 items and above", 
                 QuorumChecks.newLinearRange("[[0,-2],[10,8],[100,95],[200,190]]"));
 
+    @Beta
+    public static final ConfigKey<Integer> REBIND_PARALLELISM =
+        ConfigKeys.newIntegerConfigKey("rebind.parallelism",
+                "Number of threads used to instantiate and reconstruct independent items during rebind; "
+                + "the entities of each application (and the locations under each top-level location) are handled together, parent first. "
+                + "The default of 1 does everything on the rebinding thread. "
+                + "Reading and deserializing the persisted state is parallelised separately, as per persister.threadpool.maxSize.",
+                1);
+
+    @Beta
+    public static final ConfigKey<Duration> PERSISTENCE_MAX_STALENESS =
+        ConfigKeys.newConfigKey(Duration.class, "persistence.maxStaleness",
+                "If set, changes are persisted before the usual period elapses when they would otherwise be older than this when written, "
+                + "allowing for how long persisting has recently taken; "
+                + "the delay between a change and it being written is reported as the 'lastCheckpointLag' persist metric");
+
+    @Beta
+    public static final ConfigKey<Integer> PERSISTENCE_MAX_PENDING_CHANGES =
+        ConfigKeys.newIntegerConfigKey("persistence.maxPendingChanges",
+                "If positive, changes are persisted before the usual period elapses when more than this many are waiting to be written",
+                0);
+
     public static final Logger LOG = LoggerFactory.getLogger(RebindManagerImpl.class);
 
     private final ManagementContextInternal managementContext;
@@ -132,6 +154,7 @@ public class RebindManagerImpl implements RebindManager {
     final boolean persistFeedsEnabled;
     final boolean persistCatalogItemsEnabled;
     final boolean persistBundlesEnabled;
+    final int rebindParallelism;
     
     private RebindFailureMode danglingRefFailureMode;
     private RebindFailureMode rebindFailureMode;
@@ -195,6 +218,7 @@ public class RebindManagerImpl implements RebindManager {
         loadPolicyFailureMode = managementContext.getConfig().getConfig(LOAD_POLICY_FAILURE_MODE);
         
         danglingRefsQuorumRequiredHealthy = managementContext.getConfig().getConfig(DANGLING_REFERENCES_MIN_REQUIRED_HEALTHY);
+        rebindParallelism = Math.max(1, managementContext.getConfig().getConfig(REBIND_PARALLELISM));
 
         LOG.debug("{} initialized, settings: policies={}, enrichers={}, feeds={}, catalog={}",
                 new Object[]{this, persistPoliciesEnabled, persistEnrichersEnabled, persistFeedsEnabled, persistCatalogItemsEnabled});
@@ -247,6 +271,9 @@ public class RebindManagerImpl implements RebindManager {
         }
         
         this.persistenceStoreAccess = checkNotNull(val, "persister");
+        if (val instanceof BrooklynMementoPersisterToObjectStore) {
+            ((BrooklynMementoPersisterToObjectStore)val).setPersistMetrics(persistMetrics);
+        }
         
         this.persistenceRealChangeListener = new PeriodicDeltaChangeListener(
                 new PlaneIdSupplier(),
@@ -254,7 +281,9 @@ public class RebindManagerImpl implements RebindManager {
                 persistenceStoreAccess,
                 exceptionHandler,
                 persistMetrics,
-                periodicPersistPeriod);
+                periodicPersistPeriod,
+                managementContext.getConfig().getConfig(PERSISTENCE_MAX_STALENESS),
+                managementContext.getConfig().getConfig(PERSISTENCE_MAX_PENDING_CHANGES));
         this.persistencePublicChangeListener = new SafeChangeListener(persistenceRealChangeListener);
         
         if (persistenceRunning) {
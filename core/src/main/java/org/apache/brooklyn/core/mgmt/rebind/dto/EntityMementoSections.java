@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.rebind.dto;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Sets;
+
+/**
+ * Records which sections of an entity's memento have changed since it was last generated,
+ * so that {@link MementosGenerators} only regenerates those which have.
+ * <p>
+ * Sections are marked as changed by the entity's change notifications. The sections kept refer to
+ * the entity's values rather than copies of them, so a value which is modified in place
+ * is persisted as it is when the memento is serialized, as before.
+ */
+@Beta
+public class EntityMementoSections {
+
+    public enum Section {
+        ATTRIBUTES,
+        CONFIG,
+        TAGS,
+        RELATIONS
+    }
+
+    private final Set<Section> changed = Sets.newConcurrentHashSet(EnumSet.allOf(Section.class));
+    private final Map<Section, Object> lastGenerated = new EnumMap<Section, Object>(Section.class);
+    private final AtomicLong reusedCount = new AtomicLong();
+
+    public void markChanged(Section section) {
+        changed.add(section);
+    }
+
+    public void markAllChanged() {
+        changed.addAll(EnumSet.allOf(Section.class));
+    }
+
+    /**
+     * Returns the section as last generated, if it has not changed since; otherwise returns null,
+     * and the caller should regenerate it and {@link #setLastGenerated(Section, Object) record} the result.
+     * Callers should hold the lock on this object until then.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <T> T getIfUnchanged(Section section) {
+        // cleared before the section is regenerated, so that changes made while it is are picked up next time
+        if (changed.remove(section)) {
+            lastGenerated.remove(section);
+            return null;
+        }
+        T result = (T) lastGenerated.get(section);
+        if (result != null) reusedCount.incrementAndGet();
+        return result;
+    }
+
+    synchronized void setLastGenerated(Section section, Object value) {
+        lastGenerated.put(section, value);
+    }
+
+    /** number of times a section was reused rather than regenerated */
+    @VisibleForTesting
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+}
@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -71,6 +72,8 @@ import org.slf4j.LoggerFactory;
 import com.google.common.annotations.Beta;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicates;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 public class MementosGenerators {
@@ -116,7 +119,12 @@ public class MementosGenerators {
     private static EntityMemento newEntityMemento(Entity entityRaw) {
         EntityInternal entity = (EntityInternal) entityRaw;
         BasicEntityMemento.Builder builder = BasicEntityMemento.builder();
-        populateBrooklynObjectMementoBuilder(entity, builder);
+        EntityMementoSections sections = entity.getManagementSupport().getMementoSections();
+        synchronized (sections) {
+            populateBrooklynObjectMementoBuilder(entity, builder, sections);
+            populateEntityConfig(entity, builder, sections);
+            populateEntityAttributes(entity, builder, sections);
+        }
         
         EntityDynamicType definedType = BrooklynTypes.getDefinedEntityType(entity.getClass());
                 
@@ -130,33 +138,6 @@ public class MementosGenerators {
 
         builder.configKeys.addAll(entity.getEntityType().getConfigKeys());
 
-        Map<ConfigKey<?>, ?> localConfig = entity.config().getAllLocalRaw();
-        for (Map.Entry<ConfigKey<?>, ?> entry : localConfig.entrySet()) {
-            ConfigKey<?> key = checkNotNull(entry.getKey(), localConfig);
-            Object value = configValueToPersistable(entry.getValue(), entityRaw, key.getName());
-            builder.config.put(key, value); 
-        }
-        
-        Map<String, Object> localConfigUnmatched = MutableMap.copyOf(entity.config().getLocalBag().getAllConfig());
-        for (ConfigKey<?> key : localConfig.keySet()) {
-            localConfigUnmatched.remove(key.getName());
-        }
-        for (Map.Entry<String, Object> entry : localConfigUnmatched.entrySet()) {
-            String key = checkNotNull(entry.getKey(), localConfig);
-            Object value = entry.getValue();
-            // TODO Not transforming; that code is deleted in another pending PR anyway!
-            builder.configUnmatched.put(key, value); 
-        }
-        
-        Map<AttributeSensor<?>, Object> allAttributes = entity.sensors().getAll();
-        for (Map.Entry<AttributeSensor<?>, Object> entry : allAttributes.entrySet()) {
-            AttributeSensor<?> key = checkNotNull(entry.getKey(), allAttributes);
-            if (key.getPersistenceMode() != SensorPersistenceMode.NONE) {
-                Object value = entry.getValue();
-                builder.attributes.put(key, value);
-            }
-        }
-        
         for (Location location : entity.getLocations()) {
             builder.locations.add(location.getId()); 
         }
@@ -188,6 +169,58 @@ public class MementosGenerators {
 
         return builder.build();
     }
+
+    private static class ConfigSection {
+        final Map<ConfigKey<?>, Object> config = Maps.newLinkedHashMap();
+        final Map<String, Object> configUnmatched = Maps.newLinkedHashMap();
+    }
+
+    private static void populateEntityConfig(EntityInternal entity, BasicEntityMemento.Builder builder, EntityMementoSections sections) {
+        ConfigSection section = sections.getIfUnchanged(EntityMementoSections.Section.CONFIG);
+        if (section == null) {
+            section = new ConfigSection();
+            boolean hasTasks = false;
+            Map<ConfigKey<?>, ?> localConfig = entity.config().getAllLocalRaw();
+            for (Map.Entry<ConfigKey<?>, ?> entry : localConfig.entrySet()) {
+                ConfigKey<?> key = checkNotNull(entry.getKey(), localConfig);
+                if (entry.getValue() instanceof Task) hasTasks = true;
+                Object value = configValueToPersistable(entry.getValue(), entity, key.getName());
+                section.config.put(key, value); 
+            }
+            
+            Map<String, Object> localConfigUnmatched = MutableMap.copyOf(entity.config().getLocalBag().getAllConfig());
+            for (ConfigKey<?> key : localConfig.keySet()) {
+                localConfigUnmatched.remove(key.getName());
+            }
+            for (Map.Entry<String, Object> entry : localConfigUnmatched.entrySet()) {
+                String key = checkNotNull(entry.getKey(), localConfig);
+                Object value = entry.getValue();
+                // TODO Not transforming; that code is deleted in another pending PR anyway!
+                section.configUnmatched.put(key, value); 
+            }
+            // a task's result is persisted once it completes, which is not notified as a change
+            if (!hasTasks) sections.setLastGenerated(EntityMementoSections.Section.CONFIG, section);
+        }
+        builder.config.putAll(section.config);
+        builder.configUnmatched.putAll(section.configUnmatched);
+    }
+
+    private static void populateEntityAttributes(EntityInternal entity, BasicEntityMemento.Builder builder, EntityMementoSections sections) {
+        Map<AttributeSensor<?>, Object> attributes = sections.getIfUnchanged(EntityMementoSections.Section.ATTRIBUTES);
+        if (attributes == null) {
+            attributes = Maps.newLinkedHashMap();
+            Map<AttributeSensor<?>, Object> allAttributes = entity.sensors().getAll();
+            for (Map.Entry<AttributeSensor<?>, Object> entry : allAttributes.entrySet()) {
+                AttributeSensor<?> key = checkNotNull(entry.getKey(), allAttributes);
+                if (key.getPersistenceMode() != SensorPersistenceMode.NONE) {
+                    Object value = entry.getValue();
+                    attributes.put(key, value);
+                }
+            }
+            sections.setLastGenerated(EntityMementoSections.Section.ATTRIBUTES, attributes);
+        }
+        builder.attributes.putAll(attributes);
+    }
  
     /**
      * Given a location, extracts its state for serialization.
@@ -357,6 +390,12 @@ public class MementosGenerators {
     }
     
     private static void populateBrooklynObjectMementoBuilder(BrooklynObject instance, AbstractMemento.Builder<?> builder) {
+        populateBrooklynObjectMementoBuilder(instance, builder, null);
+    }
+
+    /** as {@link #populateBrooklynObjectMementoBuilder(BrooklynObject, AbstractMemento.Builder)},
+     * reusing the tags and relations in the given sections (if not null) where they have not changed */
+    private static void populateBrooklynObjectMementoBuilder(BrooklynObject instance, AbstractMemento.Builder<?> builder, EntityMementoSections sections) {
         if (Proxy.isProxyClass(instance.getClass())) {
             throw new IllegalStateException("Attempt to create memento from proxy "+instance+" (would fail with wrong type)");
         }
@@ -372,17 +411,26 @@ public class MementosGenerators {
         if (instance instanceof EntityAdjunct) {
             builder.uniqueTag = ((EntityAdjunct)instance).getUniqueTag();
         }
-        for (Object tag : instance.tags().getTags()) {
-            builder.tags.add(tag); 
+        List<Object> tags = (sections != null) ? sections.<List<Object>>getIfUnchanged(EntityMementoSections.Section.TAGS) : null;
+        if (tags == null) {
+            tags = Lists.newArrayList(instance.tags().getTags());
+            if (sections != null) sections.setLastGenerated(EntityMementoSections.Section.TAGS, tags);
         }
-        // CatalogItems return empty support, so this is safe even through they don't support relations
-        for (RelationshipType<?,? extends BrooklynObject> relationship: instance.relations().getRelationshipTypes()) {
-            @SuppressWarnings({ "unchecked", "rawtypes" })
-            Set relations = instance.relations().getRelations((RelationshipType)relationship);
-            Set<String> relationIds = Sets.newLinkedHashSet();
-            for (Object r: relations) relationIds.add( ((BrooklynObject)r).getId() );
-            builder.relations.put(relationship.getRelationshipTypeName(), relationIds);
+        builder.tags.addAll(tags);
+        Map<String, Set<String>> relations = (sections != null) ? sections.<Map<String, Set<String>>>getIfUnchanged(EntityMementoSections.Section.RELATIONS) : null;
+        if (relations == null) {
+            relations = Maps.newLinkedHashMap();
+            // CatalogItems return empty support, so this is safe even through they don't support relations
+            for (RelationshipType<?,? extends BrooklynObject> relationship: instance.relations().getRelationshipTypes()) {
+                @SuppressWarnings({ "unchecked", "rawtypes" })
+                Set relationsOfType = instance.relations().getRelations((RelationshipType)relationship);
+                Set<String> relationIds = Sets.newLinkedHashSet();
+                for (Object r: relationsOfType) relationIds.add( ((BrooklynObject)r).getId() );
+                relations.put(relationship.getRelationshipTypeName(), relationIds);
+            }
+            if (sections != null) sections.setLastGenerated(EntityMementoSections.Section.RELATIONS, relations);
         }
+        builder.relations.putAll(relations);
     }
 
     /** @deprecated since 0.10.0; use {@link #configValueToPersistable(Object, BrooklynObject, String)} */ @Deprecated
@@ -28,6 +28,7 @@ import org.apache.brooklyn.api.mgmt.rebind.RebindExceptionHandler;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoPersister;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.api.objs.BrooklynObjectType;
+import org.apache.brooklyn.core.mgmt.persist.BinaryMementoFormat;
 import org.apache.brooklyn.core.mgmt.rebind.transformer.impl.XsltTransformer;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.ResourceUtils;
@@ -258,6 +259,8 @@ public class CompoundTransformer {
     }
     
     public BrooklynMementoRawData transform(BrooklynMementoRawData rawData) throws Exception {
+        // transformers work on the XML, so convert anything persisted in the binary format
+        rawData = BinaryMementoFormat.toXml(rawData);
         Map<String, String> entities = MutableMap.copyOf(rawData.getEntities());
         Map<String, String> locations = MutableMap.copyOf(rawData.getLocations());
         Map<String, String> policies = MutableMap.copyOf(rawData.getPolicies());
@@ -26,6 +26,7 @@ import javax.xml.xpath.XPathConstants;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.BrooklynMementoRawData;
 import org.apache.brooklyn.api.objs.BrooklynObjectType;
 import org.apache.brooklyn.core.location.access.PortForwardManager;
+import org.apache.brooklyn.core.mgmt.persist.BinaryMementoFormat;
 import org.apache.brooklyn.core.mgmt.rebind.transformer.CompoundTransformer;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
@@ -75,6 +76,7 @@ public class DeleteOrphanedStateTransformer extends CompoundTransformer {
      */
     @Override
     public BrooklynMementoRawData transform(BrooklynMementoRawData input) {
+        input = BinaryMementoFormat.toXml(input);
         ReferencedState stateReferencedFromXpath = new ReachabilityXpathInspector().inspect(input);
         ReferencedState stateToKeepFromGrep = new ReachabilityGrepInspector().inspect(input);
         ReferencedState stateToKeepFromXpath = stateReferencedFromXpath.filterForExtant(input);
@@ -308,10 +308,14 @@ public abstract class AbstractBrooklynObject implements BrooklynObjectInternal {
         return relations;
     }
 
+    protected void onRelationsChanged() {
+        requestPersist();
+    }
+
     private class RelationChangedCallback implements Runnable {
         @Override
         public void run() {
-            requestPersist();
+            onRelationsChanged();
         }
     }
 
@@ -67,6 +67,12 @@ public class AdjunctConfigMap extends AbstractConfigMapImpl<EntityAdjunct> {
     @Override
     protected void postSetConfig() { /* noop */ }
 
+    @Override
+    protected boolean isResolvedConfigCacheable() {
+        // no ancestors, so all changes are made here
+        return true;
+    }
+
     @Override
     protected ExecutionContext getExecutionContext(BrooklynObject bo) {
         return ((AbstractEntityAdjunct)bo).getExecutionContext();
@@ -24,6 +24,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -42,6 +45,8 @@ import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
@@ -56,10 +61,51 @@ public final class AttributeMap {
         NULL;
     }
     
+    private static final Joiner DOTS = Joiner.on('.');
+    private static final Splitter DOTS_SPLITTER = Splitter.on('.');
+    
     private final AbstractEntity entity;
 
-    // Assumed to be something like a ConcurrentMap passed in.
-    private final Map<Collection<String>, Object> values;
+    /** values keyed by sensor name, with {@link Marker#NULL} for null, and a {@link NumericCell} for values
+     * set by {@link #updateLong(AttributeSensor, long)} and {@link #updateDouble(AttributeSensor, double)};
+     * reads do not lock, and iteration is weakly consistent (and not in insertion order) */
+    private final ConcurrentMap<String, Object> values = new ConcurrentHashMap<String, Object>();
+    
+    /** incremented after every change to {@link #values}, to tell whether {@link #snapshot} is current */
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+    
+    /** holds a primitive value, updated in place (under the write lock) so that repeated sets do not allocate */
+    private static abstract class NumericCell {
+        final Class<?> type;
+        NumericCell(Class<?> type) { this.type = type; }
+        abstract Object box();
+        abstract long longValue();
+        abstract double doubleValue();
+    }
+    private static class LongCell extends NumericCell {
+        volatile long value;
+        LongCell(Class<?> type, long value) { super(type); this.value = value; }
+        @Override Object box() { return NumericSensorEvent.boxLong(type, value); }
+        @Override long longValue() { return value; }
+        @Override double doubleValue() { return value; }
+    }
+    private static class DoubleCell extends NumericCell {
+        volatile double value;
+        DoubleCell(Class<?> type, double value) { super(type); this.value = value; }
+        @Override Object box() { return NumericSensorEvent.boxDouble(type, value); }
+        @Override long longValue() { return (long) value; }
+        @Override double doubleValue() { return value; }
+    }
+    
+    private static class Snapshot {
+        final long version;
+        final Map<String, Object> values;
+        Snapshot(long version, Map<String, Object> values) {
+            this.version = version;
+            this.values = values;
+        }
+    }
 
     /**
      * Creates a new AttributeMap.
@@ -68,21 +114,27 @@ public final class AttributeMap {
      * @throws NullPointerException if entity is null
      */
     public AttributeMap(AbstractEntity entity) {
-        // Not using ConcurrentMap, because want to (continue to) allow null values.
-        // Could use ConcurrentMapAcceptingNullVals (with the associated performance hit on entrySet() etc).
-        this(entity, Collections.synchronizedMap(Maps.<Collection<String>, Object>newLinkedHashMap()));
+        this.entity = checkNotNull(entity, "entity must be specified");
     }
 
     /**
-     * Creates a new AttributeMap.
+     * Creates a new AttributeMap, initially containing the values in the given map.
      *
      * @param entity  the Entity this AttributeMap belongs to.
-     * @param storage the Map in which to store the values - should be concurrent or synchronized.
+     * @param storage initial values, keyed by sensor name parts
      * @throws NullPointerException if entity is null
+     * 
+     * @deprecated since 1.0.0 values are now kept in an internal concurrent map keyed by sensor name;
+     * the given map is only read on construction, use {@link #AttributeMap(AbstractEntity)}
      */
+    @Deprecated
     public AttributeMap(AbstractEntity entity, Map<Collection<String>, Object> storage) {
-        this.entity = checkNotNull(entity, "entity must be specified");
-        this.values = checkNotNull(storage, "storage map must not be null");
+        this(entity);
+        synchronized (checkNotNull(storage, "storage map must not be null")) {
+            for (Map.Entry<Collection<String>, Object> entry : storage.entrySet()) {
+                values.put(DOTS.join(entry.getKey()), entry.getValue()==null ? Marker.NULL : entry.getValue());
+            }
+        }
     }
 
     /** 
@@ -90,8 +142,7 @@ public final class AttributeMap {
      * any sensor value at a time.  Methods which set, modify, and publish values
      * acquire this lock.
      * <p>
-     * Reads are not blocked by this, although this synchs on {@link #values}
-     * when actually changing the low-level value to ensure consistency there.
+     * Reads are not blocked by this, nor by anything else, as values are held in a concurrent map.
      * <p>
      * See {@link #getLockInternal()}
      */
@@ -114,21 +165,37 @@ public final class AttributeMap {
     }
     
     public Map<Collection<String>, Object> asRawMap() {
-        synchronized (values) {
-            return ImmutableMap.copyOf(values);
+        ImmutableMap.Builder<Collection<String>, Object> result = ImmutableMap.builder();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            result.put(ImmutableList.copyOf(DOTS_SPLITTER.split(entry.getKey())), value instanceof NumericCell ? ((NumericCell)value).box() : value);
         }
+        return result.build();
     }
 
+    /** returns a copy of the values, keyed by sensor name */
     public Map<String, Object> asMap() {
-        Map<String, Object> result = Maps.newLinkedHashMap();
-        synchronized (values) {
-            for (Map.Entry<Collection<String>, Object> entry : values.entrySet()) {
-                String sensorName = Joiner.on('.').join(entry.getKey());
-                Object val = (isNull(entry.getValue())) ? null : entry.getValue();
-                result.put(sensorName, val);
+        return Maps.newLinkedHashMap(asSnapshot());
+    }
+    
+    /** 
+     * returns an unmodifiable copy of the values, keyed by sensor name; 
+     * the same instance is returned to all callers until a value is changed 
+     */
+    @Beta
+    public Map<String, Object> asSnapshot() {
+        Snapshot result = snapshot;
+        long currentVersion = version.get();
+        if (result==null || result.version!=currentVersion) {
+            Map<String, Object> copy = Maps.newLinkedHashMap();
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                copy.put(entry.getKey(), unwrap(entry.getValue()));
             }
+            result = new Snapshot(currentVersion, Collections.unmodifiableMap(copy));
+            // if a change happened while copying, the copy may or may not include it, so don't keep it
+            if (version.get()==currentVersion) snapshot = result;
         }
-        return result;
+        return result.values;
     }
     
     /**
@@ -156,8 +223,9 @@ public final class AttributeMap {
         }
 
         @SuppressWarnings("unchecked")
-        T oldValue = (T) values.put(path, newValue);
-        return (isNull(oldValue)) ? null : oldValue;
+        T oldValue = (T) unwrap(values.put(DOTS.join(path), newValue));
+        version.incrementAndGet();
+        return oldValue;
     }
 
     private void checkPath(Collection<String> path) {
@@ -195,21 +263,84 @@ public final class AttributeMap {
     
     @Beta
     public <T> T updateInternalWithoutLockOrPublish(AttributeSensor<T> attribute, T newValue) {
-        synchronized (values) {
-            if (log.isTraceEnabled()) {
-                Object oldValue = getValue(attribute);
-                if (!Objects.equal(oldValue, newValue != null)) {
-                    log.trace("setting attribute {} to {} (was {}) on {}", new Object[] {attribute.getName(), newValue, oldValue, entity});
-                } else {
-                    log.trace("setting attribute {} to {} (unchanged) on {}", new Object[] {attribute.getName(), newValue, this});
-                }
+        if (log.isTraceEnabled()) {
+            Object oldValue = getValue(attribute);
+            if (!Objects.equal(oldValue, newValue != null)) {
+                log.trace("setting attribute {} to {} (was {}) on {}", new Object[] {attribute.getName(), newValue, oldValue, entity});
+            } else {
+                log.trace("setting attribute {} to {} (unchanged) on {}", new Object[] {attribute.getName(), newValue, this});
             }
-    
-            T oldValue = update(attribute.getNameParts(), newValue);
-            return (isNull(oldValue)) ? null : oldValue;
+        }
+
+        @SuppressWarnings("unchecked")
+        T oldValue = (T) unwrap(values.put(attribute.getName(), newValue == null ? typedNull() : newValue));
+        version.incrementAndGet();
+        return oldValue;
+    }
+
+    /**
+     * As {@link #update(AttributeSensor, Object)} but for a primitive value, which is stored without boxing
+     * and published as a {@link NumericSensorEvent}.
+     * 
+     * @return true if the value was not previously set to this value
+     */
+    @Beta
+    public boolean updateLong(AttributeSensor<? extends Number> attribute, long newValue) {
+        // not using withLock to avoid allocating a lambda on this path
+        Lock lock = getLockInternal();
+        lock.lock();
+        try {
+            boolean changed = updateLongInternalWithoutLockOrPublish(attribute, newValue);
+            entity.sensors().emitInternalLong(attribute, newValue);
+            return changed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** as {@link #updateLong(AttributeSensor, long)} */
+    @Beta
+    public boolean updateDouble(AttributeSensor<? extends Number> attribute, double newValue) {
+        Lock lock = getLockInternal();
+        lock.lock();
+        try {
+            boolean changed = updateDoubleInternalWithoutLockOrPublish(attribute, newValue);
+            entity.sensors().emitInternalDouble(attribute, newValue);
+            return changed;
+        } finally {
+            lock.unlock();
         }
     }
 
+    private boolean updateLongInternalWithoutLockOrPublish(AttributeSensor<? extends Number> attribute, long newValue) {
+        Object old = values.get(attribute.getName());
+        if (old instanceof LongCell) {
+            LongCell cell = (LongCell) old;
+            if (cell.value == newValue) return false;
+            cell.value = newValue;
+        } else {
+            values.put(attribute.getName(), new LongCell(attribute.getType(), newValue));
+            // could be this is a new sensor; checked only here, so not on each change to the value
+            if (old == null) entity.getMutableEntityType().addSensorIfAbsent(attribute);
+        }
+        version.incrementAndGet();
+        return true;
+    }
+
+    private boolean updateDoubleInternalWithoutLockOrPublish(AttributeSensor<? extends Number> attribute, double newValue) {
+        Object old = values.get(attribute.getName());
+        if (old instanceof DoubleCell) {
+            DoubleCell cell = (DoubleCell) old;
+            if (Double.compare(cell.value, newValue) == 0) return false;
+            cell.value = newValue;
+        } else {
+            values.put(attribute.getName(), new DoubleCell(attribute.getType(), newValue));
+            if (old == null) entity.getMutableEntityType().addSensorIfAbsent(attribute);
+        }
+        version.incrementAndGet();
+        return true;
+    }
+
     private <T> T withLock(Callable<T> body) { return Locks.withLock(getLockInternal(), body); }
     private void withLock(Runnable body) { Locks.withLock(getLockInternal(), body); }
     
@@ -243,7 +374,10 @@ public final class AttributeMap {
     public void remove(AttributeSensor<?> attribute) {
         BrooklynLogging.log(log, BrooklynLogging.levelDebugOrTraceIfReadOnly(entity),
             "removing attribute {} on {}", attribute.getName(), entity);
-        withLock(() -> remove(attribute.getNameParts()) );
+        withLock(() -> {
+            values.remove(attribute.getName());
+            version.incrementAndGet();
+        });
     }
 
     // TODO path must be ordered(and legal to contain duplicates like "a.b.a"; list would be better
@@ -257,7 +391,8 @@ public final class AttributeMap {
             log.trace("removing sensor {} for {}", new Object[] {path, entity});
         }
 
-        values.remove(path);
+        values.remove(DOTS.join(path));
+        version.incrementAndGet();
     }
 
     /**
@@ -271,13 +406,45 @@ public final class AttributeMap {
     @Deprecated
     public Object getValue(Collection<String> path) {
         checkPath(path);
-        Object result = values.get(path);
-        return (isNull(result)) ? null : result;
+        return unwrap(values.get(DOTS.join(path)));
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getValue(AttributeSensor<T> sensor) {
-        return (T) TypeCoercions.coerce(getValue(sensor.getNameParts()), sensor.getType());
+        Object result = unwrap(values.get(sensor.getName()));
+        if (result==null) return null;
+        // usual case, avoid the coercion machinery
+        if (sensor.getType().isInstance(result)) return (T) result;
+        return (T) TypeCoercions.coerce(result, sensor.getType());
+    }
+
+    /** 
+     * Gets the value of a numeric sensor as a primitive, without boxing if it was set by 
+     * {@link #updateLong(AttributeSensor, long)} or {@link #updateDouble(AttributeSensor, double)}.
+     * Returns the given default if the sensor has no value (or is null).
+     */
+    @Beta
+    public long getLong(AttributeSensor<? extends Number> sensor, long defaultValue) {
+        Object result = values.get(sensor.getName());
+        if (result instanceof NumericCell) return ((NumericCell)result).longValue();
+        Number n = getValue(sensor);
+        return n==null ? defaultValue : n.longValue();
+    }
+
+    /** as {@link #getLong(AttributeSensor, long)} */
+    @Beta
+    public double getDouble(AttributeSensor<? extends Number> sensor, double defaultValue) {
+        Object result = values.get(sensor.getName());
+        if (result instanceof NumericCell) return ((NumericCell)result).doubleValue();
+        Number n = getValue(sensor);
+        return n==null ? defaultValue : n.doubleValue();
+    }
+
+    /** converts a stored value to the value exposed to callers */
+    private Object unwrap(Object stored) {
+        if (isNull(stored)) return null;
+        if (stored instanceof NumericCell) return ((NumericCell)stored).box();
+        return stored;
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.sensor;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.sensor.Sensor;
+import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.apache.brooklyn.util.core.flags.TypeCoercions;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+
+/**
+ * A {@link SensorEvent} for a numeric sensor which carries its value as a primitive,
+ * as published by {@link org.apache.brooklyn.core.entity.EntityInternal.SensorSupportInternal#setLong(org.apache.brooklyn.api.sensor.AttributeSensor, long)}
+ * and {@code setDouble}.
+ * <p>
+ * Listeners which only need the number can use {@link #getLongValue()} or {@link #getDoubleValue()};
+ * the boxed value for {@link #getValue()} is only created (once) if asked for.
+ */
+@Beta
+public class NumericSensorEvent<T extends Number> implements SensorEvent<T> {
+
+    private final Sensor<T> sensor;
+    private final Entity source;
+    private final boolean integral;
+    private final long longValue;
+    private final double doubleValue;
+    private final long timestamp;
+    private volatile T boxed;
+
+    protected NumericSensorEvent(Sensor<T> sensor, Entity source, boolean integral, long longValue, double doubleValue, long timestamp) {
+        this.sensor = sensor;
+        this.source = source;
+        this.integral = integral;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.timestamp = timestamp;
+    }
+
+    public static <T extends Number> NumericSensorEvent<T> ofLong(Sensor<T> sensor, Entity source, long value) {
+        return new NumericSensorEvent<T>(sensor, source, true, value, value, System.currentTimeMillis());
+    }
+
+    public static <T extends Number> NumericSensorEvent<T> ofDouble(Sensor<T> sensor, Entity source, double value) {
+        return new NumericSensorEvent<T>(sensor, source, false, (long) value, value, System.currentTimeMillis());
+    }
+
+    /** whether the value was published as a {@code long} (rather than a {@code double}) */
+    public boolean isIntegral() { return integral; }
+
+    public long getLongValue() { return longValue; }
+
+    public double getDoubleValue() { return doubleValue; }
+
+    @Override
+    public T getValue() {
+        T result = boxed;
+        if (result == null) {
+            Class<? super T> type = sensor.getType();
+            boxed = result = integral ? boxLong(type, longValue) : boxDouble(type, doubleValue);
+        }
+        return result;
+    }
+
+    @Override
+    public Sensor<T> getSensor() { return sensor; }
+
+    @Override
+    public Entity getSource() { return source; }
+
+    @Override
+    public long getTimestamp() { return timestamp; }
+
+    /** boxes the value as the given numeric type, without going through {@link TypeCoercions} for the common types */
+    @SuppressWarnings("unchecked")
+    public static <T> T boxLong(Class<? super T> type, long value) {
+        if (type == Long.class || type == Number.class || type == Object.class) return (T) Long.valueOf(value);
+        if (type == Integer.class) return (T) Integer.valueOf((int) value);
+        if (type == Double.class) return (T) Double.valueOf(value);
+        return (T) TypeCoercions.coerce(value, type);
+    }
+
+    /** as {@link #boxLong(Class, long)} */
+    @SuppressWarnings("unchecked")
+    public static <T> T boxDouble(Class<? super T> type, double value) {
+        if (type == Double.class || type == Number.class || type == Object.class) return (T) Double.valueOf(value);
+        return (T) TypeCoercions.coerce(value, type);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(sensor, source, getValue());
+    }
+
+    /** as {@link BasicSensorEvent#equals(Object)}, comparing the boxed value */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof SensorEvent)) return false;
+        SensorEvent<?> other = (SensorEvent<?>) o;
+        return Objects.equal(sensor, other.getSensor()) && Objects.equal(source, other.getSource()) &&
+                Objects.equal(getValue(), other.getValue());
+    }
+
+    @Override
+    public String toString() {
+        return source+"."+sensor+"="+(integral ? longValue : doubleValue)+" @ "+timestamp;
+    }
+}
@@ -35,6 +35,7 @@ import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableList;
 import com.google.common.reflect.TypeToken;
 
@@ -70,6 +71,30 @@ public class BrooklynServerConfig {
         "Optional location spec string for an object store (e.g. jclouds:swift:URL) where persisted state should be kept; "
         + "if blank or not supplied, the file system is used"); 
 
+    @Beta
+    public static final ConfigKey<Boolean> PERSISTENCE_LOG_ENABLED = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.persistence.log.enabled",
+        "Whether persisted state on the file system should be kept in an append-only log (see LogStructuredObjectStore), "
+        + "rather than one file per item; existing state in the persistence directory is read on first use, "
+        + "but the directory cannot then be used with this disabled; backups and exports are still written one file per item", false);
+
+    @Beta
+    public static final ConfigKey<Integer> PERSISTENCE_BATCH_CONCURRENCY = ConfigKeys.newIntegerConfigKey(
+        "brooklyn.persistence.batch.concurrency",
+        "Maximum number of items read or written concurrently by an object store when reading or writing many at once, "
+        + "such as when rebinding or checkpointing", 16);
+
+    @Beta
+    public static final ConfigKey<Integer> PERSISTENCE_BATCH_MAX_ATTEMPTS = ConfigKeys.newIntegerConfigKey(
+        "brooklyn.persistence.batch.maxAttempts",
+        "Maximum number of attempts to read or write each item, when a remote object store reads or writes many at once", 3);
+
+    @Beta
+    public static final ConfigKey<Integer> TYPE_REGISTRY_SPEC_CACHE_SIZE = ConfigKeys.newIntegerConfigKey(
+        "brooklyn.typeRegistry.specCache.maxSize",
+        "Maximum number of entity specs created from registered types to cache, so that deploying a type again "
+        + "does not re-resolve its plan; entries are discarded when the types they use change; 0 disables the cache", 100);
+
     public static final ConfigKey<String> PERSISTENCE_BACKUPS_DIR = newStringConfigKey(
         "brooklyn.persistence.backups.dir", 
         "Directory or container name for writing backups of persisted state; "
@@ -117,6 +142,19 @@ public class BrooklynServerConfig {
     public static final ConfigKey<String> BROOKLYN_CATALOG_URL = ConfigKeys.newStringConfigKey("brooklyn.catalog.url",
         "The URL of a custom catalog.bom to load");
 
+    @Beta
+    public static final ConfigKey<Integer> CATALOG_VALIDATION_PARALLELISM = ConfigKeys.newIntegerConfigKey(
+        "brooklyn.catalog.validation.parallelism",
+        "Number of threads used to validate catalog types when installing bundles, including at startup; "
+        + "types are validated in waves, after the types they refer to, and those in each wave can be validated concurrently. "
+        + "The default of 1 validates on the installing thread.", 1);
+
+    @Beta
+    public static final ConfigKey<Boolean> CATALOG_INDEX_ENABLED = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.catalog.index.enabled",
+        "Whether to keep an index of the types parsed from each bundle's BOM, written to the persistence store, "
+        + "so that at startup the BOMs of bundles whose checksums are unchanged do not have to be parsed again", true);
+
     /** string used in places where the management node ID is needed to resolve a path */
     public static final String MANAGEMENT_NODE_ID_PROPERTY = "brooklyn.mgmt.node.id";
     
@@ -19,6 +19,7 @@
 package org.apache.brooklyn.core.typereg;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -43,9 +44,11 @@ import org.apache.brooklyn.core.catalog.internal.CatalogItemBuilder;
 import org.apache.brooklyn.core.catalog.internal.CatalogUtils;
 import org.apache.brooklyn.core.mgmt.ha.OsgiManager;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.server.BrooklynServerConfig;
 import org.apache.brooklyn.core.typereg.BundleUpgradeParser.CatalogUpgrades;
 import org.apache.brooklyn.core.typereg.RegisteredTypes.RegisteredTypeNameThenBestFirstComparator;
 import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
 import org.apache.brooklyn.util.concurrent.Locks;
@@ -83,9 +86,18 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
      * maps but coordinating that is tricky and does not seem worth it.
      */
     private ReadWriteLock localRegistryLock = new ReentrantReadWriteLock();
+    
+    /** ids of types in {@link #localRegisteredTypesAndContainingBundles} by symbolic name and by alias,
+     * so that unversioned lookups and alias lookups don't have to scan everything;
+     * guarded by {@link #localRegistryLock} and updated whenever an id's entry changes */
+    private Map<String,Set<String>> localIdsBySymbolicName = MutableMap.of();
+    private Map<String,Set<String>> localIdsByAlias = MutableMap.of();
 
     private CatalogUpgrades catalogUpgrades;
 
+    /** created on first use, as config may not be available when this is constructed */
+    private volatile RegisteredTypeSpecCache specCache;
+
     public BasicBrooklynTypeRegistry(ManagementContext mgmt) {
         this.mgmt = mgmt;
     }
@@ -96,13 +108,70 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
     }
     
     private Iterable<RegisteredType> getAllWithoutCatalog(Predicate<? super RegisteredType> filter) {
-        // TODO optimisation? make indexes and look up?
         Ordering<RegisteredType> typeOrder = Ordering.from(RegisteredTypeNameThenBestFirstComparator.INSTANCE);
         return Locks.withLock(localRegistryLock.readLock(), 
             () -> localRegisteredTypesAndContainingBundles.values().stream().
                 flatMap(m -> { return typeOrder.sortedCopy(m.values()).stream(); }).filter(filter::apply).collect(Collectors.toList()) );
     }
 
+    /** as {@link #getAllWithoutCatalog(Predicate)} but only considering the ids in the given index under the given key */
+    private List<RegisteredType> getIndexedWithoutCatalog(Map<String,Set<String>> index, String key, Predicate<? super RegisteredType> filter) {
+        Ordering<RegisteredType> typeOrder = Ordering.from(RegisteredTypeNameThenBestFirstComparator.INSTANCE);
+        return Locks.withLock(localRegistryLock.readLock(), () -> {
+            List<RegisteredType> result = MutableList.of();
+            Set<String> ids = index.get(key);
+            if (ids!=null) {
+                for (String id: ids) {
+                    for (RegisteredType rt: typeOrder.sortedCopy(localRegisteredTypesAndContainingBundles.get(id).values())) {
+                        if (filter.apply(rt)) result.add(rt);
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    /** must be called with the write lock held, before changing the entry for the given id */
+    private void unindex(String id) {
+        Map<String, RegisteredType> m = localRegisteredTypesAndContainingBundles.get(id);
+        if (m==null) return;
+        for (RegisteredType rt: m.values()) {
+            removeFromIndex(localIdsBySymbolicName, rt.getSymbolicName(), id);
+            for (String alias: rt.getAliases()) {
+                removeFromIndex(localIdsByAlias, alias, id);
+            }
+        }
+    }
+
+    /** must be called with the write lock held, after changing the entry for the given id */
+    private void index(String id) {
+        Map<String, RegisteredType> m = localRegisteredTypesAndContainingBundles.get(id);
+        if (m==null) return;
+        for (RegisteredType rt: m.values()) {
+            addToIndex(localIdsBySymbolicName, rt.getSymbolicName(), id);
+            for (String alias: rt.getAliases()) {
+                addToIndex(localIdsByAlias, alias, id);
+            }
+        }
+    }
+
+    private static void addToIndex(Map<String,Set<String>> index, String key, String id) {
+        Set<String> ids = index.get(key);
+        if (ids==null) {
+            ids = MutableSet.of();
+            index.put(key, ids);
+        }
+        ids.add(id);
+    }
+
+    private static void removeFromIndex(Map<String,Set<String>> index, String key, String id) {
+        Set<String> ids = index.get(key);
+        if (ids!=null) {
+            ids.remove(id);
+            if (ids.isEmpty()) index.remove(key);
+        }
+    }
+
     private Maybe<RegisteredType> getExactWithoutLegacyCatalog(String symbolicName, String version, RegisteredTypeLoadingContext constraint) {
         RegisteredType item = Locks.withLock(localRegistryLock.readLock(), 
             ()-> getBestValue(localRegisteredTypesAndContainingBundles.get(symbolicName+":"+version)) );
@@ -146,8 +215,30 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
         return result;
     }
 
+    /** as {@link #getMatching(Predicate)} for types with the given symbolic name, using the index */
+    @SuppressWarnings("deprecation")
+    private Iterable<RegisteredType> getMatchingSymbolicName(String symbolicName, Predicate<? super RegisteredType> filter) {
+        Set<RegisteredType> result = MutableSet.of();
+        Set<String> typeNamesFound = MutableSet.of();
+        for (RegisteredType rt: getIndexedWithoutCatalog(localIdsBySymbolicName, symbolicName, filter)) {
+            result.add(rt);
+            typeNamesFound.add(rt.getId());
+        }
+        // only convert the legacy items with this name
+        for (CatalogItem<?, ?> item: mgmt.getCatalog().getCatalogItemsLegacy()) {
+            if (!symbolicName.equals(item.getSymbolicName())) continue;
+            RegisteredType rt = RegisteredTypes.CI_TO_RT.apply(item);
+            if (filter.apply(rt) && typeNamesFound.add(rt.getId())) {
+                result.add(rt);
+            }
+        }
+        return result;
+    }
+
     @SuppressWarnings({ "deprecation", "unchecked" })
     private Maybe<RegisteredType> getSingle(String symbolicNameOrAliasIfNoVersion, final String versionFinal, final RegisteredTypeLoadingContext contextFinal) {
+        // any spec being created depends on this lookup, whatever the result
+        getSpecCache().noteLookup(symbolicNameOrAliasIfNoVersion);
         RegisteredTypeLoadingContext context = contextFinal;
         if (context==null) context = RegisteredTypeLoadingContexts.any();
         String version = versionFinal;
@@ -170,14 +261,15 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
             versionCheck = RegisteredTypePredicates.versionOsgi(version);
         }
         
-        Iterable<RegisteredType> types = getMatching(Predicates.and(
+        Iterable<RegisteredType> types = getMatchingSymbolicName(symbolicNameOrAliasIfNoVersion, Predicates.and(
             RegisteredTypePredicates.symbolicName(symbolicNameOrAliasIfNoVersion),
             versionCheck,
             RegisteredTypePredicates.satisfies(context)));
         
         if (Iterables.isEmpty(types)) {
             // look for alias if no exact symbolic name match AND no version is specified
-            types = getMatching(Predicates.and(
+            // (legacy catalog items do not have aliases so only the local registry need be checked)
+            types = getIndexedWithoutCatalog(localIdsByAlias, symbolicNameOrAliasIfNoVersion, Predicates.and(
                 RegisteredTypePredicates.alias(symbolicNameOrAliasIfNoVersion),
                 versionCheck,
                 RegisteredTypePredicates.satisfies(context) ) );
@@ -244,7 +336,9 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
     public <SpecT extends AbstractBrooklynObjectSpec<?,?>> SpecT createSpec(RegisteredType type, @Nullable RegisteredTypeLoadingContext constraint, @Nullable Class<SpecT> specSuperType) {
         Preconditions.checkNotNull(type, "type");
         if (type.getKind()==RegisteredTypeKind.SPEC) {
-            return createSpec(type, type.getPlan(), type.getSymbolicName(), type.getVersion(), type.getSuperTypes(), constraint, specSuperType);
+            final RegisteredType specType = type;
+            return getSpecCache().getOrCreate(specType, constraint, specSuperType, 
+                () -> createSpec(specType, specType.getPlan(), specType.getSymbolicName(), specType.getVersion(), specType.getSuperTypes(), constraint, specSuperType));
             
         } else if (type.getKind()==RegisteredTypeKind.UNRESOLVED) {
             if (constraint != null && constraint.getAlreadyEncounteredTypes().contains(type.getSymbolicName())) {
@@ -416,6 +510,7 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
         if (!type.getId().equals(type.getSymbolicName()+":"+type.getVersion()))
             Asserts.fail("Registered type "+type+" has ID / symname mismatch");
         
+        Set<String> changedNames = MutableSet.of();
         Locks.withLock(localRegistryLock.writeLock(),
             () -> {
                 Map<String, RegisteredType> knownMatchingTypesByBundles = localRegisteredTypesAndContainingBundles.get(type.getId());
@@ -470,11 +565,40 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
             
                 log.debug("Inserting "+type+" into "+this+
                     (oldContainingBundlesToRemove.isEmpty() ? "" : " (removing entry from "+oldContainingBundlesToRemove+")"));
+                addNames(knownMatchingTypesByBundles.values(), changedNames);
+                addNames(MutableList.of(type), changedNames);
+                unindex(type.getId());
                 for (String oldContainingBundle: oldContainingBundlesToRemove) {
                     knownMatchingTypesByBundles.remove(oldContainingBundle);
                 }
                 knownMatchingTypesByBundles.put(type.getContainingBundle(), type);
+                index(type.getId());
             });
+        getSpecCache().invalidate(changedNames);
+    }
+
+    private static void addNames(Iterable<RegisteredType> types, Set<String> names) {
+        for (RegisteredType rt: types) {
+            names.add(rt.getSymbolicName());
+            names.addAll(rt.getAliases());
+        }
+    }
+
+    /** the cache of specs created from types in this registry, sized by {@link BrooklynServerConfig#TYPE_REGISTRY_SPEC_CACHE_SIZE} */
+    @Beta
+    public RegisteredTypeSpecCache getSpecCache() {
+        RegisteredTypeSpecCache result = specCache;
+        if (result==null) {
+            synchronized (this) {
+                result = specCache;
+                if (result==null) {
+                    Integer maxSize = mgmt.getConfig().getConfig(BrooklynServerConfig.TYPE_REGISTRY_SPEC_CACHE_SIZE);
+                    result = new RegisteredTypeSpecCache(maxSize==null ? 0 : maxSize);
+                    specCache = result;
+                }
+            }
+        }
+        return result;
     }
 
     private boolean isWrapperBundle(String bundleNameVersion) { 
@@ -581,14 +705,18 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
      * @throws NoSuchElementException if not found */
     @Beta // API stabilising
     public void delete(VersionedName type) {
+        Set<String> changedNames = MutableSet.of(type.getSymbolicName());
         boolean changedLocally = Locks.withLock(localRegistryLock.writeLock(),
             () -> {
-                boolean changed = (localRegisteredTypesAndContainingBundles.remove(type.toString()) != null);
-                if (changed) {
+                unindex(type.toString());
+                Map<String, RegisteredType> removed = localRegisteredTypesAndContainingBundles.remove(type.toString());
+                if (removed != null) {
+                    addNames(removed.values(), changedNames);
                     CatalogUpgrades.clearTypeInStoredUpgrades(mgmt, type);
                 }
-                return changed;
+                return removed != null;
             });
+        getSpecCache().invalidate(changedNames);
         legacyDelete(type, changedLocally);
     }
     
@@ -612,14 +740,20 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
      * if not known in that bundle tries deleting from legacy catalog.
      * @throws NoSuchElementException if not found */
     public void delete(RegisteredType type) {
+        Set<String> changedNames = MutableSet.of(type.getSymbolicName());
+        changedNames.addAll(type.getAliases());
         boolean changedLocally = Locks.withLock(localRegistryLock.writeLock(),
             () -> {
                 Map<String, RegisteredType> m = localRegisteredTypesAndContainingBundles.get(type.getId());
                 if (m==null) return false;
+                unindex(type.getId());
                 RegisteredType removedItem = m.remove(type.getContainingBundle());
+                if (removedItem!=null) addNames(MutableList.of(removedItem), changedNames);
                 if (m.isEmpty()) {
                     localRegisteredTypesAndContainingBundles.remove(type.getId());
                     CatalogUpgrades.clearTypeInStoredUpgrades(mgmt, type.getVersionedName());
+                } else {
+                    index(type.getId());
                 }
                 if (removedItem==null) {
                     throw new NoSuchElementException("Requested to delete "+type+" from "+type.getContainingBundle()+", "
@@ -627,6 +761,7 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
                 }
                 return true;
             });
+        getSpecCache().invalidate(changedNames);
         legacyDelete(type.getVersionedName(), changedLocally);
     }
     
@@ -640,8 +775,11 @@ public class BasicBrooklynTypeRegistry implements BrooklynTypeRegistry {
     public void clear() {
         Locks.withLock(localRegistryLock.writeLock(), () -> {
             localRegisteredTypesAndContainingBundles.clear();
+            localIdsBySymbolicName.clear();
+            localIdsByAlias.clear();
             catalogUpgrades = null;
         });
+        getSpecCache().invalidateAll();
     }
 
     
@@ -66,6 +66,12 @@ public class BasicRegisteredType implements RegisteredType {
         this.implementationPlan = implementationPlan;
     }
 
+    /** sets transient fields when deserialized (e.g. from the {@link org.apache.brooklyn.core.catalog.internal.CatalogIndex}) */
+    private Object readResolve() {
+        if (cache==null) cache = new ConfigBag();
+        return this;
+    }
+
     @Override
     public String getId() {
         if (symbolicName==null) return null;
@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.typereg;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.internal.AbstractBrooklynObjectSpec;
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.api.mgmt.classloading.BrooklynClassLoadingContext;
+import org.apache.brooklyn.api.policy.PolicySpec;
+import org.apache.brooklyn.api.sensor.EnricherSpec;
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.api.typereg.RegisteredType.TypeImplementationPlan;
+import org.apache.brooklyn.api.typereg.RegisteredTypeLoadingContext;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Cache of the {@link EntitySpec}s created from {@link RegisteredType}s by {@link BasicBrooklynTypeRegistry},
+ * so that deploying the same type many times does not re-parse and re-resolve its plan each time.
+ * <p>
+ * Entries are keyed by the type (id, containing bundle and plan) and by the loading context
+ * it was resolved in. While a spec is being created, the names (or aliases) of all types looked up
+ * in the registry are recorded against the entry, and the entry is discarded when a type
+ * with any of those names is added or removed. Callers always get a {@link #deepCopy(AbstractBrooklynObjectSpec) deep copy}
+ * of the cached spec, and the spec cached is itself a copy, so changes to the specs it contains
+ * (such as a cluster's member spec) are not seen by later callers.
+ * <p>
+ * Disabled if the maximum size is 0; the least recently used entries are evicted beyond that.
+ */
+@Beta
+public class RegisteredTypeSpecCache {
+
+    private final int maxSize;
+
+    /** access-ordered, guarded by synchronizing on this */
+    private final Map<Key, Entry> cache = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    /** incremented on each invalidation, so specs created while types were changing are not cached */
+    private long generation = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /** names looked up by the specs currently being created in this thread, innermost last */
+    private final ThreadLocal<List<Set<String>>> lookupsInProgress = new ThreadLocal<List<Set<String>>>() {
+        @Override protected List<Set<String>> initialValue() { return MutableList.of(); }
+    };
+
+    public RegisteredTypeSpecCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /** returns a copy of the cached spec for the given type and context if there is one;
+     * otherwise returns the spec from the given supplier, caching a copy of it if it is an {@link EntitySpec} */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public <SpecT extends AbstractBrooklynObjectSpec<?,?>> SpecT getOrCreate(RegisteredType type, @Nullable RegisteredTypeLoadingContext constraint,
+            @Nullable Class<SpecT> specSuperType, Supplier<SpecT> creator) {
+        if (!isEnabled() || type.getSymbolicName()==null) {
+            return creator.get();
+        }
+        Key key = new Key(type, constraint, specSuperType);
+        long startGeneration;
+        synchronized (this) {
+            Entry entry = cache.get(key);
+            if (entry!=null) {
+                hits.incrementAndGet();
+                // a spec being created which uses this one depends on the same types
+                for (Set<String> lookups: lookupsInProgress.get()) {
+                    lookups.addAll(entry.dependencies);
+                }
+                return (SpecT) deepCopy(entry.spec);
+            }
+            startGeneration = generation;
+        }
+        misses.incrementAndGet();
+
+        Set<String> dependencies = MutableSet.of(type.getSymbolicName());
+        dependencies.addAll(type.getAliases());
+        List<Set<String>> stack = lookupsInProgress.get();
+        for (Set<String> lookups: stack) {
+            lookups.addAll(dependencies);
+        }
+        stack.add(dependencies);
+        SpecT result;
+        try {
+            result = creator.get();
+        } finally {
+            stack.remove(stack.size()-1);
+            if (stack.isEmpty()) lookupsInProgress.remove();
+        }
+
+        if (result instanceof EntitySpec) {
+            EntitySpec<?> copy = deepCopy((EntitySpec<?>) result);
+            synchronized (this) {
+                if (generation==startGeneration) {
+                    cache.put(key, new Entry(copy, ImmutableSet.copyOf(dependencies)));
+                    Iterator<Entry> ei = cache.values().iterator();
+                    while (cache.size() > maxSize && ei.hasNext()) {
+                        ei.next();
+                        ei.remove();
+                        evictions.incrementAndGet();
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Copies the spec and, recursively, the specs it refers to: the children, policy, enricher and location specs
+     * of an {@link EntitySpec}, and any specs in config and flag values (including in lists, sets and maps).
+     * Other values are shared with the original.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static <SpecT extends AbstractBrooklynObjectSpec<?,?>> SpecT deepCopy(SpecT spec) {
+        AbstractBrooklynObjectSpec result;
+        if (spec instanceof EntitySpec) {
+            EntitySpec<?> entitySpec = EntitySpec.create((EntitySpec) spec);
+            // the lists returned are those of the new spec, holding the same specs as the original
+            entitySpec.getChildren().replaceAll(RegisteredTypeSpecCache::deepCopy);
+            entitySpec.getPolicySpecs().replaceAll(RegisteredTypeSpecCache::deepCopy);
+            entitySpec.getEnricherSpecs().replaceAll(RegisteredTypeSpecCache::deepCopy);
+            entitySpec.getLocationSpecs().replaceAll(RegisteredTypeSpecCache::deepCopy);
+            result = entitySpec;
+        } else if (spec instanceof PolicySpec) {
+            result = PolicySpec.create((PolicySpec) spec);
+        } else if (spec instanceof EnricherSpec) {
+            result = EnricherSpec.create((EnricherSpec) spec);
+        } else if (spec instanceof LocationSpec) {
+            result = LocationSpec.create((LocationSpec) spec);
+        } else {
+            // not a type which can be copied
+            return spec;
+        }
+        result.configure(copyValues(result.getConfig()));
+        result.configure(copyValues(result.getFlags()));
+        return (SpecT) result;
+    }
+
+    private static Map<Object, Object> copyValues(Map<?, ?> values) {
+        Map<Object, Object> result = MutableMap.of();
+        for (Map.Entry<?, ?> entry: values.entrySet()) {
+            Object value = copyValue(entry.getValue());
+            if (value!=entry.getValue()) result.put(entry.getKey(), value);
+        }
+        return result;
+    }
+
+    /** returns a copy of the value if it is or contains a spec, otherwise the value itself */
+    private static Object copyValue(Object value) {
+        if (value instanceof AbstractBrooklynObjectSpec) {
+            return deepCopy((AbstractBrooklynObjectSpec<?,?>) value);
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> result = MutableMap.of();
+            boolean copied = false;
+            for (Map.Entry<?, ?> entry: ((Map<?, ?>) value).entrySet()) {
+                Object v = copyValue(entry.getValue());
+                copied |= v!=entry.getValue();
+                result.put(entry.getKey(), v);
+            }
+            return copied ? result : value;
+        }
+        if (value instanceof List || value instanceof Set) {
+            Collection<Object> result = value instanceof List ? MutableList.<Object>of() : MutableSet.<Object>of();
+            boolean copied = false;
+            for (Object v: (Collection<?>) value) {
+                Object vc = copyValue(v);
+                copied |= vc!=v;
+                result.add(vc);
+            }
+            return copied ? result : value;
+        }
+        return value;
+    }
+
+    /** records that a type with the given name or alias has been looked up,
+     * so any specs being created in this thread depend on it */
+    public void noteLookup(String symbolicNameOrAlias) {
+        if (!isEnabled() || symbolicNameOrAlias==null) return;
+        List<Set<String>> stack = lookupsInProgress.get();
+        if (stack.isEmpty()) {
+            lookupsInProgress.remove();
+            return;
+        }
+        for (Set<String> lookups: stack) {
+            lookups.add(symbolicNameOrAlias);
+        }
+    }
+
+    /** discards the specs which depend on types with any of the given names or aliases,
+     * to be called after such types have been added or removed */
+    public void invalidate(Collection<String> symbolicNamesAndAliases) {
+        if (!isEnabled()) return;
+        synchronized (this) {
+            generation++;
+            Iterator<Entry> ei = cache.values().iterator();
+            while (ei.hasNext()) {
+                Entry entry = ei.next();
+                for (String name: symbolicNamesAndAliases) {
+                    if (entry.dependencies.contains(name)) {
+                        ei.remove();
+                        invalidations.incrementAndGet();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /** discards all specs, to be called when types may have changed in ways which aren't tracked, such as in the legacy catalog */
+    public void invalidateAll() {
+        if (!isEnabled()) return;
+        synchronized (this) {
+            generation++;
+            invalidations.addAndGet(cache.size());
+            cache.clear();
+        }
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    public Map<String, Object> getStats() {
+        return MutableMap.<String, Object>of(
+            "enabled", isEnabled(),
+            "maxSize", maxSize,
+            "size", size(),
+            "hits", getHitCount(),
+            "misses", getMissCount(),
+            "evictions", getEvictionCount(),
+            "invalidations", getInvalidationCount());
+    }
+
+    private static class Entry {
+        final EntitySpec<?> spec;
+        final Set<String> dependencies;
+        Entry(EntitySpec<?> spec, Set<String> dependencies) {
+            this.spec = spec;
+            this.dependencies = dependencies;
+        }
+    }
+
+    private static class Key {
+        final String id;
+        final String containingBundle;
+        final TypeImplementationPlan plan;
+        final RegisteredTypeKind expectedKind;
+        final Class<?> expectedJavaSuperType;
+        final Set<String> alreadyEncounteredTypes;
+        final BrooklynClassLoadingContext loader;
+        final Class<?> specSuperType;
+        final int hashCode;
+
+        Key(RegisteredType type, @Nullable RegisteredTypeLoadingContext constraint, @Nullable Class<?> specSuperType) {
+            this.id = type.getId();
+            this.containingBundle = type.getContainingBundle();
+            this.plan = type.getPlan();
+            this.expectedKind = constraint==null ? null : constraint.getExpectedKind();
+            this.expectedJavaSuperType = constraint==null ? null : constraint.getExpectedJavaSuperType();
+            this.alreadyEncounteredTypes = constraint==null ? ImmutableSet.<String>of() : ImmutableSet.copyOf(constraint.getAlreadyEncounteredTypes());
+            this.loader = constraint==null ? null : constraint.getLoader();
+            this.specSuperType = specSuperType;
+            this.hashCode = Objects.hash(id, containingBundle, plan, expectedKind, expectedJavaSuperType, alreadyEncounteredTypes, loader, specSuperType);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this==obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return hashCode==other.hashCode &&
+                Objects.equals(id, other.id) &&
+                Objects.equals(containingBundle, other.containingBundle) &&
+                Objects.equals(plan, other.plan) &&
+                expectedKind==other.expectedKind &&
+                Objects.equals(expectedJavaSuperType, other.expectedJavaSuperType) &&
+                alreadyEncounteredTypes.equals(other.alreadyEncounteredTypes) &&
+                Objects.equals(loader, other.loader) &&
+                Objects.equals(specSuperType, other.specSuperType);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import java.util.Set;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.text.Strings;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * An immutable summary of a completed {@link Task}, kept in a {@link TaskArchive} after the task itself
+ * has been deleted, so that its history can still be shown without holding its job, result, tags and streams.
+ * <p>
+ * Only string tags are kept, and the result (or error) and status are kept as truncated strings.
+ * Children are not kept, as only top-level tasks are archived.
+ */
+@Beta
+public class ArchivedTask {
+
+    /** the maximum length of the result and status strings kept */
+    public static final int MAX_TEXT_LENGTH = 256;
+    
+    private final String id;
+    private final String displayName;
+    private final String description;
+    private final String entityId;
+    private final String entityDisplayName;
+    private final Set<String> tags;
+    private final long submitTimeUtc;
+    private final long startTimeUtc;
+    private final long endTimeUtc;
+    private final String statusSummary;
+    private final String result;
+    private final boolean error;
+    private final boolean cancelled;
+    private final String submittedByTaskId;
+    
+    /** task must be done */
+    public ArchivedTask(Task<?> task) {
+        id = task.getId();
+        displayName = task.getDisplayName();
+        description = task.getDescription();
+        Entity entity = BrooklynTaskTags.getContextEntity(task);
+        entityId = entity==null ? null : entity.getId();
+        entityDisplayName = entity==null ? null : entity.getDisplayName();
+        Set<String> stringTags = MutableSet.of();
+        for (Object tag: BrooklynTaskTags.getTagsFast(task)) {
+            if (tag instanceof String) stringTags.add((String)tag);
+        }
+        tags = ImmutableSet.copyOf(stringTags);
+        submitTimeUtc = task.getSubmitTimeUtc();
+        startTimeUtc = task.getStartTimeUtc();
+        endTimeUtc = task.getEndTimeUtc();
+        statusSummary = Strings.maxlenWithEllipsis(task.getStatusSummary(), MAX_TEXT_LENGTH);
+        String resultText;
+        try {
+            Object value = task.get();
+            resultText = value==null ? null : value.toString();
+        } catch (Throwable t) {
+            Exceptions.propagateIfFatal(t);
+            resultText = Exceptions.collapseText(t);
+        }
+        result = Strings.maxlenWithEllipsis(resultText, MAX_TEXT_LENGTH);
+        error = task.isError();
+        cancelled = task.isCancelled();
+        submittedByTaskId = task.getSubmittedByTaskId();
+    }
+    
+    public String getId() { return id; }
+    public String getDisplayName() { return displayName; }
+    public String getDescription() { return description; }
+    /** the id of the context entity, or null */
+    public String getEntityId() { return entityId; }
+    public String getEntityDisplayName() { return entityDisplayName; }
+    public Set<String> getTags() { return tags; }
+    public long getSubmitTimeUtc() { return submitTimeUtc; }
+    public long getStartTimeUtc() { return startTimeUtc; }
+    public long getEndTimeUtc() { return endTimeUtc; }
+    public String getStatusSummary() { return statusSummary; }
+    /** the result, or error, as a possibly truncated string; null if there was no result */
+    public String getResult() { return result; }
+    public boolean isError() { return error; }
+    public boolean isCancelled() { return cancelled; }
+    public String getSubmittedByTaskId() { return submittedByTaskId; }
+    
+    @Override
+    public String toString() {
+        return "ArchivedTask["+displayName+"]@"+id;
+    }
+}
@@ -22,7 +22,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -36,7 +35,12 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
@@ -52,7 +56,10 @@ import org.apache.brooklyn.api.mgmt.ExecutionManager;
 import org.apache.brooklyn.api.mgmt.HasTaskChildren;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.mgmt.TaskAdaptable;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.config.StringConfigMap;
 import org.apache.brooklyn.core.BrooklynFeatureEnablement;
+import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.config.Sanitizer;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
@@ -98,6 +105,80 @@ public class BasicExecutionManager implements ExecutionManager {
     private boolean jitterThreads = BrooklynFeatureEnablement.isEnabled(BrooklynFeatureEnablement.FEATURE_JITTER_THREADS);
     private int jitterThreadsMaxDelay = Integer.getInteger(JITTER_THREADS_MAX_DELAY_PROPERTY, 200);
 
+    /** How the threads which run tasks are pooled; see {@link #THREAD_POOL_MODE}. */
+    @Beta
+    public enum ThreadPoolMode {
+        /** a single pool which creates a new thread whenever none is idle, with no upper bound; the default */
+        CACHED,
+        /** a pool per {@link TaskLane}, each with a configurable maximum number of threads, queueing jobs beyond that */
+        BOUNDED,
+        /** a new virtual thread per job, where supported by the JVM (java 21+), otherwise as {@link #CACHED} */
+        VIRTUAL
+    }
+    
+    /** 
+     * Categories of task which are run through separate executors, 
+     * so that each can be monitored (see {@link #getThreadPoolMetrics()}) and,
+     * in {@link ThreadPoolMode#BOUNDED} mode, sized independently
+     * (so that e.g. a burst of effector calls does not hold up sensor event delivery). 
+     */
+    @Beta
+    public enum TaskLane {
+        /** delivery of sensor events to subscribers, and anything else run through a {@link TaskScheduler};
+         * unbounded by default, as handlers can block waiting on other deliveries (e.g. chains of attributeWhenReady),
+         * so if a limit is configured then that many blocked handlers will deadlock all subscription delivery */
+        SUBSCRIPTION(0),
+        /** iterations of a {@link ScheduledTask}, such as feed polls */
+        SCHEDULED(32),
+        /** tasks tagged as {@link BrooklynTaskTags#EFFECTOR_TAG effectors} */
+        EFFECTOR(0),
+        /** everything else */
+        DEFAULT(0);
+        
+        private final ConfigKey<Integer> maxThreadsKey;
+        
+        private TaskLane(int defaultMaxThreads) {
+            maxThreadsKey = ConfigKeys.newIntegerConfigKey(
+                "brooklyn.executionManager.threadPool."+name().toLowerCase()+".maxThreads",
+                "the maximum number of threads for running "+name().toLowerCase()+" tasks, when using the BOUNDED thread pool mode; "
+                + "zero or negative means unbounded (recommended where tasks can block on other tasks in the same lane, "
+                + "as otherwise a full pool can deadlock)",
+                defaultMaxThreads);
+        }
+        
+        public ConfigKey<Integer> getMaxThreadsConfigKey() {
+            return maxThreadsKey;
+        }
+    }
+
+    @Beta
+    public static final ConfigKey<ThreadPoolMode> THREAD_POOL_MODE = ConfigKeys.newConfigKey(ThreadPoolMode.class,
+        "brooklyn.executionManager.threadPool.mode", 
+        "how task threads are pooled: CACHED (unbounded, the default), BOUNDED (a pool per lane, "
+        + "sized by brooklyn.executionManager.threadPool.<lane>.maxThreads), or VIRTUAL (virtual threads, on java 21+)",
+        ThreadPoolMode.CACHED);
+
+    @Beta
+    public static final ConfigKey<Boolean> MAILBOX_SCHEDULER = ConfigKeys.newBooleanConfigKey(
+        "brooklyn.executionManager.mailboxScheduler",
+        "whether in-order execution (e.g. delivery of sensor events to each subscriber) should use a MailboxScheduler per subscriber, "
+        + "sharing a small work-stealing pool, rather than a SingleThreadedScheduler per subscriber (the default); "
+        + "only suitable where subscribers do not block for long periods",
+        false);
+
+    @Beta
+    public static final ConfigKey<Integer> MAILBOX_SCHEDULER_PARALLELISM = ConfigKeys.newIntegerConfigKey(
+        "brooklyn.executionManager.mailboxScheduler.parallelism",
+        "the number of threads in the pool shared by mailbox schedulers, when enabled; zero or negative means the number of processors",
+        0);
+
+    @Beta
+    public static final ConfigKey<Integer> MAX_ARCHIVED_TASKS_PER_ENTITY = ConfigKeys.newIntegerConfigKey(
+        "brooklyn.executionManager.maxArchivedTasksPerEntity",
+        "the number of compact summaries of deleted (completed, non-transient, top-level) tasks to keep for each managed entity, "
+        + "so that their history can still be shown once they are garbage collected; zero (the default) to keep none",
+        0);
+
     private static class PerThreadCurrentTaskHolder {
         public static final ThreadLocal<Task<?>> perThreadCurrentTask = new ThreadLocal<Task<?>>();
     }
@@ -111,19 +192,26 @@ public class BasicExecutionManager implements ExecutionManager {
     private final ThreadFactory daemonThreadFactory;
     
     private final ExecutorService runner;
+    
+    private final Map<TaskLane, InstrumentedExecutorService> runnersByLane;
+    
+    /** shared by all {@link MailboxScheduler}s, if {@link #MAILBOX_SCHEDULER} is enabled, otherwise null */
+    private final InstrumentedExecutorService mailboxRunner;
         
     private final ScheduledExecutorService delayedRunner;
+    
+    /** summaries of deleted tasks, if {@link #MAX_ARCHIVED_TASKS_PER_ENTITY} is positive, otherwise null */
+    private final TaskArchive archive;
 
     // inefficient having so many records, and also doing searches through ...
     // many things in here could be more efficient however (different types of lookup etc),
     // do that when we need to.
     
-    //access to this field AND to members in this field is synchronized, 
-    //to allow us to preserve order while guaranteeing thread-safe
-    //(but more testing is needed before we are completely sure it is thread-safe!)
-    //synch blocks are as finely grained as possible for efficiency;
-    //NB CopyOnWriteArraySet is a perf bottleneck, and the simple map makes it easier to remove when a tag is empty
-    private Map<Object,Set<Task<?>>> tasksByTag = new HashMap<Object,Set<Task<?>>>();
+    //neither this map nor its members are synchronized: sets are concurrent (iteration is weakly consistent,
+    //and not in submission order), and a tag's set is only created, added to, removed from or dropped when empty
+    //inside a compute on the map, which locks just that tag's bin, so a task can't be added to a set being dropped;
+    //NB CopyOnWriteArraySet is a perf bottleneck, so not used for the members
+    private final ConcurrentMap<Object,Set<Task<?>>> tasksByTag = new ConcurrentHashMap<Object,Set<Task<?>>>();
     
     private ConcurrentMap<String,Task<?>> tasksById = new ConcurrentHashMap<String,Task<?>>();
 
@@ -132,6 +220,9 @@ public class BasicExecutionManager implements ExecutionManager {
     /** count of all tasks submitted, including finished */
     private final AtomicLong totalTaskCount = new AtomicLong();
     
+    /** count of all lightweight tasks submitted, including finished; these are not in {@link #tasksById} or {@link #tasksByTag} */
+    private final AtomicLong lightweightTaskCount = new AtomicLong();
+    
     /** tasks submitted but not yet done (or in cases of interruption/cancelled not yet GC'd) */
     private Set<String> incompleteTaskIds = Sets.newConcurrentHashSet();
     
@@ -150,15 +241,52 @@ public class BasicExecutionManager implements ExecutionManager {
     };
     
     public BasicExecutionManager(String contextid) {
+        this(contextid, null);
+    }
+    
+    /**
+     * @param config if non-null, used to look up the thread pool configuration 
+     *        (e.g. {@link #THREAD_POOL_MODE}); otherwise defaults are used
+     */
+    public BasicExecutionManager(String contextid, StringConfigMap config) {
         threadFactory = newThreadFactory(contextid);
         daemonThreadFactory = new ThreadFactoryBuilder()
                 .setThreadFactory(threadFactory)
                 .setDaemon(true)
                 .build();
-                
-        // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
-        runner = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
-                daemonThreadFactory);
+        
+        ThreadPoolMode mode = getConfig(config, THREAD_POOL_MODE);
+        runnersByLane = new LinkedHashMap<TaskLane, InstrumentedExecutorService>();
+        ExecutorService shared = null;
+        for (TaskLane lane: TaskLane.values()) {
+            ExecutorService laneRunner;
+            switch (mode) {
+            case BOUNDED:
+                laneRunner = newBoundedThreadPool(getConfig(config, lane.maxThreadsKey));
+                break;
+            case VIRTUAL:
+                if (shared==null) shared = newVirtualThreadPool();
+                laneRunner = shared;
+                break;
+            case CACHED:
+            default:
+                if (shared==null) shared = newBoundedThreadPool(0);
+                laneRunner = shared;
+            }
+            runnersByLane.put(lane, new InstrumentedExecutorService(lane.name().toLowerCase(), laneRunner));
+        }
+        runner = runnersByLane.get(TaskLane.DEFAULT);
+        int maxArchivedTasksPerEntity = getConfig(config, MAX_ARCHIVED_TASKS_PER_ENTITY);
+        archive = maxArchivedTasksPerEntity>0 ? new TaskArchive(maxArchivedTasksPerEntity) : null;
+        if (Boolean.TRUE.equals(getConfig(config, MAILBOX_SCHEDULER))) {
+            mailboxRunner = new InstrumentedExecutorService("mailbox", newMailboxPool(contextid, getConfig(config, MAILBOX_SCHEDULER_PARALLELISM)));
+        } else {
+            mailboxRunner = null;
+        }
+        if (mode!=ThreadPoolMode.CACHED) {
+            log.info("Execution manager "+contextid+" using thread pool mode "+mode+
+                (mode==ThreadPoolMode.BOUNDED ? " "+getMaxThreadsByLane(config) : ""));
+        }
             
         delayedRunner = new ScheduledThreadPoolExecutor(1, daemonThreadFactory);
 
@@ -167,6 +295,67 @@ public class BasicExecutionManager implements ExecutionManager {
         }
     }
     
+    private static <T> T getConfig(StringConfigMap config, ConfigKey<T> key) {
+        T result = config==null ? null : config.getConfig(key);
+        return result!=null ? result : key.getDefaultValue();
+    }
+    
+    private static Map<TaskLane, Integer> getMaxThreadsByLane(StringConfigMap config) {
+        Map<TaskLane, Integer> result = MutableMap.of();
+        for (TaskLane lane: TaskLane.values()) {
+            result.put(lane, getConfig(config, lane.maxThreadsKey));
+        }
+        return result;
+    }
+    
+    /** 
+     * Creates a pool with at most the given number of threads, queueing jobs beyond that; 
+     * if max is zero or negative then a new thread is created whenever no thread is idle.
+     */
+    protected ExecutorService newBoundedThreadPool(int maxThreads) {
+        if (maxThreads<=0) {
+            // use Executors.newCachedThreadPool(daemonThreadFactory), but timeout of 1s rather than 60s for better shutdown!
+            return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), 
+                daemonThreadFactory);
+        }
+        ThreadPoolExecutor result = new ThreadPoolExecutor(maxThreads, maxThreads, 10L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), 
+            daemonThreadFactory);
+        result.allowCoreThreadTimeOut(true);
+        return result;
+    }
+    
+    /** 
+     * Creates a thread-per-task pool of virtual threads where the JVM supports them (java 21+),
+     * falling back to {@link #newBoundedThreadPool(int)} with no bound otherwise. 
+     */
+    protected ExecutorService newVirtualThreadPool() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            Exceptions.propagateIfFatal(e);
+            log.warn("Virtual threads not supported in this JVM; using unbounded cached thread pool for execution manager ("+e+")");
+            return newBoundedThreadPool(0);
+        }
+    }
+    
+    /**
+     * Creates the pool shared by {@link MailboxScheduler}s: a {@link ForkJoinPool} in async (FIFO) mode,
+     * so that each mailbox's drain job is queued behind others rather than jumping ahead of them.
+     */
+    protected ExecutorService newMailboxPool(final String contextid, int parallelism) {
+        final AtomicInteger count = new AtomicInteger();
+        ForkJoinWorkerThreadFactory factory = new ForkJoinWorkerThreadFactory() {
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread result = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                result.setName("brooklyn-execmanager-"+contextid+"-mailbox-"+count.incrementAndGet());
+                return result;
+            }
+        };
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), 
+            factory, new UncaughtExceptionHandlerImplementation(), true);
+    }
+    
     private final static class UncaughtExceptionHandlerImplementation implements Thread.UncaughtExceptionHandler {
         @Override
         public void uncaughtException(Thread t, Throwable e) {
@@ -195,18 +384,28 @@ public class BasicExecutionManager implements ExecutionManager {
      */
     @Beta
     public boolean shutdownNow(Duration howLongToWaitForTermination) {
-        runner.shutdownNow();
+        for (ExecutorService laneRunner: runnersByLane.values()) {
+            laneRunner.shutdownNow();
+        }
+        if (mailboxRunner!=null) mailboxRunner.shutdownNow();
         delayedRunner.shutdownNow();
         if (howLongToWaitForTermination!=null) {
             CountdownTimer timer = howLongToWaitForTermination.countdownTimer();
             try {
-                runner.awaitTermination(timer.getDurationRemaining().toMilliseconds(), TimeUnit.MILLISECONDS);
+                for (ExecutorService laneRunner: runnersByLane.values()) {
+                    if (timer.isLive()) laneRunner.awaitTermination(timer.getDurationRemaining().toMilliseconds(), TimeUnit.MILLISECONDS);
+                }
+                if (mailboxRunner!=null && timer.isLive()) mailboxRunner.awaitTermination(timer.getDurationRemaining().toMilliseconds(), TimeUnit.MILLISECONDS);
                 if (timer.isLive()) delayedRunner.awaitTermination(timer.getDurationRemaining().toMilliseconds(), TimeUnit.MILLISECONDS);
             } catch (InterruptedException e) {
                 throw Exceptions.propagate(e);
             }
         }
-        return runner.isTerminated() && delayedRunner.isTerminated();
+        for (ExecutorService laneRunner: runnersByLane.values()) {
+            if (!laneRunner.isTerminated()) return false;
+        }
+        if (mailboxRunner!=null && !mailboxRunner.isTerminated()) return false;
+        return delayedRunner.isTerminated();
     }
     
     public void addListener(ExecutionListener listener) {
@@ -224,10 +423,7 @@ public class BasicExecutionManager implements ExecutionManager {
      * a reference to it as a tag.
      */
     public void deleteTag(Object tag) {
-        Set<Task<?>> tasks;
-        synchronized (tasksByTag) {
-            tasks = tasksByTag.remove(tag);
-        }
+        Set<Task<?>> tasks = tasksByTag.remove(tag);
         if (tasks != null) {
             for (Task<?> task : tasks) {
                 deleteTask(task);
@@ -250,18 +446,21 @@ public class BasicExecutionManager implements ExecutionManager {
     protected boolean deleteTaskNonRecursive(Task<?> task) {
         Set<?> tags = TaskTags.getTagsFast(checkNotNull(task, "task"));
         for (Object tag : tags) {
-            synchronized (tasksByTag) {
-                Set<Task<?>> tasks = tasksWithTagLiveOrNull(tag);
-                if (tasks != null) {
-                    tasks.remove(task);
-                    if (tasks.isEmpty()) {
-                        tasksByTag.remove(tag);
-                    }
-                }
-            }
+            tasksByTag.computeIfPresent(tag, (k, tasks) -> {
+                tasks.remove(task);
+                return tasks.isEmpty() ? null : tasks;
+            });
         }
         Task<?> removed = tasksById.remove(task.getId());
         incompleteTaskIds.remove(task.getId());
+        // sub-tasks are not archived, so that they do not use up the slots for the top-level history
+        if (removed!=null && archive!=null && removed.isDone(true) && !BrooklynTaskTags.isTransient(removed) && !BrooklynTaskTags.isSubTask(removed)) {
+            Entity context = BrooklynTaskTags.getContextEntity(removed);
+            // not kept for unmanaged entities, as it is their unmanagement which deletes their tasks
+            if (context!=null && Entities.isManaged(context)) {
+                archive.add(new ArchivedTask(removed));
+            }
+        }
         if (removed!=null && removed.isSubmitted() && !removed.isDone(true)) {
             Entity context = BrooklynTaskTags.getContextEntity(removed);
             if (context!=null && !Entities.isManaged(context)) {
@@ -283,6 +482,14 @@ public class BasicExecutionManager implements ExecutionManager {
         return totalTaskCount.get();
     }
     
+    /** count of lightweight tasks submitted (included in {@link #getTotalTasksSubmitted()}); 
+     * these are not kept in memory so are not otherwise visible once done
+     * @see BrooklynTaskTags#LIGHTWEIGHT_TASK_TAG */
+    @Beta
+    public long getTotalLightweightTasksSubmitted() {
+        return lightweightTaskCount.get();
+    }
+    
     /** count of tasks submitted but not ended */
     public long getNumIncompleteTasks() {
         return incompleteTaskIds.size();
@@ -298,24 +505,35 @@ public class BasicExecutionManager implements ExecutionManager {
         return tasksById.size();
     }
 
-    private Set<Task<?>> tasksWithTagCreating(Object tag) {
-        Preconditions.checkNotNull(tag);
-        synchronized (tasksByTag) {
-            Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
-            if (result==null) {
-                result = Collections.synchronizedSet(new LinkedHashSet<Task<?>>());
-                tasksByTag.put(tag, result);
-            }
-            return result;
+    /** summaries of deleted tasks, or null if {@link #MAX_ARCHIVED_TASKS_PER_ENTITY} is not set */
+    @Beta
+    public TaskArchive getTaskArchive() {
+        return archive;
+    }
+
+    /** queue depth, active count and wait times of the executor for each {@link TaskLane} */
+    @Beta
+    public Map<TaskLane, InstrumentedExecutorService.Metrics> getThreadPoolMetrics() {
+        Map<TaskLane, InstrumentedExecutorService.Metrics> result = new LinkedHashMap<TaskLane, InstrumentedExecutorService.Metrics>();
+        for (Map.Entry<TaskLane, InstrumentedExecutorService> entry: runnersByLane.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().getMetrics());
         }
+        return result;
+    }
+
+    private void addTaskWithTag(Object tag, Task<?> task) {
+        Preconditions.checkNotNull(tag);
+        tasksByTag.compute(tag, (k, tasks) -> {
+            if (tasks==null) tasks = ConcurrentHashMap.newKeySet();
+            tasks.add(task);
+            return tasks;
+        });
     }
 
-    /** exposes live view, for internal use only */
+    /** exposes live view, for internal use only; iteration is weakly consistent */
     @Beta
     public Set<Task<?>> tasksWithTagLiveOrNull(Object tag) {
-        synchronized (tasksByTag) {
-            return tasksByTag.get(tag);
-        }
+        return tasksByTag.get(tag);
     }
 
     @Override
@@ -336,9 +554,7 @@ public class BasicExecutionManager implements ExecutionManager {
     public Set<Task<?>> getTasksWithTag(Object tag) {
         Set<Task<?>> result = tasksWithTagLiveOrNull(tag);
         if (result==null) return Collections.emptySet();
-        synchronized (result) {
-            return Collections.unmodifiableSet(new LinkedHashSet<Task<?>>(result));
-        }
+        return Collections.unmodifiableSet(new LinkedHashSet<Task<?>>(result));
     }
     
     @Override
@@ -348,9 +564,7 @@ public class BasicExecutionManager implements ExecutionManager {
         while (ti.hasNext()) {
             Set<Task<?>> tasksForTag = tasksWithTagLiveOrNull(ti.next());
             if (tasksForTag!=null) {
-                synchronized (tasksForTag) {
-                    result.addAll(tasksForTag);
-                }
+                result.addAll(tasksForTag);
             }
         }
         return Collections.unmodifiableSet(result);
@@ -359,20 +573,23 @@ public class BasicExecutionManager implements ExecutionManager {
     /** only works with at least one tag; returns empty if no tags */
     @Override
     public Set<Task<?>> getTasksWithAllTags(Iterable<?> tags) {
-        //NB: for this method retrieval for multiple tags could be made (much) more efficient (if/when it is used with multiple tags!)
-        //by first looking for the least-used tag, getting those tasks, and then for each of those tasks
-        //checking whether it contains the other tags (looking for second-least used, then third-least used, etc)
+        // intersect starting from the least-used tag, checking its tasks against the others in order of size
+        List<Set<Task<?>>> tasksForTags = MutableList.of();
+        for (Object tag: tags) {
+            Set<Task<?>> tasksForTag = tasksWithTagLiveOrNull(tag);
+            if (tasksForTag==null) return Collections.emptySet();
+            tasksForTags.add(tasksForTag);
+        }
+        if (tasksForTags.isEmpty()) return Collections.emptySet();
+        Collections.sort(tasksForTags, (s1, s2) -> Integer.compare(s1.size(), s2.size()));
+        
         Set<Task<?>> result = new LinkedHashSet<Task<?>>();
-        boolean first = true;
-        Iterator<?> ti = tags.iterator();
-        while (ti.hasNext()) {
-            Object tag = ti.next();
-            if (first) { 
-                first = false;
-                result.addAll(getTasksWithTag(tag));
-            } else {
-                result.retainAll(getTasksWithTag(tag));
+        candidates: for (Task<?> task: tasksForTags.get(0)) {
+            Iterator<Set<Task<?>>> others = tasksForTags.listIterator(1);
+            while (others.hasNext()) {
+                if (!others.next().contains(task)) continue candidates;
             }
+            result.add(task);
         }
         return Collections.unmodifiableSet(result);
     }
@@ -383,9 +600,7 @@ public class BasicExecutionManager implements ExecutionManager {
     
     @Override
     public Set<Object> getTaskTags() { 
-        synchronized (tasksByTag) {
-            return Collections.unmodifiableSet(Sets.newLinkedHashSet(tasksByTag.keySet())); 
-        }
+        return Collections.unmodifiableSet(Sets.newLinkedHashSet(tasksByTag.keySet())); 
     }
 
     @Override @Deprecated public Task<?> submit(Runnable r) { return submit(new LinkedHashMap<Object,Object>(1), r); }
@@ -720,13 +935,23 @@ public class BasicExecutionManager implements ExecutionManager {
             if (schedulers.size()>1) log.warn("multiple schedulers detected, using only the first, for "+task+": "+schedulers);
             future = schedulers.iterator().next().submit(job);
         } else {
-            future = runner.submit(job);
+            future = runnersByLane.get(getTaskLane(task)).submit(job);
         }
         afterSubmitRecordFuture(task, future);
         
         return task;
     }
 
+    /** the lane whose executor should run the given task, if not run through a {@link TaskScheduler} */
+    protected TaskLane getTaskLane(Task<?> task) {
+        Set<Object> tags = BrooklynTaskTags.getTagsFast(task);
+        if (tags.contains(BrooklynTaskTags.SENSOR_TAG)) return TaskLane.SUBSCRIPTION;
+        String submitterId = task.getSubmittedByTaskId();
+        if (submitterId!=null && tasksById.get(submitterId) instanceof ScheduledTask) return TaskLane.SCHEDULED;
+        if (tags.contains(BrooklynTaskTags.EFFECTOR_TAG)) return TaskLane.EFFECTOR;
+        return TaskLane.DEFAULT;
+    }
+
     protected <T> void afterSubmitRecordFuture(final Task<T> task, Future<T> future) {
         // SubmissionCallable (above) invokes the listeners on completion;
         // this future allows a caller to add custom listeners
@@ -755,23 +980,41 @@ public class BasicExecutionManager implements ExecutionManager {
         incompleteTaskIds.add(task.getId());
         
         if (task.getSubmittedByTaskId()==null) {
-            Task<?> currentTask = Tasks.current();
-            if (currentTask!=null) ((TaskInternal<?>)task).setSubmittedByTask(
+            Task<?> submitter = getNearestRegisteredTask(Tasks.current());
+            if (submitter!=null) ((TaskInternal<?>)task).setSubmittedByTask(
                     // do this instead of soft reference (2017-09) as soft refs impact GC 
-                    Maybe.of(new TaskLookup(this, currentTask)),
-                    currentTask.getId());
+                    Maybe.of(new TaskLookup(this, submitter)),
+                    submitter.getId());
         }
         ((TaskInternal<?>)task).setSubmitTimeUtc(System.currentTimeMillis());
         
         if (flags!=null && flags.get("tag")!=null) ((TaskInternal<?>)task).getMutableTags().add(flags.remove("tag"));
         if (flags!=null && flags.get("tags")!=null) ((TaskInternal<?>)task).getMutableTags().addAll((Collection<?>)flags.remove("tags"));
 
+        totalTaskCount.incrementAndGet();
+        if (BrooklynTaskTags.isLightweight(task)) {
+            // counted (and tracked while incomplete) but not indexed, so there is nothing to list or GC
+            lightweightTaskCount.incrementAndGet();
+            return;
+        }
+        
         for (Object tag: BrooklynTaskTags.getTagsFast(task)) {
-            tasksWithTagCreating(tag).add(task);
+            addTaskWithTag(tag, task);
         }
         
         tasksById.put(task.getId(), task);
-        totalTaskCount.incrementAndGet();
+    }
+    
+    /** the given task or, if it is lightweight (so not registered), the nearest registered task which submitted it;
+     * null if there is none, or it is no longer known */
+    private Task<?> getNearestRegisteredTask(Task<?> task) {
+        if (task==null || !BrooklynTaskTags.isLightweight(task)) return task;
+        do {
+            task = task.getSubmittedByTask();
+        } while (task!=null && BrooklynTaskTags.isLightweight(task));
+        // a submitter which has been forgotten is replaced by a placeholder, which is not registered
+        if (task==null || tasksById.get(task.getId())==null) return null;
+        return task;
     }
     
     private static class TaskLookup implements Supplier<Task<?>> {
@@ -988,6 +1231,22 @@ public class BasicExecutionManager implements ExecutionManager {
         }
     }
 
+    /** 
+     * The type of {@link TaskScheduler} callers should use to run tasks in order, one at a time, 
+     * such as for delivering events to a subscriber: a {@link MailboxScheduler} if {@link #MAILBOX_SCHEDULER}
+     * is enabled, otherwise a {@link SingleThreadedScheduler}.
+     */
+    @Beta
+    public Class<? extends TaskScheduler> getOrderedTaskSchedulerType() {
+        return mailboxRunner!=null ? MailboxScheduler.class : SingleThreadedScheduler.class;
+    }
+    
+    /** metrics for the pool shared by {@link MailboxScheduler}s, or null if {@link #MAILBOX_SCHEDULER} is not enabled */
+    @Beta
+    public InstrumentedExecutorService.Metrics getMailboxPoolMetrics() {
+        return mailboxRunner!=null ? mailboxRunner.getMetrics() : null;
+    }
+    
     public TaskScheduler getTaskSchedulerForTag(Object tag) {
         return schedulerByTag.get(tag);
     }
@@ -1026,7 +1285,8 @@ public class BasicExecutionManager implements ExecutionManager {
      */
     public void setTaskSchedulerForTag(Object tag, TaskScheduler scheduler) {
         synchronized (schedulerByTag) {
-            scheduler.injectExecutor(runner);
+            // schedulers are used for in-order delivery of events
+            scheduler.injectExecutor(scheduler instanceof MailboxScheduler && mailboxRunner!=null ? mailboxRunner : runnersByLane.get(TaskLane.SUBSCRIPTION));
 
             Object old = schedulerByTag.put(tag, scheduler);
             if (old!=null && old!=scheduler) {
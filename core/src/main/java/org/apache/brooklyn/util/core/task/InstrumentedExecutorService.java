@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.time.Duration;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * An {@link ExecutorService} which delegates to another executor, recording how many jobs
+ * are waiting for a thread, how many are running, and how long jobs wait before starting.
+ * <p>
+ * Several instances may share the same delegate, in which case each reports only on the
+ * jobs submitted through it; this is used by {@link BasicExecutionManager} to report per-lane
+ * metrics even when the lanes share a single pool.
+ */
+@Beta
+public class InstrumentedExecutorService extends AbstractExecutorService {
+
+    private final String name;
+    private final ExecutorService delegate;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public InstrumentedExecutorService(String name, ExecutorService delegate) {
+        this.name = name;
+        this.delegate = delegate;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ExecutorService getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        queued.incrementAndGet();
+        try {
+            delegate.execute(new TimedRunnable(command));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private class TimedRunnable implements Runnable {
+        private final Runnable command;
+        private final long queuedAtNanos = System.nanoTime();
+
+        TimedRunnable(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            long wait = System.nanoTime() - queuedAtNanos;
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            totalWaitNanos.addAndGet(wait);
+            long max;
+            while (wait > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, wait)) {}
+            try {
+                command.run();
+            } finally {
+                active.decrementAndGet();
+                completed.incrementAndGet();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return command.toString();
+        }
+    }
+
+    /** jobs submitted but not yet started */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /** jobs currently running */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(name, queued.get(), active.get(), completed.get(), totalWaitNanos.get(), maxWaitNanos.get());
+    }
+
+    /** An immutable snapshot of the counters of an {@link InstrumentedExecutorService}. */
+    public static class Metrics {
+        private final String name;
+        private final int queueDepth;
+        private final int activeCount;
+        private final long completedCount;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        protected Metrics(String name, int queueDepth, int activeCount, long completedCount, long totalWaitNanos, long maxWaitNanos) {
+            this.name = name;
+            this.queueDepth = queueDepth;
+            this.activeCount = activeCount;
+            this.completedCount = completedCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public String getName() { return name; }
+        public int getQueueDepth() { return queueDepth; }
+        public int getActiveCount() { return activeCount; }
+        public long getCompletedCount() { return completedCount; }
+        public Duration getTotalWait() { return Duration.nanos(totalWaitNanos); }
+        public Duration getMaxWait() { return Duration.nanos(maxWaitNanos); }
+        /** mean time jobs waited for a thread, over all jobs started so far */
+        public Duration getMeanWait() {
+            long started = completedCount + activeCount;
+            return Duration.nanos(started == 0 ? 0 : totalWaitNanos / started);
+        }
+
+        public Map<String, Object> asMap() {
+            return MutableMap.<String, Object>of(
+                "queueDepth", queueDepth,
+                "activeCount", activeCount,
+                "completedCount", completedCount,
+                "meanWaitMillis", getMeanWait().toMilliseconds(),
+                "maxWaitMillis", getMaxWait().toMilliseconds());
+        }
+
+        @Override
+        public String toString() {
+            return name+asMap();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return "InstrumentedExecutorService["+name+"]";
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.util.JavaGroovyEquivalents;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A {@link BasicTask} for small, frequent jobs done for the framework's own bookkeeping,
+ * such as sensor deliveries.
+ * <p>
+ * It is tagged {@link BrooklynTaskTags#LIGHTWEIGHT_TASK_TAG}, so {@link BasicExecutionManager}
+ * counts it but does not index it by id or tag, and it has no finalizer, so it can be reclaimed
+ * as soon as it is unreachable without going through the JVM's finalization queue.
+ * (Other tasks can be made lightweight with {@link BrooklynTaskTags#setLightweight(org.apache.brooklyn.api.mgmt.Task)}
+ * before submission, but keep their finalizer.)
+ */
+@Beta
+public class LightweightTask<T> extends BasicTask<T> {
+
+    public LightweightTask(Map<?,?> flags, Callable<T> job) {
+        super(flags, job);
+        tags.add(BrooklynTaskTags.LIGHTWEIGHT_TASK_TAG);
+    }
+
+    public LightweightTask(Map<?,?> flags, Runnable job) {
+        this(flags, JavaGroovyEquivalents.<T>toCallable(job));
+    }
+
+    /** does nothing, and is empty so that the JVM does not register instances for finalization */
+    @Override
+    protected void finalize() {
+    }
+}
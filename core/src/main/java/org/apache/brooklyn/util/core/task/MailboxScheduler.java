@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Like {@link SingleThreadedScheduler}, runs {@link Task}s one at a time in submission order,
+ * but as an actor-style mailbox: submissions are queued, and while the queue is non-empty a single
+ * drain job runs them in turn, up to {@link #MAX_BATCH} before yielding the thread back to the executor.
+ * <p>
+ * No thread is held while the mailbox is empty, and there is no intermediate future per task,
+ * so many instances can share a small executor. {@link BasicExecutionManager} uses a shared
+ * FIFO {@link java.util.concurrent.ForkJoinPool} for this when {@link BasicExecutionManager#MAILBOX_SCHEDULER}
+ * is enabled. Jobs which block for long periods hold one of those threads, so are better suited
+ * to {@link SingleThreadedScheduler}.
+ * <p>
+ * Pool threads do not inherit a context class loader from whoever submits to them, so each job
+ * records the submitter's context class loader and the drain sets it (and restores its own) while
+ * running that job, as a thread created by the submitter would have; without this, OSGi lookups
+ * made by jobs fail in Karaf.
+ */
+@Beta
+public class MailboxScheduler implements TaskScheduler, CanSetName {
+    private static final Logger LOG = LoggerFactory.getLogger(MailboxScheduler.class);
+
+    /** the maximum number of jobs run by one drain before it is resubmitted, so that busy mailboxes do not starve others */
+    public static final int MAX_BATCH = 64;
+
+    private final Queue<Job<?>> mailbox = new ConcurrentLinkedQueue<Job<?>>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile int lastSizeWarn = 0;
+
+    private ExecutorService executor;
+
+    private String name;
+
+    private final Runnable drainer = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+        @Override
+        public String toString() {
+            return "drain "+MailboxScheduler.this;
+        }
+    };
+
+    /** a submitted job, with the context class loader of the thread which submitted it */
+    private static class Job<T> extends FutureTask<T> {
+        private final ClassLoader contextClassLoader;
+
+        Job(Callable<T> c, ClassLoader contextClassLoader) {
+            super(c);
+            this.contextClassLoader = contextClassLoader;
+        }
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name!=null ? "MailboxScheduler["+name+"]" : super.toString();
+    }
+
+    @Override
+    public void injectExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> c) {
+        Job<T> result = new Job<T>(c, Thread.currentThread().getContextClassLoader());
+        mailbox.add(result);
+        int size = queueSize.incrementAndGet();
+        if ((size == 50 || (size<=500 && (size%100)==0) || (size%1000)==0) && size!=lastSizeWarn) {
+            lastSizeWarn = size;
+            LOG.warn("{} is backing up, {} tasks queued", this, size);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Task queue backing up detail, queue "+this+"; task context is "+Tasks.current()+"; latest task is "+c+"; first task is "+mailbox.peek());
+            }
+        }
+        scheduleIfNeeded();
+        return result;
+    }
+
+    /** number of jobs submitted but not yet started */
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+
+    private void scheduleIfNeeded() {
+        if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(drainer);
+            } catch (RuntimeException e) {
+                // e.g. rejected on shutdown; allow a later submission to try again
+                scheduled.set(false);
+                throw e;
+            }
+        }
+    }
+
+    private void drain() {
+        Thread thread = Thread.currentThread();
+        ClassLoader oldContextClassLoader = thread.getContextClassLoader();
+        try {
+            for (int i=0; i<MAX_BATCH; i++) {
+                Job<?> next = mailbox.poll();
+                if (next==null) break;
+                queueSize.decrementAndGet();
+                thread.setContextClassLoader(next.contextClassLoader);
+                // errors are captured in the future; cancelled tasks do nothing
+                next.run();
+                // don't let an interrupt from cancelling that task affect the next
+                Thread.interrupted();
+            }
+        } finally {
+            thread.setContextClassLoader(oldContextClassLoader);
+            scheduled.set(false);
+            // anything added after we last looked (or beyond the batch) needs a new drain
+            scheduleIfNeeded();
+        }
+    }
+}
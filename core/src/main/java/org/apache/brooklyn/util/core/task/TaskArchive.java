@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.brooklyn.util.collections.MutableList;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Keeps {@link ArchivedTask} summaries of completed tasks deleted from a {@link BasicExecutionManager},
+ * up to a maximum number per context entity, discarding the oldest first.
+ * Tasks without a context entity are not archived.
+ */
+@Beta
+public class TaskArchive {
+
+    private final int maxPerEntity;
+    private final Map<String, ArchivedTask> byId = new ConcurrentHashMap<String, ArchivedTask>();
+    /** oldest first; guarded by itself */
+    private final Map<String, Deque<ArchivedTask>> byEntityId = new ConcurrentHashMap<String, Deque<ArchivedTask>>();
+    
+    public TaskArchive(int maxPerEntity) {
+        this.maxPerEntity = maxPerEntity;
+    }
+    
+    public void add(ArchivedTask task) {
+        if (task.getEntityId()==null || maxPerEntity<=0) return;
+        Deque<ArchivedTask> tasks = byEntityId.computeIfAbsent(task.getEntityId(), k -> new ArrayDeque<ArchivedTask>());
+        synchronized (tasks) {
+            tasks.add(task);
+            byId.put(task.getId(), task);
+            while (tasks.size() > maxPerEntity) {
+                byId.remove(tasks.poll().getId());
+            }
+        }
+    }
+    
+    public ArchivedTask get(String id) {
+        return byId.get(id);
+    }
+    
+    /** archived tasks for the given entity, oldest first */
+    public List<ArchivedTask> getForEntity(String entityId) {
+        Deque<ArchivedTask> tasks = byEntityId.get(entityId);
+        if (tasks==null) return MutableList.of();
+        synchronized (tasks) {
+            return MutableList.copyOf(tasks);
+        }
+    }
+    
+    public void removeEntity(String entityId) {
+        Deque<ArchivedTask> tasks = byEntityId.remove(entityId);
+        if (tasks==null) return;
+        synchronized (tasks) {
+            for (ArchivedTask task: tasks) {
+                byId.remove(task.getId());
+            }
+        }
+    }
+    
+    public int size() {
+        return byId.size();
+    }
+}
@@ -46,8 +46,8 @@ public abstract class ProcessTaskWrapper<RET> extends ProcessTaskStub implements
     private final Task<RET> task;
 
     // execution details
-    protected ByteArrayOutputStream stdout = new ByteArrayOutputStream();
-    protected ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+    protected ByteArrayOutputStream stdout = BrooklynTaskTags.newStreamBuffer();
+    protected ByteArrayOutputStream stderr = BrooklynTaskTags.newStreamBuffer();
     protected Integer exitCode = null;
     
     @SuppressWarnings("unchecked")
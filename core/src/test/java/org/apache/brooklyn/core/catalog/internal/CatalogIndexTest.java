@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.catalog.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry.RegisteredTypeKind;
+import org.apache.brooklyn.api.typereg.OsgiBundleWithUrl;
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.core.typereg.BasicManagedBundle;
+import org.apache.brooklyn.core.typereg.BasicRegisteredType;
+import org.apache.brooklyn.core.typereg.BasicTypeImplementationPlan;
+import org.apache.brooklyn.core.typereg.RegisteredTypes;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.text.Strings;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+
+public class CatalogIndexTest {
+
+    private static final BasicManagedBundle BUNDLE = new BasicManagedBundle("my.bundle", "1.0.0", null, "checksum1");
+
+    private static RegisteredType type(String symbolicName) {
+        return RegisteredTypes.newInstance(RegisteredTypeKind.UNRESOLVED, symbolicName, "1.0.0",
+            new BasicTypeImplementationPlan(null, "services:\n- type: org.example.Entity"),
+            ImmutableList.<Object>of(Entity.class), ImmutableList.of("my-alias"),
+            ImmutableList.<Object>of("a-tag", MutableMap.of("key", "value")),
+            BUNDLE.getVersionedName().toString(),
+            ImmutableList.<OsgiBundleWithUrl>of(new CatalogBundleDto("my.bundle", "1.0.0", null)),
+            "My Type", "A description", null, false, null);
+    }
+
+    @Test
+    public void testRoundTripThroughPersistedString() {
+        RegisteredType type = type("my.type");
+        CatalogIndex index = new CatalogIndex();
+        index.record(BUNDLE, ImmutableList.of(type));
+        assertTrue(index.isDirty());
+        String persisted = index.toPersistedString();
+        assertFalse(index.isDirty());
+
+        CatalogIndex index2 = new CatalogIndex();
+        assertTrue(index2.load(persisted));
+        assertFalse(index2.isDirty());
+        List<RegisteredType> types = index2.lookup(BUNDLE).get();
+        assertEquals(types, ImmutableList.of(type));
+        assertNotSame(types.get(0), type);
+        assertEquals(types.get(0).getSuperTypes(), type.getSuperTypes());
+        assertNotNull(((BasicRegisteredType)types.get(0)).getCache());
+        assertEquals(index2.getHitCount(), 1);
+    }
+
+    @Test
+    public void testDifferentChecksumNotUsed() {
+        CatalogIndex index = new CatalogIndex();
+        index.record(BUNDLE, ImmutableList.of(type("my.type")));
+
+        assertFalse(index.lookup(new BasicManagedBundle("my.bundle", "1.0.0", null, "checksum2")).isPresent());
+        assertFalse(index.lookup(new BasicManagedBundle("my.bundle", "1.0.0", null, null)).isPresent());
+        assertEquals(index.getMissCount(), 2);
+
+        index.remove(BUNDLE.getVersionedName());
+        assertFalse(index.lookup(BUNDLE).isPresent());
+        assertEquals(index.size(), 0);
+    }
+
+    @Test
+    public void testUnusableTypesNotUsed() {
+        CatalogIndex index = new CatalogIndex();
+        index.record(BUNDLE, ImmutableList.of(type("my.type")));
+
+        assertFalse(index.lookup(BUNDLE, Predicates.alwaysFalse()).isPresent());
+        assertEquals(index.getMissCount(), 1);
+        assertEquals(index.getHitCount(), 0);
+        assertTrue(index.lookup(BUNDLE).isPresent());
+        assertEquals(index.getHitCount(), 1);
+    }
+
+    @Test
+    public void testRecordedTypesNotChangedByLaterChanges() {
+        RegisteredType type = type("my.type");
+        CatalogIndex index = new CatalogIndex();
+        index.record(BUNDLE, ImmutableList.of(type));
+        RegisteredTypes.addTag(type, "added-later");
+
+        assertFalse(index.lookup(BUNDLE).get().get(0).getTags().contains("added-later"));
+    }
+
+    @Test
+    public void testLoadKeepsKnownEntries() {
+        CatalogIndex index = new CatalogIndex();
+        index.record(BUNDLE, ImmutableList.of(type("my.type.old")));
+        String persisted = index.toPersistedString();
+
+        CatalogIndex index2 = new CatalogIndex();
+        index2.record(BUNDLE, ImmutableList.of(type("my.type.new")));
+        assertTrue(index2.load(persisted));
+        assertEquals(index2.lookup(BUNDLE).get().get(0).getSymbolicName(), "my.type.new");
+    }
+
+    @Test
+    public void testIgnoresCorruptOrDifferentVersion() {
+        CatalogIndex index = new CatalogIndex();
+        index.record(BUNDLE, ImmutableList.of(type("my.type")));
+        String persisted = index.toPersistedString();
+        String header = Strings.getFirstLine(persisted);
+
+        CatalogIndex index2 = new CatalogIndex();
+        assertFalse(index2.load(persisted.replace("my.type", "my.other")));
+        assertFalse(index2.load(persisted.replace(header, header.replace(CatalogIndex.FORMAT_NAME+"/"+CatalogIndex.FORMAT_VERSION, CatalogIndex.FORMAT_NAME+"/0"))));
+        assertFalse(index2.load("not an index"));
+        assertFalse(index2.load(null));
+        assertEquals(index2.size(), 0);
+    }
+}
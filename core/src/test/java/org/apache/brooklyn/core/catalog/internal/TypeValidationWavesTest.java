@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.catalog.internal;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.core.typereg.BasicTypeImplementationPlan;
+import org.apache.brooklyn.core.typereg.RegisteredTypes;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class TypeValidationWavesTest {
+
+    private static RegisteredType type(String symbolicName, String plan) {
+        return RegisteredTypes.spec(symbolicName, "1.0", new BasicTypeImplementationPlan(null, plan));
+    }
+
+    @Test
+    public void testReferencedTypesInEarlierWaves() {
+        RegisteredType base = type("my.base", "type: org.example.Entity");
+        RegisteredType other = type("my.other", "type: org.example.Other");
+        RegisteredType mid = type("my.mid", "type: my.base");
+        RegisteredType top = type("my.top", "services:\n- type: my.mid:1.0\n- type: my.other");
+
+        List<List<RegisteredType>> waves = TypeValidationWaves.of(ImmutableList.of(top, mid, other, base));
+
+        assertEquals(waves.size(), 3, "waves="+waves);
+        assertEquals(ImmutableSet.copyOf(waves.get(0)), ImmutableSet.of(other, base));
+        assertEquals(waves.get(1), ImmutableList.of(mid));
+        assertEquals(waves.get(2), ImmutableList.of(top));
+    }
+
+    @Test
+    public void testAliasReferences() {
+        RegisteredType base = RegisteredTypes.addAlias(type("my.base", "type: org.example.Entity"), "base-alias");
+        RegisteredType user = type("my.user", "type: base-alias");
+
+        List<List<RegisteredType>> waves = TypeValidationWaves.of(ImmutableList.of(user, base));
+
+        assertEquals(waves, ImmutableList.of(ImmutableList.of(base), ImmutableList.of(user)));
+    }
+
+    @Test
+    public void testCyclesInLastWave() {
+        RegisteredType a = type("my.a", "type: my.b");
+        RegisteredType b = type("my.b", "type: my.a");
+        RegisteredType c = type("my.c", "type: my.b");
+        RegisteredType d = type("my.d", "type: org.example.Entity");
+
+        List<List<RegisteredType>> waves = TypeValidationWaves.of(ImmutableList.of(a, b, c, d));
+
+        assertEquals(waves, ImmutableList.of(ImmutableList.of(d), ImmutableList.of(a, b, c)));
+    }
+
+    @Test
+    public void testSelfReferenceIgnored() {
+        RegisteredType a = type("my.a", "type: org.example.Entity\nname: my.a");
+
+        assertEquals(TypeValidationWaves.of(ImmutableList.of(a)), ImmutableList.of(ImmutableList.of(a)));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.config;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.config.ConfigKey;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.util.core.task.DeferredSupplier;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+public class ConfigResolutionCacheTest extends BrooklynAppUnitTestSupport {
+
+    @Test
+    public void testRepeatedReadsReturnCachedValue() throws Exception {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+
+        // the default is resolved to a new unmodifiable list each time it is not cached
+        @SuppressWarnings("rawtypes")
+        List first = entity.config().get(TestEntity.CONF_LIST_PLAIN);
+        assertSame(entity.config().get(TestEntity.CONF_LIST_PLAIN), first);
+    }
+
+    @Test
+    public void testChangesInvalidateCachedValues() throws Exception {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        TestEntity child = entity.addChild(EntitySpec.create(TestEntity.class));
+        assertEquals(child.config().get(TestEntity.CONF_NAME), "defaultval");
+
+        app.config().set(TestEntity.CONF_NAME, "fromApp");
+        assertEquals(child.config().get(TestEntity.CONF_NAME), "fromApp");
+
+        entity.config().set(TestEntity.CONF_NAME, "fromParent");
+        assertEquals(child.config().get(TestEntity.CONF_NAME), "fromParent");
+
+        child.config().set(TestEntity.CONF_NAME, "local");
+        assertEquals(child.config().get(TestEntity.CONF_NAME), "local");
+
+        child.config().removeKey(TestEntity.CONF_NAME);
+        assertEquals(child.config().get(TestEntity.CONF_NAME), "fromParent");
+
+        entity.config().removeKey(TestEntity.CONF_NAME);
+        assertEquals(child.config().get(TestEntity.CONF_NAME), "fromApp");
+    }
+
+    @Test
+    public void testStructuredSubkeyInvalidatesCachedValue() throws Exception {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        TestEntity child = entity.addChild(EntitySpec.create(TestEntity.class));
+        entity.config().set(TestEntity.CONF_MAP_THING, ImmutableMap.of("a", "1"));
+        assertEquals(child.config().get(TestEntity.CONF_MAP_THING), ImmutableMap.of("a", "1"));
+
+        entity.config().set(TestEntity.CONF_MAP_THING.subKey("b"), "2");
+        assertEquals(child.config().get(TestEntity.CONF_MAP_THING), ImmutableMap.of("a", "1", "b", "2"));
+    }
+
+    @Test
+    public void testDynamicKeyInvalidatesCachedValue() throws Exception {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        ConfigKey<String> key = ConfigKeys.newStringConfigKey("test.dynamic");
+        assertNull(entity.config().get(key));
+
+        entity.getMutableEntityType().addConfigKey(ConfigKeys.newStringConfigKey("test.dynamic", "", "dynamicDefault"));
+        assertEquals(entity.config().get(key), "dynamicDefault");
+    }
+
+    @Test
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void testDeferredValuesNotCached() throws Exception {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        TestEntity child = entity.addChild(EntitySpec.create(TestEntity.class));
+        final AtomicInteger count = new AtomicInteger();
+        DeferredSupplier<String> supplier = new DeferredSupplier<String>() {
+            @Override public String get() {
+                return "v"+count.incrementAndGet();
+            }
+        };
+
+        entity.config().set((ConfigKey)TestEntity.CONF_NAME, supplier);
+        assertEquals(child.config().get(TestEntity.CONF_NAME), "v1");
+        assertEquals(child.config().get(TestEntity.CONF_NAME), "v2");
+
+        entity.config().set((ConfigKey)TestEntity.CONF_LIST_THING, ImmutableList.of(supplier));
+        assertEquals(child.config().get(TestEntity.CONF_LIST_THING), ImmutableList.of("v3"));
+        assertEquals(child.config().get(TestEntity.CONF_LIST_THING), ImmutableList.of("v4"));
+    }
+}
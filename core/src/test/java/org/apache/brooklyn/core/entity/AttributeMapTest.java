@@ -19,11 +19,12 @@
 package org.apache.brooklyn.core.entity;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -32,7 +33,9 @@ import java.util.concurrent.Future;
 import org.apache.brooklyn.api.entity.Application;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.core.sensor.AttributeMap;
+import org.apache.brooklyn.core.sensor.NumericSensorEvent;
 import org.apache.brooklyn.core.sensor.Sensors;
 import org.apache.brooklyn.core.test.entity.TestApplication;
 import org.apache.brooklyn.core.test.entity.TestEntity;
@@ -47,6 +50,7 @@ import org.testng.annotations.Test;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
@@ -64,7 +68,7 @@ public class AttributeMapTest {
         app = TestApplication.Factory.newManagedInstanceForTests();
         TestEntity entity = app.addChild(EntitySpec.create(TestEntity.class));
         entityImpl = (TestEntityImpl) Entities.deproxy(entity);
-        map = new AttributeMap(entityImpl, Collections.synchronizedMap(MutableMap.<Collection<String>,Object>of()));
+        map = new AttributeMap(entityImpl);
         executor = Executors.newCachedThreadPool();
     }
     
@@ -224,6 +228,61 @@ public class AttributeMapTest {
             }});
     }
     
+    @Test
+    public void testNullValuesAndSnapshots() throws Exception {
+        AttributeSensor<String> sensor = Sensors.newStringSensor("a.b", "");
+        AttributeSensor<Integer> otherSensor = Sensors.newIntegerSensor("c", "");
+        
+        map.update(sensor, null);
+        map.update(otherSensor, 1);
+        assertEquals(map.getValue(sensor), null);
+        assertEquals(map.asMap(), MutableMap.of("a.b", null, "c", 1));
+        assertEquals(map.asRawMap().keySet(), ImmutableSet.of(ImmutableList.of("a", "b"), ImmutableList.of("c")));
+        
+        Map<String, Object> snapshot = map.asSnapshot();
+        assertSame(map.asSnapshot(), snapshot);
+        
+        map.update(otherSensor, 2);
+        assertEquals(snapshot.get("c"), 1);
+        assertEquals(map.asSnapshot().get("c"), 2);
+        
+        map.remove(sensor);
+        assertEquals(map.asSnapshot(), MutableMap.of("c", 2));
+    }
+    
+    @Test
+    public void testPrimitiveNumericValues() throws Exception {
+        AttributeSensor<Long> sensor = Sensors.newLongSensor("a", "");
+        AttributeSensor<Double> doubleSensor = Sensors.newDoubleSensor("b", "");
+        
+        final RecordingSensorEventListener<Long> listener = new RecordingSensorEventListener<>();
+        entityImpl.subscriptions().subscribe(entityImpl, sensor, listener);
+        
+        assertEquals(map.getLong(sensor, -1), -1);
+        assertTrue(map.updateLong(sensor, 5));
+        assertTrue(map.updateLong(sensor, 6));
+        assertFalse(map.updateLong(sensor, 6));
+        assertEquals(map.getValue(sensor), Long.valueOf(6));
+        assertEquals(map.getLong(sensor, -1), 6);
+        assertEquals(map.asSnapshot().get("a"), Long.valueOf(6));
+        
+        map.updateDouble(doubleSensor, 1.5);
+        assertEquals(map.getValue(doubleSensor), Double.valueOf(1.5));
+        assertEquals(map.getLong(doubleSensor, -1), 1);
+        
+        // boxed updates replace the primitive value
+        map.update(sensor, 7L);
+        assertEquals(map.getLong(sensor, -1), 7);
+        
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(ImmutableList.copyOf(listener.getEventValues()), ImmutableList.of(5L, 6L, 6L, 7L));
+            }});
+        SensorEvent<Long> event = listener.getEvents().get(0);
+        assertTrue(event instanceof NumericSensorEvent, "event="+event);
+        assertEquals(((NumericSensorEvent<Long>)event).getLongValue(), 5);
+    }
+    
     protected <T> Runnable newUpdateMapRunnable(final AttributeMap map, final AttributeSensor<T> attribute, final T val) {
         return new Runnable() {
             @Override public void run() {
@@ -19,6 +19,8 @@
 package org.apache.brooklyn.core.mgmt.internal;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -35,6 +37,7 @@ import java.util.stream.Collectors;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.mgmt.ExecutionManager;
+import org.apache.brooklyn.api.mgmt.HasTaskChildren;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.EntityInternal;
@@ -50,12 +53,15 @@ import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.task.ArchivedTask;
 import org.apache.brooklyn.util.core.task.BasicExecutionManager;
 import org.apache.brooklyn.util.core.task.ExecutionListener;
 import org.apache.brooklyn.util.core.task.ScheduledTask;
+import org.apache.brooklyn.util.core.task.SequentialTask;
 import org.apache.brooklyn.util.core.task.TaskBuilder;
 import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.javalang.JavaClassNames;
+import org.apache.brooklyn.util.stream.SpillingByteArrayOutputStream;
 import org.apache.brooklyn.util.time.Duration;
 import org.apache.brooklyn.util.time.Time;
 import org.slf4j.Logger;
@@ -203,6 +209,144 @@ public class EntityExecutionManagerTest extends BrooklynAppUnitTestSupport {
         assertTaskMaxCountForEntityEventually(e, 2);
     }
 
+    public void testIncrementalGcAtNormalTagLimit() throws Exception {
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(BrooklynGarbageCollector.INCREMENTAL, true);
+        brooklynProperties.put(BrooklynGarbageCollector.MAX_TASKS_PER_TAG, 2);
+        replaceManagementContext(LocalManagementContextForTests.newInstance(brooklynProperties));
+        setUpApp();
+        TestEntity e = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        final BasicExecutionManager em = (BasicExecutionManager) mgmt.getExecutionManager();
+        final BrooklynGarbageCollector gc = ((LocalManagementContext)mgmt).getGarbageCollector();
+
+        int trackedBefore = gc.getIncrementallyTrackedTaskCount();
+        final List<Task<?>> tasks = MutableList.of();
+        for (int count=0; count<5; count++) {
+            List<Task<?>> children = MutableList.of();
+            for (int i=0; i<2; i++) {
+                children.add(newEmptyTask("child"+count+"-"+i).build());
+            }
+            Task<?> parent = ((EntityInternal)e).getExecutionContext().submit(new SequentialTask<Object>(
+                MutableMap.of("displayName", "task"+count, "tags", MutableList.of(ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "boring-tag")), children));
+            parent.getUnchecked();
+            tasks.add(parent);
+        }
+
+        // applied as tasks complete, without a gc iteration
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(em.getTasksWithTag("boring-tag"), ImmutableSet.of(tasks.get(3), tasks.get(4)));
+            }});
+        for (Task<?> parent: tasks.subList(0, 3)) {
+            for (Task<?> child: ((HasTaskChildren)parent).getChildren()) {
+                assertNull(em.getTask(child.getId()), "child="+child);
+            }
+        }
+        // only the retained parents and their sub-tasks are still tracked, not those deleted
+        int tracked = gc.getIncrementallyTrackedTaskCount() - trackedBefore;
+        assertTrue(tracked >= 2 && tracked <= 6, "tracked="+tracked);
+        
+        forceGc();
+        assertEquals(em.getTasksWithTag("boring-tag"), ImmutableSet.of(tasks.get(3), tasks.get(4)));
+    }
+
+    public void testSpilledStreamKeptForTransientTaskButReleasedWhenRetainedTaskExpires() throws Exception {
+        TestEntity e = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        ((BrooklynProperties)app.getManagementContext().getConfig()).put(
+            BrooklynGarbageCollector.MAX_TASKS_PER_TAG, 1);
+
+        SpillingByteArrayOutputStream transientStream = newSpilledStream();
+        final Task<?> transientTask = runEmptyTaskWithNameAndTags(e, "transient", ManagementContextInternal.TRANSIENT_TASK_TAG,
+            BrooklynTaskTags.tagForStream(BrooklynTaskTags.STREAM_STDOUT, transientStream));
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertNull(mgmt.getExecutionManager().getTask(transientTask.getId()));
+            }});
+        // whoever ran it may still read its output
+        assertFalse(transientStream.isReleased());
+        assertEquals(transientStream.toString(), "hello world");
+
+        SpillingByteArrayOutputStream retainedStream = newSpilledStream();
+        final Task<?> retainedTask = runEmptyTaskWithNameAndTags(e, "retained", ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "boring-tag",
+            BrooklynTaskTags.tagForStream(BrooklynTaskTags.STREAM_STDOUT, retainedStream));
+        runEmptyTaskWithNameAndTags(e, "newer", ManagementContextInternal.NON_TRANSIENT_TASK_TAG, "boring-tag");
+        forceGc();
+        assertNull(mgmt.getExecutionManager().getTask(retainedTask.getId()));
+        assertTrue(retainedStream.isReleased());
+    }
+
+    public void testSpilledStreamReleasedWhenEntityTasksDeleted() throws Exception {
+        TestEntity e = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        SpillingByteArrayOutputStream stream = newSpilledStream();
+        Task<?> task = runEmptyTaskWithNameAndTags(e, "retained", ManagementContextInternal.NON_TRANSIENT_TASK_TAG,
+            BrooklynTaskTags.tagForStream(BrooklynTaskTags.STREAM_STDOUT, stream));
+
+        Entities.unmanage(e);
+        ((LocalManagementContext)mgmt).getGarbageCollector().deleteTasksForEntity(e);
+        assertNull(mgmt.getExecutionManager().getTask(task.getId()));
+        assertTrue(stream.isReleased());
+    }
+
+    private static SpillingByteArrayOutputStream newSpilledStream() throws Exception {
+        SpillingByteArrayOutputStream result = new SpillingByteArrayOutputStream(4);
+        result.write("hello world".getBytes());
+        assertTrue(result.isSpilled());
+        return result;
+    }
+
+    public void testDeletedTaskIsArchived() throws Exception {
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(BasicExecutionManager.MAX_ARCHIVED_TASKS_PER_ENTITY, 2);
+        replaceManagementContext(LocalManagementContextForTests.newInstance(brooklynProperties));
+        setUpApp();
+        TestEntity e = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        BasicExecutionManager em = (BasicExecutionManager) mgmt.getExecutionManager();
+
+        List<Task<?>> tasks = MutableList.of();
+        for (int count=0; count<3; count++) {
+            tasks.add(runEmptyTaskWithNameAndTags(e, "task"+count, ManagementContextInternal.NON_TRANSIENT_TASK_TAG));
+        }
+        for (Task<?> t: tasks) em.deleteTask(t);
+
+        assertNull(em.getTask(tasks.get(2).getId()));
+        ArchivedTask archived = em.getTaskArchive().get(tasks.get(2).getId());
+        assertEquals(archived.getDisplayName(), "task2");
+        assertEquals(archived.getEntityId(), e.getId());
+        assertTrue(archived.getTags().contains(ManagementContextInternal.NON_TRANSIENT_TASK_TAG));
+        // oldest dropped
+        assertNull(em.getTaskArchive().get(tasks.get(0).getId()));
+        assertEquals(em.getTaskArchive().getForEntity(e.getId()).size(), 2);
+        
+        Entities.unmanage(e);
+        ((LocalManagementContext)mgmt).getGarbageCollector().deleteTasksForEntity(e);
+        assertNull(em.getTaskArchive().get(tasks.get(2).getId()));
+    }
+
+    public void testSubTasksAreNotArchived() throws Exception {
+        BrooklynProperties brooklynProperties = BrooklynProperties.Factory.newEmpty();
+        brooklynProperties.put(BasicExecutionManager.MAX_ARCHIVED_TASKS_PER_ENTITY, 2);
+        replaceManagementContext(LocalManagementContextForTests.newInstance(brooklynProperties));
+        setUpApp();
+        TestEntity e = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        BasicExecutionManager em = (BasicExecutionManager) mgmt.getExecutionManager();
+
+        List<Task<?>> children = MutableList.of();
+        for (int count=0; count<3; count++) {
+            children.add(newEmptyTask("child"+count).build());
+        }
+        Task<?> parent = ((EntityInternal)e).getExecutionContext().submit(new SequentialTask<Object>(
+            MutableMap.of("displayName", "parent", "tags", MutableList.of(ManagementContextInternal.NON_TRANSIENT_TASK_TAG)), children));
+        parent.getUnchecked();
+        em.deleteTask(parent);
+
+        assertNull(em.getTask(children.get(0).getId()));
+        assertEquals(em.getTaskArchive().getForEntity(e.getId()).size(), 1);
+        assertEquals(em.getTaskArchive().get(parent.getId()).getDisplayName(), "parent");
+        for (Task<?> child: children) {
+            assertNull(em.getTaskArchive().get(child.getId()));
+        }
+    }
+
     public void testGcTaskAtEntityLimit() throws Exception {
         final TestEntity e = app.createAndManageChild(EntitySpec.create(TestEntity.class));
         
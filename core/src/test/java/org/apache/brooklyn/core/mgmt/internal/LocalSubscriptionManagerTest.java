@@ -19,6 +19,8 @@
 package org.apache.brooklyn.core.mgmt.internal;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import java.util.List;
@@ -33,15 +35,20 @@ import org.apache.brooklyn.api.mgmt.SubscriptionHandle;
 import org.apache.brooklyn.api.mgmt.SubscriptionManager;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
+import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.entity.RecordingSensorEventListener;
 import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.sensor.BasicSensorEvent;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.entity.group.BasicGroup;
 import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.task.BasicExecutionContext;
+import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.time.Duration;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
@@ -49,6 +56,7 @@ import org.testng.annotations.Test;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 /**
  * testing the {@link SubscriptionManager} and associated classes.
@@ -105,6 +113,128 @@ public class LocalSubscriptionManagerTest extends BrooklynAppUnitTestSupport {
         }
     }
     
+    @Test
+    public void testSubscriptionsForEntitySensorTrackSubscribeAndUnsubscribe() throws Exception {
+        SubscriptionManager subs = mgmt.getSubscriptionManager();
+        SensorEventListener<Object> listener = new RecordingSensorEventListener<Object>();
+        
+        SubscriptionHandle specific = subs.subscribe(entity, TestEntity.SEQUENCE, listener);
+        SubscriptionHandle anySensor = subs.subscribe(entity, null, listener);
+        SubscriptionHandle anyProducer = subs.subscribe(null, TestEntity.SEQUENCE, listener);
+        assertEquals(subs.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE), ImmutableSet.of(specific, anySensor, anyProducer));
+        assertEquals(subs.getSubscriptionsForEntitySensor(entity, TestEntity.NAME), ImmutableSet.of(anySensor));
+        assertEquals(subs.getSubscriptionsForEntitySensor(app, TestEntity.SEQUENCE), ImmutableSet.of(anyProducer));
+        
+        SubscriptionHandle anyProducerAnySensor = subs.subscribe(null, null, listener);
+        assertEquals(subs.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE), ImmutableSet.of(specific, anySensor, anyProducer, anyProducerAnySensor));
+        assertEquals(subs.getSubscriptionsForEntitySensor(app, TestEntity.NAME), ImmutableSet.of(anyProducerAnySensor));
+        
+        subs.unsubscribe(anyProducer);
+        subs.unsubscribe(anySensor);
+        assertEquals(subs.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE), ImmutableSet.of(specific, anyProducerAnySensor));
+        
+        subs.unsubscribe(specific);
+        subs.unsubscribe(anyProducerAnySensor);
+        assertEquals(subs.getSubscriptionsForEntitySensor(entity, TestEntity.SEQUENCE), ImmutableSet.of());
+    }
+    
+    @Test
+    public void testCoalescingSubscriptionDeliversOnlyLatestPendingEvent() throws Exception {
+        final CountDownLatch firstEventReceived = new CountDownLatch(1);
+        final CountDownLatch releaseListener = new CountDownLatch(1);
+        final List<Object> values = new CopyOnWriteArrayList<Object>();
+        mgmt.getSubscriptionManager().subscribe(MutableMap.<String,Object>of("coalesce", true), entity, TestEntity.SEQUENCE, new SensorEventListener<Object>() {
+            @Override public void onEvent(SensorEvent<Object> event) {
+                values.add(event.getValue());
+                firstEventReceived.countDown();
+                try {
+                    releaseListener.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }});
+        
+        entity.setSequenceValue(0);
+        assertTrue(firstEventReceived.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        for (int i=1; i<=100; i++) {
+            entity.setSequenceValue(i);
+        }
+        releaseListener.countDown();
+        
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(values, ImmutableList.of(0, 100));
+            }});
+        assertEquals(((LocalSubscriptionManager)mgmt.getSubscriptionManager()).getTotalEventsCoalesced(), 99);
+    }
+    
+    @Test
+    public void testBatchedDeliveryPreservesOrder() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(LocalSubscriptionManager.BATCH_DELIVERY, true);
+        LocalSubscriptionManager subs = new LocalSubscriptionManager(mgmt.getExecutionManager(), props);
+        final List<Object> values = new CopyOnWriteArrayList<Object>();
+        SensorEventListener<Object> listener = new SensorEventListener<Object>() {
+            @Override public void onEvent(SensorEvent<Object> event) {
+                values.add(event.getValue());
+            }};
+        subs.subscribe(MutableMap.<String,Object>of("subscriber", "s1"), entity, TestEntity.SEQUENCE, listener);
+        subs.subscribe(MutableMap.<String,Object>of("subscriber", "s1"), entity, TestEntity.NAME, listener);
+        
+        final List<Object> expected = MutableList.of();
+        for (int i=0; i<1000; i++) {
+            if (i%2==0) {
+                subs.publish(new BasicSensorEvent<Integer>(TestEntity.SEQUENCE, entity, i));
+            } else {
+                subs.publish(new BasicSensorEvent<String>(TestEntity.NAME, entity, ""+i));
+            }
+            expected.add(i%2==0 ? (Object)i : ""+i);
+        }
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(values, expected);
+            }});
+    }
+    
+    @Test
+    public void testBatchedDeliveryWithNullExecutionManagerTag() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(LocalSubscriptionManager.BATCH_DELIVERY, true);
+        LocalSubscriptionManager subs = new LocalSubscriptionManager(mgmt.getExecutionManager(), props);
+        RecordingSensorEventListener<Object> listener = new RecordingSensorEventListener<Object>();
+        subs.subscribe(MutableMap.<String,Object>of("subscriber", "s1", "subscriberExecutionManagerTag", null), entity, TestEntity.SEQUENCE, listener);
+        
+        subs.publish(new BasicSensorEvent<Integer>(TestEntity.SEQUENCE, entity, 1));
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(ImmutableList.copyOf(listener.getEventValues()), ImmutableList.of(1));
+            }});
+    }
+    
+    @Test
+    public void testBatchedDeliveryTaskNotTaggedWithEventSource() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(LocalSubscriptionManager.BATCH_DELIVERY, true);
+        LocalSubscriptionManager subs = new LocalSubscriptionManager(mgmt.getExecutionManager(), props);
+        final TestEntity entity2 = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        final List<Object> tags = new CopyOnWriteArrayList<Object>();
+        SensorEventListener<Object> listener = new SensorEventListener<Object>() {
+            @Override public void onEvent(SensorEvent<Object> event) {
+                tags.addAll(Tasks.current().getTags());
+            }};
+        subs.subscribe(MutableMap.<String,Object>of("subscriber", "s1"), entity, TestEntity.SEQUENCE, listener);
+        subs.subscribe(MutableMap.<String,Object>of("subscriber", "s1"), entity2, TestEntity.SEQUENCE, listener);
+        
+        subs.publish(new BasicSensorEvent<Integer>(TestEntity.SEQUENCE, entity, 1));
+        subs.publish(new BasicSensorEvent<Integer>(TestEntity.SEQUENCE, entity2, 2));
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertTrue(tags.contains(BrooklynTaskTags.SENSOR_TAG), "tags="+tags);
+            }});
+        assertFalse(tags.contains(BrooklynTaskTags.tagForTargetEntity(entity)), "tags="+tags);
+        assertFalse(tags.contains(BrooklynTaskTags.tagForTargetEntity(entity2)), "tags="+tags);
+    }
+    
     @Test
     public void testSubscribeToChildAttributeChange() throws Exception {
         final CountDownLatch latch = new CountDownLatch(1);
@@ -275,4 +405,41 @@ public class LocalSubscriptionManagerTest extends BrooklynAppUnitTestSupport {
         }
         Assert.assertEquals(result.get(), app.getExecutionContext());
     }
+
+    @Test
+    public void testSensorEventMetricsDisabledByDefault() throws Exception {
+        Assert.assertNull(((LocalSubscriptionManager)mgmt.getSubscriptionManager()).getSensorEventMetrics());
+        Assert.assertNull(new LocalSubscriptionManager(mgmt.getExecutionManager()).getSensorEventMetrics());
+    }
+
+    @Test
+    public void testSensorEventMetricsCountPublishesAndDeliveries() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(LocalSubscriptionManager.SENSOR_EVENT_METRICS, true);
+        LocalSubscriptionManager subs = new LocalSubscriptionManager(mgmt.getExecutionManager(), props);
+        RecordingSensorEventListener<Object> listener = new RecordingSensorEventListener<>();
+        subs.subscribe(MutableMap.<String,Object>of("subscriber", "s1"), entity, TestEntity.SEQUENCE, listener);
+        for (int i=0; i<3; i++) {
+            subs.publish(new BasicSensorEvent<Integer>(TestEntity.SEQUENCE, entity, i));
+        }
+        
+        final SensorEventMetrics metrics = subs.getSensorEventMetrics();
+        final SensorEventMetrics.Counters counters = metrics.getCounters(entity, TestEntity.SEQUENCE);
+        Asserts.succeedsEventually(() -> {
+            Assert.assertEquals(counters.getSummary().getDeliveries(), 3);
+        });
+        SensorEventMetrics.Summary summary = counters.getSummary();
+        Assert.assertEquals(summary.getPublishes(), 3);
+        Assert.assertEquals(summary.getEntityType(), entity.getEntityType().getName());
+        Assert.assertEquals(summary.getSensorName(), TestEntity.SEQUENCE.getName());
+        // the type name is cached per class, so the proxy and the real entity share counters
+        Assert.assertSame(metrics.getCounters(Entities.deproxy(entity), TestEntity.SEQUENCE), counters);
+        
+        List<SensorEventMetrics.Summary> top = metrics.getTop(1000, SensorEventMetrics.SortBy.PUBLISHES);
+        Assert.assertFalse(top.isEmpty(), "top="+top);
+        for (int i=1; i<top.size(); i++) {
+            Assert.assertTrue(top.get(i-1).getPublishes() >= top.get(i).getPublishes(), "top="+top);
+        }
+        Asserts.assertSize(metrics.getTop(1, SensorEventMetrics.SortBy.LISTENER_TIME), 1);
+    }
 }
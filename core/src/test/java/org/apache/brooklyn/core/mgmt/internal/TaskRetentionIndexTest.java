@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.internal;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.List;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.task.BasicExecutionContext;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.brooklyn.util.core.task.SequentialTask;
+import org.apache.brooklyn.util.core.task.Tasks;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class TaskRetentionIndexTest {
+
+    private BasicExecutionManager em;
+    private TaskRetentionIndex index;
+    
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() {
+        em = new BasicExecutionManager("mycontext");
+        index = new TaskRetentionIndex(em);
+        index.setLimits(2, 10, 100, Duration.days(30));
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (em != null) em.shutdownNow();
+    }
+    
+    private Task<?> runTask(Object ...tags) throws Exception {
+        Task<?> t = em.submit(MutableMap.of("tags", MutableList.copyOf(tags)), new Runnable() { @Override public void run() {} });
+        t.get();
+        return t;
+    }
+    
+    @Test
+    public void testEvictsOldestOverTagLimit() throws Exception {
+        Task<?> t1 = runTask("A");
+        Task<?> t2 = runTask("A");
+        Task<?> t3 = runTask("A");
+        assertEquals(index.add(t1), ImmutableList.of());
+        assertEquals(index.add(t2), ImmutableList.of());
+        assertEquals(index.add(t3), ImmutableList.of(t1));
+    }
+    
+    @Test
+    public void testKeepsTaskIfOtherTagUnderLimit() throws Exception {
+        Task<?> t1 = runTask("A", "B");
+        Task<?> t2 = runTask("A");
+        Task<?> t3 = runTask("A");
+        Task<?> t4 = runTask("A");
+        index.add(t1);
+        index.add(t2);
+        assertEquals(index.add(t3), ImmutableList.of());
+        // t1 is kept for B, but no longer counts against A
+        assertEquals(index.add(t4), ImmutableList.of(t2));
+    }
+    
+    @Test
+    public void testIgnoresTasksDeletedElsewhere() throws Exception {
+        Task<?> t1 = runTask("A");
+        Task<?> t2 = runTask("A");
+        Task<?> t3 = runTask("A");
+        index.add(t1);
+        index.add(t2);
+        em.deleteTask(t1);
+        assertEquals(index.add(t3), ImmutableList.of());
+    }
+    
+    @Test
+    public void testRemovedTasksNoLongerCount() throws Exception {
+        Task<?> t1 = runTask("A");
+        Task<?> t2 = runTask("A");
+        Task<?> t3 = runTask("A");
+        index.add(t1);
+        index.add(t2);
+        // not at the head of the queue, but reported by the GC when deleted
+        em.deleteTask(t2);
+        index.remove(t2);
+        assertEquals(index.add(t3), ImmutableList.of());
+        assertEquals(index.getGlobalCount(), 2);
+    }
+    
+    @Test
+    public void testRemovingParentRemovesSubTasks() throws Exception {
+        List<Task<?>> children = MutableList.of();
+        for (int i=0; i<3; i++) {
+            children.add(Tasks.<Void>builder().displayName("child"+i).tag("A").body(new Runnable() { @Override public void run() {} }).build());
+        }
+        Task<?> parent = new BasicExecutionContext(em).submit(new SequentialTask<Void>(children));
+        parent.get();
+        index.add(children.get(0));
+        index.add(children.get(1));
+        index.add(parent);
+        // sub-tasks are not counted globally, they go with their parent
+        assertEquals(index.getGlobalCount(), 1);
+        
+        em.deleteTask(parent);
+        index.remove(parent);
+        assertEquals(index.getGlobalCount(), 0);
+        // and no longer count against their tag
+        Task<?> t1 = runTask("A");
+        Task<?> t2 = runTask("A");
+        assertEquals(index.add(t1), ImmutableList.of());
+        assertEquals(index.add(t2), ImmutableList.of());
+    }
+    
+    @Test
+    public void testSubTasksWithoutLimitedTagsNotTracked() throws Exception {
+        List<Task<?>> children = MutableList.of();
+        for (int i=0; i<3; i++) {
+            children.add(Tasks.<Void>builder().displayName("child"+i).body(new Runnable() { @Override public void run() {} }).build());
+        }
+        Task<?> parent = new BasicExecutionContext(em).submit(new SequentialTask<Void>(children));
+        parent.get();
+        for (Task<?> child: children) {
+            index.add(child);
+        }
+        assertEquals(index.getTrackedCount(), 0);
+        
+        index.add(parent);
+        assertEquals(index.getTrackedCount(), 1);
+        em.deleteTask(parent);
+        index.remove(parent);
+        assertEquals(index.getTrackedCount(), 0);
+    }
+    
+    @Test
+    public void testGlobalLimitAndAge() throws Exception {
+        index.setLimits(10, 10, 2, Duration.ONE_SECOND);
+        Task<?> t1 = runTask();
+        Task<?> t2 = runTask();
+        Task<?> t3 = runTask();
+        index.add(t1);
+        index.add(t2);
+        assertEquals(index.add(t3), ImmutableList.of(t1));
+        assertEquals(index.getGlobalCount(), 2);
+        
+        assertEquals(index.expire(System.currentTimeMillis()), ImmutableList.of());
+        assertEquals(index.expire(System.currentTimeMillis() + Duration.ONE_MINUTE.toMilliseconds()), ImmutableList.of(t2, t3));
+        assertEquals(index.getGlobalCount(), 0);
+    }
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.brooklyn.core.mgmt.persist;
 
+import java.util.Map;
+
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.mgmt.persist.ListeningObjectStore.RecordingTransactionListener;
@@ -87,6 +89,23 @@ public class BrooklynMementoPersisterInMemorySizeIntegrationTest extends Brookly
         doTestPersistenceVolume(false, false);
     }
     
+    @Test
+    public void testUnchangedEntityNotRewritten() throws Exception {
+        localManagementContext.getRebindManager().forcePersistNow(false, null);
+        int filesOut1 = recorder.getCountDataOut();
+        
+        // change notification, but nothing persisted has changed
+        localManagementContext.getRebindManager().getChangeListener().onChanged(entity);
+        localManagementContext.getRebindManager().forcePersistNow(false, null);
+        Assert.assertEquals(recorder.getCountDataOut(), filesOut1);
+        Map<?,?> persistMetrics = (Map<?,?>) localManagementContext.getRebindManager().getMetrics().get("persist");
+        Assert.assertTrue(((Number)persistMetrics.get("suppressedWriteCount")).longValue() > 0, "metrics="+persistMetrics);
+        
+        ((EntityInternal)entity).sensors().set(TestEntity.NAME, "changed");
+        localManagementContext.getRebindManager().forcePersistNow(false, null);
+        Assert.assertEquals(recorder.getCountDataOut(), filesOut1+1);
+    }
+    
     protected void doTestPersistenceVolume(boolean forceDelay, boolean canTrigger) throws Exception {
         if (forceDelay) Time.sleep(Duration.FIVE_SECONDS);
         else recorder.blockUntilDataWrittenExceeds(512, Duration.FIVE_SECONDS);
@@ -20,14 +20,19 @@ package org.apache.brooklyn.core.mgmt.persist;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
 import org.apache.brooklyn.core.entity.Entities;
 import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.io.FileUtil;
 import org.apache.brooklyn.util.os.Os;
 import org.testng.annotations.AfterMethod;
@@ -69,6 +74,26 @@ public class FileBasedObjectStoreTest {
         assertFilePermission700(subdir);
     }
     
+    @Test
+    public void testPutManyAndGetMany() throws Exception {
+        store.createSubPath("entities");
+        Map<String, String> contents = MutableMap.of();
+        for (int i = 0; i < 50; i++) {
+            contents.put("entities/e"+i, "val"+i);
+        }
+        store.putMany(contents);
+        assertEquals(store.newAccessor("entities/e7").get(), "val7");
+        
+        List<String> paths = MutableList.copyOf(contents.keySet());
+        paths.add("entities/doesNotExist");
+        Map<String, String> result = store.getMany(paths);
+        assertEquals(result.size(), 51);
+        assertNull(result.get("entities/doesNotExist"));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(result.get("entities/e"+i), "val"+i);
+        }
+    }
+    
     @Test
     public void testIsMementoDirExistsButEmpty() throws Exception {
         basedir = new File(parentdir, "testIsMementoDirExistsButEmpty");
@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.persist;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.StoreObjectAccessor;
+import org.apache.brooklyn.core.server.BrooklynServerConfig;
+import org.apache.brooklyn.core.test.entity.LocalManagementContextForTests;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.apache.brooklyn.util.os.Os;
+import org.apache.brooklyn.util.text.Strings;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class LogStructuredObjectStoreTest {
+
+    private LocalManagementContextForTests mgmt;
+    private File basedir;
+    private List<LogStructuredObjectStore> stores;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(LogStructuredObjectStore.SEGMENT_MAX_BYTES, 1024L);
+        props.put(LogStructuredObjectStore.COMPACTION_MIN_BYTES, 4096L);
+        mgmt = new LocalManagementContextForTests(props);
+        basedir = Os.newTempDir(getClass());
+        stores = MutableList.of();
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        for (LogStructuredObjectStore store : stores) {
+            store.close();
+        }
+        if (basedir != null) Os.deleteRecursively(basedir);
+        if (mgmt != null) Entities.destroyAll(mgmt);
+    }
+
+    private LogStructuredObjectStore newStore() {
+        LogStructuredObjectStore store = new LogStructuredObjectStore(basedir);
+        store.injectManagementContext(mgmt);
+        store.prepareForSharedUse(PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+        stores.add(store);
+        return store;
+    }
+
+    @Test
+    public void testOnlyMainPersistenceStoreUsesLog() throws Exception {
+        mgmt.getBrooklynProperties().put(BrooklynServerConfig.PERSISTENCE_LOG_ENABLED, true);
+        File backupDir = Os.newTempDir(getClass());
+        try {
+            PersistenceObjectStore main = BrooklynPersistenceUtils.newMainPersistenceObjectStore(mgmt, null, basedir.getAbsolutePath(),
+                PersistMode.AUTO, HighAvailabilityMode.DISABLED);
+            assertTrue(main instanceof LogStructuredObjectStore, "store="+main);
+            stores.add((LogStructuredObjectStore) main);
+            
+            // e.g. backups and exports
+            PersistenceObjectStore other = BrooklynPersistenceUtils.newPersistenceObjectStore(mgmt, null, backupDir.getAbsolutePath());
+            assertTrue(other instanceof FileBasedObjectStore, "store="+other);
+        } finally {
+            Os.deleteRecursively(backupDir);
+        }
+    }
+
+    @Test
+    public void testPutGetListDelete() throws Exception {
+        LogStructuredObjectStore store = newStore();
+        store.createSubPath("entities");
+        StoreObjectAccessor a = store.newAccessor("entities/a");
+        StoreObjectAccessor b = store.newAccessor("/entities/b");
+
+        assertFalse(a.exists());
+        assertNull(a.get());
+        a.put("val-a");
+        b.put("val-b");
+        b.append("-more");
+        assertEquals(a.get(), "val-a");
+        assertEquals(b.get(), "val-b-more");
+        assertEquals(ImmutableSet.copyOf(store.listContentsWithSubPath("entities")), ImmutableSet.of("entities/a", "entities/b"));
+
+        a.put("val-a2");
+        b.delete();
+        assertEquals(a.get(), "val-a2");
+        assertFalse(b.exists());
+        assertEquals(store.listContentsWithSubPath("entities"), MutableList.of("entities/a"));
+
+        // not kept in the log
+        assertFalse(new File(basedir, "entities").exists());
+    }
+
+    @Test
+    public void testReplaysOnReload() throws Exception {
+        LogStructuredObjectStore store = newStore();
+        for (int i = 0; i < 50; i++) {
+            store.newAccessor("entities/e"+(i%10)).put("val"+i);
+        }
+        store.newAccessor("entities/e0").delete();
+        store.close();
+
+        LogStructuredObjectStore store2 = newStore();
+        assertEquals(store2.listContentsWithSubPath("entities").size(), 9);
+        assertFalse(store2.newAccessor("entities/e0").exists());
+        for (int i = 1; i < 10; i++) {
+            assertEquals(store2.newAccessor("entities/e"+i).get(), "val"+(40+i));
+        }
+    }
+
+    @Test
+    public void testIgnoresIncompleteRecord() throws Exception {
+        LogStructuredObjectStore store = newStore();
+        store.newAccessor("entities/a").put("val-a");
+        store.newAccessor("entities/b").put("val-b");
+        store.close();
+
+        // truncate the last record, as if a crash happened while writing
+        File segment = new File(basedir, "log-0.wal");
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.setLength(raf.length()-3);
+        }
+
+        LogStructuredObjectStore store2 = newStore();
+        assertEquals(store2.newAccessor("entities/a").get(), "val-a");
+        assertFalse(store2.newAccessor("entities/b").exists());
+
+        // and writes continue in a new segment
+        store2.newAccessor("entities/b").put("val-b2");
+        store2.close();
+        assertEquals(newStore().newAccessor("entities/b").get(), "val-b2");
+    }
+
+    @Test
+    public void testCompactsIntoSnapshot() throws Exception {
+        LogStructuredObjectStore store = newStore();
+        String padding = Strings.repeat("x", 100);
+        for (int i = 0; i < 200; i++) {
+            store.newAccessor("entities/e"+(i%5)).put("val"+i+padding);
+        }
+        store.close();
+
+        File[] snapshots = basedir.listFiles((dir, name) -> name.startsWith("snapshot-"));
+        assertEquals(snapshots.length, 1, "snapshots="+ImmutableSet.copyOf(snapshots));
+        // segments before the snapshot deleted
+        long logBytes = 0;
+        for (File f : basedir.listFiles((dir, name) -> name.endsWith(".wal"))) {
+            logBytes += f.length();
+        }
+        assertTrue(logBytes < 200*100, "logBytes="+logBytes);
+
+        LogStructuredObjectStore store2 = newStore();
+        assertEquals(store2.listContentsWithSubPath("entities").size(), 5);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(store2.newAccessor("entities/e"+i).get(), "val"+(195+i)+padding);
+        }
+    }
+
+    @Test
+    public void testConcurrentWrites() throws Exception {
+        final LogStructuredObjectStore store = newStore();
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(8));
+        try {
+            List<Future<?>> futures = MutableList.of();
+            for (int i = 0; i < 100; i++) {
+                final int id = i;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override public Void call() {
+                        store.newAccessor("locations/l"+id).put("val"+id);
+                        return null;
+                    }}));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        store.close();
+
+        LogStructuredObjectStore store2 = newStore();
+        assertEquals(store2.listContentsWithSubPath("locations").size(), 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(store2.newAccessor("locations/l"+i).get(), "val"+i);
+        }
+    }
+
+    @Test
+    public void testImportsFileBasedState() throws Exception {
+        File entitiesDir = new File(basedir, "entities");
+        entitiesDir.mkdirs();
+        Files.asCharSink(new File(entitiesDir, "a"), Charsets.UTF_8).write("val-a");
+        Files.asCharSink(new File(entitiesDir, "b"), Charsets.UTF_8).write("val-b");
+
+        LogStructuredObjectStore store = newStore();
+        assertEquals(ImmutableSet.copyOf(store.listContentsWithSubPath("entities")), ImmutableSet.of("entities/a", "entities/b"));
+        assertEquals(store.newAccessor("entities/a").get(), "val-a");
+
+        store.newAccessor("entities/b").delete();
+        store.close();
+        // file not touched until compacted
+        assertTrue(new File(entitiesDir, "b").exists());
+
+        LogStructuredObjectStore store2 = newStore();
+        assertEquals(store2.listContentsWithSubPath("entities"), MutableList.of("entities/a"));
+    }
+
+    @Test
+    public void testNonMementoPathsUseFiles() throws Exception {
+        LogStructuredObjectStore store = newStore();
+        store.createSubPath("nodes");
+        store.newAccessor("nodes/node1").put("val1");
+        store.newAccessor("planeId").put("myplane");
+
+        assertEquals(Files.asCharSource(new File(basedir, "nodes/node1"), Charsets.UTF_8).read(), "val1");
+        assertEquals(store.listContentsWithSubPath("nodes"), MutableList.of("nodes/node1"));
+        assertEquals(store.newAccessor("planeId").get(), "myplane");
+    }
+
+    @Test
+    public void testFollowsLogOfWriter() throws Exception {
+        LogStructuredObjectStore writer = newStore();
+        writer.newAccessor("entities/a").put("val-a");
+
+        LogStructuredObjectStore reader = newStore();
+        assertEquals(reader.newAccessor("entities/a").get(), "val-a");
+
+        writer.newAccessor("entities/b").put("val-b");
+        writer.newAccessor("entities/a").delete();
+        assertEquals(reader.listContentsWithSubPath("entities"), MutableList.of("entities/b"));
+        assertEquals(reader.newAccessor("entities/b").get(), "val-b");
+    }
+}
@@ -18,16 +18,21 @@
 */
 package org.apache.brooklyn.core.mgmt.persist;
 
-import java.io.StringWriter;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.brooklyn.api.catalog.CatalogItem;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.location.Location;
 import org.apache.brooklyn.api.mgmt.rebind.mementos.Memento;
+import org.apache.brooklyn.api.policy.Policy;
 import org.apache.brooklyn.api.policy.PolicySpec;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.api.sensor.Enricher;
 import org.apache.brooklyn.api.sensor.EnricherSpec;
+import org.apache.brooklyn.api.sensor.Feed;
+import org.apache.brooklyn.api.typereg.ManagedBundle;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
 import org.apache.brooklyn.core.entity.Entities;
@@ -49,6 +54,7 @@ import com.google.common.collect.Maps;
 public class XmlMementoSerializerPerformanceTest extends AbstractPerformanceTest {
 
     private XmlMementoSerializer<Object> serializer;
+    private BinaryMementoSerializer<Object> binarySerializer;
     
     @BeforeMethod(alwaysRun=true)
     @Override
@@ -56,56 +62,94 @@ public class XmlMementoSerializerPerformanceTest extends AbstractPerformanceTest
         super.setUp();
 
         serializer = new XmlMementoSerializer<Object>(XmlMementoSerializerPerformanceTest.class.getClassLoader());
+        binarySerializer = new BinaryMementoSerializer<Object>(XmlMementoSerializerPerformanceTest.class.getClassLoader());
     }
 
     protected int numIterations() {
         return 1000;
     }
     
-     @Test(groups={"Live", "Acceptance"})
-     public void testSerializeEntityMemento() throws Exception {
-         int numIterations = numIterations();
-         double minRatePerSec = 10 * PERFORMANCE_EXPECTATION;
-
-         // Create an entity with lots of config/parameters, and sensors
-         Map<ConfigKey<?>, String> config = Maps.newLinkedHashMap();
-         List<BasicSpecParameter<?>> params = Lists.newArrayList();
-         for (int i = 0; i < 100; i++) {
-             ConfigKey<String> key = ConfigKeys.newStringConfigKey("myparam"+i);
-             params.add(new BasicSpecParameter<String>("mylabel"+i, false, key));
-             config.put(key, "val"+i);
-         }
-         Entity entity = app.addChild(EntitySpec.create(TestEntity.class)
-                 .configure(TestEntity.CONF_NAME, "myname")
-                 .configure(config)
-                 .parametersAdd(params)
-                 .tags(ImmutableList.<Object>of("tag1", "tag2"))
-                 .enricher(EnricherSpec.create(TestEnricher.class))
-                 .policy(PolicySpec.create(TestPolicy.class)));
-         
-         for (int i = 0; i < 100; i++) {
-             AttributeSensor<String> sensor = Sensors.newStringSensor("mysensor"+i);
-             entity.sensors().set(sensor, "valsensor"+i);
-         }
-
-         // Create the memento for that entity (only once)
-         final Memento memento = MementosGenerators.newBasicMemento(Entities.deproxy(entity));
-         int serializedLength = serializeToString(memento).length();
-
-         // Run the performance test
-         measure(PerformanceTestDescriptor.create()
-                 .summary("mementoSerializer.serializeEntityMemento(size="+serializedLength+"chars)")
-                 .iterations(numIterations)
-                 .minAcceptablePerSecond(minRatePerSec)
-                 .job(new Runnable() {
-                     @Override public void run() {
-                         serializeToString(memento);
-                     }}));
-     }
-     
-     private String serializeToString(Object val) {
-         StringWriter writer = new StringWriter();
-         serializer.serialize(val, writer);
-         return writer.toString();
-     }
+    @Test(groups={"Live", "Acceptance"})
+    public void testSerializeEntityMemento() throws Exception {
+        runSerializeEntityMemento(serializer, "mementoSerializer");
+    }
+
+    @Test(groups={"Live", "Acceptance"})
+    public void testSerializeEntityMementoBinary() throws Exception {
+        runSerializeEntityMemento(binarySerializer, "binaryMementoSerializer");
+    }
+
+    @Test(groups={"Live", "Acceptance"})
+    public void testDeserializeEntityMemento() throws Exception {
+        runDeserializeEntityMemento(serializer, "mementoSerializer");
+    }
+
+    @Test(groups={"Live", "Acceptance"})
+    public void testDeserializeEntityMementoBinary() throws Exception {
+        runDeserializeEntityMemento(binarySerializer, "binaryMementoSerializer");
+    }
+
+    protected void runSerializeEntityMemento(final XmlMementoSerializer<Object> serializer, String name) throws Exception {
+        int numIterations = numIterations();
+        double minRatePerSec = 10 * PERFORMANCE_EXPECTATION;
+
+        // Create the memento (only once)
+        final Memento memento = newEntityMemento();
+        int serializedLength = serializer.toString(memento).length();
+
+        // Run the performance test
+        measure(PerformanceTestDescriptor.create()
+                .summary(name+".serializeEntityMemento(size="+serializedLength+"chars)")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        serializer.toString(memento);
+                    }}));
+    }
+
+    protected void runDeserializeEntityMemento(final XmlMementoSerializer<Object> serializer, String name) throws Exception {
+        int numIterations = numIterations();
+        double minRatePerSec = 10 * PERFORMANCE_EXPECTATION;
+
+        final String serializedForm = serializer.toString(newEntityMemento());
+        serializer.setLookupContext(new XmlMementoSerializerTest.LookupContextImpl("perf test", mgmt,
+                ImmutableList.<Entity>of(), ImmutableList.<Location>of(), ImmutableList.<Policy>of(),
+                ImmutableList.<Enricher>of(), ImmutableList.<Feed>of(), ImmutableList.<CatalogItem<?, ?>>of(),
+                ImmutableList.<ManagedBundle>of(), false));
+
+        measure(PerformanceTestDescriptor.create()
+                .summary(name+".deserializeEntityMemento(size="+serializedForm.length()+"chars)")
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override public void run() {
+                        serializer.fromString(serializedForm);
+                    }}));
+    }
+
+    /** creates the memento of an entity with lots of config/parameters, and sensors */
+    protected Memento newEntityMemento() {
+        Map<ConfigKey<?>, String> config = Maps.newLinkedHashMap();
+        List<BasicSpecParameter<?>> params = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            ConfigKey<String> key = ConfigKeys.newStringConfigKey("myparam"+i);
+            params.add(new BasicSpecParameter<String>("mylabel"+i, false, key));
+            config.put(key, "val"+i);
+        }
+        Entity entity = app.addChild(EntitySpec.create(TestEntity.class)
+                .configure(TestEntity.CONF_NAME, "myname")
+                .configure(config)
+                .parametersAdd(params)
+                .tags(ImmutableList.<Object>of("tag1", "tag2"))
+                .enricher(EnricherSpec.create(TestEnricher.class))
+                .policy(PolicySpec.create(TestPolicy.class)));
+
+        for (int i = 0; i < 100; i++) {
+            AttributeSensor<String> sensor = Sensors.newStringSensor("mysensor"+i);
+            entity.sensors().set(sensor, "valsensor"+i);
+        }
+
+        return MementosGenerators.newBasicMemento(Entities.deproxy(entity));
+    }
 }
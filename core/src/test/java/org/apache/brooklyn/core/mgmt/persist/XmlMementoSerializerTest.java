@@ -302,6 +302,40 @@ public class XmlMementoSerializerTest {
         }
     }
 
+    @Test
+    public void testBinaryFormat() throws Exception {
+        serializer = new BinaryMementoSerializer<Object>(XmlMementoSerializerTest.class.getClassLoader());
+        Map<String, Object> obj = MutableMap.<String, Object>of("a", "myval", "b", ImmutableList.of(1, 2L, "three"), "c", UserAndHostAndPort.fromParts("myuser", "myhost", 1234));
+        String binaryForm = serializer.toString(obj);
+        Assert.assertTrue(BinaryMementoFormat.isBinary(binaryForm), binaryForm);
+        assertEquals(serializer.fromString(binaryForm), obj);
+
+        // either serializer reads either format
+        XmlMementoSerializer<Object> xmlSerializer = new XmlMementoSerializer<Object>(XmlMementoSerializerTest.class.getClassLoader());
+        String xmlForm = xmlSerializer.toString(obj);
+        assertEquals(xmlSerializer.fromString(binaryForm), obj);
+        assertEquals(serializer.fromString(xmlForm), obj);
+
+        // conversion is lossless in both directions
+        assertEquals(BinaryMementoFormat.toXml(binaryForm), xmlForm);
+        assertEquals(BinaryMementoFormat.toBinary(xmlForm), binaryForm);
+        assertEquals(BinaryMementoFormat.toXml(BinaryMementoFormat.toBinary(xmlForm)), xmlForm);
+    }
+
+    @Test
+    public void testBinaryFormatEntity() throws Exception {
+        serializer = new BinaryMementoSerializer<Object>(XmlMementoSerializerTest.class.getClassLoader());
+        final TestApplication app = TestApplication.Factory.newManagedInstanceForTests();
+        ManagementContext managementContext = app.getManagementContext();
+        try {
+            serializer.setLookupContext(newEmptyLookupManagementContext(managementContext, true).add(app));
+            assertSerializeAndDeserialize(app);
+            assertSerializeAndDeserialize(MutableList.of(app, "val"));
+        } finally {
+            Entities.destroyAll(managementContext);
+        }
+    }
+
     private LookupContextImpl newEmptyLookupManagementContext(ManagementContext managementContext, boolean failOnDangling) {
         return new LookupContextImpl("empty context for test", managementContext,
                 ImmutableList.<Entity>of(), ImmutableList.<Location>of(), ImmutableList.<Policy>of(),
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.rebind;
+
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.time.Duration;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class RebindMaxStalenessTest extends RebindTestFixtureWithApp {
+
+    @Override
+    protected int getPersistPeriodMillis() {
+        // long enough that nothing is written by the periodic persist during the test
+        return 60*1000;
+    }
+
+    @Override
+    protected BrooklynProperties createBrooklynProperties() {
+        BrooklynProperties result = super.createBrooklynProperties();
+        result.put(RebindManagerImpl.PERSISTENCE_MAX_STALENESS, Duration.millis(200));
+        return result;
+    }
+
+    @Test
+    public void testPersistsBeforePeriodWhenChangesWouldBeStale() throws Exception {
+        origApp.sensors().set(TestEntity.NAME, "myname");
+        final File appFile = new File(new File(mementoDir, "entities"), origApp.getId());
+
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                try {
+                    assertTrue(appFile.exists() && Files.asCharSource(appFile, Charsets.UTF_8).read().contains("myname"));
+                } catch (Exception e) {
+                    throw Asserts.fail(e);
+                }
+            }});
+
+        Map<?,?> persistMetrics = (Map<?,?>) origManagementContext.getRebindManager().getMetrics().get("persist");
+        assertNotNull(persistMetrics.get("lastCheckpointLag"), "metrics="+persistMetrics);
+        assertTrue(((Number)persistMetrics.get("maxCheckpointLag")).longValue() < getPersistPeriodMillis(), "metrics="+persistMetrics);
+    }
+}
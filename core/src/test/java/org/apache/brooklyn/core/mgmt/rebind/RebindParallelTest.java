@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.rebind;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+import java.util.List;
+
+import org.apache.brooklyn.api.entity.Entity;
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.location.Location;
+import org.apache.brooklyn.api.location.LocationSpec;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.location.SimulatedLocation;
+import org.apache.brooklyn.core.test.entity.TestApplication;
+import org.apache.brooklyn.core.test.entity.TestApplicationNoEnrichersImpl;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+public class RebindParallelTest extends RebindTestFixtureWithApp {
+
+    @Override
+    protected BrooklynProperties createBrooklynProperties() {
+        BrooklynProperties result = super.createBrooklynProperties();
+        result.put(RebindManagerImpl.REBIND_PARALLELISM, 4);
+        return result;
+    }
+
+    @Test
+    public void testRebindsManyApplicationsInParallel() throws Exception {
+        List<TestApplication> origApps = MutableList.of(origApp);
+        for (int i = 0; i < 5; i++) {
+            origApps.add(origManagementContext.getEntityManager().createEntity(
+                    EntitySpec.create(TestApplication.class, TestApplicationNoEnrichersImpl.class)));
+        }
+        List<TestEntity> origGrandchildren = MutableList.of();
+        for (TestApplication app : origApps) {
+            Location loc = origManagementContext.getLocationManager().createLocation(LocationSpec.create(SimulatedLocation.class));
+            Location childLoc = origManagementContext.getLocationManager().createLocation(LocationSpec.create(SimulatedLocation.class).parent(loc));
+            ((EntityInternal)app).addLocations(ImmutableList.of(childLoc));
+            for (int j = 0; j < 3; j++) {
+                TestEntity child = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+                TestEntity grandchild = child.addChild(EntitySpec.create(TestEntity.class));
+                grandchild.sensors().set(TestEntity.NAME, app.getId()+"-"+j);
+                origGrandchildren.add(grandchild);
+            }
+        }
+
+        rebind();
+
+        assertEquals(newManagementContext.getApplications().size(), origApps.size());
+        for (TestApplication origApp : origApps) {
+            Entity newApp = newManagementContext.getEntityManager().getEntity(origApp.getId());
+            assertNotNull(newApp, "app "+origApp);
+            assertEquals(newApp.getChildren().size(), 3);
+            Location newLoc = Iterables.getOnlyElement(newApp.getLocations());
+            assertEquals(newLoc.getParent().getId(), Iterables.getOnlyElement(origApp.getLocations()).getParent().getId());
+        }
+        for (TestEntity origGrandchild : origGrandchildren) {
+            Entity newGrandchild = newManagementContext.getEntityManager().getEntity(origGrandchild.getId());
+            assertNotNull(newGrandchild, "entity "+origGrandchild);
+            assertEquals(newGrandchild.getParent().getId(), origGrandchild.getParent().getId());
+            assertEquals(newGrandchild.getApplicationId(), origGrandchild.getApplicationId());
+            assertEquals(newGrandchild.sensors().get(TestEntity.NAME), origGrandchild.sensors().get(TestEntity.NAME));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.mgmt.rebind.dto;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.mgmt.rebind.mementos.EntityMemento;
+import org.apache.brooklyn.api.sensor.AttributeSensor;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.entity.EntityRelations;
+import org.apache.brooklyn.core.sensor.Sensors;
+import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+public class EntityMementoSectionsTest extends BrooklynAppUnitTestSupport {
+
+    private static final AttributeSensor<Object> NAMES = Sensors.newSensor(Object.class, "test.names");
+
+    private EntityMemento memento(TestEntity entity) {
+        return ((EntityInternal)entity).getRebindSupport().getMemento();
+    }
+
+    private long reusedCount(TestEntity entity) {
+        return ((EntityInternal)entity).getManagementSupport().getMementoSections().getReusedCount();
+    }
+
+    @Test
+    public void testUnchangedSectionsReused() throws Exception {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        memento(entity);
+        long reused = reusedCount(entity);
+
+        entity.sensors().set(TestEntity.NAME, "changed");
+        EntityMemento memento = memento(entity);
+
+        assertEquals(memento.getAttributes().get(TestEntity.NAME), "changed");
+        // config, tags and relations
+        assertEquals(reusedCount(entity) - reused, 3);
+    }
+
+    @Test
+    public void testChangesToEachSectionIncluded() throws Exception {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        TestEntity other = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        memento(entity);
+
+        entity.sensors().set(TestEntity.SEQUENCE, 1);
+        assertEquals(memento(entity).getAttributes().get(TestEntity.SEQUENCE), 1);
+
+        entity.config().set(TestEntity.CONF_NAME, "myname");
+        assertEquals(memento(entity).getConfig().get(TestEntity.CONF_NAME), "myname");
+
+        // not notified to the change listener
+        entity.config().removeKey(TestEntity.CONF_NAME);
+        assertFalse(memento(entity).getConfig().containsKey(TestEntity.CONF_NAME));
+
+        entity.tags().addTag("mytag");
+        Collection<Object> tags = memento(entity).getTags();
+        assertTrue(tags.contains("mytag"), "tags="+tags);
+
+        entity.relations().add(EntityRelations.HAS_TARGET, other);
+        assertEquals(memento(entity).getRelations().get(EntityRelations.HAS_TARGET.getRelationshipTypeName()), ImmutableSet.of(other.getId()));
+        assertEquals(memento(other).getRelations().get(EntityRelations.TARGETTED_BY.getRelationshipTypeName()), ImmutableSet.of(entity.getId()));
+    }
+
+    @Test
+    public void testValueModifiedInPlaceIncluded() throws Exception {
+        TestEntity entity = app.createAndManageChild(EntitySpec.create(TestEntity.class));
+        List<String> names = Lists.newArrayList();
+        entity.sensors().set(NAMES, names);
+        memento(entity);
+
+        // the memento refers to the value, so is serialized as it is when written
+        names.add("a");
+        assertEquals(memento(entity).getAttributes().get(NAMES), names);
+    }
+}
@@ -27,9 +27,15 @@ import org.apache.brooklyn.api.entity.EntitySpec;
 import org.apache.brooklyn.api.mgmt.SubscriptionManager;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.api.sensor.SensorEventListener;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.internal.LocalSubscriptionManager;
+import org.apache.brooklyn.core.sensor.BasicSensorEvent;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -38,6 +44,8 @@ import com.google.common.collect.Lists;
 
 public class SubscriptionPerformanceTest extends AbstractPerformanceTest {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SubscriptionPerformanceTest.class);
+
     private static final int NUM_ITERATIONS = 10000;
     
     TestEntity entity;
@@ -122,6 +130,51 @@ public class SubscriptionPerformanceTest extends AbstractPerformanceTest {
                 .completionLatch(completionLatch));
     }
     
+    @Test(groups={"Integration", "Acceptance"})
+    public void testManyPublishedOneSubscriberUnbatched() throws Exception {
+        runManyPublishedOneSubscriberDirect("testManyPublishedOneSubscriberUnbatched", false);
+    }
+    
+    @Test(groups={"Integration", "Acceptance"})
+    public void testManyPublishedOneSubscriberBatched() throws Exception {
+        runManyPublishedOneSubscriberDirect("testManyPublishedOneSubscriberBatched", true);
+    }
+    
+    /** publishes directly to a dedicated {@link LocalSubscriptionManager}, so batched and unbatched delivery can be compared */
+    protected void runManyPublishedOneSubscriberDirect(String testName, boolean batchDelivery) throws Exception {
+        int numIterations = NUM_ITERATIONS;
+        double minRatePerSec = 100 * PERFORMANCE_EXPECTATION;
+        final AtomicInteger iter = new AtomicInteger();
+        final int expectedCount = numIterations;
+        
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(LocalSubscriptionManager.BATCH_DELIVERY, batchDelivery);
+        final LocalSubscriptionManager subs = new LocalSubscriptionManager(mgmt.getExecutionManager(), props);
+        
+        final AtomicInteger listenerCount = new AtomicInteger();
+        final CountDownLatch completionLatch = new CountDownLatch(1);
+        subs.subscribe(MutableMap.<String, Object>of("subscriber", "perf-subscriber"), entity, TestEntity.SEQUENCE, new SensorEventListener<Integer>() {
+            @Override
+            public void onEvent(SensorEvent<Integer> event) {
+                int count = listenerCount.incrementAndGet();
+                if (count >= expectedCount) completionLatch.countDown();
+            }});
+        
+        long tasksBefore = ((BasicExecutionManager)mgmt.getExecutionManager()).getTotalTasksSubmitted();
+        measure(PerformanceTestDescriptor.create()
+                .summary("SubscriptionPerformanceTest."+testName)
+                .iterations(numIterations)
+                .minAcceptablePerSecond(minRatePerSec)
+                .job(new Runnable() {
+                    @Override
+                    public void run() {
+                        subs.publish(new BasicSensorEvent<Integer>(TestEntity.SEQUENCE, entity, iter.getAndIncrement()));
+                    }})
+                .completionLatch(completionLatch));
+        long tasks = ((BasicExecutionManager)mgmt.getExecutionManager()).getTotalTasksSubmitted() - tasksBefore;
+        LOG.info(testName+": "+tasks+" tasks submitted for "+listenerCount.get()+" events delivered");
+    }
+    
     @Test(groups={"Integration", "Acceptance"})
     public void testUpdateAttributeWithNoListenersButManyUnrelatedListeners() throws Exception {
         int numUnrelatedSubscribers = 1000;
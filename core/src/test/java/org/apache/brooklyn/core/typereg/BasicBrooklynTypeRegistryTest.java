@@ -163,6 +163,31 @@ public class BasicBrooklynTypeRegistryTest extends BrooklynMgmtUnitTestSupport {
             RegisteredTypeLoadingContexts.bean(Integer.class)), null );
     }
 
+    @Test
+    public void testAliasAndNameLookupsAfterReplaceAndDelete() {
+        RegisteredType withAlias = RegisteredTypes.addAliases(
+            beanWithSuper("item.A", "1", new BasicTypeImplementationPlan("ignore", null), String.class),
+            MutableList.of("my_a"));
+        add(withAlias);
+        Assert.assertEquals( registry().get("my_a"), withAlias );
+        
+        // replacing with a type without the alias removes it
+        RegisteredType withOtherAlias = RegisteredTypes.addAliases(
+            beanWithSuper("item.A", "1", new BasicTypeImplementationPlan("ignore2", null), String.class),
+            MutableList.of("other_a"));
+        add(withOtherAlias, true);
+        Assert.assertNull( registry().get("my_a") );
+        Assert.assertEquals( registry().get("other_a"), withOtherAlias );
+        
+        add(SAMPLE_TYPE2);
+        Assert.assertEquals( registry().get("item.A"), SAMPLE_TYPE2 );
+        registry().delete(SAMPLE_TYPE2);
+        Assert.assertEquals( registry().get("item.A"), withOtherAlias );
+        registry().delete(withOtherAlias);
+        Assert.assertNull( registry().get("item.A") );
+        Assert.assertNull( registry().get("other_a") );
+    }
+
     @Test
     public void testTags() {
         add(SAMPLE_TYPE);
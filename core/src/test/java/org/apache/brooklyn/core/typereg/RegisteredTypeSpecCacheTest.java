@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.core.typereg;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.brooklyn.api.entity.EntitySpec;
+import org.apache.brooklyn.api.policy.PolicySpec;
+import org.apache.brooklyn.api.typereg.RegisteredType;
+import org.apache.brooklyn.core.test.entity.TestEntity;
+import org.apache.brooklyn.core.test.policy.TestPolicy;
+import org.apache.brooklyn.entity.group.DynamicCluster;
+import org.apache.brooklyn.util.collections.MutableList;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class RegisteredTypeSpecCacheTest {
+
+    private final static RegisteredType TYPE_A = RegisteredTypes.spec("item.A", "1", new BasicTypeImplementationPlan("test", "a"));
+    private final static RegisteredType TYPE_B = RegisteredTypes.spec("item.B", "1", new BasicTypeImplementationPlan("test", "b"));
+
+    private final AtomicInteger creations = new AtomicInteger();
+
+    @SuppressWarnings("rawtypes")
+    private EntitySpec get(RegisteredTypeSpecCache cache, RegisteredType type, String ...lookups) {
+        return cache.getOrCreate(type, null, EntitySpec.class, () -> {
+            creations.incrementAndGet();
+            for (String lookup: lookups) {
+                cache.noteLookup(lookup);
+            }
+            return EntitySpec.create(TestEntity.class).displayName(type.getId());
+        });
+    }
+
+    @Test
+    public void testReturnsCopiesOfCachedSpec() {
+        RegisteredTypeSpecCache cache = new RegisteredTypeSpecCache(10);
+        EntitySpec<?> spec1 = get(cache, TYPE_A);
+        spec1.displayName("changed");
+        EntitySpec<?> spec2 = get(cache, TYPE_A);
+
+        Assert.assertEquals(creations.get(), 1);
+        Assert.assertEquals(spec2.getDisplayName(), TYPE_A.getId());
+        Assert.assertNotSame(get(cache, TYPE_A), spec2);
+        Assert.assertEquals(cache.getHitCount(), 2);
+        Assert.assertEquals(cache.getMissCount(), 1);
+    }
+
+    @Test
+    public void testNestedSpecsOfReturnedCopiesNotShared() {
+        RegisteredTypeSpecCache cache = new RegisteredTypeSpecCache(10);
+        EntitySpec<?> spec1 = cache.getOrCreate(TYPE_A, null, EntitySpec.class, () -> {
+            creations.incrementAndGet();
+            return EntitySpec.create(DynamicCluster.class)
+                .configure(DynamicCluster.MEMBER_SPEC, EntitySpec.create(TestEntity.class)
+                    .configure(TestEntity.CONF_NAME, "member")
+                    .policy(PolicySpec.create(TestPolicy.class).configure(TestPolicy.CONF_NAME, "memberPolicy")))
+                .policy(PolicySpec.create(TestPolicy.class).configure(TestPolicy.CONF_NAME, "policy"));
+        });
+        // the spec returned by the creator is not the one cached
+        spec1.getPolicySpecs().get(0).configure(TestPolicy.CONF_NAME, "changed");
+
+        EntitySpec<?> spec2 = get(cache, TYPE_A);
+        Assert.assertEquals(creations.get(), 1);
+        spec2.getPolicySpecs().get(0).configure(TestPolicy.CONF_NAME, "changed");
+        EntitySpec<?> memberSpec2 = (EntitySpec<?>) spec2.getConfig().get(DynamicCluster.MEMBER_SPEC);
+        memberSpec2.configure(TestEntity.CONF_NAME, "changed");
+        memberSpec2.getPolicySpecs().get(0).configure(TestPolicy.CONF_NAME, "changed");
+
+        EntitySpec<?> spec3 = get(cache, TYPE_A);
+        Assert.assertEquals(creations.get(), 1);
+        Assert.assertEquals(spec3.getPolicySpecs().get(0).getConfig().get(TestPolicy.CONF_NAME), "policy");
+        EntitySpec<?> memberSpec3 = (EntitySpec<?>) spec3.getConfig().get(DynamicCluster.MEMBER_SPEC);
+        Assert.assertNotSame(memberSpec3, memberSpec2);
+        Assert.assertEquals(memberSpec3.getConfig().get(TestEntity.CONF_NAME), "member");
+        Assert.assertEquals(memberSpec3.getPolicySpecs().get(0).getConfig().get(TestPolicy.CONF_NAME), "memberPolicy");
+    }
+
+    @Test
+    public void testInvalidatesOnlyDependentSpecs() {
+        RegisteredTypeSpecCache cache = new RegisteredTypeSpecCache(10);
+        get(cache, TYPE_A, "item.B");
+        get(cache, TYPE_B);
+        get(cache, RegisteredTypes.spec("item.C", "1", new BasicTypeImplementationPlan("test", "c")));
+        Assert.assertEquals(creations.get(), 3);
+
+        cache.invalidate(ImmutableList.of("item.B"));
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertEquals(cache.getInvalidationCount(), 2);
+
+        get(cache, TYPE_A);
+        Assert.assertEquals(creations.get(), 4);
+    }
+
+    @Test
+    public void testNestedSpecDependenciesRecordedAgainstOuter() {
+        RegisteredTypeSpecCache cache = new RegisteredTypeSpecCache(10);
+        // B is cached first, so A's creation gets a hit for B but must still depend on what B looked up
+        get(cache, TYPE_B, "item.C");
+        cache.getOrCreate(TYPE_A, null, EntitySpec.class, () -> {
+            creations.incrementAndGet();
+            return get(cache, TYPE_B);
+        });
+        Assert.assertEquals(creations.get(), 2);
+
+        cache.invalidate(ImmutableList.of("item.C"));
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        RegisteredTypeSpecCache cache = new RegisteredTypeSpecCache(2);
+        get(cache, TYPE_A);
+        get(cache, TYPE_B);
+        get(cache, TYPE_A);
+        get(cache, RegisteredTypes.spec("item.C", "1", new BasicTypeImplementationPlan("test", "c")));
+        Assert.assertEquals(cache.getEvictionCount(), 1);
+
+        get(cache, TYPE_A);
+        Assert.assertEquals(creations.get(), 3);
+        get(cache, TYPE_B);
+        Assert.assertEquals(creations.get(), 4);
+    }
+
+    @Test
+    public void testDisabledWithoutSize() {
+        RegisteredTypeSpecCache cache = new RegisteredTypeSpecCache(0);
+        get(cache, TYPE_A);
+        get(cache, TYPE_A);
+        Assert.assertEquals(creations.get(), 2);
+        Assert.assertEquals(cache.size(), 0);
+        Assert.assertEquals(cache.getStats().get("enabled"), false);
+    }
+
+    @Test
+    public void testDoesNotCacheSpecCreatedWhileInvalidating() {
+        RegisteredTypeSpecCache cache = new RegisteredTypeSpecCache(10);
+        cache.getOrCreate(TYPE_A, null, EntitySpec.class, () -> {
+            creations.incrementAndGet();
+            cache.invalidate(MutableList.of("item.Other"));
+            return EntitySpec.create(TestEntity.class);
+        });
+        Assert.assertEquals(cache.size(), 0);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.brooklyn.api.mgmt.Task;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager.TaskLane;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager.ThreadPoolMode;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class BasicExecutionManagerThreadPoolTest {
+
+    private BasicExecutionManager em;
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() throws Exception {
+        if (em != null) em.shutdownNow();
+    }
+
+    @Test
+    public void testDefaultModeRecordsLaneMetrics() throws Exception {
+        em = new BasicExecutionManager("mycontext");
+        em.submit(MutableMap.of("tag", BrooklynTaskTags.SENSOR_TAG), new Runnable() { @Override public void run() {} }).get();
+        em.submit(MutableMap.of("tag", "A"), new Runnable() { @Override public void run() {} }).get();
+
+        Asserts.succeedsEventually(new Runnable() { @Override public void run() {
+            assertEquals(em.getThreadPoolMetrics().get(TaskLane.SUBSCRIPTION).getCompletedCount(), 1);
+            assertEquals(em.getThreadPoolMetrics().get(TaskLane.DEFAULT).getActiveCount(), 0);
+        }});
+    }
+
+    @Test
+    public void testBoundedModeQueuesBeyondMaxThreads() throws Exception {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicExecutionManager.THREAD_POOL_MODE, ThreadPoolMode.BOUNDED);
+        props.put(TaskLane.SUBSCRIPTION.getMaxThreadsConfigKey(), 1);
+        em = new BasicExecutionManager("mycontext", props);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        Runnable blocker = new Runnable() { @Override public void run() {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }};
+        Task<?> t1 = em.submit(MutableMap.of("tag", BrooklynTaskTags.SENSOR_TAG), blocker);
+        Task<?> t2 = em.submit(MutableMap.of("tag", BrooklynTaskTags.SENSOR_TAG), blocker);
+        try {
+            Asserts.succeedsEventually(new Runnable() { @Override public void run() {
+                InstrumentedExecutorService.Metrics metrics = em.getThreadPoolMetrics().get(TaskLane.SUBSCRIPTION);
+                assertEquals(metrics.getActiveCount(), 1);
+                assertEquals(metrics.getQueueDepth(), 1);
+            }});
+            // other lanes are not held up
+            em.submit(MutableMap.of("tag", "A"), new Runnable() { @Override public void run() {} }).get();
+        } finally {
+            latch.countDown();
+        }
+        t1.get();
+        t2.get();
+        assertEquals(em.getThreadPoolMetrics().get(TaskLane.SUBSCRIPTION).getQueueDepth(), 0);
+    }
+}
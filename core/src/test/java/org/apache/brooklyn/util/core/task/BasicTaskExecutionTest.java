@@ -242,7 +242,74 @@ public class BasicTaskExecutionTest {
 
         assertEquals(em.getTasksWithAllTags(ImmutableList.of("not_there","A")), ImmutableSet.of());
     }
-    
+
+    @Test
+    public void testRetrievingTasksWithAllTagsOfDifferentCardinality() throws Exception {
+        Task<?> t1 = em.submit(MutableMap.of("tags", ImmutableList.of("A", "B", "C")), newNoop());
+        Task<?> t2 = em.submit(MutableMap.of("tags", ImmutableList.of("A", "B")), newNoop());
+        Task<?> t3 = em.submit(MutableMap.of("tags", ImmutableList.of("A")), newNoop());
+        t1.get(); t2.get(); t3.get();
+
+        assertEquals(em.getTasksWithAllTags(ImmutableList.of("A", "B", "C")), ImmutableSet.of(t1));
+        assertEquals(em.getTasksWithAllTags(ImmutableList.of("C", "A")), ImmutableSet.of(t1));
+        assertEquals(em.getTasksWithAllTags(ImmutableList.of("A", "B")), ImmutableSet.of(t1, t2));
+    }
+
+    @Test
+    public void testDeletingTaskRemovesEmptyTag() throws Exception {
+        Task<?> t = em.submit(MutableMap.of("tags", ImmutableList.of("A", "B")), newNoop());
+        Task<?> t2 = em.submit(MutableMap.of("tags", ImmutableList.of("A")), newNoop());
+        t.get(); t2.get();
+
+        em.deleteTask(t);
+        assertEquals(em.getTasksWithTag("A"), ImmutableSet.of(t2));
+        assertFalse(em.getTaskTags().contains("B"), "tags="+em.getTaskTags());
+    }
+
+    @Test
+    public void testLightweightTaskIsCountedButNotRetained() throws Exception {
+        long submittedBefore = em.getTotalTasksSubmitted();
+        Task<?> t = em.submit(MutableMap.of("tag", "A"), new LightweightTask<Void>(MutableMap.of(), newNoop()));
+        t.get();
+
+        assertEquals(em.getTotalTasksSubmitted(), submittedBefore+1);
+        assertEquals(em.getTotalLightweightTasksSubmitted(), 1);
+        assertNull(em.getTask(t.getId()));
+        assertEquals(em.getTasksWithTag("A"), ImmutableSet.of());
+        assertTrue(t.isDone());
+    }
+
+    @Test
+    public void testTaskSubmittedByLightweightTaskRecordsNearestRegisteredSubmitter() throws Exception {
+        final BasicTask<Void> child = new BasicTask<Void>(newNoop());
+        final BasicTask<Void> parent = new BasicTask<Void>(new Runnable() {
+            @Override public void run() {
+                em.submit(MutableMap.of(), new LightweightTask<Void>(MutableMap.of(), new Runnable() {
+                    @Override public void run() {
+                        em.submit(child).getUnchecked();
+                    }})).getUnchecked();
+            }});
+        em.submit(parent).get();
+
+        assertEquals(child.getSubmittedByTaskId(), parent.getId());
+        assertEquals(child.getSubmittedByTask(), parent);
+        assertEquals(em.getTask(child.getId()), child);
+    }
+
+    @Test
+    public void testTaskSubmittedByTopLevelLightweightTaskHasNoSubmitter() throws Exception {
+        final BasicTask<Void> child = new BasicTask<Void>(newNoop());
+        Task<?> t = em.submit(MutableMap.of(), new LightweightTask<Void>(MutableMap.of(), new Runnable() {
+            @Override public void run() {
+                em.submit(child).getUnchecked();
+            }}));
+        t.get();
+
+        assertNull(child.getSubmittedByTaskId());
+        assertNull(child.getSubmittedByTask());
+        assertEquals(em.getTask(child.getId()), child);
+    }
+
     @Test
     public void testRetrievedTasksIncludesTasksInProgress() throws Exception {
         final CountDownLatch runningLatch = new CountDownLatch(1);
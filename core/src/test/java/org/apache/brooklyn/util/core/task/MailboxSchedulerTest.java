@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.core.task;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.brooklyn.core.internal.BrooklynProperties;
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.collections.MutableMap;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Callables;
+
+public class MailboxSchedulerTest {
+
+    private static final int NUM_TAGS = 200;
+    
+    private BasicExecutionManager em;
+    
+    @BeforeMethod
+    public void setUp() {
+        BrooklynProperties props = BrooklynProperties.Factory.newEmpty();
+        props.put(BasicExecutionManager.MAILBOX_SCHEDULER, true);
+        props.put(BasicExecutionManager.MAILBOX_SCHEDULER_PARALLELISM, 2);
+        em = new BasicExecutionManager("mycontextid", props);
+        assertEquals(em.getOrderedTaskSchedulerType(), MailboxScheduler.class);
+        for (int i = 0; i < NUM_TAGS; i++) {
+            em.setTaskSchedulerForTag("category"+i, em.getOrderedTaskSchedulerType());
+        }
+    }
+    
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() {
+        if (em != null) em.shutdownNow();
+    }
+    
+    @Test
+    public void testExecutesInOrderPerTagOnSharedPool() throws Exception {
+        final int NUM_TIMES = 200;
+        final List<List<Integer>> results = new CopyOnWriteArrayList<List<Integer>>();
+        final Set<String> threadNames = Sets.newConcurrentHashSet();
+        for (int t = 0; t < NUM_TAGS; t++) {
+            results.add(new CopyOnWriteArrayList<Integer>());
+        }
+        for (int i = 0; i < NUM_TIMES; i++) {
+            for (int t = 0; t < NUM_TAGS; t++) {
+                final List<Integer> result = results.get(t);
+                final int counter = i;
+                em.submit(MutableMap.of("tag", "category"+t), new Runnable() {
+                    @Override
+                    public void run() {
+                        threadNames.add(Thread.currentThread().getName());
+                        result.add(counter);
+                    }});
+            }
+        }
+        
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                for (List<Integer> result : results) {
+                    assertEquals(result.size(), NUM_TIMES);
+                }
+            }});
+
+        for (List<Integer> result : results) {
+            for (int i = 0; i < NUM_TIMES; i++) {
+                assertEquals(result.get(i), (Integer)i);
+            }
+        }
+        for (String threadName : threadNames) {
+            assertTrue(threadName.contains("-mailbox-"), "threadName="+threadName);
+        }
+        assertTrue(threadNames.size() <= 2, "threadNames="+threadNames);
+    }
+    
+    @Test
+    public void testRunsWithSubmittersContextClassLoader() throws Exception {
+        final ClassLoader submitterClassLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        final Callable<ClassLoader> getContextClassLoader = new Callable<ClassLoader>() {
+            @Override
+            public ClassLoader call() {
+                return Thread.currentThread().getContextClassLoader();
+            }};
+        
+        Thread thread = Thread.currentThread();
+        ClassLoader oldContextClassLoader = thread.getContextClassLoader();
+        Future<ClassLoader> withSubmitters;
+        try {
+            thread.setContextClassLoader(submitterClassLoader);
+            withSubmitters = em.submit(MutableMap.of("tag", "category0"), new BasicTask<ClassLoader>(getContextClassLoader));
+        } finally {
+            thread.setContextClassLoader(oldContextClassLoader);
+        }
+        Future<ClassLoader> withOriginal = em.submit(MutableMap.of("tag", "category0"), new BasicTask<ClassLoader>(getContextClassLoader));
+        
+        assertSame(withSubmitters.get(), submitterClassLoader);
+        assertSame(withOriginal.get(), oldContextClassLoader);
+    }
+    
+    @Test
+    public void testDrainsAfterExecutorRejectsDrain() throws Exception {
+        final AtomicBoolean rejectNext = new AtomicBoolean(true);
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>()) {
+            @Override
+            public void execute(Runnable command) {
+                if (rejectNext.getAndSet(false)) throw new RejectedExecutionException("simulated rejection");
+                super.execute(command);
+            }
+        };
+        try {
+            MailboxScheduler scheduler = new MailboxScheduler();
+            scheduler.injectExecutor(executor);
+            Future<Integer> rejected = null;
+            try {
+                rejected = scheduler.submit(Callables.returning(1));
+                Asserts.shouldHaveFailedPreviously("rejected="+rejected);
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+            
+            // the job queued before the rejection is run by the next drain
+            Future<Integer> future = scheduler.submit(Callables.returning(2));
+            assertEquals(future.get(), (Integer)2);
+            assertEquals(scheduler.getQueueSize(), 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testGetResultOfQueuedTaskBeforeItExecutes() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        em.submit(MutableMap.of("tag", "category0"), new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }});
+        
+        Future<Integer> future = em.submit(MutableMap.of("tag", "category0"), new BasicTask<Integer>(Callables.returning(123)));
+        final MailboxScheduler scheduler = (MailboxScheduler) em.getTaskSchedulerForTag("category0");
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                assertEquals(scheduler.getQueueSize(), 1);
+            }});
+        assertTrue(!future.isDone());
+        latch.countDown();
+        assertEquals(future.get(), (Integer)123);
+    }
+}
@@ -22,11 +22,14 @@ import java.io.File;
 
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.mgmt.BrooklynTaskTags;
 import org.apache.brooklyn.core.mgmt.internal.LocalManagementContext;
+import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.core.task.ssh.SshTasks;
 import org.apache.brooklyn.util.core.task.system.ProcessTaskFactory;
 import org.apache.brooklyn.util.core.task.system.ProcessTaskWrapper;
 import org.apache.brooklyn.util.core.task.system.SystemTasks;
+import org.apache.brooklyn.util.internal.BrooklynSystemProperties;
 import org.apache.brooklyn.util.os.Os;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
@@ -90,6 +93,28 @@ public class SystemTasksTest {
         Assert.assertEquals(t.getStdout().trim(), "hello world");
     }
 
+    @Test(groups="Integration")
+    public void testStdoutOfTransientTaskReadableAfterItIsDeleted() {
+        String propertyName = BrooklynSystemProperties.TASK_STREAM_MAX_IN_MEMORY_BYTES.getPropertyName();
+        String oldValue = System.getProperty(propertyName);
+        System.setProperty(propertyName, "8");
+        try {
+            ProcessTaskWrapper<Integer> t = SystemTasks.exec("echo hello world, more than fits in memory").newTask();
+            BrooklynTaskTags.setTransient(t.asTask());
+            mgmt.getExecutionManager().submit(t);
+            Assert.assertEquals(t.get(), (Integer)0);
+            // the GC deletes transient tasks as soon as they complete
+            Asserts.succeedsEventually(new Runnable() {
+                @Override public void run() {
+                    Assert.assertNull(mgmt.getExecutionManager().getTask(t.getTask().getId()));
+                }});
+            Assert.assertEquals(t.getStdout().trim(), "hello world, more than fits in memory");
+        } finally {
+            if (oldValue==null) System.clearProperty(propertyName);
+            else System.setProperty(propertyName, oldValue);
+        }
+    }
+
     // FIXME Behaviour of Bash shell changes from 3.x to 4.x so test is disabled
     @Test(groups="Integration", enabled=false)
     public void testSubshellExitScriptDoesNotExit() {
@@ -575,7 +575,7 @@ public class BasicLauncher<T extends BasicLauncher<T>> {
                 persistenceLocation = brooklynProperties.getConfig(BrooklynServerConfig.PERSISTENCE_LOCATION_SPEC);
             }
             persistenceDir = BrooklynServerPaths.newMainPersistencePathResolver(brooklynProperties).location(persistenceLocation).dir(persistenceDir).resolve();
-            objectStore = BrooklynPersistenceUtils.newPersistenceObjectStore(managementContext, persistenceLocation, persistenceDir, 
+            objectStore = BrooklynPersistenceUtils.newMainPersistenceObjectStore(managementContext, persistenceLocation, persistenceDir, 
                 persistMode, highAvailabilityMode);
                 
             RebindManager rebindManager = managementContext.getRebindManager();
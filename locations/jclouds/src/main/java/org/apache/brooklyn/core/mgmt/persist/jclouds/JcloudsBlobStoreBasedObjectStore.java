@@ -18,14 +18,18 @@
  */
 package org.apache.brooklyn.core.mgmt.persist.jclouds;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
 
 import javax.annotation.Nullable;
 
 import org.apache.brooklyn.api.mgmt.ManagementContext;
 import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
+import org.apache.brooklyn.core.mgmt.persist.BatchPersistenceObjectStore;
 import org.apache.brooklyn.core.mgmt.persist.PersistMode;
-import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore;
+import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStoreBatches;
 import org.apache.brooklyn.core.server.BrooklynServerConfig;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.domain.StorageMetadata;
@@ -41,11 +45,13 @@ import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.FluentIterable;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
  * @author Andrea Turli
  */
-public class JcloudsBlobStoreBasedObjectStore implements PersistenceObjectStore {
+public class JcloudsBlobStoreBasedObjectStore implements BatchPersistenceObjectStore {
 
     private static final Logger log = LoggerFactory.getLogger(JcloudsBlobStoreBasedObjectStore.class);
 
@@ -57,6 +63,7 @@ public class JcloudsBlobStoreBasedObjectStore implements PersistenceObjectStore
     private BlobStoreContext context;
 
     private ManagementContext mgmt;
+    private ListeningExecutorService batchExecutor;
 
     public JcloudsBlobStoreBasedObjectStore(String locationSpec, String containerName) {
         this.locationSpec = locationSpec;
@@ -178,8 +185,39 @@ public class JcloudsBlobStoreBasedObjectStore implements PersistenceObjectStore
                 }).toList();
     }
 
+    /** reads the blobs concurrently, retrying failures, as each read is a remote request */
+    @Override
+    public Map<String, String> getMany(Collection<String> paths) {
+        checkPrepared();
+        return PersistenceObjectStoreBatches.getMany(this, paths, getBatchExecutor(), getBatchConcurrency(), getBatchMaxAttempts());
+    }
+
+    @Override
+    public void putMany(Map<String, String> contentsByPath) {
+        checkPrepared();
+        PersistenceObjectStoreBatches.putMany(this, contentsByPath, getBatchExecutor(), getBatchConcurrency(), getBatchMaxAttempts());
+    }
+
+    protected synchronized ListeningExecutorService getBatchExecutor() {
+        if (batchExecutor==null) {
+            batchExecutor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+        }
+        return batchExecutor;
+    }
+
+    protected int getBatchConcurrency() {
+        return mgmt!=null ? mgmt.getConfig().getConfig(BrooklynServerConfig.PERSISTENCE_BATCH_CONCURRENCY) : BrooklynServerConfig.PERSISTENCE_BATCH_CONCURRENCY.getDefaultValue();
+    }
+
+    protected int getBatchMaxAttempts() {
+        return mgmt!=null ? mgmt.getConfig().getConfig(BrooklynServerConfig.PERSISTENCE_BATCH_MAX_ATTEMPTS) : BrooklynServerConfig.PERSISTENCE_BATCH_MAX_ATTEMPTS.getDefaultValue();
+    }
+
     @Override
     public void close() {
+        synchronized (this) {
+            if (batchExecutor!=null) batchExecutor.shutdownNow();
+        }
         if (context!=null)
             context.close();
     }
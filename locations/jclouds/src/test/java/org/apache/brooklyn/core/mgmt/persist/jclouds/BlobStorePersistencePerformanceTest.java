@@ -19,6 +19,7 @@
 package org.apache.brooklyn.core.mgmt.persist.jclouds;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
@@ -27,6 +28,7 @@ import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore.StoreObjectA
 import org.apache.brooklyn.core.mgmt.persist.jclouds.JcloudsBlobStoreBasedObjectStore;
 import org.apache.brooklyn.core.test.qa.performance.AbstractPerformanceTest;
 import org.apache.brooklyn.test.performance.PerformanceTestDescriptor;
+import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.text.Identifiers;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -135,4 +137,60 @@ public class BlobStorePersistencePerformanceTest extends AbstractPerformanceTest
              }
          }
      }
+
+     @Test(groups={"Live", "Acceptance"})
+     public void testStoreObjectPutMany() throws Exception {
+         int numIterations = numIterations() / 10;
+         final Map<String, String> contents = newBatchContents("storeObjectPutMany-");
+         // same rate of items as for individual puts, to be no slower
+         double minRatePerSec = 10 * PERFORMANCE_EXPECTATION / contents.size();
+
+         try {
+             measure(PerformanceTestDescriptor.create()
+                     .summary("JcloudsBlobStoreBasedObjectStore.putMany("+contents.size()+")")
+                     .iterations(numIterations)
+                     .minAcceptablePerSecond(minRatePerSec)
+                     .job(new Runnable() {
+                         @Override public void run() {
+                             objectStore.putMany(contents);
+                         }}));
+         } finally {
+             deleteAll(contents.keySet());
+         }
+     }
+
+     @Test(groups={"Live", "Acceptance"})
+     public void testStoreObjectGetMany() throws Exception {
+         int numIterations = numIterations() / 10;
+         final Map<String, String> contents = newBatchContents("storeObjectGetMany-");
+         double minRatePerSec = 10 * PERFORMANCE_EXPECTATION / contents.size();
+         objectStore.putMany(contents);
+
+         try {
+             measure(PerformanceTestDescriptor.create()
+                     .summary("JcloudsBlobStoreBasedObjectStore.getMany("+contents.size()+")")
+                     .iterations(numIterations)
+                     .minAcceptablePerSecond(minRatePerSec)
+                     .job(new Runnable() {
+                         @Override public void run() {
+                             objectStore.getMany(contents.keySet());
+                         }}));
+         } finally {
+             deleteAll(contents.keySet());
+         }
+     }
+
+     private Map<String, String> newBatchContents(String prefix) {
+         Map<String, String> result = MutableMap.of();
+         for (int i = 0; i < 20; i++) {
+             result.put(prefix+i, "val"+i);
+         }
+         return result;
+     }
+
+     private void deleteAll(Iterable<String> paths) {
+         for (String path : paths) {
+             objectStore.newAccessor(path).delete();
+         }
+     }
 }
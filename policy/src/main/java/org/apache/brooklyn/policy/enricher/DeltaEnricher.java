@@ -26,6 +26,8 @@ import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.EnricherSpec;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.sensor.NumericSensorEvent;
 import org.apache.brooklyn.enricher.stock.AbstractTransformingEnricher;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
 
@@ -35,7 +37,7 @@ import org.apache.brooklyn.util.core.flags.TypeCoercions;
 @Catalog(name="Delta", description="Converts an absolute sensor into a delta sensor "
         + "(i.e. the diff between the current and previous value)")
 public class DeltaEnricher<T extends Number> extends AbstractTransformingEnricher<T> {
-    Number last = 0;
+    double lastValue = 0;
 
     public DeltaEnricher() { // for EnricherSpec and rebinding
     }
@@ -50,9 +52,19 @@ public class DeltaEnricher<T extends Number> extends AbstractTransformingEnriche
     
     @Override
     public void onEvent(SensorEvent<T> event) {
-        Number current = elvis(event.getValue(), 0);
-        double newVal = current.doubleValue() - last.doubleValue();
-        entity.sensors().set((AttributeSensor<T>)target, TypeCoercions.coerce(newVal, target.getTypeToken()));
-        last = current;
+        double current;
+        if (event instanceof NumericSensorEvent) {
+            // published as a primitive, so avoid boxing
+            current = ((NumericSensorEvent<T>)event).getDoubleValue();
+        } else {
+            current = elvis(event.getValue(), 0).doubleValue();
+        }
+        double newVal = current - lastValue;
+        if (target.getType() == Double.class) {
+            ((EntityInternal)entity).sensors().setDouble((AttributeSensor<T>)target, newVal);
+        } else {
+            entity.sensors().set((AttributeSensor<T>)target, TypeCoercions.coerce(newVal, target.getTypeToken()));
+        }
+        lastValue = current;
     }
 }
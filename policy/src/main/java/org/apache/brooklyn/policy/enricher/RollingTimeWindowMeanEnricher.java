@@ -18,9 +18,6 @@
  */
 package org.apache.brooklyn.policy.enricher;
 
-import java.util.Iterator;
-import java.util.LinkedList;
-
 import org.apache.brooklyn.api.catalog.Catalog;
 import org.apache.brooklyn.api.entity.Entity;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
@@ -29,6 +26,7 @@ import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.api.sensor.SensorEvent;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.config.ConfigKeys;
+import org.apache.brooklyn.core.sensor.NumericSensorEvent;
 import org.apache.brooklyn.enricher.stock.AbstractTypeTransformingEnricher;
 import org.apache.brooklyn.enricher.stock.YamlRollingTimeWindowMeanEnricher;
 import org.apache.brooklyn.util.core.flags.SetFromFlag;
@@ -88,8 +86,12 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
         
     }
     
-    private final LinkedList<T> values = new LinkedList<T>();
-    private final LinkedList<Long> timestamps = new LinkedList<Long>();
+    // values and their timestamps, oldest first, in a ring buffer of primitives (NaN for null values)
+    // so that recording a value does not allocate
+    private double[] values = new double[16];
+    private long[] timestamps = new long[16];
+    private int head = 0;
+    private int size = 0;
     volatile ConfidenceQualifiedNumber lastAverage = new ConfidenceQualifiedNumber(0d,0d);
     
     @SetFromFlag
@@ -122,8 +124,14 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
     }
     
     public void onEvent(SensorEvent<T> event, long eventTime) {
-        values.addLast(event.getValue());
-        timestamps.addLast(eventTime);
+        double value;
+        if (event instanceof NumericSensorEvent) {
+            value = ((NumericSensorEvent<T>)event).getDoubleValue();
+        } else {
+            T boxed = event.getValue();
+            value = boxed == null ? Double.NaN : boxed.doubleValue();
+        }
+        addLast(value, eventTime);
         if (eventTime>0) {
             ConfidenceQualifiedNumber average = getAverage(eventTime, 0);
 
@@ -139,22 +147,21 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
     }
     
     public ConfidenceQualifiedNumber getAverage(long fromTime, long graceAllowed) {
-        if (timestamps.isEmpty()) {
+        if (size == 0) {
             return lastAverage = new ConfidenceQualifiedNumber(lastAverage.value, 0.0d);
         }
         
         long firstTimestamp = -1;
-        Iterator<Long> ti = timestamps.iterator();
-        while (ti.hasNext()) {
-            firstTimestamp = ti.next();
+        for (int i = 0; i < size; i++) {
+            firstTimestamp = timestampAt(i);
             if (firstTimestamp>0) break;
         }
         if (firstTimestamp<=0) {
             // no values with reasonable timestamps
-            return lastAverage = new ConfidenceQualifiedNumber(values.get(values.size()-1).doubleValue(), 0.0d);
+            return lastAverage = new ConfidenceQualifiedNumber(lastValue(), 0.0d);
         }
 
-        long lastTimestamp = timestamps.get(timestamps.size()-1);
+        long lastTimestamp = timestampAt(size-1);
 
         long now = fromTime;
         if (lastTimestamp > fromTime - graceAllowed) {
@@ -169,23 +176,20 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
         Double confidence = ((double)(windowEnd - windowStart)) / timePeriod.toMilliseconds();
         if (confidence <= 0.0000001d) {
             // not enough timestamps in window 
-            double lastValue = values.get(values.size()-1).doubleValue();
-            return lastAverage = new ConfidenceQualifiedNumber(lastValue, 0.0d);
+            return lastAverage = new ConfidenceQualifiedNumber(lastValue(), 0.0d);
         }
         
         long start = windowStart;
         long end;
         double weightedAverage = 0.0d;
         
-        Iterator<T> valuesIter = values.iterator();
-        Iterator<Long> timestampsIter = timestamps.iterator();
-        while (valuesIter.hasNext()) {
+        for (int i = 0; i < size; i++) {
             // Ignores null and out-of-date values (and also values that are received out-of-order, but that shouldn't happen!)
-            Number val = valuesIter.next();
-            Long timestamp = timestampsIter.next();
-            if (val!=null && timestamp >= start) {
+            double val = valueAt(i);
+            long timestamp = timestampAt(i);
+            if (!Double.isNaN(val) && timestamp >= start) {
                 end = timestamp;
-                weightedAverage += ((end - start) / (confidence * timePeriod.toMilliseconds())) * val.doubleValue();
+                weightedAverage += ((end - start) / (confidence * timePeriod.toMilliseconds())) * val;
                 start = timestamp;
             }
         }
@@ -198,9 +202,44 @@ public class RollingTimeWindowMeanEnricher<T extends Number> extends AbstractTyp
      */
     private void pruneValues(long now) {
         // keep one value from before the period, so that we can tell the window's start time 
-        while(timestamps.size() > 1 && timestamps.get(1) < (now - timePeriod.toMilliseconds())) {
-            timestamps.removeFirst();
-            values.removeFirst();
+        while(size > 1 && timestampAt(1) < (now - timePeriod.toMilliseconds())) {
+            head = (head + 1) % values.length;
+            size--;
+        }
+    }
+
+    private void addLast(double value, long timestamp) {
+        if (size == values.length) {
+            double[] newValues = new double[values.length*2];
+            long[] newTimestamps = new long[values.length*2];
+            for (int i = 0; i < size; i++) {
+                newValues[i] = valueAt(i);
+                newTimestamps[i] = timestampAt(i);
+            }
+            values = newValues;
+            timestamps = newTimestamps;
+            head = 0;
+        }
+        int index = (head + size) % values.length;
+        values[index] = value;
+        timestamps[index] = timestamp;
+        size++;
+    }
+
+    private double valueAt(int i) {
+        return values[(head + i) % values.length];
+    }
+
+    private long timestampAt(int i) {
+        return timestamps[(head + i) % timestamps.length];
+    }
+
+    /** the most recent non-null value, or if there are none (e.g. only nulls have been received) the last average */
+    private double lastValue() {
+        for (int i = size-1; i >= 0; i--) {
+            double result = valueAt(i);
+            if (!Double.isNaN(result)) return result;
         }
+        return lastAverage.value != null ? lastAverage.value : 0d;
     }
 }
@@ -26,7 +26,9 @@ import org.apache.brooklyn.api.mgmt.SubscriptionContext;
 import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.EnricherSpec;
 import org.apache.brooklyn.api.sensor.Sensor;
+import org.apache.brooklyn.core.entity.EntityInternal;
 import org.apache.brooklyn.core.sensor.BasicAttributeSensor;
+import org.apache.brooklyn.core.sensor.NumericSensorEvent;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.util.time.Duration;
@@ -71,6 +73,44 @@ public class DeltaEnrichersTests extends BrooklynAppUnitTestSupport {
         assertEquals(producer.getAttribute(deltaSensor), (Integer)5);
     }
     
+    @Test
+    public void testDeltaEnricherWithPrimitiveEvents() {
+        AttributeSensor<Integer> deltaSensor = new BasicAttributeSensor<Integer>(Integer.class, "delta sensor");
+        @SuppressWarnings("unchecked")
+        DeltaEnricher<Integer> delta = producer.enrichers().add(EnricherSpec.create(DeltaEnricher.class)
+                .configure("producer", producer)
+                .configure("source", intSensor)
+                .configure("target", deltaSensor));
+
+        // first event is relative to zero, as for boxed events
+        delta.onEvent(NumericSensorEvent.ofLong(intSensor, producer, 5));
+        assertEquals(producer.getAttribute(deltaSensor), (Integer)5);
+        delta.onEvent(NumericSensorEvent.ofLong(intSensor, producer, 8));
+        assertEquals(producer.getAttribute(deltaSensor), (Integer)3);
+        delta.onEvent(intSensor.newEvent(producer, 10));
+        assertEquals(producer.getAttribute(deltaSensor), (Integer)2);
+        delta.onEvent(NumericSensorEvent.ofLong(intSensor, producer, 10));
+        assertEquals(producer.getAttribute(deltaSensor), (Integer)0);
+    }
+
+    @Test
+    public void testDeltaEnricherWithPrimitiveDoubleTarget() {
+        AttributeSensor<Double> doubleSensor = new BasicAttributeSensor<Double>(Double.class, "double sensor");
+        AttributeSensor<Double> deltaSensor = new BasicAttributeSensor<Double>(Double.class, "delta sensor");
+        @SuppressWarnings("unchecked")
+        DeltaEnricher<Double> delta = producer.enrichers().add(EnricherSpec.create(DeltaEnricher.class)
+                .configure("producer", producer)
+                .configure("source", doubleSensor)
+                .configure("target", deltaSensor));
+
+        delta.onEvent(NumericSensorEvent.ofDouble(doubleSensor, producer, 1.5));
+        assertEquals(producer.getAttribute(deltaSensor), 1.5d);
+        delta.onEvent(NumericSensorEvent.ofDouble(doubleSensor, producer, 4.0));
+        assertEquals(producer.getAttribute(deltaSensor), 2.5d);
+        assertEquals(((EntityInternal)producer).sensors().getDouble(deltaSensor, -1), 2.5d);
+        assertEquals(producer.getEntityType().getSensor(deltaSensor.getName()), deltaSensor);
+    }
+
     @Test
     public void testMonospaceTimeWeightedDeltaEnricher() {
         AttributeSensor<Double> deltaSensor = new BasicAttributeSensor<Double>(Double.class, "per second delta delta sensor");
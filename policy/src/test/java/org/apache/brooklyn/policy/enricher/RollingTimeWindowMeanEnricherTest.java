@@ -26,6 +26,7 @@ import org.apache.brooklyn.api.sensor.AttributeSensor;
 import org.apache.brooklyn.api.sensor.EnricherSpec;
 import org.apache.brooklyn.api.sensor.Sensor;
 import org.apache.brooklyn.core.sensor.BasicAttributeSensor;
+import org.apache.brooklyn.core.sensor.NumericSensorEvent;
 import org.apache.brooklyn.core.test.BrooklynAppUnitTestSupport;
 import org.apache.brooklyn.core.test.entity.TestEntity;
 import org.apache.brooklyn.policy.enricher.RollingTimeWindowMeanEnricher.ConfidenceQualifiedNumber;
@@ -91,6 +92,39 @@ public class RollingTimeWindowMeanEnricherTest extends BrooklynAppUnitTestSuppor
         assertEquals(average.confidence, 0d);
     }
     
+    @Test
+    public void testPrimitiveFirstValueWithNoRecentValues() {
+        averager.onEvent(NumericSensorEvent.ofLong(intSensor, producer, 10), 0L);
+        average = averager.getAverage(timePeriod+1000, 0);
+        assertEquals(average.value, 10d);
+        assertEquals(average.confidence, 0d);
+    }
+
+    @Test
+    public void testNullFirstValueWithNoRecentValues() {
+        averager.onEvent(intSensor.newEvent(producer, null), 0L);
+        average = averager.getAverage(timePeriod+1000, 0);
+        assertEquals(average.value, 0d);
+        assertEquals(average.confidence, 0d);
+    }
+
+    @Test
+    public void testPrimitiveMonospacedAverageIsPublished() {
+        averager.onEvent(NumericSensorEvent.ofLong(intSensor, producer, 10), 1000);
+        assertEquals(producer.getAttribute(avgSensor), null);
+        averager.onEvent(NumericSensorEvent.ofLong(intSensor, producer, 20), 1250);
+        averager.onEvent(NumericSensorEvent.ofLong(intSensor, producer, 30), 1500);
+        averager.onEvent(NumericSensorEvent.ofLong(intSensor, producer, 40), 1750);
+        averager.onEvent(NumericSensorEvent.ofLong(intSensor, producer, 50), 2000);
+        assertEquals(producer.getAttribute(avgSensor), (20+30+40+50)/4d);
+        
+        // more than the initial buffer size, so the ring buffer wraps and grows
+        for (int i=1; i<=40; i++) {
+            averager.onEvent(NumericSensorEvent.ofLong(intSensor, producer, 100), 2000+i*50);
+        }
+        assertEquals(producer.getAttribute(avgSensor), 100d, 0.000001);
+    }
+
     @Test
     public void testSingleValueTimeAverage() {
         averager.onEvent(intSensor.newEvent(producer, 10), 1000);
@@ -85,12 +85,16 @@ public interface ActivityApi {
 
     @GET
     @Path("/{task}/stream/{streamId}")
-    @ApiOperation(value = "Return the contents of the given stream")
+    @ApiOperation(value = "Return the contents of the given stream, or of a byte range within it")
     @ApiResponses(value = {
             @ApiResponse(code = 404, message = "Could not find task or stream")
     })
     @Produces(MediaType.TEXT_PLAIN)
     public String stream(
             @ApiParam(value = "Task ID", required = true) @PathParam("task") String taskId,
-            @ApiParam(value = "Stream ID", required = true) @PathParam("streamId") String streamId);
+            @ApiParam(value = "Stream ID", required = true) @PathParam("streamId") String streamId,
+            @ApiParam(value = "Byte offset to start from (default 0)", required = false)
+            @QueryParam("offset") @DefaultValue("0") long offset,
+            @ApiParam(value = "Max number of bytes to return, or -1 for all remaining (default)", required = false)
+            @QueryParam("length") @DefaultValue("-1") int length);
 }
@@ -132,6 +132,28 @@ public interface ServerApi {
     @ApiOperation(value = "Returns a collection of HA metrics")
     public Map<String,Object> getHighAvailabilityMetrics();
     
+    @GET
+    @Path("/metrics/sensors")
+    @ApiOperation(value = "Returns counts of sensor events published and delivered, and time spent delivering them, "
+            + "for the entity types and sensors with the highest values of the given metric")
+    public Map<String,Object> getSensorEventMetrics(
+            @ApiParam(name = "limit", value = "Maximum number of entity type and sensor entries to return")
+            @QueryParam("limit") @DefaultValue("20") int limit,
+            @ApiParam(name = "sortBy", value = "Metric to rank by: publishes, deliveries, queue_wait or listener_time")
+            @QueryParam("sortBy") @DefaultValue("publishes") String sortBy);
+
+    @GET
+    @Path("/metrics/specs")
+    @ApiOperation(value = "Returns the size of the cache of specs created from registered types, "
+            + "and counts of its hits, misses, evictions and invalidations")
+    public Map<String,Object> getSpecCacheMetrics();
+
+    @GET
+    @Path("/metrics/threadPools")
+    @ApiOperation(value = "Returns the queue depth, active count, completed count and wait times "
+            + "of the thread pool for each lane of the execution manager, and of the mailbox scheduler pool if enabled")
+    public Map<String,Object> getThreadPoolMetrics();
+
     @POST
     @Path("/ha/state")
     @ApiOperation(value = "Changes the HA state of this management node")
@@ -38,6 +38,9 @@ import org.apache.brooklyn.rest.transform.TaskTransformer;
 import org.apache.brooklyn.rest.util.WebResourceUtils;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.task.ArchivedTask;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.brooklyn.util.core.task.TaskArchive;
 
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Iterables;
@@ -48,6 +51,12 @@ public class ActivityResource extends AbstractBrooklynRestResource implements Ac
 
     @Override
     public TaskSummary get(String taskId) {
+        if (mgmt().getExecutionManager().getTask(taskId) == null) {
+            ArchivedTask archived = findArchivedTask(taskId);
+            if (archived != null) {
+                return TaskTransformer.archivedTaskSummary(archived, ui.getBaseUriBuilder());
+            }
+        }
         Task<?> t = findTask(taskId);
 
         return TaskTransformer.fromTask(ui.getBaseUriBuilder()).apply(t);
@@ -73,6 +82,20 @@ public class ActivityResource extends AbstractBrooklynRestResource implements Ac
         return task;
     }
 
+    /** the summary of the given task if it has been deleted but archived, checking entitlement, otherwise null */
+    protected ArchivedTask findArchivedTask(final String taskId) {
+        if (!(mgmt().getExecutionManager() instanceof BasicExecutionManager)) return null;
+        TaskArchive archive = ((BasicExecutionManager) mgmt().getExecutionManager()).getTaskArchive();
+        ArchivedTask task = archive == null ? null : archive.get(taskId);
+        if (task == null) return null;
+        Entity entity = mgmt().getEntityManager().getEntity(task.getEntityId());
+        if (entity != null && !Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ENTITY, entity)) {
+            throw WebResourceUtils.forbidden("User '%s' is not authorized to see activity of entity '%s'",
+                    Entitlements.getEntitlementContext().user(), entity);
+        }
+        return task;
+    }
+
     private LinkedHashMap<String, TaskSummary> getAllDescendantTasks(final Task<?> parentTask, int limit, int maxDepth) {
         final LinkedHashMap<String, TaskSummary> result = Maps.newLinkedHashMap();
         if (!(parentTask instanceof HasTaskChildren)) {
@@ -132,7 +155,7 @@ public class ActivityResource extends AbstractBrooklynRestResource implements Ac
     }
 
     @Override
-    public String stream(String taskId, String streamId) {
+    public String stream(String taskId, String streamId, long offset, int length) {
         Task<?> t = findTask(taskId);
         checkStreamEntitled(t, streamId);
 
@@ -140,7 +163,13 @@ public class ActivityResource extends AbstractBrooklynRestResource implements Ac
         if (stream == null) {
             throw WebResourceUtils.notFound("Cannot find stream '%s' in task '%s'", streamId, taskId);
         }
-        return stream.streamContents.get();
+        if (offset < 0) {
+            throw WebResourceUtils.badRequest("Offset must not be negative");
+        }
+        if (offset == 0 && length < 0) {
+            return stream.streamContents.get();
+        }
+        return stream.getStreamContents(offset, length < 0 ? Integer.MAX_VALUE : length);
     }
 
     protected void checkEntityEntitled(Task<?> task) {
@@ -58,6 +58,9 @@ import org.apache.brooklyn.rest.transform.TaskTransformer;
 import org.apache.brooklyn.rest.util.WebResourceUtils;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.core.ResourceUtils;
+import org.apache.brooklyn.util.core.task.ArchivedTask;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.brooklyn.util.core.task.TaskArchive;
 import org.apache.brooklyn.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -131,8 +134,18 @@ public class EntityResource extends AbstractBrooklynRestResource implements Enti
     @Override
     public List<TaskSummary> listTasks(String applicationId, String entityId, int limit, Boolean recurse) {
         Entity entity = brooklyn().getEntity(applicationId, entityId);
-        return TaskTransformer.fromTasks(MutableList.copyOf(BrooklynTaskTags.getTasksInEntityContext(mgmt().getExecutionManager(), entity)),
+        List<TaskSummary> result = TaskTransformer.fromTasks(MutableList.copyOf(BrooklynTaskTags.getTasksInEntityContext(mgmt().getExecutionManager(), entity)),
             limit, recurse, entity, ui);
+        // then any which have been deleted but archived, most recent first
+        TaskArchive archive = mgmt().getExecutionManager() instanceof BasicExecutionManager
+            ? ((BasicExecutionManager) mgmt().getExecutionManager()).getTaskArchive() : null;
+        if (archive != null) {
+            List<ArchivedTask> archived = archive.getForEntity(entity.getId());
+            for (int i = archived.size()-1; i >= 0 && (limit <= 0 || result.size() < limit); i--) {
+                result.add(TaskTransformer.archivedTaskSummary(archived.get(i), ui.getBaseUriBuilder()));
+            }
+        }
+        return result;
     }
 
     /** API does not guarantee order, but this is a the one we use (when there are lots of tasks):
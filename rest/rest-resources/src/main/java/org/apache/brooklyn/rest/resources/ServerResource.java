@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -36,7 +37,9 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ContextResolver;
 
 import org.apache.brooklyn.api.entity.Application;
+import org.apache.brooklyn.api.mgmt.ExecutionManager;
 import org.apache.brooklyn.api.mgmt.ManagementContext;
+import org.apache.brooklyn.api.mgmt.SubscriptionManager;
 import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.api.mgmt.entitlement.EntitlementContext;
 import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityManager;
@@ -44,6 +47,7 @@ import org.apache.brooklyn.api.mgmt.ha.HighAvailabilityMode;
 import org.apache.brooklyn.api.mgmt.ha.ManagementNodeState;
 import org.apache.brooklyn.api.mgmt.ha.ManagementPlaneSyncRecord;
 import org.apache.brooklyn.api.mgmt.ha.MementoCopyMode;
+import org.apache.brooklyn.api.typereg.BrooklynTypeRegistry;
 import org.apache.brooklyn.config.ConfigKey;
 import org.apache.brooklyn.core.BrooklynVersion;
 import org.apache.brooklyn.core.config.ConfigKeys;
@@ -53,10 +57,13 @@ import org.apache.brooklyn.core.entity.StartableApplication;
 import org.apache.brooklyn.core.entity.lifecycle.Lifecycle;
 import org.apache.brooklyn.core.mgmt.ShutdownHandler;
 import org.apache.brooklyn.core.mgmt.entitlement.Entitlements;
+import org.apache.brooklyn.core.mgmt.internal.LocalSubscriptionManager;
 import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
+import org.apache.brooklyn.core.mgmt.internal.SensorEventMetrics;
 import org.apache.brooklyn.core.mgmt.persist.BrooklynPersistenceUtils;
 import org.apache.brooklyn.core.mgmt.persist.FileBasedObjectStore;
 import org.apache.brooklyn.core.mgmt.persist.PersistenceObjectStore;
+import org.apache.brooklyn.core.typereg.BasicBrooklynTypeRegistry;
 import org.apache.brooklyn.rest.api.ServerApi;
 import org.apache.brooklyn.rest.domain.BrooklynFeatureSummary;
 import org.apache.brooklyn.rest.domain.HighAvailabilitySummary;
@@ -69,6 +76,9 @@ import org.apache.brooklyn.util.collections.MutableMap;
 import org.apache.brooklyn.util.core.ResourceUtils;
 import org.apache.brooklyn.util.core.file.ArchiveBuilder;
 import org.apache.brooklyn.util.core.flags.TypeCoercions;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager.TaskLane;
+import org.apache.brooklyn.util.core.task.InstrumentedExecutorService;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.guava.Maybe;
 import org.apache.brooklyn.util.os.Os;
@@ -431,6 +441,67 @@ public class ServerResource extends AbstractBrooklynRestResource implements Serv
             throw WebResourceUtils.forbidden("User '%s' is not authorized to perform this operation", Entitlements.getEntitlementContext().user());
     }
     
+    @Override
+    public Map<String, Object> getSensorEventMetrics(int limit, String sortBy) {
+        if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ALL_SERVER_INFO, null))
+            throw WebResourceUtils.forbidden("User '%s' is not authorized to perform this operation", Entitlements.getEntitlementContext().user());
+        
+        SensorEventMetrics.SortBy sort;
+        try {
+            sort = SensorEventMetrics.SortBy.fromString(sortBy);
+        } catch (IllegalArgumentException e) {
+            throw WebResourceUtils.badRequest("Invalid sortBy '%s'; must be one of %s", sortBy, Arrays.asList(SensorEventMetrics.SortBy.values()));
+        }
+        SubscriptionManager subs = mgmt().getSubscriptionManager();
+        SensorEventMetrics metrics = subs instanceof LocalSubscriptionManager ? ((LocalSubscriptionManager)subs).getSensorEventMetrics() : null;
+        if (metrics==null) {
+            return MutableMap.<String, Object>of("enabled", false);
+        }
+        List<Map<String, Object>> sensors = new ArrayList<Map<String, Object>>();
+        for (SensorEventMetrics.Summary summary : metrics.getTop(limit, sort)) {
+            sensors.add(summary.asMap());
+        }
+        return MutableMap.<String, Object>of(
+            "enabled", true,
+            "totalEventsPublished", metrics.getTotalEventsPublished(),
+            "totalEventsDelivered", metrics.getTotalEventsDelivered(),
+            "totalEventsCoalesced", metrics.getTotalEventsCoalesced(),
+            "sensors", sensors);
+    }
+
+    @Override
+    public Map<String, Object> getSpecCacheMetrics() {
+        if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ALL_SERVER_INFO, null))
+            throw WebResourceUtils.forbidden("User '%s' is not authorized to perform this operation", Entitlements.getEntitlementContext().user());
+        
+        BrooklynTypeRegistry typeRegistry = mgmt().getTypeRegistry();
+        if (!(typeRegistry instanceof BasicBrooklynTypeRegistry)) {
+            return MutableMap.<String, Object>of("enabled", false);
+        }
+        return ((BasicBrooklynTypeRegistry)typeRegistry).getSpecCache().getStats();
+    }
+
+    @Override
+    public Map<String, Object> getThreadPoolMetrics() {
+        if (!Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.SEE_ALL_SERVER_INFO, null))
+            throw WebResourceUtils.forbidden("User '%s' is not authorized to perform this operation", Entitlements.getEntitlementContext().user());
+        
+        ExecutionManager executionManager = mgmt().getExecutionManager();
+        if (!(executionManager instanceof BasicExecutionManager)) {
+            return MutableMap.<String, Object>of("enabled", false);
+        }
+        BasicExecutionManager em = (BasicExecutionManager) executionManager;
+        Map<String, Object> lanes = MutableMap.of();
+        for (Map.Entry<TaskLane, InstrumentedExecutorService.Metrics> entry : em.getThreadPoolMetrics().entrySet()) {
+            lanes.put(entry.getKey().name().toLowerCase(), entry.getValue().asMap());
+        }
+        InstrumentedExecutorService.Metrics mailbox = em.getMailboxPoolMetrics();
+        return MutableMap.<String, Object>of(
+            "enabled", true,
+            "lanes", lanes,
+            "mailbox", mailbox!=null ? mailbox.asMap() : null);
+    }
+    
     @Override
     public long getHighAvailabitlityPriority() {
         if (Entitlements.isEntitled(mgmt().getEntitlementManager(), Entitlements.HA_STATS, null)) {
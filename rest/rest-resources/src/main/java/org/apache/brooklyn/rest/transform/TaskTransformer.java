@@ -41,6 +41,8 @@ import org.apache.brooklyn.rest.resources.EntityResource.InterestingTasksFirstCo
 import org.apache.brooklyn.rest.util.WebResourceUtils;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.collections.MutableMap;
+import org.apache.brooklyn.util.collections.MutableSet;
+import org.apache.brooklyn.util.core.task.ArchivedTask;
 import org.apache.brooklyn.util.core.task.TaskInternal;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.text.Strings;
@@ -142,6 +144,30 @@ public class TaskTransformer {
       }
     }
 
+    /** summary of a task which has been deleted, from what was kept of it when it was archived */
+    public static TaskSummary archivedTaskSummary(ArchivedTask task, UriBuilder ub) {
+      try {
+        Preconditions.checkNotNull(task);
+        String selfLink = asLink(task.getId(), task.getDisplayName(), ub).getLink();
+
+        // children are not archived, so are not linked
+        List<LinkWithMetadata> children = Collections.emptyList();
+        Map<String,URI> links = MutableMap.of("self", new URI(selfLink));
+        
+        return new TaskSummary(task.getId(), task.getDisplayName(), task.getDescription(), task.getEntityId(), task.getEntityDisplayName(), 
+                MutableSet.<Object>copyOf(task.getTags()), ifPositive(task.getSubmitTimeUtc()), ifPositive(task.getStartTimeUtc()), ifPositive(task.getEndTimeUtc()),
+                task.getStatusSummary(), task.getResult(), task.isError(), task.isCancelled(),
+                children, task.getSubmittedByTaskId()==null ? null : asLink(task.getSubmittedByTaskId(), null, ub),
+                null, null, 
+                task.getStatusSummary(),
+                Collections.<String,LinkWithMetadata>emptyMap(),
+                links);
+      } catch (URISyntaxException e) {
+          // shouldn't happen
+          throw Exceptions.propagate(e);
+      }
+    }
+
     private static Long ifPositive(Long time) {
         if (time==null || time<=0) return null;
         return time;
@@ -161,6 +187,15 @@ public class TaskTransformer {
         return new LinkWithMetadata(taskUri.toString(), data);
     }
     
+    /** link to a task known only by id, such as one which has been archived */
+    public static LinkWithMetadata asLink(String taskId, @Nullable String taskName, UriBuilder ub) {
+        MutableMap<String,Object> data = new MutableMap<String,Object>();
+        data.put("id", taskId);
+        if (taskName!=null) data.put("taskName", taskName);
+        URI taskUri = serviceUriBuilder(ub, ActivityApi.class, "get").build(taskId);
+        return new LinkWithMetadata(taskUri.toString(), data);
+    }
+    
     public static List<TaskSummary> fromTasks(List<Task<?>> tasksToScan, int limit, Boolean recurse, Entity entity, UriInfo ui) {
         int sizeRemaining = limit;
         if (limit>0) {
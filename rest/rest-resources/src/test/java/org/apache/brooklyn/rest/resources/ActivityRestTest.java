@@ -35,8 +35,11 @@ import org.apache.brooklyn.api.mgmt.Task;
 import org.apache.brooklyn.core.effector.SampleManyTasksEffector;
 import org.apache.brooklyn.core.entity.Dumper;
 import org.apache.brooklyn.core.entity.Entities;
+import org.apache.brooklyn.core.entity.EntityInternal;
+import org.apache.brooklyn.core.internal.BrooklynProperties;
 import org.apache.brooklyn.core.mgmt.EntityManagementUtils;
 import org.apache.brooklyn.core.mgmt.EntityManagementUtils.CreationResult;
+import org.apache.brooklyn.core.mgmt.internal.ManagementContextInternal;
 import org.apache.brooklyn.core.mgmt.internal.TestEntityWithEffectors;
 import org.apache.brooklyn.entity.stock.BasicApplication;
 import org.apache.brooklyn.rest.domain.TaskSummary;
@@ -44,6 +47,8 @@ import org.apache.brooklyn.rest.testing.BrooklynRestResourceTest;
 import org.apache.brooklyn.test.Asserts;
 import org.apache.brooklyn.util.collections.MutableList;
 import org.apache.brooklyn.util.core.config.ConfigBag;
+import org.apache.brooklyn.util.core.task.BasicExecutionManager;
+import org.apache.brooklyn.util.core.task.Tasks;
 import org.apache.brooklyn.util.exceptions.Exceptions;
 import org.apache.brooklyn.util.http.HttpAsserts;
 import org.apache.brooklyn.util.time.CountdownTimer;
@@ -56,6 +61,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Callables;
 
 /** Tests {@link ActivityResource} and activity methods on {@link EntityResource} */
 public class ActivityRestTest extends BrooklynRestResourceTest {
@@ -92,6 +98,13 @@ Task[eatand]@J90TKfIX: Waiting on Task[eat-sleep-rave-repeat]@QPa5o4kF
     public void setUp() throws Exception {
         startServer();
     }
+
+    @Override
+    protected BrooklynProperties getBrooklynProperties() {
+        BrooklynProperties result = BrooklynProperties.Factory.newEmpty();
+        result.put(BasicExecutionManager.MAX_ARCHIVED_TASKS_PER_ENTITY, 10);
+        return result;
+    }
     
     @BeforeMethod(alwaysRun = true)
     public void setUpOneTest() throws Exception {
@@ -291,6 +304,45 @@ Task[eatand]@J90TKfIX: Waiting on Task[eat-sleep-rave-repeat]@QPa5o4kF
         Assert.assertFalse(tasksContain(tasks, leaf), "tasks should not have included leaf "+leaf+"; was "+tasks);
     }
 
+    @Test
+    public void testGetArchivedActivity() {
+        Task<?> t = runAndDeleteTask("archived-task");
+        
+        Response response = client().path("/activities/"+t.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .get();
+        assertHealthy(response);
+        TaskSummary task = response.readEntity(TaskSummary.class);
+        Assert.assertEquals(task.getId(), t.getId());
+        Assert.assertEquals(task.getDisplayName(), "archived-task");
+        Assert.assertEquals(task.getEntityId(), entity.getId());
+    }
+    
+    @Test
+    public void testGetEntityActivitiesIncludesArchived() {
+        Task<?> t = runAndDeleteTask("archived-listed-task");
+        
+        Response response = client().path("/applications/"+entity.getApplicationId()+
+                "/entities/"+entity.getId()+"/activities")
+            .accept(MediaType.APPLICATION_JSON)
+            .get();
+        assertHealthy(response);
+        List<TaskSummary> tasks = response.readEntity(new GenericType<List<TaskSummary>>() {});
+        Assert.assertTrue(tasksContain(tasks, t), "tasks should have included archived "+t+"; was "+tasks);
+    }
+    
+    /** runs a task on the entity, then deletes it so it is only in the archive */
+    private Task<?> runAndDeleteTask(String name) {
+        Task<?> t = ((EntityInternal)entity).getExecutionContext().submit(Tasks.builder().displayName(name)
+            .tag(ManagementContextInternal.NON_TRANSIENT_TASK_TAG).body(Callables.returning("done")).build());
+        t.getUnchecked();
+        BasicExecutionManager em = (BasicExecutionManager) getManagementContext().getExecutionManager();
+        em.deleteTask(t);
+        Assert.assertNull(em.getTask(t.getId()));
+        Assert.assertNotNull(em.getTaskArchive().get(t.getId()), "not archived: "+t);
+        return t;
+    }
+
     private void assertHealthy(Response response) {
         if (!HttpAsserts.isHealthyStatusCode(response.getStatus())) {
             Asserts.fail("Bad response: "+response.getStatus()+" "+response.readEntity(String.class));
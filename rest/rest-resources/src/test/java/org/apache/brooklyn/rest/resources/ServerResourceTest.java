@@ -25,6 +25,7 @@ import static org.testng.Assert.assertTrue;
 import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
@@ -126,6 +127,38 @@ public class ServerResourceTest extends BrooklynRestResourceTest {
         assertEquals(summary.getNodes().get(ownNodeId).getLocalTimestamp(), summary.getNodes().get(ownNodeId).getRemoteTimestamp());
     }
 
+    @Test
+    public void testGetSensorEventMetrics() throws Exception {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> metrics = client().path("/server/metrics/sensors").query("limit", 5).get(Map.class);
+        // disabled by default
+        assertEquals(metrics.get("enabled"), false);
+        
+        Response response = client().path("/server/metrics/sensors").query("sortBy", "nonsense").get();
+        assertEquals(response.getStatus(), Response.Status.BAD_REQUEST.getStatusCode());
+    }
+
+    @Test
+    public void testGetSpecCacheMetrics() throws Exception {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> metrics = client().path("/server/metrics/specs").get(Map.class);
+        assertEquals(metrics.get("enabled"), true);
+        assertEquals(((Number)metrics.get("maxSize")).intValue(), 100);
+        assertTrue(metrics.containsKey("hits"), "metrics="+metrics);
+        assertTrue(metrics.containsKey("misses"), "metrics="+metrics);
+        assertTrue(metrics.containsKey("evictions"), "metrics="+metrics);
+    }
+
+    @Test
+    public void testGetThreadPoolMetrics() throws Exception {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> metrics = client().path("/server/metrics/threadPools").get(Map.class);
+        assertEquals(metrics.get("enabled"), true);
+        Map<?, ?> lanes = (Map<?, ?>) metrics.get("lanes");
+        assertEquals(lanes.keySet(), ImmutableSet.of("subscription", "scheduled", "effector", "default"), "metrics="+metrics);
+        assertTrue(((Map<?, ?>)lanes.get("default")).containsKey("queueDepth"), "metrics="+metrics);
+    }
+
     @SuppressWarnings("serial")
     @Test
     public void testReloadsBrooklynProperties() throws Exception {
@@ -134,6 +134,11 @@ public abstract class BrooklynRestApiTest {
     protected boolean useLocalScannedCatalog() {
         return false;
     }
+
+    /** properties for the management context, if not {@link #useLocalScannedCatalog()}; null for the defaults */
+    protected BrooklynProperties getBrooklynProperties() {
+        return null;
+    }
     
     private TestShutdownHandler createShutdownHandler() {
         return new TestShutdownHandler();
@@ -147,7 +152,7 @@ public abstract class BrooklynRestApiTest {
                         .build();
                 forceUseOfDefaultCatalogWithJavaClassPath();
             } else {
-                manager = new LocalManagementContextForTests();
+                manager = new LocalManagementContextForTests(getBrooklynProperties());
             }
             manager.getHighAvailabilityManager().disabled(false);
             ((LocalManagementContext)manager).generateManagementPlaneId();
@@ -180,9 +180,9 @@ public abstract class AbstractSoftwareProcessSshDriver extends AbstractSoftwareP
                     Streams.byteArrayOfString(Strings.join(script, "\n"))));
             }
             if (BrooklynTaskTags.stream(Tasks.current(), BrooklynTaskTags.STREAM_STDOUT)==null) {
-                ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+                ByteArrayOutputStream stdout = BrooklynTaskTags.newStreamBuffer();
                 Tasks.addTagDynamically(BrooklynTaskTags.tagForStreamSoft(BrooklynTaskTags.STREAM_STDOUT, stdout));
-                ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+                ByteArrayOutputStream stderr = BrooklynTaskTags.newStreamBuffer();
                 Tasks.addTagDynamically(BrooklynTaskTags.tagForStreamSoft(BrooklynTaskTags.STREAM_STDERR, stderr));
                 flags.put("out", stdout);
                 flags.put("err", stderr);
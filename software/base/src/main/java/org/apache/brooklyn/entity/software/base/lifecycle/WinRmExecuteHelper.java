@@ -168,9 +168,9 @@ public class WinRmExecuteHelper {
         }
 
         if (gatherOutput) {
-            stdout = new ByteArrayOutputStream();
+            stdout = BrooklynTaskTags.newStreamBuffer();
             tb.tag(BrooklynTaskTags.tagForStreamSoft(BrooklynTaskTags.STREAM_STDOUT, stdout));
-            stderr = new ByteArrayOutputStream();
+            stderr = BrooklynTaskTags.newStreamBuffer();
             tb.tag(BrooklynTaskTags.tagForStreamSoft(BrooklynTaskTags.STREAM_STDERR, stderr));
         }
         task = tb.build();
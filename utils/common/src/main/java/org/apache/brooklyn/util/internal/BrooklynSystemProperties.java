@@ -41,6 +41,11 @@ public class BrooklynSystemProperties {
     /** Allows the use of YAML tags to create arbitrary types known to Java. */
     public static BooleanSystemProperty YAML_TYPE_INSTANTIATION = new BooleanSystemProperty("org.apache.brooklyn.unsafe.YamlTypeInstantiation");
     
+    /** If set, stdout/stderr buffers for tasks keep at most this many bytes in memory, spilling older output to disk;
+     * see {@link org.apache.brooklyn.util.stream.SpillingByteArrayOutputStream}. Unset by default, keeping everything in memory. */
+    // -Dbrooklyn.tasks.streams.maxInMemoryBytes=65536
+    public static IntegerSystemProperty TASK_STREAM_MAX_IN_MEMORY_BYTES = new IntegerSystemProperty("brooklyn.tasks.streams.maxInMemoryBytes");
+
     /** Since 1.0.0 we no longer ask jclouds to authorizePublicKey for data in extraSshPublicKeyData; we do this ourselves, and the jclouds behaviour
      * interferes with the use of key pairs.
      * <p> 
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.brooklyn.util.exceptions.Exceptions;
+import org.apache.brooklyn.util.os.Os;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link ByteArrayOutputStream} which keeps at most a given number of bytes in memory,
+ * appending older content to a spill file on disk once that is exceeded.
+ * <p>
+ * Reading methods ({@link #size()}, {@link #toString()}, {@link #toByteArray()}, {@link #writeTo(OutputStream)})
+ * behave as for a normal {@link ByteArrayOutputStream}, combining the spilled content with the in-memory tail,
+ * and {@link #read(long, int)} allows a range to be read without loading everything.
+ * <p>
+ * Callers should {@link #release()} the stream when its content is no longer needed, and nothing else can read it,
+ * so the spill file is deleted. Otherwise the spill file is deleted once the stream has been garbage collected,
+ * the next time a stream spills or {@link #deleteUnreachableSpillFiles()} is invoked.
+ * The default spill directory is deleted on exit, and ones left by processes which did not exit cleanly
+ * are deleted when the next process first needs one.
+ */
+@Beta
+public class SpillingByteArrayOutputStream extends ByteArrayOutputStream {
+
+    private static final Logger log = LoggerFactory.getLogger(SpillingByteArrayOutputStream.class);
+
+    private static final String DEFAULT_SPILL_DIR_PREFIX = "brooklyn-streams";
+    private static final String LOCK_FILE_NAME = ".lock";
+    /** how long a spill dir must be unlocked before it is treated as stale, to allow for its creator locking it */
+    private static final long STALE_SPILL_DIR_MIN_AGE_MILLIS = 60*1000;
+
+    private static File defaultSpillDir;
+    /** held so that the lock is not released when its channel is garbage collected */
+    @SuppressWarnings("unused")
+    private static FileLock defaultSpillDirLock;
+
+    private static synchronized File defaultSpillDir() {
+        if (defaultSpillDir==null || !defaultSpillDir.isDirectory()) {
+            File dir = Os.newTempDir(DEFAULT_SPILL_DIR_PREFIX);
+            defaultSpillDirLock = lock(dir);
+            deleteStaleSpillDirs(dir.getParentFile(), dir);
+            defaultSpillDir = dir;
+        }
+        return defaultSpillDir;
+    }
+
+    /** locks the given spill dir for the life of this process, so other processes know it is in use */
+    private static FileLock lock(File dir) {
+        try {
+            @SuppressWarnings("resource")
+            FileLock result = new RandomAccessFile(new File(dir, LOCK_FILE_NAME), "rw").getChannel().tryLock();
+            if (result==null) log.debug("Unable to lock stream spill dir "+dir+"; it may be deleted by another process");
+            return result;
+        } catch (IOException e) {
+            log.debug("Unable to lock stream spill dir "+dir+"; it may be deleted by another process: "+e);
+            return null;
+        }
+    }
+
+    /** deletes default spill dirs in the given parent left by processes which did not exit cleanly,
+     * that is those whose lock file is not held and has not been modified recently; returns the number deleted */
+    @VisibleForTesting
+    static int deleteStaleSpillDirs(File parent, File current) {
+        File[] dirs = parent!=null ? parent.listFiles() : null;
+        if (dirs==null) return 0;
+        int count = 0;
+        for (File dir: dirs) {
+            if (!dir.isDirectory() || dir.equals(current) || !dir.getName().startsWith(DEFAULT_SPILL_DIR_PREFIX+"-")) continue;
+            File lockFile = new File(dir, LOCK_FILE_NAME);
+            if (!lockFile.isFile() || System.currentTimeMillis() - lockFile.lastModified() < STALE_SPILL_DIR_MIN_AGE_MILLIS) continue;
+            try (RandomAccessFile raf = new RandomAccessFile(lockFile, "rw"); FileLock lock = raf.getChannel().tryLock()) {
+                if (lock==null) continue;
+            } catch (IOException | OverlappingFileLockException e) {
+                continue;
+            }
+            log.debug("Deleting stale stream spill dir "+dir);
+            if (Os.deleteRecursively(dir).wasSuccessful()) count++;
+        }
+        return count;
+    }
+
+    /** spill files of streams which have not been released, referenced via the stream so that
+     * they can be deleted once the stream is no longer reachable */
+    private static final Set<SpillFileReference> spillFileReferences = Collections.newSetFromMap(new ConcurrentHashMap<SpillFileReference, Boolean>());
+    private static final ReferenceQueue<SpillingByteArrayOutputStream> unreachableStreams = new ReferenceQueue<SpillingByteArrayOutputStream>();
+
+    private static class SpillFileReference extends PhantomReference<SpillingByteArrayOutputStream> {
+        private final File file;
+        SpillFileReference(SpillingByteArrayOutputStream stream, File file) {
+            super(stream, unreachableStreams);
+            this.file = file;
+            spillFileReferences.add(this);
+        }
+        void deleteFile() {
+            spillFileReferences.remove(this);
+            clear();
+            if (!file.delete() && file.exists()) {
+                log.debug("Unable to delete stream spill file "+file);
+            }
+        }
+    }
+
+    /** deletes the spill files of any streams which were garbage collected without being released,
+     * returning the number deleted; invoked whenever a stream first spills,
+     * and suitable for invoking periodically, for instance by a garbage collector of tasks */
+    public static int deleteUnreachableSpillFiles() {
+        int count = 0;
+        Reference<?> ref;
+        while ((ref = unreachableStreams.poll()) != null) {
+            ((SpillFileReference) ref).deleteFile();
+            count++;
+        }
+        if (count>0 && log.isTraceEnabled()) log.trace("Deleted "+count+" spill files of unreachable streams");
+        return count;
+    }
+
+    private final int maxInMemory;
+    private final File spillDir;
+    private File spillFile;
+    private SpillFileReference spillFileReference;
+    private long spilledSize = 0;
+    private boolean released = false;
+
+    /** as {@link #SpillingByteArrayOutputStream(int, File)} using a temp dir shared by all such streams in this process */
+    public SpillingByteArrayOutputStream(int maxInMemory) {
+        this(maxInMemory, null);
+    }
+
+    public SpillingByteArrayOutputStream(int maxInMemory, File spillDir) {
+        super(Math.min(maxInMemory, 1024));
+        Preconditions.checkArgument(maxInMemory>0, "maxInMemory must be positive");
+        this.maxInMemory = maxInMemory;
+        this.spillDir = spillDir;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (released) return;
+        if (count+1 > maxInMemory) spill(null, 0, 0);
+        super.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        if (released) return;
+        if (count+len <= maxInMemory) {
+            super.write(b, off, len);
+        } else if (len < maxInMemory) {
+            spill(null, 0, 0);
+            super.write(b, off, len);
+        } else {
+            // too big to keep any of it, so write it straight through
+            spill(b, off, len);
+        }
+    }
+
+    /** writes the in-memory buffer, followed by the given extra bytes, to the spill file, and clears the buffer */
+    private void spill(byte[] extra, int off, int len) {
+        try {
+            if (spillFile==null) {
+                deleteUnreachableSpillFiles();
+                spillFile = File.createTempFile("stream-", ".spill", spillDir!=null ? spillDir : defaultSpillDir());
+                spillFileReference = new SpillFileReference(this, spillFile);
+            }
+            try (OutputStream out = new FileOutputStream(spillFile, true)) {
+                out.write(buf, 0, count);
+                if (extra!=null) out.write(extra, off, len);
+            }
+            spilledSize += count + (extra!=null ? len : 0);
+            count = 0;
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+
+    /** total number of bytes written, capped at {@link Integer#MAX_VALUE}; see {@link #sizeLong()} */
+    @Override
+    public synchronized int size() {
+        return (int) Math.min(Integer.MAX_VALUE, sizeLong());
+    }
+
+    public synchronized long sizeLong() {
+        return spilledSize + count;
+    }
+
+    /** number of bytes currently held on disk rather than in memory */
+    public synchronized long getSpilledSize() {
+        return spilledSize;
+    }
+
+    public synchronized boolean isSpilled() {
+        return spilledSize > 0;
+    }
+
+    /** reads up to <code>length</code> bytes starting at <code>offset</code>;
+     * returns an empty array if the offset is beyond the end of the content */
+    public synchronized byte[] read(long offset, int length) {
+        Preconditions.checkArgument(offset>=0, "offset must not be negative");
+        Preconditions.checkArgument(length>=0, "length must not be negative");
+        long end = Math.min(sizeLong(), offset + length);
+        if (offset >= end) return new byte[0];
+        byte[] result = new byte[(int) (end - offset)];
+        int pos = 0;
+        if (offset < spilledSize) {
+            int fromFile = (int) (Math.min(end, spilledSize) - offset);
+            try (RandomAccessFile raf = new RandomAccessFile(spillFile, "r")) {
+                FileChannel channel = raf.getChannel();
+                ByteBuffer bb = ByteBuffer.wrap(result, 0, fromFile);
+                while (bb.hasRemaining()) {
+                    if (channel.read(bb, offset + bb.position()) < 0) {
+                        throw new IOException("Unexpected end of "+spillFile);
+                    }
+                }
+            } catch (IOException e) {
+                throw Exceptions.propagate(e);
+            }
+            pos = fromFile;
+        }
+        if (pos < result.length) {
+            int memOffset = (int) (offset + pos - spilledSize);
+            System.arraycopy(buf, memOffset, result, pos, result.length - pos);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized byte[] toByteArray() {
+        if (spilledSize==0) return super.toByteArray();
+        return read(0, size());
+    }
+
+    @Override
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        long pos = 0;
+        while (pos < spilledSize) {
+            byte[] chunk = read(pos, (int) Math.min(spilledSize - pos, 64*1024));
+            out.write(chunk);
+            pos += chunk.length;
+        }
+        out.write(buf, 0, count);
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (spilledSize==0) return super.toString();
+        return new String(toByteArray(), Charset.defaultCharset());
+    }
+
+    @Override
+    public synchronized String toString(String charsetName) throws UnsupportedEncodingException {
+        if (spilledSize==0) return super.toString(charsetName);
+        return new String(toByteArray(), charsetName);
+    }
+
+    @Override
+    public synchronized void reset() {
+        deleteSpillFile();
+        super.reset();
+    }
+
+    /** discards all content, including any spill file; subsequent writes are ignored */
+    public synchronized void release() {
+        released = true;
+        reset();
+        buf = new byte[0];
+    }
+
+    public synchronized boolean isReleased() {
+        return released;
+    }
+
+    private void deleteSpillFile() {
+        if (spillFileReference!=null) {
+            spillFileReference.deleteFile();
+            spillFileReference = null;
+        }
+        spillFile = null;
+        spilledSize = 0;
+    }
+}
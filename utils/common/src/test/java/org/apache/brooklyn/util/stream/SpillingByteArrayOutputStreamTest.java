@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.brooklyn.util.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import org.apache.brooklyn.test.Asserts;
+import org.apache.brooklyn.util.os.Os;
+import org.apache.brooklyn.util.text.Strings;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SpillingByteArrayOutputStreamTest {
+
+    private File dir;
+
+    @BeforeMethod(alwaysRun=true)
+    public void setUp() {
+        dir = Os.newTempDir(getClass());
+    }
+
+    @AfterMethod(alwaysRun=true)
+    public void tearDown() {
+        if (dir != null) Os.deleteRecursively(dir);
+    }
+
+    @Test
+    public void testSmallContentStaysInMemory() throws Exception {
+        SpillingByteArrayOutputStream out = new SpillingByteArrayOutputStream(100, dir);
+        out.write("hello world".getBytes());
+        Assert.assertFalse(out.isSpilled());
+        Assert.assertEquals(out.toString(), "hello world");
+        Assert.assertEquals(out.size(), 11);
+        Assert.assertEquals(dir.list().length, 0);
+    }
+
+    @Test
+    public void testSpillsAndReadsBack() throws Exception {
+        SpillingByteArrayOutputStream out = new SpillingByteArrayOutputStream(10, dir);
+        StringBuilder expected = new StringBuilder();
+        for (int i=0; i<50; i++) {
+            String line = "line "+i+"\n";
+            out.write(line.getBytes());
+            expected.append(line);
+        }
+        out.write('x');
+        expected.append('x');
+        // a single write larger than the in-memory limit
+        String big = Strings.repeat("y", 25);
+        out.write(big.getBytes());
+        expected.append(big);
+
+        Assert.assertTrue(out.isSpilled());
+        Assert.assertEquals(dir.list().length, 1);
+        Assert.assertEquals(out.size(), expected.length());
+        Assert.assertTrue(out.size() - out.getSpilledSize() <= 10);
+        Assert.assertEquals(out.toString(), expected.toString());
+
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        out.writeTo(copy);
+        Assert.assertEquals(copy.toString(), expected.toString());
+    }
+
+    @Test
+    public void testReadRange() throws Exception {
+        SpillingByteArrayOutputStream out = new SpillingByteArrayOutputStream(8, dir);
+        String content = "0123456789abcdefghijklmnopqrstuvwxyz";
+        for (char c : content.toCharArray()) out.write(c);
+
+        // range spanning file and memory
+        int tailStart = (int) out.getSpilledSize();
+        Assert.assertEquals(new String(out.read(tailStart-3, 6)), content.substring(tailStart-3, tailStart+3));
+        Assert.assertEquals(new String(out.read(2, 5)), "23456");
+        Assert.assertEquals(new String(out.read(30, 100)), "uvwxyz");
+        Assert.assertEquals(out.read(100, 5).length, 0);
+    }
+
+    @Test
+    public void testReleaseDeletesSpillFile() throws Exception {
+        SpillingByteArrayOutputStream out = new SpillingByteArrayOutputStream(4, dir);
+        out.write("more than four bytes".getBytes());
+        Assert.assertEquals(dir.list().length, 1);
+
+        out.release();
+        Assert.assertTrue(out.isReleased());
+        Assert.assertEquals(dir.list().length, 0);
+        Assert.assertEquals(out.size(), 0);
+
+        out.write("ignored".getBytes());
+        Assert.assertEquals(out.size(), 0);
+    }
+
+    @Test
+    public void testSpillFileDeletedWhenStreamUnreachable() throws Exception {
+        writeSpilledStreamAndDiscard();
+        Assert.assertEquals(dir.list().length, 1);
+
+        Asserts.succeedsEventually(new Runnable() {
+            @Override public void run() {
+                System.gc();
+                SpillingByteArrayOutputStream.deleteUnreachableSpillFiles();
+                Assert.assertEquals(dir.list().length, 0);
+            }});
+    }
+
+    private void writeSpilledStreamAndDiscard() throws Exception {
+        SpillingByteArrayOutputStream out = new SpillingByteArrayOutputStream(4, dir);
+        out.write("more than four bytes".getBytes());
+        Assert.assertTrue(out.isSpilled());
+    }
+
+    @Test
+    public void testStaleSpillDirsDeleted() throws Exception {
+        File stale = newSpillDir("brooklyn-streams-stale", true);
+        File recent = newSpillDir("brooklyn-streams-recent", false);
+        File withoutLockFile = newSpillDir("brooklyn-streams-nolock", true);
+        new File(withoutLockFile, ".lock").delete();
+        File other = newSpillDir("other-stale", true);
+
+        Assert.assertEquals(SpillingByteArrayOutputStream.deleteStaleSpillDirs(dir, null), 1);
+        Assert.assertFalse(stale.exists());
+        Assert.assertTrue(recent.exists());
+        Assert.assertTrue(withoutLockFile.exists());
+        Assert.assertTrue(other.exists());
+    }
+
+    private File newSpillDir(String name, boolean old) throws Exception {
+        File result = Os.mkdirs(new File(dir, name));
+        new File(result, "stream-1.spill").createNewFile();
+        File lock = new File(result, ".lock");
+        lock.createNewFile();
+        if (old) lock.setLastModified(System.currentTimeMillis() - 10*60*1000);
+        return result;
+    }
+}